@@ -22,6 +22,7 @@ import org.springframework.data.domain.Sort;
 import org.springframework.security.access.AccessDeniedException;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
 
 import java.nio.charset.StandardCharsets;
@@ -31,91 +32,72 @@ import java.util.Base64;
 import java.util.List;
 import java.util.stream.Collectors;
 
+/**
+ * Chat with the AI model about a document or in general.
+ * <p>
+ * Deliberately not transactional as a whole: the messages and sessions are written in short
+ * transactions of their own, so no transaction is open while the model answers.
+ */
 @Slf4j
 @RequiredArgsConstructor
 @Service
-@Transactional
 public class ChatService {
 
     private final IChatSessionRepository chatSessionRepository;
     private final IChatMessageRepository chatMessageRepository;
-    private final IDocumentChunkRepository documentChunkRepository;
-    private final DocumentProcessingService documentProcessingService;
+    private final ChunkRetriever chunkRetriever;
+    private final ProcessingJobService processingJobService;
     private final IDocumentRepository documentRepository;
     private final PythonApiService pythonApiService;
     private final UserService userService;
     private final EncryptionUtil encryptionUtil;
+    private final TransactionTemplate transactionTemplate;
 
     public ChatMessage sendMessage(User caller, Long documentId, String Prompt) {
         // First check if document exists and has been processed
         Document document = documentRepository.findById(documentId)
                 .orElseThrow(() -> new EntityNotFoundException("Document not found"));
 
-        // If document is not processed, send it for processing and wait
-        if (!document.isAiProcessed()) {
-            log.info("Document {} not processed. Sending for processing first...", documentId);
-            documentProcessingService.sendDocumentForProcessing(documentId);
-
-            // Wait for processing to complete with timeout
-            int maxAttempts = 30; // 30 attempts with 2-second wait = max 1 minute wait
-            int attempts = 0;
-
-            while (!document.isAiProcessed() && attempts < maxAttempts) {
-                try {
-                    Thread.sleep(2000); // Wait 2 seconds between checks
-                    attempts++;
-
-                    // Refresh document from database to check updated status
-                    document = documentRepository.findById(documentId)
-                            .orElseThrow(() -> new EntityNotFoundException("Document not found"));
-
-                    log.debug("Waiting for document processing... Attempt {}/{}", attempts, maxAttempts);
-                } catch (InterruptedException e) {
-                    Thread.currentThread().interrupt();
-                    throw new RuntimeException("Interrupted while waiting for document processing", e);
-                }
-            }
-
-            // Check if processing completed successfully
-            if (!document.isAiProcessed()) {
-                throw new RuntimeException("Document processing timed out or failed");
-            }
-
-            log.info("Document {} successfully processed. Continuing with chat...", documentId);
+        // Unprocessed documents are queued with ProcessingJobService.submitUnlessReady first
+        if (!processingJobService.isReady(document)) {
+            throw new IllegalStateException("Document " + documentId + " is still being processed");
         }
 
-        // Get or create chat session
-        ChatSession session = getOrCreateChatSession(document, caller.getId());
-
-
-
-        // Save user message
-        ChatMessage userMessage = new ChatMessage();
-        userMessage.setChatSession(session);
-        userMessage.setIsUserMessage(true);
-        userMessage.setContent(Prompt);
-        userMessage.setTimestamp(LocalDateTime.now());
-        chatMessageRepository.save(userMessage);
+        // Get or create chat session and save user message
+        ChatSession session = transactionTemplate.execute(status -> {
+            ChatSession chatSession = getOrCreateChatSession(document, caller.getId());
+            saveMessage(chatSession, true, Prompt);
+            return chatSession;
+        });
 
-        // Fetch document chunks
-        List<DocumentChunkDto> chunkDtos = documentChunkRepository.findByDocumentIdOrderByChunkOrder(documentId);
+        // Only the chunks relevant to the prompt, without their embeddings
+        List<DocumentChunkDto> chunkDtos = chunkRetriever.retrieve(documentId, Prompt);
         // Get AI response from Python API
         List<ChatMessageDto> previousMessages = getPreviousMessages(session);
         ChatModelRequestDto chatModelRequestDto = new ChatModelRequestDto(documentId, Prompt, previousMessages,chunkDtos);
         String aiResponse = pythonApiService.getChatResponse(chatModelRequestDto);
 
-        // Save AI response
-        ChatMessage aiMessage = new ChatMessage();
-        aiMessage.setChatSession(session);
-        aiMessage.setIsUserMessage(false);
-        aiMessage.setContent(aiResponse);
-        aiMessage.setTimestamp(LocalDateTime.now());
+        return saveResponse(session, aiResponse);
+    }
 
-        // Update session last active time
-        session.setLastActiveAt(LocalDateTime.now());
-        chatSessionRepository.save(session);
+    private ChatMessage saveMessage(ChatSession session, boolean isUserMessage, String content) {
+        ChatMessage message = new ChatMessage();
+        message.setChatSession(session);
+        message.setIsUserMessage(isUserMessage);
+        message.setContent(content);
+        message.setTimestamp(LocalDateTime.now());
+        return chatMessageRepository.save(message);
+    }
 
-        return chatMessageRepository.save(aiMessage);
+    /**
+     * Saves the AI response and updates the session last active time, in one transaction.
+     */
+    private ChatMessage saveResponse(ChatSession session, String aiResponse) {
+        return transactionTemplate.execute(status -> {
+            session.setLastActiveAt(LocalDateTime.now());
+            chatSessionRepository.save(session);
+            return saveMessage(session, false, aiResponse);
+        });
     }
 
     private ChatSession getOrCreateChatSession(Document document, Long userId) {
@@ -190,6 +172,7 @@ public class ChatService {
     }
 
 //    ---------------------Document Messages---------------------
+    @Transactional
     public Page<ChatMessage> getDocumentMessages(User caller, Long documentId, int page, int size) {
         Document document = documentRepository.findById(documentId)
                 .orElseThrow(() -> new EntityNotFoundException("Document not found"));
@@ -201,6 +184,7 @@ public class ChatService {
 
 
     //   ---------------------User Chat Sessions---------------------
+    @Transactional(readOnly = true)
     public List<ChatSession> getUserChatSessions(Long userId) {
         // Fetch all sessions for this user, with their messages
         return chatSessionRepository.findByUserId(userId);
@@ -217,6 +201,7 @@ public class ChatService {
      * @return A page of chat messages for the specified session
      * @throws EntityNotFoundException if the session doesn't exist or doesn't belong to the user
      */
+    @Transactional(readOnly = true)
     public Page<ChatMessage> getSessionMessages(User caller, Long sessionId, int page, int size) {
         // First verify the session exists and belongs to the user
         ChatSession session = chatSessionRepository.findById(sessionId)
@@ -243,16 +228,12 @@ public class ChatService {
      * @return The AI response message
      */
     public ChatMessage sendGeneralMessage(User user, String prompt) {
-        // Create or get a general chat session (not tied to a document)
-        ChatSession session = getOrCreateGeneralChatSession(user.getId());
-
-        // Save user message
-        ChatMessage userMessage = new ChatMessage();
-        userMessage.setChatSession(session);
-        userMessage.setIsUserMessage(true);
-        userMessage.setContent(prompt);
-        userMessage.setTimestamp(LocalDateTime.now());
-        chatMessageRepository.save(userMessage);
+        // Create or get a general chat session (not tied to a document) and save user message
+        ChatSession session = transactionTemplate.execute(status -> {
+            ChatSession chatSession = getOrCreateGeneralChatSession(user.getId());
+            saveMessage(chatSession, true, prompt);
+            return chatSession;
+        });
 
         // Get previous messages
         List<ChatMessageDto> previousMessages = getPreviousMessages(session);
@@ -261,18 +242,7 @@ public class ChatService {
         GeneralChatModelRequestDto requestDto = new GeneralChatModelRequestDto(prompt, previousMessages);
         String aiResponse = pythonApiService.getGeneralChatResponse(requestDto);
 
-        // Save AI response
-        ChatMessage aiMessage = new ChatMessage();
-        aiMessage.setChatSession(session);
-        aiMessage.setIsUserMessage(false);
-        aiMessage.setContent(aiResponse);
-        aiMessage.setTimestamp(LocalDateTime.now());
-
-        // Update session last active time
-        session.setLastActiveAt(LocalDateTime.now());
-        chatSessionRepository.save(session);
-
-        return chatMessageRepository.save(aiMessage);
+        return saveResponse(session, aiResponse);
     }
 
     /**
@@ -0,0 +1,172 @@
+package ai.docbrain.service.AI;
+
+import ai.docbrain.service.AI.DTO.DocumentChunkEmbedding;
+import ai.docbrain.service.AI.DTO.DocumentChunkVersion;
+
+import java.util.List;
+
+/**
+ * The chunk embeddings of one document as a single row-major float matrix of unit length rows, so
+ * ranking the chunks for a question is one pass of dot products over contiguous memory.
+ * <p>
+ * Chunks without an embedding, or with one of another length than the first, cannot be ranked and
+ * are left out.
+ */
+final class ChunkMatrix {
+
+    // Arrays, map entry and boxed key, roughly
+    private static final int OVERHEAD = 200;
+    // A float written out by the Python service, with its comma
+    private static final int TEXT_BYTES_PER_DIMENSION = 12;
+
+    private final DocumentChunkVersion version;
+    private final long[] chunkIds;
+    private final int dimensions;
+    private final float[] vectors;
+    // Text and embedding bytes of every chunk, the chunk part of a request sending all of them
+    private final long fullPayloadBytes;
+
+    private ChunkMatrix(DocumentChunkVersion version, long[] chunkIds, int dimensions, float[] vectors, long fullPayloadBytes) {
+        this.version = version;
+        this.chunkIds = chunkIds;
+        this.dimensions = dimensions;
+        this.vectors = vectors;
+        this.fullPayloadBytes = fullPayloadBytes;
+    }
+
+    static ChunkMatrix of(DocumentChunkVersion version, List<DocumentChunkEmbedding> chunks) {
+        // Text embeddings not migrated yet are parsed, binary ones copied into the matrix as they are
+        float[][] parsed = new float[chunks.size()][];
+        boolean[] usable = new boolean[chunks.size()];
+        int dimensions = 0;
+        int count = 0;
+        long fullPayloadBytes = 0;
+        for (int i = 0; i < chunks.size(); i++) {
+            DocumentChunkEmbedding chunk = chunks.get(i);
+            int length;
+            if (chunk.vector() != null) {
+                length = EmbeddingCodec.dimensions(chunk.vector());
+                fullPayloadBytes += chunk.contentBytes() + (long) TEXT_BYTES_PER_DIMENSION * length;
+            } else {
+                parsed[i] = EmbeddingCodec.parse(chunk.embedding());
+                length = parsed[i] == null ? 0 : parsed[i].length;
+                fullPayloadBytes += chunk.contentBytes() + chunk.embeddingBytes();
+            }
+            if (length == 0 || (dimensions != 0 && length != dimensions)) {
+                continue;
+            }
+            dimensions = length;
+            usable[i] = true;
+            count++;
+        }
+
+        long[] ids = new long[count];
+        float[] vectors = new float[count * dimensions];
+        for (int i = 0, row = 0; i < chunks.size(); i++) {
+            if (!usable[i]) {
+                continue;
+            }
+            ids[row] = chunks.get(i).id();
+            if (parsed[i] == null) {
+                EmbeddingCodec.decode(chunks.get(i).vector(), vectors, row * dimensions);
+            } else {
+                System.arraycopy(parsed[i], 0, vectors, row * dimensions, dimensions);
+            }
+            normalize(vectors, row * dimensions, dimensions);
+            row++;
+        }
+        return new ChunkMatrix(version, ids, dimensions, vectors, fullPayloadBytes);
+    }
+
+    DocumentChunkVersion version() {
+        return version;
+    }
+
+    /**
+     * @return the number of chunks that can be ranked
+     */
+    int size() {
+        return chunkIds.length;
+    }
+
+    int dimensions() {
+        return dimensions;
+    }
+
+    long fullPayloadBytes() {
+        return fullPayloadBytes;
+    }
+
+    long weight() {
+        return OVERHEAD + 8L * chunkIds.length + 4L * vectors.length;
+    }
+
+    /**
+     * @return the IDs of the {@code k} chunks most similar to the query, most similar first
+     */
+    long[] topK(float[] query, int k) {
+        float[] unit = query.clone();
+        normalize(unit, 0, unit.length);
+        int limit = Math.min(k, chunkIds.length);
+        if (limit <= 0) {
+            return new long[0];
+        }
+        // Kept sorted by descending score, k is small so inserting beats a heap
+        int[] best = new int[limit];
+        float[] scores = new float[limit];
+        int found = 0;
+        for (int row = 0; row < chunkIds.length; row++) {
+            float score = dot(vectors, row * dimensions, unit, dimensions);
+            if (found == limit && score <= scores[limit - 1]) {
+                continue;
+            }
+            int at = found < limit ? found++ : limit - 1;
+            while (at > 0 && scores[at - 1] < score) {
+                scores[at] = scores[at - 1];
+                best[at] = best[at - 1];
+                at--;
+            }
+            scores[at] = score;
+            best[at] = row;
+        }
+
+        long[] ids = new long[found];
+        for (int i = 0; i < found; i++) {
+            ids[i] = chunkIds[best[i]];
+        }
+        return ids;
+    }
+
+    /**
+     * Dot product of a matrix row and a vector. Four independent sums keep the loop free of a
+     * dependency chain, so the JIT can vectorize it.
+     */
+    static float dot(float[] matrix, int offset, float[] vector, int length) {
+        float s0 = 0, s1 = 0, s2 = 0, s3 = 0;
+        int i = 0;
+        for (int bound = length & ~3; i < bound; i += 4) {
+            s0 += matrix[offset + i] * vector[i];
+            s1 += matrix[offset + i + 1] * vector[i + 1];
+            s2 += matrix[offset + i + 2] * vector[i + 2];
+            s3 += matrix[offset + i + 3] * vector[i + 3];
+        }
+        for (; i < length; i++) {
+            s0 += matrix[offset + i] * vector[i];
+        }
+        return (s0 + s1) + (s2 + s3);
+    }
+
+    private static void normalize(float[] values, int offset, int length) {
+        float squared = 0;
+        for (int i = offset; i < offset + length; i++) {
+            squared += values[i] * values[i];
+        }
+        if (squared == 0) {
+            return;
+        }
+        float norm = (float) Math.sqrt(squared);
+        for (int i = offset; i < offset + length; i++) {
+            values[i] /= norm;
+        }
+    }
+}
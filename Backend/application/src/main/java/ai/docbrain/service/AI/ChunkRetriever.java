@@ -0,0 +1,145 @@
+package ai.docbrain.service.AI;
+
+import ai.docbrain.service.AI.DTO.DocumentChunkDto;
+import ai.docbrain.service.AI.DTO.DocumentChunkText;
+import ai.docbrain.service.AI.DTO.DocumentChunkVersion;
+import ai.docbrain.service.dashboard.DTO.ChunkRetrievalStatsDTO;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+
+/**
+ * Picks the chunks of a document that are relevant to a question, so a chat request carries a few
+ * chunks of text instead of every chunk with its embedding.
+ * <p>
+ * The question is embedded by the {@link EmbeddingClient} and compared with each chunk embedding.
+ * A document's embeddings are parsed once into a {@link ChunkMatrix} and kept, bounded by the
+ * memory they take, until its chunks change. When the question cannot be embedded, or the document
+ * has no usable embeddings, all chunks are sent without their embeddings.
+ */
+@Log4j2
+@Component
+public class ChunkRetriever {
+
+    private final IDocumentChunkRepository documentChunkRepository;
+    private final EmbeddingClient embeddingClient;
+    private final int topK;
+    private final long maxBytes;
+    private final LinkedHashMap<Long, ChunkMatrix> matrices = new LinkedHashMap<>(64, 0.75f, true);
+    private long bytes;
+    private long requests;
+    private long fallbacks;
+    private long chunksAvailable;
+    private long chunksSent;
+    private long fullPayloadBytes;
+    private long sentPayloadBytes;
+
+    public ChunkRetriever(IDocumentChunkRepository documentChunkRepository,
+                          EmbeddingClient embeddingClient,
+                          @Value("${app.retrieval.top-k:8}") int topK,
+                          @Value("${app.retrieval.cache-size:64MB}") DataSize cacheSize) {
+        this.documentChunkRepository = documentChunkRepository;
+        this.embeddingClient = embeddingClient;
+        this.topK = topK;
+        this.maxBytes = cacheSize.toBytes();
+    }
+
+    /**
+     * @return the chunks to answer the question with, in document order and without embeddings
+     */
+    public List<DocumentChunkDto> retrieve(Long documentId, String question) {
+        ChunkMatrix matrix = matrix(documentId);
+        List<DocumentChunkText> texts = null;
+        if (matrix.size() > topK) {
+            try {
+                float[] query = embeddingClient.embed(question);
+                if (query.length == matrix.dimensions()) {
+                    texts = documentChunkRepository.findTextByIds(Arrays.stream(matrix.topK(query, topK)).boxed().toList());
+                } else {
+                    log.warn("Question embedding has {} dimensions, the chunks of document {} have {}",
+                            query.length, documentId, matrix.dimensions());
+                }
+            } catch (RuntimeException e) {
+                log.warn("Could not embed the question for document {}, sending all chunks: {}", documentId, e.getMessage());
+            }
+        }
+        boolean fallback = texts == null && matrix.size() > topK;
+        if (texts == null) {
+            texts = documentChunkRepository.findTextByDocumentId(documentId);
+        }
+
+        List<DocumentChunkDto> chunks = texts.stream()
+                .map(text -> new DocumentChunkDto(text.id(), text.content(), text.chunkOrder(), null))
+                .toList();
+        long sentBytes = texts.stream()
+                .mapToLong(text -> text.content() == null ? 0 : text.content().getBytes(StandardCharsets.UTF_8).length)
+                .sum();
+        report(documentId, matrix, chunks.size(), sentBytes, fallback);
+        return chunks;
+    }
+
+    public synchronized ChunkRetrievalStatsDTO stats() {
+        return ChunkRetrievalStatsDTO.builder()
+                .requests(requests)
+                .fallbacks(fallbacks)
+                .chunksAvailable(chunksAvailable)
+                .chunksSent(chunksSent)
+                .fullPayloadBytes(fullPayloadBytes)
+                .sentPayloadBytes(sentPayloadBytes)
+                .payloadReduction(fullPayloadBytes == 0 ? 0 : 1 - (double) sentPayloadBytes / fullPayloadBytes)
+                .cachedDocuments(matrices.size())
+                .cacheSizeInBytes(bytes)
+                .maxCacheSizeInBytes(maxBytes)
+                .build();
+    }
+
+    private ChunkMatrix matrix(Long documentId) {
+        DocumentChunkVersion version = documentChunkRepository.findVersionByDocumentId(documentId);
+        synchronized (this) {
+            ChunkMatrix cached = matrices.get(documentId);
+            if (cached != null && cached.version().equals(version)) {
+                return cached;
+            }
+        }
+
+        ChunkMatrix loaded = ChunkMatrix.of(version, documentChunkRepository.findEmbeddingsByDocumentId(documentId));
+        if (loaded.weight() <= maxBytes) {
+            synchronized (this) {
+                ChunkMatrix previous = matrices.put(documentId, loaded);
+                bytes += loaded.weight() - (previous == null ? 0 : previous.weight());
+                evictToSize();
+            }
+        }
+        return loaded;
+    }
+
+    private void report(Long documentId, ChunkMatrix matrix, int sent, long sentBytes, boolean fallback) {
+        long available = matrix.version().count();
+        long fullBytes = matrix.fullPayloadBytes();
+        synchronized (this) {
+            requests++;
+            fallbacks += fallback ? 1 : 0;
+            chunksAvailable += available;
+            chunksSent += sent;
+            fullPayloadBytes += fullBytes;
+            sentPayloadBytes += sentBytes;
+        }
+        log.info("Sending {} of {} chunks of document {}: {} bytes instead of {}", sent, available, documentId,
+                sentBytes, fullBytes);
+    }
+
+    private void evictToSize() {
+        Iterator<ChunkMatrix> eldest = matrices.values().iterator();
+        while (bytes > maxBytes && eldest.hasNext()) {
+            bytes -= eldest.next().weight();
+            eldest.remove();
+        }
+    }
+}
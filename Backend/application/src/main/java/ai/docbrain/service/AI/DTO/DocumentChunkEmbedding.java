@@ -0,0 +1,10 @@
+package ai.docbrain.service.AI.DTO;
+
+/**
+ * Embedding of one chunk and the size of its text, as read to rank the chunks of a document
+ * without their text. The embedding is binary ({@code vector}), or text for chunks stored before
+ * the binary format and not migrated yet.
+ */
+public record DocumentChunkEmbedding(Long id, Integer chunkOrder, int contentBytes, int embeddingBytes,
+                                     String embedding, byte[] vector) {
+}
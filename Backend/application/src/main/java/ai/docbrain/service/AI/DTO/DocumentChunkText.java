@@ -0,0 +1,7 @@
+package ai.docbrain.service.AI.DTO;
+
+/**
+ * Text of one chunk, with its decoded embedding only when read for the search index.
+ */
+public record DocumentChunkText(Long id, Long documentId, Integer chunkOrder, String content, float[] vector) {
+}
@@ -0,0 +1,7 @@
+package ai.docbrain.service.AI.DTO;
+
+/**
+ * Number and highest ID of a document's chunks, which change whenever chunks are stored for it.
+ */
+public record DocumentChunkVersion(long count, long maxId) {
+}
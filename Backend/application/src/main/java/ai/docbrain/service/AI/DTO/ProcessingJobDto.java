@@ -0,0 +1,22 @@
+package ai.docbrain.service.AI.DTO;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.ZonedDateTime;
+
+/**
+ * Handle of a document processing job, to poll until the document can be chatted with.
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class ProcessingJobDto {
+    private Long jobId;
+    private Long documentId;
+    private String status; // QUEUED, SENT, CALLBACK_RECEIVED or FAILED
+    private int attempts;
+    private ZonedDateTime nextAttemptAt; // While QUEUED
+    private String lastError;
+}
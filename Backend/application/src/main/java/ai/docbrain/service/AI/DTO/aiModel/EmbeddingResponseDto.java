@@ -0,0 +1,12 @@
+package ai.docbrain.service.AI.DTO.aiModel;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class EmbeddingResponseDto {
+    private float[] embedding;
+}
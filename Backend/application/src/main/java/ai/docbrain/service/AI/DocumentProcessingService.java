@@ -5,12 +5,17 @@ import ai.docbrain.domain.fileManagement.Document;
 
 import ai.docbrain.service.AI.DTO.DocumentChunkDto;
 import ai.docbrain.service.AI.DTO.aiModel.ProcessedDocumentDTO;
+import ai.docbrain.service.fileManagement.DocumentTermService;
+import ai.docbrain.service.fileManagement.FolderStatsService;
 import ai.docbrain.service.fileManagement.IDocumentRepository;
+import ai.docbrain.service.fileManagement.ListingVersionService;
+import ai.docbrain.service.fileManagement.storage.DocumentStorageService;
+import ai.docbrain.service.search.SearchIndex;
 import ai.docbrain.service.utils.EncryptionUtil;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.core.io.ByteArrayResource;
+import org.springframework.core.io.InputStreamResource;
 import org.springframework.http.*;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
@@ -20,6 +25,8 @@ import org.springframework.web.client.RestTemplate;
 
 import jakarta.persistence.EntityNotFoundException;
 
+import java.io.InputStream;
+import java.util.Arrays;
 import java.util.Base64;
 import java.util.List;
 
@@ -31,21 +38,39 @@ public class DocumentProcessingService {
 
     private final IDocumentRepository documentRepository;
     private final IDocumentChunkRepository documentChunkRepository;
+    private final IDocumentChunkBulkRepository documentChunkBulkRepository;
     private final RestTemplate restTemplate;
     private final EncryptionUtil encryptionUtil;
+    private final DocumentStorageService documentStorageService;
+    private final SearchIndex searchIndex;
+    private final DocumentTermService documentTermService;
+    private final ListingVersionService listingVersionService;
+    private final FolderStatsService folderStatsService;
+    private final ProcessingJobService processingJobService;
 
     @Value("${python.service.url}")
     private String pythonServiceUrl;
 
+    /**
+     * Sends the document to the Python service, which calls back with the results later.
+     *
+     * @return true if the results of an identical processed document were reused instead, no
+     * callback follows then
+     */
     @Transactional
-    public void sendDocumentForProcessing(Long documentId) {
+    public boolean sendDocumentForProcessing(Long documentId) {
         try {
             // Get the document
-            Document document = documentRepository.findById(documentId)
+            Document document = documentRepository.findByIdWithContent(documentId)
                     .orElseThrow(() -> new EntityNotFoundException("Document not found"));
 
-            // Decrypt the document data
-            byte[] decryptedFileData = encryptionUtil.decrypt(document.getFileData());
+            // The same file may already have been processed for another document of the company
+            if (reuseProcessingResults(document)) {
+                return true;
+            }
+
+            // Decrypt the document data while it is sent
+            InputStream decryptedFileData = documentStorageService.openDecrypted(document.getContent());
             // Decrypt the document Name
             byte[] decryptedFilenameBytes = encryptionUtil.decrypt(Base64.getDecoder().decode(document.getName()));
             String decryptedFilename = new String(decryptedFilenameBytes);
@@ -55,7 +80,7 @@ public class DocumentProcessingService {
             headers.setContentType(MediaType.MULTIPART_FORM_DATA);
 
             // Create a file resource with .pdf extension
-            ByteArrayResource fileResource = new ByteArrayResource(decryptedFileData) {
+            InputStreamResource fileResource = new InputStreamResource(decryptedFileData) {
                 @Override
                 public String getFilename() {
                     // Ensure filename ends with .pdf
@@ -68,7 +93,7 @@ public class DocumentProcessingService {
 
                 @Override
                 public long contentLength() {
-                    return decryptedFileData.length;
+                    return document.getSize();
                 }
             };
 
@@ -83,7 +108,7 @@ public class DocumentProcessingService {
                     pythonServiceUrl + "/api/v1/process-pdf",
                     documentId,
                     fileResource.getFilename(),
-                    decryptedFileData.length);
+                    document.getSize());
 
             // Send to Python service
             ResponseEntity<String> response = restTemplate.exchange(
@@ -98,8 +123,14 @@ public class DocumentProcessingService {
             }
 
             // Update document status
+            boolean newlyProcessed = !document.isAiProcessed();
             document.setAiProcessed(true);
             documentRepository.save(document);
+            listingVersionService.documentChanged(document.getCompanyId(), document.getFolderId());
+            if (newlyProcessed) {
+                folderStatsService.documentProcessed(document);
+            }
+            return false;
 
         } catch (Exception e) {
             log.error("Error sending document for processing: {}", e.getMessage(), e);
@@ -107,6 +138,37 @@ public class DocumentProcessingService {
         }
     }
 
+    /**
+     * Copies summary, keywords and chunks from another processed document with the same content,
+     * so a duplicate upload is not sent to the Python service again.
+     *
+     * @return true if results were found and copied
+     */
+    @Transactional
+    public boolean reuseProcessingResults(Document document) {
+        if (document.isAiProcessed() || document.getContent() == null) {
+            return false;
+        }
+        Document source = documentRepository
+                .findProcessedDocumentWithSameContent(document.getContent().getId(), document.getId())
+                .orElse(null);
+        if (source == null) {
+            return false;
+        }
+
+        int chunks = documentChunkRepository.copyChunks(source.getId(), document.getId());
+        document.setSummary(source.getSummary());
+        document.setKeywords(source.getKeywords());
+        documentTermService.copyKeywords(source, document);
+        document.setAiProcessed(true);
+        documentRepository.save(document);
+        listingVersionService.documentChanged(document.getCompanyId(), document.getFolderId());
+        folderStatsService.documentProcessed(document);
+        searchIndex.reindexAfterCommit(document.getCompanyId(), document.getId());
+        log.info("Reused {} chunks of document {} for duplicate document {}", chunks, source.getId(), document.getId());
+        return true;
+    }
+
     @Transactional
     public void handleProcessingCallback(ProcessedDocumentDTO processedDocumentDTO) {
         try {
@@ -119,7 +181,7 @@ public class DocumentProcessingService {
                 document.setSummary(processedDocumentDTO.getSummary());
             }
             if (processedDocumentDTO.getKeywords() != null) {
-                document.setKeywords(String.join(",", processedDocumentDTO.getKeywords()));
+                documentTermService.setKeywords(document, Arrays.asList(processedDocumentDTO.getKeywords()));
             }
 
             // Log the processing results
@@ -128,6 +190,7 @@ public class DocumentProcessingService {
 
             // Save the updated document
             documentRepository.save(document);
+            listingVersionService.documentChanged(document.getCompanyId(), document.getFolderId());
 
 //            for (DocumentChunkDto chunk : processedDocumentDTO.getChunks()) {
 //                if (chunk.getContent() != null) {
@@ -138,12 +201,17 @@ public class DocumentProcessingService {
 //            }
 
             // Handle chunks
-            if (processedDocumentDTO.getChunks() != null && !processedDocumentDTO.getChunks().isEmpty()) {
+            if (processedDocumentDTO.getChunks() != null) {
+                // The callback carries all chunks of the document. A reprocessing, a retried job whose
+                // first callback arrives late or a repeated send replaces them instead of adding more
+                int replaced = documentChunkRepository.deleteByDocumentId(document.getId());
                 List<DocumentChunkDto> chunks = processedDocumentDTO.getChunks();
                 // Save all chunks
-                documentChunkRepository.saveAll(chunks, document);
-                log.info("Saved {} chunks for document ID: {}", chunks.size(), document.getId());
+                documentChunkBulkRepository.insertAll(document.getId(), chunks);
+                log.info("Saved {} chunks for document ID: {}, replacing {}", chunks.size(), document.getId(), replaced);
             }
+            searchIndex.reindexAfterCommit(document.getCompanyId(), document.getId());
+            processingJobService.callbackReceived(document.getId());
 
         } catch (Exception e) {
             log.error("Error handling processing callback: {}", e.getMessage(), e);
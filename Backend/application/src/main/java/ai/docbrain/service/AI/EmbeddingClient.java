@@ -0,0 +1,9 @@
+package ai.docbrain.service.AI;
+
+/**
+ * Embeds text into the vector space of the document chunk embeddings.
+ */
+public interface EmbeddingClient {
+
+    float[] embed(String text);
+}
@@ -0,0 +1,160 @@
+package ai.docbrain.service.AI;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * Binary form of chunk embeddings as stored in {@code document_chunks.embedding_vector}.
+ * <p>
+ * The first byte names the format. {@link Format#FLOAT32} is followed by the values as little
+ * endian floats, {@link Format#INT8} by one little endian float scale and one signed byte per
+ * value, the value divided by the scale. New embeddings are written in the configured format, both
+ * are read, so the format can be changed without rewriting stored embeddings.
+ */
+@Component
+public class EmbeddingCodec {
+
+    private static final int HEADER = 1;
+
+    public enum Format {
+        FLOAT32(1), INT8(2);
+
+        private final byte id;
+
+        Format(int id) {
+            this.id = (byte) id;
+        }
+    }
+
+    private final Format format;
+
+    public EmbeddingCodec(@Value("${app.embeddings.format:FLOAT32}") Format format) {
+        this.format = format;
+    }
+
+    /**
+     * Encodes an embedding given as comma separated numbers in the configured format.
+     *
+     * @return the encoded embedding, null if there is none or it is malformed
+     */
+    public byte[] encodeText(String embedding) {
+        float[] values = parse(embedding);
+        return values == null ? null : encode(values, format);
+    }
+
+    public static byte[] encode(float[] values, Format format) {
+        ByteBuffer buffer;
+        if (format == Format.FLOAT32) {
+            buffer = ByteBuffer.allocate(HEADER + 4 * values.length).order(ByteOrder.LITTLE_ENDIAN);
+            buffer.put(format.id);
+            buffer.asFloatBuffer().put(values);
+        } else {
+            float maxAbs = 0;
+            for (float value : values) {
+                maxAbs = Math.max(maxAbs, Math.abs(value));
+            }
+            float scale = maxAbs == 0 ? 1 : maxAbs / 127;
+            buffer = ByteBuffer.allocate(HEADER + 4 + values.length).order(ByteOrder.LITTLE_ENDIAN);
+            buffer.put(format.id).putFloat(scale);
+            for (float value : values) {
+                buffer.put((byte) Math.round(value / scale));
+            }
+        }
+        return buffer.array();
+    }
+
+    public static int dimensions(byte[] data) {
+        return switch (format(data)) {
+            case FLOAT32 -> (data.length - HEADER) / 4;
+            case INT8 -> data.length - HEADER - 4;
+        };
+    }
+
+    /**
+     * Decodes an embedding into {@code target} from {@code offset} on. Floats are copied through
+     * a buffer view of the bytes, nothing is parsed.
+     */
+    public static void decode(byte[] data, float[] target, int offset) {
+        int dimensions = dimensions(data);
+        ByteBuffer buffer = ByteBuffer.wrap(data, HEADER, data.length - HEADER).slice().order(ByteOrder.LITTLE_ENDIAN);
+        if (format(data) == Format.FLOAT32) {
+            buffer.asFloatBuffer().get(target, offset, dimensions);
+        } else {
+            float scale = buffer.getFloat();
+            for (int i = 0; i < dimensions; i++) {
+                target[offset + i] = buffer.get() * scale;
+            }
+        }
+    }
+
+    public static float[] decode(byte[] data) {
+        float[] values = new float[dimensions(data)];
+        decode(data, values, 0);
+        return values;
+    }
+
+    /**
+     * @return the embedding as comma separated numbers, the form the Python service sends
+     */
+    public static String toText(byte[] data) {
+        float[] values = decode(data);
+        StringBuilder text = new StringBuilder(values.length * 12);
+        for (int i = 0; i < values.length; i++) {
+            text.append(i == 0 ? "" : ",").append(values[i]);
+        }
+        return text.toString();
+    }
+
+    /**
+     * Parses an embedding stored as comma separated numbers, optionally in square brackets.
+     *
+     * @return the embedding, null if there is none or it is malformed
+     */
+    public static float[] parse(String embedding) {
+        if (embedding == null) {
+            return null;
+        }
+        int start = 0;
+        int end = embedding.length();
+        while (start < end && (embedding.charAt(start) == '[' || Character.isWhitespace(embedding.charAt(start)))) {
+            start++;
+        }
+        while (end > start && (embedding.charAt(end - 1) == ']' || Character.isWhitespace(embedding.charAt(end - 1)))) {
+            end--;
+        }
+        if (start == end) {
+            return null;
+        }
+
+        int count = 1;
+        for (int i = start; i < end; i++) {
+            if (embedding.charAt(i) == ',') {
+                count++;
+            }
+        }
+        float[] values = new float[count];
+        try {
+            for (int i = 0, from = start; i < count; i++) {
+                int comma = embedding.indexOf(',', from);
+                int to = comma < 0 || comma > end ? end : comma;
+                values[i] = Float.parseFloat(embedding.substring(from, to).trim());
+                from = to + 1;
+            }
+        } catch (NumberFormatException e) {
+            return null;
+        }
+        return values;
+    }
+
+    private static Format format(byte[] data) {
+        for (Format format : Format.values()) {
+            if (data.length > 0 && format.id == data[0]) {
+                return format;
+            }
+        }
+        throw new IllegalArgumentException("Unknown embedding format " + (data.length == 0 ? "(empty)" : data[0]));
+    }
+}
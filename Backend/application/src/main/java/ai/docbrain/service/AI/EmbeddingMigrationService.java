@@ -0,0 +1,68 @@
+package ai.docbrain.service.AI;
+
+import ai.docbrain.service.AI.DTO.DocumentChunkEmbedding;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Background job that converts the text embeddings of chunks stored before the binary format
+ * existed into {@code document_chunks.embedding_vector}.
+ * <p>
+ * Like the blob migration it is resumable by construction: a converted chunk has a vector and no
+ * text embedding, so after a restart the job continues with the chunks still pending. A text
+ * embedding that cannot be parsed is dropped, it could never be used for ranking.
+ */
+@Log4j2
+@Service
+@RequiredArgsConstructor
+public class EmbeddingMigrationService {
+
+    private final IDocumentChunkRepository documentChunkRepository;
+    private final EmbeddingCodec embeddingCodec;
+
+    @Value("${app.embeddings.migration.enabled:true}")
+    private boolean enabled;
+
+    @Value("${app.embeddings.migration.batch-size:500}")
+    private int batchSize;
+
+    // Keyset cursor of the current pass, reset once a pass reaches the end of the table
+    private long lastChunkId = 0L;
+
+    @Scheduled(fixedDelayString = "${app.embeddings.migration.interval-ms:10000}", initialDelay = 30000)
+    public void migrateNextBatch() {
+        if (!enabled) {
+            return;
+        }
+
+        List<DocumentChunkEmbedding> chunks = documentChunkRepository.findPendingEmbeddingMigration(lastChunkId, batchSize);
+        if (chunks.isEmpty()) {
+            lastChunkId = 0L;
+            return;
+        }
+
+        Map<Long, byte[]> vectors = new HashMap<>();
+        long textBytes = 0;
+        long binaryBytes = 0;
+        for (DocumentChunkEmbedding chunk : chunks) {
+            byte[] vector = embeddingCodec.encodeText(chunk.embedding());
+            if (vector == null) {
+                log.warn("Dropping malformed text embedding of chunk {}", chunk.id());
+            }
+            vectors.put(chunk.id(), vector);
+            textBytes += chunk.embeddingBytes();
+            binaryBytes += vector == null ? 0 : vector.length;
+            lastChunkId = chunk.id();
+        }
+        int migrated = documentChunkRepository.replaceTextEmbeddings(vectors);
+        log.info("Converted {} of {} chunk embeddings to binary, {} bytes of text to {}", migrated, chunks.size(),
+                textBytes, binaryBytes);
+    }
+}
@@ -0,0 +1,33 @@
+package ai.docbrain.service.AI;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.Locale;
+
+/**
+ * Embeds text locally by hashing its words into a fixed number of dimensions, for running without
+ * the Python service. Texts sharing words score higher, nothing more.
+ */
+@Component
+@ConditionalOnProperty(name = "app.retrieval.embedder", havingValue = "stub")
+public class HashingEmbeddingClient implements EmbeddingClient {
+
+    private final int dimensions;
+
+    public HashingEmbeddingClient(@Value("${app.retrieval.stub-dimensions:384}") int dimensions) {
+        this.dimensions = dimensions;
+    }
+
+    @Override
+    public float[] embed(String text) {
+        float[] vector = new float[dimensions];
+        for (String word : text.toLowerCase(Locale.ROOT).split("\\W+")) {
+            if (!word.isEmpty()) {
+                vector[Math.floorMod(word.hashCode(), dimensions)] += 1;
+            }
+        }
+        return vector;
+    }
+}
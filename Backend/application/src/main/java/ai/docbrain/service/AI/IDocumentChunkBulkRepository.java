@@ -0,0 +1,19 @@
+package ai.docbrain.service.AI;
+
+import ai.docbrain.service.AI.DTO.DocumentChunkDto;
+
+import java.util.List;
+
+/**
+ * Writes the chunks of a processed document in bulk, past the persistence context, so a callback
+ * with thousands of chunks is not thousands of round trips.
+ */
+public interface IDocumentChunkBulkRepository {
+
+    /**
+     * Adds the chunks to the document, with their embeddings in the binary format.
+     *
+     * @return the number of chunks written
+     */
+    int insertAll(Long documentId, List<DocumentChunkDto> chunks);
+}
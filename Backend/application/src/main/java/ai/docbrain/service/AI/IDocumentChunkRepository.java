@@ -1,13 +1,55 @@
 package ai.docbrain.service.AI;
 
-import ai.docbrain.domain.fileManagement.Document;
 import ai.docbrain.service.AI.DTO.DocumentChunkDto;
+import ai.docbrain.service.AI.DTO.DocumentChunkEmbedding;
+import ai.docbrain.service.AI.DTO.DocumentChunkText;
+import ai.docbrain.service.AI.DTO.DocumentChunkVersion;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 
 public interface IDocumentChunkRepository {
 
-    void saveAll(List<DocumentChunkDto> documentChunkDto, Document document);
-
     List<DocumentChunkDto> findByDocumentIdOrderByChunkOrder(Long documentId);
+
+    int copyChunks(Long sourceDocumentId, Long targetDocumentId);
+
+    /**
+     * @return the number of chunks deleted
+     */
+    int deleteByDocumentId(Long documentId);
+
+    List<DocumentChunkText> findTextByDocumentId(Long documentId);
+
+    /**
+     * Chunk texts and embeddings of a document in chunk order.
+     */
+    List<DocumentChunkText> findTextWithVectorByDocumentId(Long documentId);
+
+    /**
+     * Chunk texts and embeddings of a company's documents in ID order, one page after {@code afterChunkId}.
+     */
+    List<DocumentChunkText> findTextWithVectorByCompanyId(Long companyId, Long afterChunkId, int limit);
+
+    List<DocumentChunkText> findTextByIds(Collection<Long> chunkIds);
+
+    /**
+     * Embeddings of a document's chunks in chunk order, without their text.
+     */
+    List<DocumentChunkEmbedding> findEmbeddingsByDocumentId(Long documentId);
+
+    DocumentChunkVersion findVersionByDocumentId(Long documentId);
+
+    /**
+     * Chunks that still have a text embedding in ID order, one page after {@code afterChunkId}.
+     */
+    List<DocumentChunkEmbedding> findPendingEmbeddingMigration(Long afterChunkId, int limit);
+
+    /**
+     * Stores binary embeddings in place of the text ones, a null vector drops a malformed text embedding.
+     *
+     * @return the number of chunks changed
+     */
+    int replaceTextEmbeddings(Map<Long, byte[]> vectors);
 }
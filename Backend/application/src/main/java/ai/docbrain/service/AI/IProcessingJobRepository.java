@@ -0,0 +1,56 @@
+package ai.docbrain.service.AI;
+
+import ai.docbrain.domain.AI.ProcessingJob;
+
+import java.time.ZonedDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+public interface IProcessingJobRepository {
+
+    /**
+     * Queues a job for the document, unless one is already queued or sent.
+     *
+     * @return the document's queued or sent job
+     */
+    ProcessingJob enqueue(Long documentId, Long companyId);
+
+    Optional<ProcessingJob> findById(Long id);
+
+    Optional<ProcessingJob> findLatestByDocumentId(Long documentId);
+
+    List<ProcessingJob> findLatestByDocumentIds(Collection<Long> documentIds);
+
+    /**
+     * Moves up to {@code limit} due queued jobs to SENT and counts the attempt. Jobs claimed by
+     * another node at the same time are skipped.
+     */
+    List<ProcessingJob> claimDue(int limit);
+
+    /**
+     * @return sent jobs whose callback did not arrive by the cutoff
+     */
+    List<ProcessingJob> findSentBefore(ZonedDateTime cutoff, int limit);
+
+    /**
+     * Queues a sent job again, only if it is still sent.
+     *
+     * @return true when this caller made the transition
+     */
+    boolean retry(Long id, String error, ZonedDateTime nextAttemptAt);
+
+    /**
+     * Gives up on a sent job, only if it is still sent.
+     *
+     * @return true when this caller made the transition
+     */
+    boolean fail(Long id, String error);
+
+    /**
+     * Marks the document's queued or sent job as done.
+     *
+     * @return the jobs marked, none if the document had no job waiting
+     */
+    List<ProcessingJob> markCallbackReceived(Long documentId);
+}
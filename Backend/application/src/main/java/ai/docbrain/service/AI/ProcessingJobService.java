@@ -0,0 +1,206 @@
+package ai.docbrain.service.AI;
+
+import ai.docbrain.domain.AI.ProcessingJob;
+import ai.docbrain.domain.AI.ProcessingJobStatus;
+import ai.docbrain.domain.fileManagement.Document;
+import ai.docbrain.domain.users.User;
+import ai.docbrain.service.AI.DTO.ProcessingJobDto;
+import ai.docbrain.service.fileManagement.FolderAccessResolver;
+import ai.docbrain.service.fileManagement.IDocumentRepository;
+import ai.docbrain.service.utils.exception.ResourceNotFoundException;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.time.ZonedDateTime;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Document processing jobs: a document is queued, sent to the Python service by
+ * {@link ProcessingJobWorker} and done once the service calls back with its results.
+ * <p>
+ * Failed sends and sends whose callback never arrives are retried with exponential backoff until
+ * the attempts run out. Requests waiting for a document are signalled when its callback is handled,
+ * on this node right after the callback commits, for callbacks handled by another node on the
+ * worker's next poll.
+ */
+@Log4j2
+@Service
+@RequiredArgsConstructor
+public class ProcessingJobService {
+
+    private final IProcessingJobRepository processingJobRepository;
+    private final IDocumentRepository documentRepository;
+    private final FolderAccessResolver folderAccessResolver;
+    // Requests waiting for a document's job to finish, by document ID
+    private final ConcurrentHashMap<Long, CompletableFuture<ProcessingJob>> waiters = new ConcurrentHashMap<>();
+
+    @Value("${app.processing.max-attempts:5}")
+    private int maxAttempts;
+
+    @Value("${app.processing.retry-backoff:30s}")
+    private Duration retryBackoff;
+
+    @Value("${app.processing.max-retry-backoff:30m}")
+    private Duration maxRetryBackoff;
+
+    /**
+     * Queues the document for processing, again if it was processed before.
+     */
+    @Transactional
+    public ProcessingJobDto submit(User caller, Long documentId) {
+        Document document = findDocument(caller, documentId);
+        ProcessingJob job = processingJobRepository.enqueue(document.getId(), document.getCompanyId());
+        log.info("Queued processing job {} for document {}", job.getId(), documentId);
+        return toDto(job);
+    }
+
+    /**
+     * Queues the document unless it is processed and no job for it is still running.
+     *
+     * @return the running job, empty if the document is ready
+     */
+    @Transactional
+    public Optional<ProcessingJobDto> submitUnlessReady(User caller, Long documentId) {
+        Document document = findDocument(caller, documentId);
+        if (isReady(document)) {
+            return Optional.empty();
+        }
+        return Optional.of(toDto(processingJobRepository.enqueue(document.getId(), document.getCompanyId())));
+    }
+
+    /**
+     * A document is ready once it was processed and the results of its last job arrived.
+     */
+    @Transactional(readOnly = true)
+    public boolean isReady(Document document) {
+        return document.isAiProcessed() && processingJobRepository.findLatestByDocumentId(document.getId())
+                .map(job -> job.getStatus().isFinished())
+                .orElse(true);
+    }
+
+    @Transactional(readOnly = true)
+    public ProcessingJobDto getJob(User caller, Long jobId) {
+        return toDto(findJob(caller, jobId));
+    }
+
+    /**
+     * Completes with the job once it is finished, or with its current state after {@code timeout}.
+     * No thread waits meanwhile.
+     */
+    public CompletableFuture<ProcessingJobDto> awaitJob(User caller, Long jobId, Duration timeout) {
+        ProcessingJob job = findJob(caller, jobId);
+        if (job.getStatus().isFinished()) {
+            return CompletableFuture.completedFuture(toDto(job));
+        }
+        CompletableFuture<ProcessingJob> finished = waiters.computeIfAbsent(job.getDocumentId(), id -> new CompletableFuture<>());
+        // The job may have finished between reading it and registering the waiter
+        processingJobRepository.findById(jobId)
+                .filter(current -> current.getStatus().isFinished())
+                .ifPresent(this::signal);
+        return finished.thenApply(ProcessingJobService::toDto)
+                .completeOnTimeout(toDto(job), timeout.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Marks the document's running job as done, called when the processing results are stored.
+     */
+    @Transactional
+    public void callbackReceived(Long documentId) {
+        List<ProcessingJob> jobs = processingJobRepository.markCallbackReceived(documentId);
+        if (jobs.isEmpty()) {
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                jobs.forEach(ProcessingJobService.this::signal);
+            }
+        });
+    }
+
+    /**
+     * Queues a sent job again after a backoff, or gives up on it once it is out of attempts.
+     */
+    public void retryOrFail(ProcessingJob job, String error) {
+        if (job.getAttempts() >= maxAttempts) {
+            if (processingJobRepository.fail(job.getId(), error)) {
+                log.error("Processing job {} of document {} failed after {} attempts: {}",
+                        job.getId(), job.getDocumentId(), job.getAttempts(), error);
+                job.setStatus(ProcessingJobStatus.FAILED);
+                job.setLastError(error);
+                signal(job);
+            }
+            return;
+        }
+        Duration backoff = retryBackoff.multipliedBy(1L << Math.min(job.getAttempts() - 1, 20));
+        if (backoff.compareTo(maxRetryBackoff) > 0) {
+            backoff = maxRetryBackoff;
+        }
+        if (processingJobRepository.retry(job.getId(), error, ZonedDateTime.now().plus(backoff))) {
+            log.warn("Processing job {} of document {} failed attempt {}, retrying in {}: {}",
+                    job.getId(), job.getDocumentId(), job.getAttempts(), backoff, error);
+        }
+    }
+
+    /**
+     * Retries the sent jobs whose callback did not arrive within {@code callbackTimeout}.
+     */
+    public void retryUnanswered(Duration callbackTimeout, int limit) {
+        for (ProcessingJob job : processingJobRepository.findSentBefore(ZonedDateTime.now().minus(callbackTimeout), limit)) {
+            retryOrFail(job, "No callback within " + callbackTimeout);
+        }
+    }
+
+    /**
+     * Signals the waiters of jobs that were finished by another node.
+     */
+    public void signalFinishedElsewhere() {
+        if (waiters.isEmpty()) {
+            return;
+        }
+        processingJobRepository.findLatestByDocumentIds(List.copyOf(waiters.keySet())).stream()
+                .filter(job -> job.getStatus().isFinished())
+                .forEach(this::signal);
+    }
+
+    private void signal(ProcessingJob job) {
+        CompletableFuture<ProcessingJob> finished = waiters.remove(job.getDocumentId());
+        if (finished != null) {
+            finished.complete(job);
+        }
+    }
+
+    private Document findDocument(User caller, Long documentId) {
+        if (caller == null) {
+            throw new ResourceNotFoundException("User not found");
+        }
+        return documentRepository.findById(documentId)
+                .filter(document -> document.getCompanyId().equals(caller.getCompanyId()))
+                .filter(document -> folderAccessResolver.resolve(caller).canAccess(document.getFolderId()))
+                .orElseThrow(() -> new ResourceNotFoundException("Document not found with ID: " + documentId));
+    }
+
+    private ProcessingJob findJob(User caller, Long jobId) {
+        if (caller == null) {
+            throw new ResourceNotFoundException("User not found");
+        }
+        return processingJobRepository.findById(jobId)
+                .filter(job -> job.getCompanyId().equals(caller.getCompanyId()))
+                .orElseThrow(() -> new ResourceNotFoundException("Processing job not found with ID: " + jobId));
+    }
+
+    private static ProcessingJobDto toDto(ProcessingJob job) {
+        return new ProcessingJobDto(job.getId(), job.getDocumentId(), job.getStatus().name(), job.getAttempts(),
+                job.getStatus() == ProcessingJobStatus.QUEUED ? job.getNextAttemptAt() : null, job.getLastError());
+    }
+}
@@ -0,0 +1,95 @@
+package ai.docbrain.service.AI;
+
+import ai.docbrain.domain.AI.ProcessingJob;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Pool of workers sending queued documents to the Python service. Jobs are claimed from the
+ * database only as workers are free, so nothing is lost on a restart and several nodes share
+ * the queue.
+ */
+@Log4j2
+@Service
+public class ProcessingJobWorker {
+
+    private final IProcessingJobRepository processingJobRepository;
+    private final ProcessingJobService processingJobService;
+    private final DocumentProcessingService documentProcessingService;
+    private final int workers;
+    private final Duration callbackTimeout;
+    private final ExecutorService executor;
+    private final AtomicInteger inFlight = new AtomicInteger();
+
+    public ProcessingJobWorker(IProcessingJobRepository processingJobRepository,
+                               ProcessingJobService processingJobService,
+                               DocumentProcessingService documentProcessingService,
+                               @Value("${app.processing.workers:4}") int workers,
+                               @Value("${app.processing.callback-timeout:15m}") Duration callbackTimeout) {
+        this.processingJobRepository = processingJobRepository;
+        this.processingJobService = processingJobService;
+        this.documentProcessingService = documentProcessingService;
+        this.workers = Math.max(1, workers);
+        this.callbackTimeout = callbackTimeout;
+
+        AtomicInteger threadCount = new AtomicInteger();
+        this.executor = Executors.newFixedThreadPool(this.workers, runnable -> {
+            Thread thread = new Thread(runnable, "document-processing-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    @Scheduled(fixedDelayString = "${app.processing.poll-interval-ms:2000}", initialDelay = 15000)
+    public void dispatch() {
+        try {
+            processingJobService.retryUnanswered(callbackTimeout, workers);
+            processingJobService.signalFinishedElsewhere();
+
+            int free = workers - inFlight.get();
+            if (free <= 0) {
+                return;
+            }
+            List<ProcessingJob> jobs = processingJobRepository.claimDue(free);
+            for (ProcessingJob job : jobs) {
+                inFlight.incrementAndGet();
+                executor.execute(() -> {
+                    try {
+                        send(job);
+                    } finally {
+                        inFlight.decrementAndGet();
+                    }
+                });
+            }
+        } catch (Exception e) {
+            log.error("Failed to dispatch document processing jobs", e);
+        }
+    }
+
+    private void send(ProcessingJob job) {
+        try {
+            // Stays SENT until the callback, unless earlier results of the same content were reused
+            if (documentProcessingService.sendDocumentForProcessing(job.getDocumentId())) {
+                processingJobService.callbackReceived(job.getDocumentId());
+            }
+            log.debug("Sent document {} for processing, attempt {}", job.getDocumentId(), job.getAttempts());
+        } catch (Exception e) {
+            Throwable cause = e.getCause() != null ? e.getCause() : e;
+            processingJobService.retryOrFail(job, cause.getMessage());
+        }
+    }
+}
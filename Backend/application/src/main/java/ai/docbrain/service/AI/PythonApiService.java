@@ -2,6 +2,8 @@ package ai.docbrain.service.AI;
 
 import ai.docbrain.service.AI.DTO.aiModel.ChatModelRequestDto;
 import ai.docbrain.service.AI.DTO.aiModel.ChatModelResponseDto;
+import ai.docbrain.service.AI.DTO.aiModel.EmbeddingRequestDto;
+import ai.docbrain.service.AI.DTO.aiModel.EmbeddingResponseDto;
 import ai.docbrain.service.AI.DTO.aiModel.GeneralChatModelRequestDto;
 import ai.docbrain.service.AI.DTO.aiModel.GeneralChatModelResponseDto;
 import lombok.RequiredArgsConstructor;
@@ -61,4 +63,28 @@ public class PythonApiService {
 
         }
     }
+
+    /**
+     * Embeds a text with the model the document chunks were embedded with.
+     */
+    public float[] getEmbedding(String text) {
+        String url = pythonApiBaseUrl + "/api/v1/embed";
+
+        try {
+            ResponseEntity<EmbeddingResponseDto> response = restTemplate.postForEntity(
+                    url,
+                    new EmbeddingRequestDto(text),
+                    EmbeddingResponseDto.class
+            );
+
+            if (response.getStatusCode() == HttpStatus.OK && response.getBody() != null
+                    && response.getBody().getEmbedding() != null) {
+                return response.getBody().getEmbedding();
+            } else {
+                throw new RuntimeException("Failed to get embedding from Python API");
+            }
+        } catch (Exception e) {
+            throw new RuntimeException("Error calling Python API: " + e.getMessage(), e);
+        }
+    }
 }
\ No newline at end of file
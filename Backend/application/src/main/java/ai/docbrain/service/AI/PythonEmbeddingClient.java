@@ -0,0 +1,21 @@
+package ai.docbrain.service.AI;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+/**
+ * Embeds text with the model the Python service embedded the chunks with.
+ */
+@Component
+@RequiredArgsConstructor
+@ConditionalOnProperty(name = "app.retrieval.embedder", havingValue = "python", matchIfMissing = true)
+public class PythonEmbeddingClient implements EmbeddingClient {
+
+    private final PythonApiService pythonApiService;
+
+    @Override
+    public float[] embed(String text) {
+        return pythonApiService.getEmbedding(text);
+    }
+}
@@ -0,0 +1,26 @@
+package ai.docbrain.service.dashboard.DTO;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * DTO for the chunks and bytes sent to the chat model compared to sending every chunk
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ChunkRetrievalStatsDTO {
+    private long requests;
+    private long fallbacks;
+    private long chunksAvailable;
+    private long chunksSent;
+    private long fullPayloadBytes;
+    private long sentPayloadBytes;
+    private double payloadReduction;
+    private int cachedDocuments;
+    private long cacheSizeInBytes;
+    private long maxCacheSizeInBytes;
+}
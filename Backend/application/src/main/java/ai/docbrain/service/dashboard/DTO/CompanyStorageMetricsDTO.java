@@ -17,4 +17,6 @@ public class CompanyStorageMetricsDTO {
     private double usedStorageInMB;
     private double availableStorageInMB;
     private double usagePercentage;
+    private double storedStorageInMB; // What the content takes on disk after deduplication and compression
+    private double savedStorageInMB;
 }
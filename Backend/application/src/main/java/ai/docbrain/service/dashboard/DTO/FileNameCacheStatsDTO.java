@@ -0,0 +1,23 @@
+package ai.docbrain.service.dashboard.DTO;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * DTO for the hit ratio and size of the decrypted file name cache
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class FileNameCacheStatsDTO {
+    private long hits;
+    private long misses;
+    private double hitRatio;
+    private long evictions;
+    private int entries;
+    private long sizeInBytes;
+    private long maxSizeInBytes;
+}
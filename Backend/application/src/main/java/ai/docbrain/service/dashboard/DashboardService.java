@@ -2,8 +2,11 @@ package ai.docbrain.service.dashboard;
 
 import ai.docbrain.domain.fileManagement.DocumentActivityLog;
 import ai.docbrain.domain.users.User;
+import ai.docbrain.service.AI.ChunkRetriever;
 import ai.docbrain.service.dashboard.DTO.*;
+import ai.docbrain.service.fileManagement.FileNameCache;
 import ai.docbrain.service.fileManagement.IDocumentActivityLogRepository;
+import ai.docbrain.service.fileManagement.IDocumentContentRepository;
 import ai.docbrain.service.fileManagement.IDocumentRepository;
 import ai.docbrain.service.fileManagement.IFolderRepository;
 import ai.docbrain.service.role.RoleService;
@@ -30,11 +33,14 @@ import java.util.stream.Collectors;
 public class DashboardService {
 
     private final IDocumentRepository documentRepository;
+    private final IDocumentContentRepository documentContentRepository;
     private final IFolderRepository folderRepository;
     private final IUserRepository userRepository;
     private final RoleService roleService;
     private final EncryptionUtil encryptionUtil;
     private final IDocumentActivityLogRepository logRepository;
+    private final FileNameCache fileNameCache;
+    private final ChunkRetriever chunkRetriever;
 
     /**
      * Retrieve comprehensive dashboard overview for a company
@@ -89,7 +95,8 @@ public class DashboardService {
      * Calculate storage metrics for a company
      *
      * @param companyId The company ID
-     * @return Storage metrics including total, used and available storage
+     * @return Storage metrics including total, used and available storage, and what deduplication
+     * and compression saved
      */
     public CompanyStorageMetricsDTO getCompanyStorageMetrics(Long companyId) {
         log.debug("Calculating storage metrics for company ID: {}", companyId);
@@ -100,8 +107,15 @@ public class DashboardService {
             totalSizeInBytes = 0L;
         }
 
+        // Bytes actually stored, shared and compressed content counts once with its stored size
+        Long storedSizeInBytes = documentContentRepository.calculateStoredSizeByCompanyId(companyId);
+        if (storedSizeInBytes == null) {
+            storedSizeInBytes = 0L;
+        }
+
         // Convert to MB for better readability
         double usedStorageInMB = totalSizeInBytes / (1024.0 * 1024.0);
+        double storedStorageInMB = storedSizeInBytes / (1024.0 * 1024.0);
 
         // Assuming a company has a storage limit (example: 10GB)
         double storageLimit = 10 * 1024; // 10GB in MB
@@ -113,6 +127,8 @@ public class DashboardService {
                 .usedStorageInMB(usedStorageInMB)
                 .availableStorageInMB(availableStorageInMB)
                 .usagePercentage(usagePercentage)
+                .storedStorageInMB(storedStorageInMB)
+                .savedStorageInMB(Math.max(0, usedStorageInMB - storedStorageInMB))
                 .build();
     }
 
@@ -282,6 +298,34 @@ public class DashboardService {
         }
     }
 
+    /**
+     * Get hit ratio and size of the decrypted file name cache. The cache is shared by all
+     * companies, so only super admins can see it.
+     *
+     * @param caller The user requesting the data
+     * @return the cache statistics, empty when the caller may not see them
+     */
+    public Optional<FileNameCacheStatsDTO> getFileNameCacheStats(User caller) {
+        if (caller == null || !roleService.isSuperAdmin(caller)) {
+            return Optional.empty();
+        }
+        return Optional.of(fileNameCache.stats());
+    }
+
+    /**
+     * Get how many chunks and bytes chat requests sent to the model compared to sending every
+     * chunk of the document. Counted over all companies, so only super admins can see it.
+     *
+     * @param caller The user requesting the data
+     * @return the retrieval statistics, empty when the caller may not see them
+     */
+    public Optional<ChunkRetrievalStatsDTO> getChunkRetrievalStats(User caller) {
+        if (caller == null || !roleService.isSuperAdmin(caller)) {
+            return Optional.empty();
+        }
+        return Optional.of(chunkRetriever.stats());
+    }
+
     public Map<String, Integer> getRoleDistribution(Long companyId) {
         log.debug("Getting role distribution for company ID: {}", companyId);
 
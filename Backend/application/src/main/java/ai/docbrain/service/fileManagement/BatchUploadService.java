@@ -0,0 +1,148 @@
+package ai.docbrain.service.fileManagement;
+
+import ai.docbrain.domain.fileManagement.Document;
+import ai.docbrain.domain.users.User;
+import ai.docbrain.service.fileManagement.DTO.BatchUploadResponseDto;
+import ai.docbrain.service.fileManagement.DTO.BatchUploadResultDto;
+import ai.docbrain.service.fileManagement.storage.DocumentStorageService;
+import ai.docbrain.service.fileManagement.storage.StagedContent;
+import ai.docbrain.service.fileManagement.storage.StagedUpload;
+import ai.docbrain.service.utils.EncryptionUtil;
+import ai.docbrain.service.utils.ServerConstants;
+import ai.docbrain.service.utils.ServerUtils;
+import ai.docbrain.service.utils.exception.InvalidDataException;
+import ai.docbrain.service.utils.exception.ResourceNotFoundException;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+
+/**
+ * Uploads many files in one request.
+ * <p>
+ * Files are encrypted into the blob store on virtual threads, with a semaphore shared by all
+ * requests bounding how many are encrypted at once. Only then is a single transaction opened,
+ * which records every file with a handful of batched statements. A file that fails validation
+ * or encryption is reported on its own and does not stop the others.
+ */
+@Log4j2
+@Service
+public class BatchUploadService {
+
+    private final DocumentService documentService;
+    private final DocumentStorageService documentStorageService;
+    private final EncryptionUtil encryptionUtil;
+    private final Semaphore encryptionPermits;
+    private final int maxFiles;
+
+    public BatchUploadService(DocumentService documentService,
+                              DocumentStorageService documentStorageService,
+                              EncryptionUtil encryptionUtil,
+                              @Value("${app.batch-upload.parallelism:8}") int parallelism,
+                              @Value("${app.batch-upload.max-files:500}") int maxFiles) {
+        this.documentService = documentService;
+        this.documentStorageService = documentStorageService;
+        this.encryptionUtil = encryptionUtil;
+        this.encryptionPermits = new Semaphore(Math.max(1, parallelism));
+        this.maxFiles = maxFiles;
+    }
+
+    public BatchUploadResponseDto upload(User caller, List<MultipartFile> files, Long folderId) {
+        if (caller == null) {
+            throw new ResourceNotFoundException("User not found");
+        }
+        if (files == null || files.isEmpty()) {
+            throw new InvalidDataException(ServerConstants.FILE_EMPTY);
+        }
+        if (files.size() > maxFiles) {
+            throw new InvalidDataException("At most " + maxFiles + " files can be uploaded at once");
+        }
+        documentService.targetFolderPath(caller, folderId);
+
+        BatchUploadResultDto[] results = new BatchUploadResultDto[files.size()];
+        List<Future<StagedUpload>> futures = new ArrayList<>(files.size());
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int i = 0; i < files.size(); i++) {
+                MultipartFile file = files.get(i);
+                String error = documentService.validateUpload(file);
+                if (error != null) {
+                    results[i] = failed(file, error);
+                    futures.add(null);
+                } else {
+                    futures.add(executor.submit(() -> stage(file)));
+                }
+            }
+        } // Waits for every file to be staged
+
+        List<StagedUpload> staged = new ArrayList<>();
+        List<Integer> stagedIndexes = new ArrayList<>();
+        for (int i = 0; i < files.size(); i++) {
+            if (futures.get(i) == null) {
+                continue;
+            }
+            try {
+                staged.add(futures.get(i).get());
+                stagedIndexes.add(i);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                results[i] = failed(files.get(i), ServerConstants.FILE_ERROR);
+            } catch (ExecutionException e) {
+                log.error("Failed to encrypt uploaded file {}", files.get(i).getOriginalFilename(), e.getCause());
+                results[i] = failed(files.get(i), ServerConstants.FILE_ERROR);
+            }
+        }
+
+        if (!staged.isEmpty()) {
+            try {
+                List<Document> documents = documentService.createUploadedDocuments(caller, staged, folderId);
+                for (int j = 0; j < documents.size(); j++) {
+                    int i = stagedIndexes.get(j);
+                    results[i] = new BatchUploadResultDto(files.get(i).getOriginalFilename(), documents.get(j).getId(),
+                            true, ServerConstants.FILE_UPLOADED);
+                }
+            } catch (RuntimeException e) {
+                // The transaction rolled back, which also removed the staged blobs
+                log.error("Failed to save a batch of {} uploaded files", staged.size(), e);
+                for (int i : stagedIndexes) {
+                    results[i] = failed(files.get(i), ServerConstants.FILE_ERROR);
+                }
+            }
+        }
+
+        int uploaded = (int) Arrays.stream(results).filter(BatchUploadResultDto::isUploaded).count();
+        return new BatchUploadResponseDto(Arrays.asList(results), uploaded, results.length - uploaded);
+    }
+
+    private StagedUpload stage(MultipartFile file) throws Exception {
+        encryptionPermits.acquire();
+        StagedContent content = null;
+        try (InputStream in = file.getInputStream()) {
+            content = documentStorageService.stage(in, file.getContentType());
+            String sanitizedFilename = ServerUtils.sanitizeFileName(file.getOriginalFilename());
+            String encryptedFilename = Base64.getEncoder().encodeToString(encryptionUtil.encrypt(sanitizedFilename.getBytes()));
+            return new StagedUpload(file.getOriginalFilename(), encryptedFilename, file.getContentType(), content);
+        } catch (Exception e) {
+            if (content != null) {
+                documentStorageService.discard(content);
+            }
+            throw e;
+        } finally {
+            encryptionPermits.release();
+        }
+    }
+
+    private static BatchUploadResultDto failed(MultipartFile file, String message) {
+        return new BatchUploadResultDto(file == null ? null : file.getOriginalFilename(), null, false, message);
+    }
+}
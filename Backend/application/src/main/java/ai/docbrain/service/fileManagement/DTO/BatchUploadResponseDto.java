@@ -0,0 +1,16 @@
+package ai.docbrain.service.fileManagement.DTO;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class BatchUploadResponseDto {
+    private List<BatchUploadResultDto> results; // In the order the files were sent
+    private int uploadedCount;
+    private int failedCount;
+}
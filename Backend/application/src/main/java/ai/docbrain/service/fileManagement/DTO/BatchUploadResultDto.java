@@ -0,0 +1,15 @@
+package ai.docbrain.service.fileManagement.DTO;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class BatchUploadResultDto {
+    private String fileName;
+    private Long documentId; // Null when the file was not uploaded
+    private boolean uploaded;
+    private String message;
+}
@@ -0,0 +1,15 @@
+package ai.docbrain.service.fileManagement.DTO;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class CreateUploadSessionRequestDto {
+    private String fileName;
+    private String contentType;
+    private Long size;
+    private Long folderId;
+}
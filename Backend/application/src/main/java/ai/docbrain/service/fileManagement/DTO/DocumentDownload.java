@@ -0,0 +1,22 @@
+package ai.docbrain.service.fileManagement.DTO;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import org.springframework.core.io.Resource;
+
+import java.time.ZonedDateTime;
+
+/**
+ * Everything needed to answer a download request, the content itself is only opened
+ * when the resource is written to the response.
+ */
+@Data
+@AllArgsConstructor
+public class DocumentDownload {
+    private Long documentId;
+    private String fileName;
+    private String contentType;
+    private String etag;
+    private ZonedDateTime lastModifiedAt;
+    private Resource resource;
+}
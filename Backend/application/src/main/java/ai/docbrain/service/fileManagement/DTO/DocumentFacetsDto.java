@@ -0,0 +1,15 @@
+package ai.docbrain.service.fileManagement.DTO;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class DocumentFacetsDto {
+    private List<TermCountDto> keywords; // Most used first
+    private List<TermCountDto> tags;
+}
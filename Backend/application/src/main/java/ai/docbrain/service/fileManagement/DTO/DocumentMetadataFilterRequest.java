@@ -0,0 +1,42 @@
+package ai.docbrain.service.fileManagement.DTO;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.ZonedDateTime;
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class DocumentMetadataFilterRequest {
+
+    private Long folderId; // All folders of the company when null
+
+    private List<String> types;
+
+    private List<String> tags; // A document must carry all of them
+
+    private List<String> keywords; // Likewise
+
+    private Boolean aiProcessed;
+
+    private ZonedDateTime modifiedFrom;
+
+    private ZonedDateTime modifiedTo;
+
+    private boolean includeSummary;
+
+    // Position after the last document of the previous page, newest first
+    private ZonedDateTime afterModifiedAt;
+
+    private Long afterId;
+
+    // Folders of the caller's access, set by the service and not by the request
+    private List<Long> includedFolderIds;
+
+    private List<Long> excludedFolderIds;
+}
@@ -0,0 +1,15 @@
+package ai.docbrain.service.fileManagement.DTO;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class DocumentMetadataPageDto {
+    private List<FileMetadataResponseDto> items; // Newest first
+    private String nextCursor; // Pass as ?cursor= for the next page, null on the last page
+}
@@ -0,0 +1,17 @@
+package ai.docbrain.service.fileManagement.DTO;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+/**
+ * A decrypted preview artifact ready to be sent. {@code version} changes whenever the
+ * document content does, so a URL carrying it can be cached for good.
+ */
+@Data
+@AllArgsConstructor
+public class DocumentPreviewArtifact {
+    private byte[] data;
+    private String contentType;
+    private String etag;
+    private Long version;
+}
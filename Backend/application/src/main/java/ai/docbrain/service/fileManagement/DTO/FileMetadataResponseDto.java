@@ -23,4 +23,6 @@ public class FileMetadataResponseDto {
     private final ZonedDateTime accessedAt;
     private final ZonedDateTime lastModifiedAt;
     private final boolean aiProcessed;
+    private final Integer pageCount; // PDFs with derived previews only
+    private final Long previewVersion; // Set once previews are ready, pass it as ?v= to cache them for good
 }
\ No newline at end of file
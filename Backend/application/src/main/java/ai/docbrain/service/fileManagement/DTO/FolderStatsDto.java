@@ -0,0 +1,21 @@
+package ai.docbrain.service.fileManagement.DTO;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Size and document counts of a folder, directly in it and including all its subfolders.
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class FolderStatsDto {
+    private Long folderId;
+    private long directBytes;
+    private long directDocuments;
+    private long directProcessedDocuments; // Documents already processed by the AI service
+    private long totalBytes;
+    private long totalDocuments;
+    private long totalProcessedDocuments;
+}
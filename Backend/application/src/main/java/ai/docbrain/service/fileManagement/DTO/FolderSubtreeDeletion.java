@@ -0,0 +1,19 @@
+package ai.docbrain.service.fileManagement.DTO;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * What a recursive folder delete removed, for the clean up that happens outside the database.
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class FolderSubtreeDeletion {
+    private List<Long> folderIds;
+    private List<Long> documentIds;
+    private List<String> artifactKeys; // Blob store keys of the deleted documents' previews
+}
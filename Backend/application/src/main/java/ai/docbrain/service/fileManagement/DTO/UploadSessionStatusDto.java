@@ -0,0 +1,27 @@
+package ai.docbrain.service.fileManagement.DTO;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.ZonedDateTime;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * State of a resumable upload. A client resuming after a failure only sends the chunks
+ * missing from {@code receivedChunks}, chunk {@code i} starts at offset {@code i * chunkSize}.
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class UploadSessionStatusDto {
+    private UUID uploadId;
+    private Long size;
+    private Integer chunkSize;
+    private Integer chunkCount;
+    private List<Integer> receivedChunks;
+    private Long receivedBytes;
+    private String status;
+    private ZonedDateTime expiresAt;
+}
@@ -0,0 +1,270 @@
+package ai.docbrain.service.fileManagement;
+
+import ai.docbrain.domain.fileManagement.Document;
+import ai.docbrain.domain.fileManagement.DocumentContent;
+import ai.docbrain.domain.users.User;
+import ai.docbrain.service.fileManagement.storage.DocumentStorageService;
+import ai.docbrain.service.utils.EncryptionUtil;
+import ai.docbrain.service.utils.exception.DocumentException;
+import ai.docbrain.service.utils.exception.ResourceNotFoundException;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.Deflater;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * Exports a folder or a selection of documents as a ZIP that is written straight to the response.
+ * <p>
+ * Decryption runs on worker threads a few files ahead of the ZIP writer. Every file in flight
+ * hands its plaintext over in a bounded queue of chunks, so memory stays at
+ * {@code filesInFlight * queueChunks * CHUNK_SIZE} no matter how large the folder is, and a slow
+ * client simply blocks the workers.
+ */
+@Log4j2
+@Service
+public class DocumentExportService {
+
+    private static final int CHUNK_SIZE = 64 * 1024;
+    private static final Chunk END = new Chunk(null, 0, null);
+
+    private final IDocumentRepository documentRepository;
+    private final IDocumentContentRepository contentRepository;
+    private final FolderTreeCache folderTreeCache;
+    private final FolderAccessResolver folderAccessResolver;
+    private final DocumentStorageService documentStorageService;
+    private final EncryptionUtil encryptionUtil;
+    private final int filesInFlight;
+    private final int queueChunks;
+    private final ExecutorService executor;
+
+    public DocumentExportService(IDocumentRepository documentRepository,
+                                 IDocumentContentRepository contentRepository,
+                                 FolderTreeCache folderTreeCache,
+                                 FolderAccessResolver folderAccessResolver,
+                                 DocumentStorageService documentStorageService,
+                                 EncryptionUtil encryptionUtil,
+                                 @Value("${app.export.workers:4}") int workers,
+                                 @Value("${app.export.files-in-flight:4}") int filesInFlight,
+                                 @Value("${app.export.queue-chunks:8}") int queueChunks) {
+        this.documentRepository = documentRepository;
+        this.contentRepository = contentRepository;
+        this.folderTreeCache = folderTreeCache;
+        this.folderAccessResolver = folderAccessResolver;
+        this.documentStorageService = documentStorageService;
+        this.encryptionUtil = encryptionUtil;
+        this.filesInFlight = Math.max(1, filesInFlight);
+        this.queueChunks = Math.max(1, queueChunks);
+
+        AtomicInteger threadCount = new AtomicInteger();
+        this.executor = Executors.newFixedThreadPool(Math.max(1, workers), runnable -> {
+            Thread thread = new Thread(runnable, "zip-export-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * Resolves the entries of a folder export, the folder and all its sub folders.
+     *
+     * @param caller The user exporting the folder
+     * @param folderId The folder to export
+     * @return ZIP entries in a stable order, paths relative to the exported folder's parent
+     */
+    @Transactional(readOnly = true)
+    public List<ExportEntry> resolveFolderExport(User caller, Long folderId) {
+        if (caller == null) {
+            throw new ResourceNotFoundException("User not found");
+        }
+
+        // Resolves the folder within the caller's company only, without the subfolders hidden from the caller
+        FolderAccess access = folderAccessResolver.resolve(caller);
+        if (!access.canAccess(folderId)) {
+            throw new ResourceNotFoundException("Folder not found with ID: " + folderId);
+        }
+        Set<Long> folderIds = folderTreeCache.getSubtreeIds(caller.getCompanyId(), folderId);
+        folderIds.removeIf(id -> !access.canAccess(id));
+        Long parentId = folderTreeCache.getParentId(caller.getCompanyId(), folderId);
+        String rootParentPath = parentId == null ? "" : folderTreeCache.buildPath(caller.getCompanyId(), parentId);
+        List<Document> documents = documentRepository.findAllByFolderIdInAndCompanyId(folderIds, caller.getCompanyId());
+        return toEntries(documents, caller.getCompanyId(), rootParentPath);
+    }
+
+    /**
+     * Resolves the entries of an export of selected documents, placed under their folder paths.
+     *
+     * @param caller The user exporting the documents
+     * @param documentIds The documents to export
+     * @return ZIP entries in a stable order
+     */
+    @Transactional(readOnly = true)
+    public List<ExportEntry> resolveDocumentsExport(User caller, Collection<Long> documentIds) {
+        if (caller == null) {
+            throw new ResourceNotFoundException("User not found");
+        }
+
+        FolderAccess access = folderAccessResolver.resolve(caller);
+        List<Document> documents = documentRepository.findAllByIdInAndCompanyId(documentIds, caller.getCompanyId()).stream()
+                .filter(document -> access.canAccess(document.getFolderId()))
+                .toList();
+        if (documents.size() != new HashSet<>(documentIds).size()) {
+            throw new ResourceNotFoundException("Some of the requested documents were not found");
+        }
+        return toEntries(documents, caller.getCompanyId(), "");
+    }
+
+    /**
+     * Writes the entries as a ZIP to {@code out}. Files are decrypted ahead on the worker pool
+     * while earlier files are still being written.
+     */
+    public void writeZip(List<ExportEntry> entries, OutputStream out) throws IOException {
+        Deque<InFlight> inFlight = new ArrayDeque<>();
+        InFlight current = null;
+        int next = 0;
+        try (ZipOutputStream zip = new ZipOutputStream(out)) {
+            while (next < entries.size() || !inFlight.isEmpty()) {
+                while (next < entries.size() && inFlight.size() < filesInFlight) {
+                    inFlight.addLast(start(entries.get(next++)));
+                }
+
+                current = inFlight.removeFirst();
+                // PDFs and images are already compressed, deflating them again would only cost CPU
+                zip.setLevel(current.entry().compress() ? Deflater.BEST_SPEED : Deflater.NO_COMPRESSION);
+                zip.putNextEntry(new ZipEntry(current.entry().path()));
+                copy(current, zip);
+                zip.closeEntry();
+            }
+            zip.finish();
+        } catch (IOException | RuntimeException e) {
+            // Usually the client went away, stop the workers still decrypting for it
+            if (current != null) {
+                current.future().cancel(true);
+            }
+            inFlight.forEach(f -> f.future().cancel(true));
+            throw e;
+        }
+    }
+
+    private InFlight start(ExportEntry entry) {
+        BlockingQueue<Chunk> queue = new ArrayBlockingQueue<>(queueChunks);
+        Future<?> future = executor.submit(() -> decryptInto(entry, queue));
+        return new InFlight(entry, queue, future);
+    }
+
+    private void decryptInto(ExportEntry entry, BlockingQueue<Chunk> queue) {
+        try {
+            DocumentContent content = contentRepository.findById(entry.contentId())
+                    .orElseThrow(() -> new DocumentException("Content of document " + entry.documentId() + " not found"));
+            try (InputStream in = documentStorageService.openDecrypted(content)) {
+                while (true) {
+                    byte[] buffer = new byte[CHUNK_SIZE];
+                    int length = in.readNBytes(buffer, 0, CHUNK_SIZE);
+                    if (length == 0) {
+                        break;
+                    }
+                    queue.put(new Chunk(buffer, length, null));
+                }
+            }
+            queue.put(END);
+        } catch (InterruptedException e) {
+            // The export was aborted, nobody reads the queue anymore
+            Thread.currentThread().interrupt();
+        } catch (Exception e) {
+            queue.clear();
+            queue.offer(new Chunk(null, 0, e));
+        }
+    }
+
+    private void copy(InFlight current, OutputStream out) throws IOException {
+        try {
+            while (true) {
+                Chunk chunk = current.queue().take();
+                if (chunk == END) {
+                    return;
+                }
+                if (chunk.error() != null) {
+                    throw new IOException("Failed to export document " + current.entry().documentId(), chunk.error());
+                }
+                out.write(chunk.data(), 0, chunk.length());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("ZIP export interrupted");
+        }
+    }
+
+    private List<ExportEntry> toEntries(List<Document> documents, Long companyId, String basePath) {
+        List<ExportEntry> entries = new ArrayList<>(documents.size());
+        Map<Long, String> pathByFolder = new HashMap<>();
+        Set<String> usedPaths = new HashSet<>();
+
+        for (Document document : documents) {
+            if (document.getContent() == null) {
+                continue;
+            }
+            String folderPath = document.getFolderId() == null ? "" : pathByFolder.computeIfAbsent(document.getFolderId(),
+                    id -> folderTreeCache.buildPath(companyId, id));
+            if (!basePath.isEmpty() && folderPath.startsWith(basePath + "/")) {
+                folderPath = folderPath.substring(basePath.length() + 1);
+            }
+
+            String name = decryptName(document);
+            String path = uniquePath(folderPath.isEmpty() ? name : folderPath + "/" + name, usedPaths);
+            // getId() on the lazy content does not load it, the workers fetch it when its turn comes
+            boolean compress = document.getType() != null && document.getType().startsWith("text/");
+            entries.add(new ExportEntry(document.getId(), document.getContent().getId(), path, compress));
+        }
+        return entries;
+    }
+
+    private String decryptName(Document document) {
+        try {
+            String name = new String(encryptionUtil.decrypt(Base64.getDecoder().decode(document.getName())));
+            return name.replace('/', '_').replace('\\', '_');
+        } catch (Exception e) {
+            log.error("Error decrypting file name for document ID: " + document.getId(), e);
+            return "document-" + document.getId();
+        }
+    }
+
+    private static String uniquePath(String path, Set<String> usedPaths) {
+        if (usedPaths.add(path)) {
+            return path;
+        }
+        int dot = path.lastIndexOf('.');
+        int slash = path.lastIndexOf('/');
+        String base = dot > slash ? path.substring(0, dot) : path;
+        String extension = dot > slash ? path.substring(dot) : "";
+        for (int i = 2; ; i++) {
+            String candidate = base + " (" + i + ")" + extension;
+            if (usedPaths.add(candidate)) {
+                return candidate;
+            }
+        }
+    }
+
+    public record ExportEntry(Long documentId, Long contentId, String path, boolean compress) {
+    }
+
+    private record InFlight(ExportEntry entry, BlockingQueue<Chunk> queue, Future<?> future) {
+    }
+
+    private record Chunk(byte[] data, int length, Exception error) {
+    }
+}
@@ -1,18 +1,26 @@
 package ai.docbrain.service.fileManagement;
 
 import ai.docbrain.domain.fileManagement.Document;
+import ai.docbrain.domain.fileManagement.DocumentContent;
 import ai.docbrain.domain.fileManagement.DocumentActivityLog;
-import ai.docbrain.domain.fileManagement.Folder;
 import ai.docbrain.domain.users.User;
 import ai.docbrain.service.fileManagement.DTO.CreateFileResponseDto;
+import ai.docbrain.service.fileManagement.DTO.DocumentDownload;
 import ai.docbrain.service.fileManagement.DTO.DocumentListResponse;
+import ai.docbrain.service.fileManagement.DTO.DocumentMetadataFilterRequest;
+import ai.docbrain.service.fileManagement.DTO.DocumentMetadataPageDto;
 import ai.docbrain.service.fileManagement.DTO.FileDataResponseDto;
 import ai.docbrain.service.fileManagement.DTO.FileMetadataResponseDto;
 import ai.docbrain.service.fileManagement.DTO.RenameFileRequestDto;
 import ai.docbrain.service.fileManagement.DTO.RenameFileResponseDto;
 import ai.docbrain.service.fileManagement.DTO.UpdateFileContentRequestDto;
 import ai.docbrain.service.fileManagement.DTO.UpdateFileContentResponseDto;
-import ai.docbrain.service.role.RoleService;
+import ai.docbrain.service.fileManagement.preview.DocumentPreviewService;
+import ai.docbrain.service.fileManagement.storage.DocumentContentResource;
+import ai.docbrain.service.fileManagement.storage.DocumentStorageService;
+import ai.docbrain.service.fileManagement.storage.StagedUpload;
+import ai.docbrain.service.AI.DocumentProcessingService;
+import ai.docbrain.service.search.SearchIndex;
 import com.itextpdf.kernel.pdf.PdfDocument;
 import com.itextpdf.kernel.pdf.PdfReader;
 import com.itextpdf.kernel.pdf.PdfWriter;
@@ -22,19 +30,27 @@ import ai.docbrain.service.user.UserService;
 import ai.docbrain.service.utils.EncryptionUtil;
 import ai.docbrain.service.utils.ServerConstants;
 import ai.docbrain.service.utils.ServerUtils;
+import ai.docbrain.service.utils.exception.DocumentException;
+import ai.docbrain.service.utils.exception.InvalidDataException;
 import ai.docbrain.service.utils.exception.ResourceNotFoundException;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.log4j.Log4j2;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.*;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.util.unit.DataSize;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.ZoneOffset;
 import java.time.ZonedDateTime;
+import java.time.temporal.ChronoUnit;
 import java.util.*;
 import java.util.stream.Collectors;
 
@@ -44,10 +60,24 @@ import java.util.stream.Collectors;
 public class DocumentService {
 
     private final IDocumentRepository documentRepository;
-    private final IFolderRepository folderRepository;
-    private final RoleService roleService;
     private final EncryptionUtil encryptionUtil;
     private final IDocumentActivityLogRepository logRepository;
+    private final DocumentStorageService documentStorageService;
+    private final DocumentProcessingService documentProcessingService;
+    private final DocumentPreviewService documentPreviewService;
+    private final FileNameCache fileNameCache;
+    private final SearchIndex searchIndex;
+    private final DocumentTermService documentTermService;
+    private final ListingVersionService listingVersionService;
+    private final FolderTreeCache folderTreeCache;
+    private final FolderStatsService folderStatsService;
+    private final FolderAccessResolver folderAccessResolver;
+
+    private static final int DEFAULT_METADATA_PAGE_SIZE = 100;
+    private static final int MAX_METADATA_PAGE_SIZE = 500;
+
+    @Value("${spring.servlet.multipart.max-file-size:10MB}")
+    private DataSize maxFileSize;
 
     @Transactional
     public ResponseEntity<String> uploadDocument(User caller, MultipartFile file, Long folderId) {
@@ -58,53 +88,15 @@ public class DocumentService {
             }
 
             // Validate file input
-            if (file == null || file.isEmpty()) {
-                return ServerUtils.getResponseEntity(ServerConstants.INVALID_DATA, HttpStatus.BAD_REQUEST);
-            }
-            if (file.getSize() > 10 * 1024 * 1024) { // 10 MB limit
-                return ServerUtils.getResponseEntity(ServerConstants.FILE_LIMIT_EXCEEDED, HttpStatus.BAD_REQUEST);
-            }
-
-            String contentType = file.getContentType();
-            if (contentType == null || !(contentType.equals("application/pdf") || contentType.startsWith("image/"))) {
-                return ServerUtils.getResponseEntity(ServerConstants.INVALID_DATA, HttpStatus.BAD_REQUEST);
+            String error = validateUpload(file);
+            if (error != null) {
+                return ServerUtils.getResponseEntity(error, HttpStatus.BAD_REQUEST);
             }
 
-            // Sanitize and validate file name
-            String originalFilename = file.getOriginalFilename();
-            if (originalFilename == null || originalFilename.contains(",")) {
-                return ServerUtils.getResponseEntity(ServerConstants.INVALID_DATA, HttpStatus.BAD_REQUEST);
+            try (InputStream fileStream = file.getInputStream()) {
+                createUploadedDocument(caller, fileStream, file.getSize(), file.getContentType(), file.getOriginalFilename(), folderId);
             }
 
-            String sanitizedFilename = ServerUtils.sanitizeFileName(originalFilename);
-
-            // Encrypt file data and file name
-            byte[] encryptedFileData = encryptionUtil.encrypt(file.getBytes());
-            String encryptedFilename = Base64.getEncoder().encodeToString(encryptionUtil.encrypt(sanitizedFilename.getBytes()));
-            System.out.println("Encrypted file data length: "+ encryptedFileData.length); // Debugging
-            System.out.println("Encrypted file data type: "+ encryptedFileData.getClass().getName());
-            // Save the document
-            Document document = Document.builder()
-                    .name(encryptedFilename)
-                    .type(contentType)
-                    .path(folderId == null ? "/" : FolderUtils.buildFolderPath(folderId, folderRepository))
-                    .size(file.getSize())
-                    .folderId(folderId)
-                    .companyId(caller.getCompanyId())
-                    .fileData(encryptedFileData)
-                    .tags("uploaded")
-                    .summary(null) // Explicitly set to null
-                    .keywords(null)
-                    .vectorRepresentation(null)
-                    .accessedAt(null)
-                    .aiProcessed(false)
-                    .build();
-
-            documentRepository.save(document);
-            System.out.println("uploaded document Name : "+ originalFilename); // Debugging
-            System.out.println("uploaded document Name : "+ document.getName()); // Debugging
-            logDocumentAction(document, caller, "UPLOADED", originalFilename);
-
             return ServerUtils.getResponseEntity(ServerConstants.FILE_UPLOADED, HttpStatus.OK);
 
         } catch (IOException e) {
@@ -117,6 +109,163 @@ public class DocumentService {
         }
     }
 
+    /**
+     * Stores uploaded content and creates its document. Shared by the multipart upload and
+     * the resumable upload, which hands in its assembled chunks as one stream.
+     *
+     * @param caller The uploading user
+     * @param data The plaintext, read exactly once
+     * @param size The plaintext size in bytes
+     * @param contentType The validated content type
+     * @param originalFilename The file name as sent by the client
+     * @param folderId The target folder, or null for the root
+     * @return the saved document
+     */
+    @Transactional
+    public Document createUploadedDocument(User caller, InputStream data, long size, String contentType,
+                                           String originalFilename, Long folderId) throws IOException {
+        String sanitizedFilename = ServerUtils.sanitizeFileName(originalFilename);
+        String path = targetFolderPath(caller, folderId);
+
+        // Encrypt file data into the blob store while streaming it, and encrypt the file name
+        DocumentContent content = documentStorageService.store(caller.getCompanyId(), data, contentType);
+        String encryptedFilename;
+        try {
+            encryptedFilename = Base64.getEncoder().encodeToString(encryptionUtil.encrypt(sanitizedFilename.getBytes()));
+        } catch (Exception e) {
+            throw new DocumentException("Failed to encrypt file name", e);
+        }
+        // Save the document
+        Document document = Document.builder()
+                .name(encryptedFilename)
+                .type(contentType)
+                .path(path)
+                .size(size)
+                .folderId(folderId)
+                .companyId(caller.getCompanyId())
+                .content(content)
+                .tags("uploaded")
+                .summary(null) // Explicitly set to null
+                .keywords(null)
+                .vectorRepresentation(null)
+                .accessedAt(null)
+                .aiProcessed(false)
+                .build();
+
+        documentRepository.save(document);
+        documentTermService.setTags(document.getCompanyId(), List.of(document.getId()), document.getTags());
+        listingVersionService.documentChanged(document.getCompanyId(), folderId);
+        folderStatsService.documentAdded(document);
+        // A duplicate of an already processed file takes over its AI results
+        documentProcessingService.reuseProcessingResults(document);
+        logDocumentAction(document, caller, "UPLOADED", originalFilename);
+        return document;
+    }
+
+    /**
+     * Persists a batch of uploads whose content is already staged in the blob store. Contents,
+     * documents and activity logs are each written with batched statements, so the number of
+     * round trips does not grow with the number of files.
+     *
+     * @param caller The uploading user
+     * @param uploads The staged uploads, all going into the same folder
+     * @param folderId The target folder, or null for the root
+     * @return the saved documents, in the order of {@code uploads}
+     */
+    @Transactional
+    public List<Document> createUploadedDocuments(User caller, List<StagedUpload> uploads, Long folderId) {
+        String path = targetFolderPath(caller, folderId);
+        List<DocumentContent> contents = documentStorageService.referenceAll(caller.getCompanyId(),
+                uploads.stream().map(StagedUpload::content).toList());
+
+        List<Document> documents = new ArrayList<>(uploads.size());
+        for (int i = 0; i < uploads.size(); i++) {
+            StagedUpload upload = uploads.get(i);
+            documents.add(Document.builder()
+                    .name(upload.encryptedFilename())
+                    .type(upload.contentType())
+                    .path(path)
+                    .size(upload.content().size())
+                    .folderId(folderId)
+                    .companyId(caller.getCompanyId())
+                    .content(contents.get(i))
+                    .tags("uploaded")
+                    .aiProcessed(false)
+                    .build());
+        }
+        documentRepository.insertAll(documents);
+        documentTermService.setTags(caller.getCompanyId(), documents.stream().map(Document::getId).toList(), "uploaded");
+        listingVersionService.documentChanged(caller.getCompanyId(), folderId);
+        folderStatsService.documentsAdded(folderId, documents);
+
+        ZonedDateTime now = ZonedDateTime.now();
+        List<DocumentActivityLog> logs = new ArrayList<>(uploads.size());
+        for (int i = 0; i < uploads.size(); i++) {
+            logs.add(DocumentActivityLog.builder()
+                    .documentId(documents.get(i).getId())
+                    .documentName(uploads.get(i).originalFilename())
+                    .companyId(caller.getCompanyId())
+                    .userId(caller.getId())
+                    .userName(caller.getFullName())
+                    .action("UPLOADED")
+                    .timestamp(now)
+                    .build());
+        }
+        logRepository.insertAll(logs);
+
+        // Only a file deduplicated onto other content can have a processed twin
+        for (int i = 0; i < documents.size(); i++) {
+            if (!uploads.get(i).content().storageKey().equals(contents.get(i).getStorageKey())) {
+                documentProcessingService.reuseProcessingResults(documents.get(i));
+            }
+        }
+        return documents;
+    }
+
+    /**
+     * Checks that the caller may add documents to the folder, before anything is stored.
+     *
+     * @param folderId The target folder, or null for the root
+     * @return the path of the folder
+     * @throws ResourceNotFoundException if the folder is not one of the caller's company they may see
+     */
+    public String targetFolderPath(User caller, Long folderId) {
+        if (!folderAccessResolver.resolve(caller).canAccess(folderId)) {
+            throw new ResourceNotFoundException(folderId == null
+                    ? "Root folder is not accessible" : "Folder not found with ID: " + folderId);
+        }
+        return folderId == null ? "/" : folderTreeCache.buildPath(caller.getCompanyId(), folderId);
+    }
+
+    /**
+     * Checks a multipart file against the upload rules.
+     *
+     * @return the error message, or null when the file can be uploaded
+     */
+    public String validateUpload(MultipartFile file) {
+        if (file == null || file.isEmpty()) {
+            return ServerConstants.INVALID_DATA;
+        }
+        if (file.getSize() > maxFileSize.toBytes()) { // Larger files go through the resumable upload
+            return ServerConstants.FILE_LIMIT_EXCEEDED;
+        }
+        if (!isAllowedUploadType(file.getContentType())) {
+            return ServerConstants.INVALID_DATA;
+        }
+        String originalFilename = file.getOriginalFilename();
+        if (originalFilename == null || originalFilename.contains(",")) {
+            return ServerConstants.INVALID_DATA;
+        }
+        return null;
+    }
+
+    /**
+     * Only PDFs and images can be uploaded, markdown files are created in the app.
+     */
+    public static boolean isAllowedUploadType(String contentType) {
+        return contentType != null && (contentType.equals("application/pdf") || contentType.startsWith("image/"));
+    }
+
     @Transactional(readOnly = true)
     public ResponseEntity<byte[]> downloadDocument(User caller, Long fileId, String fileName) {
         try {
@@ -126,20 +275,22 @@ public class DocumentService {
 
             String encryptedFilename = Base64.getEncoder().encodeToString(encryptionUtil.encrypt(fileName.getBytes()));
 
-            List<Document> dbDocuments;
-            if (roleService.isClient(caller)) {
-                // Clients can only access their own documents
-                dbDocuments = documentRepository.getByCompanyIdAndFileId(fileId, caller.getCompanyId());
-                if (dbDocuments == null || dbDocuments.isEmpty()) {
-                    log.error("Client {} tried to access a document they don't own: {}", caller.getEmail(), fileName);
-                    return ResponseEntity.status(HttpStatus.FORBIDDEN).body(null);
-                }
-            } else {
-                // Admins and other roles can access any document within their company
-                dbDocuments = documentRepository.getByCompanyIdAndFileId(fileId, caller.getCompanyId());
-                if (dbDocuments == null || dbDocuments.isEmpty()) {
-                    log.error("User {} attempted to access non-existent document: {}", caller.getEmail(), fileName);
-                    return ResponseEntity.status(HttpStatus.NOT_FOUND).body(null);
+            List<Document> dbDocuments = documentRepository.getByCompanyIdAndFileId(caller.getCompanyId(), fileId);
+            if (dbDocuments == null || dbDocuments.isEmpty()) {
+                log.error("User {} attempted to access non-existent document: {}", caller.getEmail(), fileName);
+                return ResponseEntity.status(HttpStatus.NOT_FOUND).body(null);
+            }
+            // Clients only see the folders linked to them, employees all but the ones blocked for them
+            FolderAccess access = folderAccessResolver.resolve(caller);
+            if (!dbDocuments.stream().allMatch(document -> access.canAccess(document.getFolderId()))) {
+                log.error("User {} tried to access a document of a folder they may not see: {}", caller.getEmail(), fileName);
+                return ResponseEntity.status(HttpStatus.FORBIDDEN).body(null);
+            }
+
+            // A single document is returned as it is, merging would only re-serialise it
+            if (dbDocuments.size() == 1) {
+                try (InputStream decryptedData = documentStorageService.openDecrypted(dbDocuments.get(0).getContent())) {
+                    return ResponseEntity.ok(decryptedData.readAllBytes());
                 }
             }
 
@@ -147,16 +298,11 @@ public class DocumentService {
             PdfMerger pdfMerger = new PdfMerger(new PdfDocument(new PdfWriter(outputStream)));
 
             for (Document document : dbDocuments) {
-                byte[] decryptedData = encryptionUtil.decrypt(document.getFileData());
-
-                if (decryptedData == null || decryptedData.length == 0) {
-                    log.error("Decryption failed or resulted in empty data for file: {}", document.getName());
-                    return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(null);
+                try (InputStream decryptedData = documentStorageService.openDecrypted(document.getContent())) {
+                    PdfDocument pdfDoc = new PdfDocument(new PdfReader(decryptedData));
+                    pdfMerger.merge(pdfDoc, 1, pdfDoc.getNumberOfPages());
+                    pdfDoc.close();
                 }
-
-                PdfDocument pdfDoc = new PdfDocument(new PdfReader(new ByteArrayInputStream(decryptedData)));
-                pdfMerger.merge(pdfDoc, 1, pdfDoc.getNumberOfPages());
-                pdfDoc.close();
             }
 
             pdfMerger.close();
@@ -168,6 +314,52 @@ public class DocumentService {
         }
     }
 
+    /**
+     * Resolves a document for a streamed download without reading its content.
+     * The ETag is derived from the content hash and the last modification, so a client can
+     * revalidate with {@code If-None-Match} before anything is decrypted.
+     *
+     * @param caller The user downloading the document
+     * @param documentId The ID of the document
+     * @return DocumentDownload with the metadata and a lazily opened content resource
+     */
+    @Transactional(readOnly = true)
+    public DocumentDownload prepareDownload(User caller, Long documentId) {
+        if (caller == null) {
+            throw new ResourceNotFoundException("User not found");
+        }
+
+        Document document = documentRepository.findByIdWithContent(documentId)
+                .filter(d -> d.getCompanyId().equals(caller.getCompanyId()))
+                .filter(d -> folderAccessResolver.resolve(caller).canAccess(d.getFolderId()))
+                .orElseThrow(() -> new ResourceNotFoundException("Document not found with ID: " + documentId));
+        DocumentContent content = document.getContent();
+        if (content == null) {
+            throw new ResourceNotFoundException("Document " + documentId + " has no content");
+        }
+
+        String fileName;
+        try {
+            fileName = new String(encryptionUtil.decrypt(Base64.getDecoder().decode(document.getName())));
+        } catch (Exception e) {
+            log.error("Error decrypting file name for document ID: " + documentId, e);
+            throw new RuntimeException("Failed to decrypt file name", e);
+        }
+
+        ZonedDateTime lastModifiedAt = document.getLastModifiedAt() != null ? document.getLastModifiedAt() : document.getCreatedAt();
+        String contentVersion = content.getContentHash() != null ? content.getContentHash() : "c" + content.getId();
+        String etag = "\"" + contentVersion + "-" + (lastModifiedAt != null ? lastModifiedAt.toInstant().toEpochMilli() : 0) + "\"";
+
+        return new DocumentDownload(
+                document.getId(),
+                fileName,
+                document.getType(),
+                etag,
+                lastModifiedAt,
+                new DocumentContentResource(documentStorageService, content, fileName)
+        );
+    }
+
     @Transactional
     public ResponseEntity<String> deleteDocument(User caller, Long fileId) {
         try {
@@ -182,12 +374,20 @@ public class DocumentService {
             }
 
             Document document = documentOptional.get();
-            if (!document.getCompanyId().equals(caller.getCompanyId())) {
+            if (!document.getCompanyId().equals(caller.getCompanyId())
+                    || !folderAccessResolver.resolve(caller).canAccess(document.getFolderId())) {
                 log.error("Access denied for user with ID: {} to delete document with ID: {}", caller.getId(), fileId);
                 return ServerUtils.getResponseEntity(ServerConstants.UNAUTHORIZED_ACCESS, HttpStatus.FORBIDDEN);
             }
 
+            documentPreviewService.invalidate(document.getId());
+            fileNameCache.invalidate(document.getId());
+            documentTermService.removeDocument(document.getId());
             documentRepository.delete(document);
+            listingVersionService.documentChanged(document.getCompanyId(), document.getFolderId());
+            folderStatsService.documentRemoved(document);
+            documentStorageService.release(document.getContent());
+            searchIndex.removeAfterCommit(document.getCompanyId(), document.getId());
             // LogDocumentAction the deletion action
             byte[] decryptedFilenameBytes = encryptionUtil.decrypt(Base64.getDecoder().decode(document.getName()));
             String decryptedFilename = new String(decryptedFilenameBytes);
@@ -205,10 +405,11 @@ public class DocumentService {
             if (caller == null) {
                 throw new ResourceNotFoundException("User not found");
             }
-            System.out.println("Folder ID: "+ folderId+"companyId: "+ caller.getCompanyId()); // Debugging
+            if (!folderAccessResolver.resolve(caller).canAccess(folderId)) {
+                throw new ResourceNotFoundException("Folder not found with ID: " + folderId);
+            }
             // Fetch metadata for documents in the folder
             List<FileMetadataResponseDto> metadataList = documentRepository.findMetadataByFolderIdAndCompanyId(folderId, caller.getCompanyId());
-            System.out.println("Metadata list size: "+ metadataList.size()); // Debugging
             // Decrypt the file names in the metadata
             return decryptFileMetadata(metadataList);
 
@@ -231,8 +432,14 @@ public class DocumentService {
                 throw new ResourceNotFoundException("User not found");
             }
 
-            // Fetch metadata for all documents in the company
+            // Fetch metadata for all documents in the company, then drop the folders hidden from the caller
+            FolderAccess access = folderAccessResolver.resolve(caller);
             List<FileMetadataResponseDto> metadataList = documentRepository.findAllMetadataByCompanyId(caller.getCompanyId());
+            if (!access.isUnrestricted()) {
+                metadataList = metadataList.stream()
+                        .filter(metadata -> access.canAccess(metadata.getFolderId()))
+                        .toList();
+            }
             log.info("Found {} documents for company ID: {}", metadataList.size(), caller.getCompanyId());
 
             // Decrypt the file names in the metadata
@@ -244,6 +451,73 @@ public class DocumentService {
         }
     }
 
+    /**
+     * Get one page of a company's document metadata, newest first, filtered in the database
+     *
+     * @param caller The user requesting the metadata
+     * @param filter Filters, without the cursor position
+     * @param cursor The nextCursor of the previous page, or null for the first page
+     * @param limit Maximum number of documents on the page
+     * @return the page with decrypted file names and the cursor of the next one
+     */
+    @Transactional(readOnly = true)
+    public DocumentMetadataPageDto getDocumentMetadataPage(User caller, DocumentMetadataFilterRequest filter, String cursor, Integer limit) {
+        if (caller == null) {
+            throw new ResourceNotFoundException("User not found");
+        }
+        int pageSize = limit == null ? DEFAULT_METADATA_PAGE_SIZE : limit;
+        if (pageSize < 1 || pageSize > MAX_METADATA_PAGE_SIZE) {
+            throw new InvalidDataException("Limit must be between 1 and " + MAX_METADATA_PAGE_SIZE);
+        }
+        if (cursor != null) {
+            decodeMetadataCursor(cursor, filter);
+        }
+        // Terms are matched the way they are stored
+        if (filter.getTags() != null) {
+            filter.setTags(DocumentTermService.normalize(filter.getTags()));
+        }
+        if (filter.getKeywords() != null) {
+            filter.setKeywords(DocumentTermService.normalize(filter.getKeywords()));
+        }
+        // Hidden folders are left out in the query, so pages stay full
+        FolderAccess access = folderAccessResolver.resolve(caller);
+        if (access.isOnlyListed()) {
+            if (access.getListedFolderIds().isEmpty()) {
+                return new DocumentMetadataPageDto(List.of(), null);
+            }
+            filter.setIncludedFolderIds(access.getListedFolderIds());
+        } else if (!access.isUnrestricted()) {
+            filter.setExcludedFolderIds(access.getListedFolderIds());
+        }
+
+        // One row more than asked tells whether there is a next page
+        List<FileMetadataResponseDto> rows = documentRepository.findMetadataPage(caller.getCompanyId(), filter, pageSize + 1);
+        String nextCursor = null;
+        if (rows.size() > pageSize) {
+            rows = rows.subList(0, pageSize);
+            nextCursor = encodeMetadataCursor(rows.get(pageSize - 1));
+        }
+        return new DocumentMetadataPageDto(decryptFileMetadata(rows), nextCursor);
+    }
+
+    private static String encodeMetadataCursor(FileMetadataResponseDto last) {
+        Instant modifiedAt = last.getLastModifiedAt().toInstant();
+        long micros = Math.addExact(Math.multiplyExact(modifiedAt.getEpochSecond(), 1_000_000L), modifiedAt.getNano() / 1_000);
+        String position = micros + ":" + last.getId();
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(position.getBytes(StandardCharsets.US_ASCII));
+    }
+
+    private static void decodeMetadataCursor(String cursor, DocumentMetadataFilterRequest filter) {
+        try {
+            String[] position = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.US_ASCII).split(":");
+            long micros = Long.parseLong(position[0]);
+            filter.setAfterModifiedAt(Instant.EPOCH.plus(micros, ChronoUnit.MICROS).atZone(ZoneOffset.UTC));
+            filter.setAfterId(Long.parseLong(position[1]));
+        } catch (RuntimeException e) {
+            throw new InvalidDataException("Invalid cursor");
+        }
+    }
+
     /**
      * Helper method to decrypt file metadata
      *
@@ -251,35 +525,63 @@ public class DocumentService {
      * @return List of FileMetadataResponseDto objects with decrypted file names
      */
     private List<FileMetadataResponseDto> decryptFileMetadata(List<FileMetadataResponseDto> metadataList) {
-        return metadataList.stream()
-                .map(metadata -> {
-                    try {
-                        // Decrypt the file name
-                        byte[] decryptedFilenameBytes = encryptionUtil.decrypt(Base64.getDecoder().decode(metadata.getName()));
-                        String decryptedFilename = new String(decryptedFilenameBytes);
-
-                        // Return a new DTO with the decrypted file name
-                        return new FileMetadataResponseDto(
-                                metadata.getId(),
-                                decryptedFilename, // Decrypted file name
-                                metadata.getType(),
-                                metadata.getPath(),
-                                metadata.getSize(),
-                                metadata.getFolderId(),
-                                metadata.getCompanyId(), // Updated to use companyId instead of userId
-                                metadata.getTags(),
-                                metadata.getSummary(),
-                                metadata.getKeywords(),
-                                metadata.getAccessedAt(),
-                                metadata.getLastModifiedAt(),
-                                metadata.isAiProcessed()
-                        );
-                    } catch (Exception e) {
-                        log.error("Error decrypting file name for document ID: " + metadata.getId(), e);
-                        throw new RuntimeException("Failed to decrypt file name", e);
-                    }
-                })
-                .collect(Collectors.toList());
+        // Names of unchanged documents come from the cache, only the rest is decrypted
+        List<FileNameCache.Key> keys = metadataList.stream()
+                .map(metadata -> FileNameCache.Key.of(metadata.getId(), metadata.getLastModifiedAt()))
+                .toList();
+        Map<Long, String> names = fileNameCache.getAll(keys);
+
+        List<Integer> misses = new ArrayList<>();
+        for (int i = 0; i < metadataList.size(); i++) {
+            if (!names.containsKey(metadataList.get(i).getId())) {
+                misses.add(i);
+            }
+        }
+        if (!misses.isEmpty()) {
+            // Decrypt the missing names in one go, large listings are spread over several threads
+            List<byte[]> decryptedFilenames;
+            try {
+                decryptedFilenames = encryptionUtil.decryptAll(misses.stream()
+                        .map(i -> Base64.getDecoder().decode(metadataList.get(i).getName()))
+                        .toList());
+            } catch (Exception e) {
+                log.error("Error decrypting file names of {} documents", misses.size(), e);
+                throw new RuntimeException("Failed to decrypt file name", e);
+            }
+
+            Map<FileNameCache.Key, String> decrypted = new HashMap<>();
+            for (int j = 0; j < misses.size(); j++) {
+                int i = misses.get(j);
+                String name = new String(decryptedFilenames.get(j));
+                names.put(metadataList.get(i).getId(), name);
+                decrypted.put(keys.get(i), name);
+            }
+            fileNameCache.putAll(decrypted);
+        }
+
+        List<FileMetadataResponseDto> result = new ArrayList<>(metadataList.size());
+        for (int i = 0; i < metadataList.size(); i++) {
+            FileMetadataResponseDto metadata = metadataList.get(i);
+            // Return a new DTO with the decrypted file name
+            result.add(new FileMetadataResponseDto(
+                    metadata.getId(),
+                    names.get(metadata.getId()), // Decrypted file name
+                    metadata.getType(),
+                    metadata.getPath(),
+                    metadata.getSize(),
+                    metadata.getFolderId(),
+                    metadata.getCompanyId(), // Updated to use companyId instead of userId
+                    metadata.getTags(),
+                    metadata.getSummary(),
+                    metadata.getKeywords(),
+                    metadata.getAccessedAt(),
+                    metadata.getLastModifiedAt(),
+                    metadata.isAiProcessed(),
+                    metadata.getPageCount(),
+                    metadata.getPreviewVersion()
+            ));
+        }
+        return result;
     }
 
     @Transactional(readOnly = true)
@@ -289,21 +591,25 @@ public class DocumentService {
                 throw new ResourceNotFoundException("User not found");
             }
 
-            // Fetch the document
-            Optional<Document> documentOptional = documentRepository.findById(documentId);
+            // Fetch the document together with its content
+            Optional<Document> documentOptional = documentRepository.findByIdWithContent(documentId);
             if (documentOptional.isEmpty()) {
                 throw new ResourceNotFoundException("Document not found with ID: " + documentId);
             }
 
             Document document = documentOptional.get();
 
-            // Ensure the document belongs to the caller's company
-            if (!document.getCompanyId().equals(caller.getCompanyId())) {
+            // Ensure the document belongs to the caller's company and a folder they may see
+            if (!document.getCompanyId().equals(caller.getCompanyId())
+                    || !folderAccessResolver.resolve(caller).canAccess(document.getFolderId())) {
                 throw new ResourceNotFoundException("Access denied to document with ID: " + documentId);
             }
 
             // Decrypt the file data
-            byte[] decryptedFileData = encryptionUtil.decrypt(document.getFileData());
+            byte[] decryptedFileData;
+            try (InputStream content = documentStorageService.openDecrypted(document.getContent())) {
+                decryptedFileData = content.readAllBytes();
+            }
 
             // Get the document type
             String contentType = document.getType();
@@ -365,8 +671,8 @@ public class DocumentService {
                         ServerConstants.INVALID_DATA);
             }
 
-            // Fetch the document
-            Optional<Document> documentOptional = documentRepository.findById(fileId);
+            // Fetch the document together with its content
+            Optional<Document> documentOptional = documentRepository.findByIdWithContent(fileId);
             if (documentOptional.isEmpty()) {
                 return new UpdateFileContentResponseDto(null, null, null, null, null,
                         ServerConstants.FILE_NOT_FOUND);
@@ -374,8 +680,9 @@ public class DocumentService {
 
             Document document = documentOptional.get();
 
-            // Ensure the document belongs to the caller's company
-            if (!document.getCompanyId().equals(caller.getCompanyId())) {
+            // Ensure the document belongs to the caller's company and a folder they may see
+            if (!document.getCompanyId().equals(caller.getCompanyId())
+                    || !folderAccessResolver.resolve(caller).canAccess(document.getFolderId())) {
                 return new UpdateFileContentResponseDto(null, null, null, null, null,
                         ServerConstants.UNAUTHORIZED_ACCESS);
             }
@@ -412,16 +719,24 @@ public class DocumentService {
                             "Unsupported content type: " + contentType);
             }
 
-            // Encrypt the new content
-            byte[] encryptedContent = encryptionUtil.encrypt(newContent);
+            // Copy on write, the content may be shared with other documents so it is never changed in place
+            DocumentContent previousContent = document.getContent();
+            long previousSize = document.getSize();
+            DocumentContent content = documentStorageService.store(document.getCompanyId(), new ByteArrayInputStream(newContent), contentType);
 
             // Update the document
-            document.setFileData(encryptedContent);
+            document.setContent(content);
             document.setSize((long) newContent.length);
             document.setLastModifiedAt(ZonedDateTime.now());
 
             // Save the updated document
             documentRepository.save(document);
+            fileNameCache.invalidate(document.getId());
+            documentStorageService.release(previousContent);
+            listingVersionService.documentChanged(document.getCompanyId(), document.getFolderId());
+            folderStatsService.documentResized(document, previousSize);
+            // The previews show the old content, the sweeper derives new ones
+            documentPreviewService.invalidate(document.getId());
 
             // Log the action
             logDocumentAction(document, caller, "UPDATED", decryptedFilename);
@@ -478,8 +793,9 @@ public class DocumentService {
 
             Document document = documentOptional.get();
 
-            // Ensure the document belongs to the caller's company
-            if (!document.getCompanyId().equals(caller.getCompanyId())) {
+            // Ensure the document belongs to the caller's company and a folder they may see
+            if (!document.getCompanyId().equals(caller.getCompanyId())
+                    || !folderAccessResolver.resolve(caller).canAccess(document.getFolderId())) {
                 return new RenameFileResponseDto(null, null, null, null, null, null, null, null,
                         ServerConstants.UNAUTHORIZED_ACCESS);
             }
@@ -498,6 +814,8 @@ public class DocumentService {
 
             // Save the updated document
             documentRepository.save(document);
+            fileNameCache.invalidate(document.getId());
+            listingVersionService.documentChanged(document.getCompanyId(), document.getFolderId());
 
             // Log the action
             logDocumentAction(document, caller, "RENAMED", sanitizedNewFileName + " (from " + decryptedFilename + ")");
@@ -553,24 +871,21 @@ public class DocumentService {
             // Default empty markdown content
             String defaultContent = "# " + sanitizedFilename.replace(".md", "") + "\n\nEnter your markdown content here...";
 
-            // Encrypt file data and file name using UTF-8 encoding
-            byte[] encryptedFileData = encryptionUtil.encrypt(defaultContent.getBytes(StandardCharsets.UTF_8));
+            // Encrypt file name using UTF-8 encoding, the content is encrypted into the blob store below
             String encryptedFilename = Base64.getEncoder().encodeToString(encryptionUtil.encrypt(sanitizedFilename.getBytes(StandardCharsets.UTF_8)));
 
-            // Validate folder ownership if folderId is provided
-            String path = "/";
-            if (folderId != null) {
-                Folder folder = folderRepository.findById(folderId)
-                        .orElseThrow(() -> new ResourceNotFoundException("Folder not found with ID: " + folderId));
-
-                if (!folder.getCompanyId().equals(caller.getCompanyId())) {
-                    return new CreateFileResponseDto(null, null, null, null, null, null, null,
-                            ServerConstants.UNAUTHORIZED_ACCESS);
-                }
-
-                path = FolderUtils.buildFolderPath(folderId, folderRepository);
+            // Only a folder of the caller's company they may see
+            String path;
+            try {
+                path = targetFolderPath(caller, folderId);
+            } catch (ResourceNotFoundException e) {
+                return new CreateFileResponseDto(null, null, null, null, null, null, null,
+                        ServerConstants.UNAUTHORIZED_ACCESS);
             }
 
+            DocumentContent content = documentStorageService.store(caller.getCompanyId(),
+                    new ByteArrayInputStream(defaultContent.getBytes(StandardCharsets.UTF_8)), "text/markdown");
+
             // Create and save the document
             Document document = Document.builder()
                     .name(encryptedFilename)
@@ -579,7 +894,7 @@ public class DocumentService {
                     .size((long) defaultContent.getBytes().length)
                     .folderId(folderId)
                     .companyId(caller.getCompanyId())
-                    .fileData(encryptedFileData)
+                    .content(content)
                     .tags("created")
                     .summary(null)
                     .keywords(null)
@@ -589,6 +904,9 @@ public class DocumentService {
                     .build();
 
             documentRepository.save(document);
+            documentTermService.setTags(document.getCompanyId(), List.of(document.getId()), document.getTags());
+            listingVersionService.documentChanged(document.getCompanyId(), folderId);
+            folderStatsService.documentAdded(document);
 
             // Log the action
             logDocumentAction(document, caller, "CREATED", sanitizedFilename);
@@ -0,0 +1,136 @@
+package ai.docbrain.service.fileManagement;
+
+import ai.docbrain.domain.fileManagement.Document;
+import ai.docbrain.domain.fileManagement.TermKind;
+import ai.docbrain.domain.users.User;
+import ai.docbrain.service.fileManagement.DTO.DocumentFacetsDto;
+import ai.docbrain.service.fileManagement.DTO.TermCountDto;
+import ai.docbrain.service.utils.exception.InvalidDataException;
+import ai.docbrain.service.utils.exception.ResourceNotFoundException;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.*;
+
+/**
+ * Keeps the keywords and tags of documents in a per-company term dictionary, with the number of
+ * documents per term maintained as documents change, so facets and term filters never have to
+ * parse the comma separated columns.
+ * <p>
+ * Terms are trimmed and lower cased, {@code Contract} and {@code contract } are the same term.
+ */
+@Service
+@RequiredArgsConstructor
+public class DocumentTermService {
+
+    static final int MAX_TERM_LENGTH = 255;
+    // Length of the documents.keywords column
+    private static final int KEYWORDS_COLUMN_LENGTH = 255;
+    private static final int MAX_FACET_LIMIT = 100;
+
+    private final IDocumentTermRepository documentTermRepository;
+    private final FolderAccessResolver folderAccessResolver;
+
+    /**
+     * Sets the tags of saved documents of a company, all to the same comma separated tags.
+     */
+    @Transactional
+    public void setTags(Long companyId, Collection<Long> documentIds, String tags) {
+        documentTermRepository.replaceTerms(companyId, TermKind.TAG, documentIds, normalize(split(tags)));
+    }
+
+    /**
+     * Replaces the keywords of a saved document. The keywords column keeps as many whole keywords
+     * as fit into it, for display, while the dictionary links all of them.
+     */
+    @Transactional
+    public void setKeywords(Document document, Collection<String> keywords) {
+        List<String> terms = normalize(keywords);
+        Set<String> seen = new HashSet<>();
+        StringBuilder column = new StringBuilder();
+        for (String keyword : keywords) {
+            String trimmed = keyword == null ? "" : keyword.trim().replace(",", " ");
+            if (trimmed.isEmpty() || !seen.add(trimmed.toLowerCase(Locale.ROOT))) {
+                continue;
+            }
+            int length = column.length() + (column.isEmpty() ? 0 : 1) + trimmed.length();
+            if (length > KEYWORDS_COLUMN_LENGTH) {
+                break;
+            }
+            column.append(column.isEmpty() ? "" : ",").append(trimmed);
+        }
+        document.setKeywords(column.isEmpty() ? null : column.toString());
+        documentTermRepository.replaceTerms(document.getCompanyId(), TermKind.KEYWORD, List.of(document.getId()), terms);
+    }
+
+    /**
+     * Gives a document the keywords of another one, for results reused from a duplicate.
+     */
+    @Transactional
+    public void copyKeywords(Document source, Document target) {
+        documentTermRepository.copyTerms(TermKind.KEYWORD, source.getId(), target.getId());
+    }
+
+    /**
+     * Unlinks the terms of a document that is about to be deleted.
+     */
+    @Transactional
+    public void removeDocument(Long documentId) {
+        documentTermRepository.removeDocument(documentId);
+    }
+
+    /**
+     * The most used keywords and tags among the documents the caller can see.
+     */
+    @Transactional(readOnly = true)
+    public DocumentFacetsDto getFacets(User caller, int limit) {
+        if (caller == null) {
+            throw new ResourceNotFoundException("User not found");
+        }
+        if (limit < 1 || limit > MAX_FACET_LIMIT) {
+            throw new InvalidDataException("Limit must be between 1 and " + MAX_FACET_LIMIT);
+        }
+        return new DocumentFacetsDto(topTerms(caller, TermKind.KEYWORD, limit), topTerms(caller, TermKind.TAG, limit));
+    }
+
+    /**
+     * Trims and lower cases terms, dropping blank and duplicate ones and cutting overlong ones.
+     */
+    public static List<String> normalize(Collection<String> values) {
+        if (values == null) {
+            return List.of();
+        }
+        Set<String> terms = new LinkedHashSet<>();
+        for (String value : values) {
+            if (value == null || value.isBlank()) {
+                continue;
+            }
+            String term = value.trim().toLowerCase(Locale.ROOT);
+            terms.add(term.length() > MAX_TERM_LENGTH ? term.substring(0, MAX_TERM_LENGTH) : term);
+        }
+        return new ArrayList<>(terms);
+    }
+
+    private static List<String> split(String commaSeparated) {
+        return commaSeparated == null ? List.of() : Arrays.asList(commaSeparated.split(","));
+    }
+
+    /**
+     * The maintained company wide counts serve everybody who sees all folders. For clients and
+     * users with blocked folders the counts are taken over their visible documents only.
+     */
+    private List<TermCountDto> topTerms(User caller, TermKind kind, int limit) {
+        Long companyId = caller.getCompanyId();
+        FolderAccess access = folderAccessResolver.resolve(caller);
+        if (access.isUnrestricted()) {
+            return documentTermRepository.findTopTerms(companyId, kind, limit);
+        }
+        List<Long> folderIds = access.getListedFolderIds();
+        if (access.isOnlyListed()) {
+            return folderIds.isEmpty() ? List.of()
+                    : documentTermRepository.countTopTerms(companyId, kind, folderIds, null, limit);
+        }
+        return documentTermRepository.countTopTerms(companyId, kind, null, folderIds, limit);
+    }
+}
@@ -0,0 +1,124 @@
+package ai.docbrain.service.fileManagement;
+
+import ai.docbrain.service.dashboard.DTO.FileNameCacheStatsDTO;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+
+import java.time.ZonedDateTime;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Plaintext document names for metadata listings, so polling a folder does not decrypt every
+ * name again.
+ * <p>
+ * An entry belongs to one version of a document, the time it was last modified. Any update of the
+ * document moves that time, so a name read before a rename can never be served after it, even when
+ * a listing races with the rename. The cache is bounded by the memory its names take and evicts the
+ * least recently used ones. Names are only ever held on the heap, nothing here is written to disk.
+ */
+@Component
+public class FileNameCache {
+
+    // Map node, boxed key, entry and string header, roughly, on a 64 bit JVM
+    private static final int ENTRY_OVERHEAD = 120;
+
+    private final long maxBytes;
+    private final LinkedHashMap<Long, Entry> entries = new LinkedHashMap<>(1024, 0.75f, true);
+    private long bytes;
+    private long hits;
+    private long misses;
+    private long evictions;
+
+    public FileNameCache(@Value("${app.filename-cache.max-size:16MB}") DataSize maxSize) {
+        this.maxBytes = maxSize.toBytes();
+    }
+
+    /**
+     * Looks up the names of the given document versions under one lock.
+     *
+     * @return the cached names by document ID, versions that are not cached are missing
+     */
+    public Map<Long, String> getAll(Collection<Key> keys) {
+        Map<Long, String> found = new HashMap<>();
+        synchronized (this) {
+            for (Key key : keys) {
+                Entry entry = entries.get(key.documentId());
+                if (entry != null && entry.version() == key.version()) {
+                    found.put(key.documentId(), entry.name());
+                    hits++;
+                } else {
+                    misses++;
+                }
+            }
+        }
+        return found;
+    }
+
+    /**
+     * Caches the names of the given document versions, replacing older versions of them.
+     */
+    public void putAll(Map<Key, String> names) {
+        if (maxBytes <= 0) {
+            return;
+        }
+        synchronized (this) {
+            for (Map.Entry<Key, String> name : names.entrySet()) {
+                Entry entry = new Entry(name.getKey().version(), name.getValue());
+                Entry previous = entries.put(name.getKey().documentId(), entry);
+                bytes += entry.weight() - (previous == null ? 0 : previous.weight());
+            }
+            evictToSize();
+        }
+    }
+
+    public synchronized void invalidate(Long documentId) {
+        Entry previous = entries.remove(documentId);
+        if (previous != null) {
+            bytes -= previous.weight();
+        }
+    }
+
+    public synchronized FileNameCacheStatsDTO stats() {
+        long requests = hits + misses;
+        return FileNameCacheStatsDTO.builder()
+                .hits(hits)
+                .misses(misses)
+                .hitRatio(requests == 0 ? 0 : (double) hits / requests)
+                .evictions(evictions)
+                .entries(entries.size())
+                .sizeInBytes(bytes)
+                .maxSizeInBytes(maxBytes)
+                .build();
+    }
+
+    private void evictToSize() {
+        Iterator<Entry> eldest = entries.values().iterator();
+        while (bytes > maxBytes && eldest.hasNext()) {
+            bytes -= eldest.next().weight();
+            eldest.remove();
+            evictions++;
+        }
+    }
+
+    /**
+     * One version of a document's name.
+     */
+    public record Key(Long documentId, long version) {
+
+        public static Key of(Long documentId, ZonedDateTime lastModifiedAt) {
+            return new Key(documentId, lastModifiedAt == null ? 0 : lastModifiedAt.toInstant().toEpochMilli());
+        }
+    }
+
+    private record Entry(long version, String name) {
+
+        long weight() {
+            return ENTRY_OVERHEAD + 2L * name.length();
+        }
+    }
+}
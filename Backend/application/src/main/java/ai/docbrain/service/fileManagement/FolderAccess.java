@@ -0,0 +1,66 @@
+package ai.docbrain.service.fileManagement;
+
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * The folders one user may see, as a bitmap over folder IDs offset by the lowest one listed.
+ * <p>
+ * Clients see only the listed folders, everybody else every folder but the listed ones.
+ * Documents in the root belong to no folder and are visible to everybody but clients.
+ */
+public final class FolderAccess {
+
+    private final boolean onlyListed;
+    private final long base;
+    private final BitSet listed;
+    private final int count;
+
+    private FolderAccess(boolean onlyListed, Collection<Long> folderIds) {
+        this.onlyListed = onlyListed;
+        this.base = folderIds.stream().mapToLong(Long::longValue).min().orElse(0L);
+        this.listed = new BitSet();
+        folderIds.forEach(id -> listed.set(Math.toIntExact(id - base)));
+        this.count = listed.cardinality();
+    }
+
+    public static FolderAccess only(Collection<Long> folderIds) {
+        return new FolderAccess(true, folderIds);
+    }
+
+    public static FolderAccess allExcept(Collection<Long> folderIds) {
+        return new FolderAccess(false, folderIds);
+    }
+
+    /**
+     * @param folderId The folder, or null for the root
+     */
+    public boolean canAccess(Long folderId) {
+        if (folderId == null) {
+            return !onlyListed;
+        }
+        return isListed(folderId) == onlyListed;
+    }
+
+    /**
+     * @return true if only the {@link #getListedFolderIds() listed} folders are visible, false if
+     * all folders but them are
+     */
+    public boolean isOnlyListed() {
+        return onlyListed;
+    }
+
+    public boolean isUnrestricted() {
+        return !onlyListed && count == 0;
+    }
+
+    public List<Long> getListedFolderIds() {
+        return listed.stream().mapToObj(offset -> base + offset).toList();
+    }
+
+    private boolean isListed(long folderId) {
+        long offset = folderId - base;
+        return offset >= 0 && offset <= Integer.MAX_VALUE && listed.get((int) offset);
+    }
+}
@@ -0,0 +1,47 @@
+package ai.docbrain.service.fileManagement;
+
+import ai.docbrain.domain.users.User;
+import ai.docbrain.service.role.RoleService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Resolves and keeps the {@link FolderAccess} of each user, built from the clients linked to
+ * folders ({@code folder_clients}) and the folders blocked for employees ({@code user_blocked_folders}).
+ * <p>
+ * An entry belongs to one generation of its company's folder tree. Every folder change, client
+ * link and block moves that generation, on this node once it commits and on the others through
+ * the tree's change notification, so a stale entry is rebuilt on next use.
+ */
+@Component
+@RequiredArgsConstructor
+public class FolderAccessResolver {
+
+    private final FolderTreeCache folderTreeCache;
+    private final IFolderRepository folderRepository;
+    private final RoleService roleService;
+    private final ConcurrentHashMap<Long, Entry> entries = new ConcurrentHashMap<>();
+
+    public FolderAccess resolve(User caller) {
+        Long companyId = caller.getCompanyId();
+        boolean client = roleService.isClient(caller);
+        // Read before building, a change committing meanwhile leaves the entry stale
+        long generation = folderTreeCache.getGeneration(companyId);
+        Entry entry = entries.get(caller.getId());
+        if (entry != null && entry.companyId().equals(companyId) && entry.generation() == generation
+                && entry.client() == client) {
+            return entry.access();
+        }
+
+        FolderAccess access = client
+                ? FolderAccess.only(folderTreeCache.getFolderIdsOfClient(companyId, caller.getId()))
+                : FolderAccess.allExcept(folderRepository.findBlockedFolderIds(caller.getId()));
+        entries.put(caller.getId(), new Entry(companyId, generation, client, access));
+        return access;
+    }
+
+    private record Entry(Long companyId, long generation, boolean client, FolderAccess access) {
+    }
+}
@@ -1,18 +1,31 @@
 package ai.docbrain.service.fileManagement;
 import ai.docbrain.domain.fileManagement.Folder;
 import ai.docbrain.domain.users.User;
+import ai.docbrain.service.fileManagement.DTO.FolderSubtreeDeletion;
+import ai.docbrain.service.fileManagement.storage.DocumentStorageService;
 import ai.docbrain.service.role.RoleService;
+import ai.docbrain.service.search.SearchIndex;
 import ai.docbrain.service.user.IUserRepository;
 import ai.docbrain.service.user.UserService;
+import ai.docbrain.service.utils.exception.InvalidDataException;
 import ai.docbrain.service.utils.exception.ResourceNotFoundException;
 import lombok.RequiredArgsConstructor;
+import lombok.extern.log4j.Log4j2;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.util.List;
+import java.util.Objects;
 import java.util.Optional;
 import java.util.Set;
 import java.util.stream.Collectors;
 
+/**
+ * Folders and their hierarchy. Subtrees are read and changed through the folder closure table,
+ * so moving, renaming or deleting a folder takes one statement however many folders and
+ * documents are below it.
+ */
+@Log4j2
 @Service
 @RequiredArgsConstructor
 public class FolderService {
@@ -20,7 +33,15 @@ public class FolderService {
     private final IFolderRepository folderRepository;
     private final IUserRepository userRepository;
     private final RoleService roleService;
+    private final FolderTreeCache folderTreeCache;
+    private final ListingVersionService listingVersionService;
+    private final FileNameCache fileNameCache;
+    private final SearchIndex searchIndex;
+    private final DocumentStorageService documentStorageService;
+    private final FolderStatsService folderStatsService;
+    private final FolderAccessResolver folderAccessResolver;
 
+    @Transactional
     public Folder createFolder(User caller, Folder folder) {
         // Debug logging
         System.out.println("Caller details: " + caller);
@@ -46,9 +67,14 @@ public class FolderService {
             System.out.println("Creating subfolder: " + folder.getName() + " under parent: " + parentFolder.getName());
         }
 
-        return folderRepository.save(folder);
+        Folder saved = folderRepository.save(folder);
+        folderRepository.insertClosure(saved.getId(), saved.getParentId());
+        folderStatsService.folderCreated(saved.getId(), saved.getCompanyId());
+        folderTreeCache.folderSaved(saved, clientIds(saved));
+        return saved;
     }
 
+    @Transactional
     public Folder updateFolder(User caller, Long folderId, Folder updatedFolder) {
         Folder existingFolder = folderRepository.findById(folderId)
                 .orElseThrow(() -> new ResourceNotFoundException("Folder not found with id: " + folderId));
@@ -58,12 +84,63 @@ public class FolderService {
             throw new IllegalArgumentException("Folder does not belong to the same company");
         }
 
+        boolean renamed = !Objects.equals(existingFolder.getName(), updatedFolder.getName());
         existingFolder.setName(updatedFolder.getName());
         existingFolder.setTags(updatedFolder.getTags());
-        return folderRepository.save(existingFolder);
+        Folder saved = folderRepository.save(existingFolder);
+        if (renamed) {
+            // Documents carry the path of their folder
+            int documents = folderRepository.renameInDocumentPaths(folderId, saved.getName());
+            listingVersionService.documentsChanged(caller.getCompanyId(),
+                    folderTreeCache.getSubtreeIds(caller.getCompanyId(), folderId));
+            log.info("Renamed folder {}, rewrote the paths of {} documents", folderId, documents);
+        }
+        folderTreeCache.folderSaved(saved, null);
+        return saved;
+    }
+
+    /**
+     * Moves a folder with everything below it under another parent.
+     *
+     * @param newParentId The new parent folder, or null to make it a root folder
+     */
+    @Transactional
+    public Folder moveFolder(User caller, Long folderId, Long newParentId) {
+        Folder folder = folderRepository.findById(folderId)
+                .filter(f -> f.getCompanyId().equals(caller.getCompanyId()))
+                .orElseThrow(() -> new ResourceNotFoundException("Folder not found with id: " + folderId));
+        if (Objects.equals(folder.getParentId(), newParentId)) {
+            return folder;
+        }
+        if (newParentId != null) {
+            folderRepository.findById(newParentId)
+                    .filter(parent -> parent.getCompanyId().equals(caller.getCompanyId()))
+                    .orElseThrow(() -> new ResourceNotFoundException("Parent folder not found with id: " + newParentId));
+            if (folderRepository.isInSubtree(folderId, newParentId)) {
+                throw new InvalidDataException("A folder cannot be moved into itself or one of its subfolders");
+            }
+        }
+
+        Set<Long> subtree = folderTreeCache.getSubtreeIds(caller.getCompanyId(), folderId);
+        folderStatsService.subtreeDetached(folderId);
+        int documents = folderRepository.moveSubtree(folderId, newParentId);
+        folderStatsService.subtreeAttached(folderId);
+        folder.setParentId(newParentId);
+        Folder saved = folderRepository.save(folder);
+        listingVersionService.documentsChanged(caller.getCompanyId(), subtree);
+        folderTreeCache.folderSaved(saved, null);
+        log.info("Moved folder {} with {} subfolders and {} documents under {}",
+                folderId, subtree.size() - 1, documents, newParentId);
+        return saved;
     }
 
-    public void deleteFolder(User caller, Long folderId) {
+    /**
+     * Deletes a folder. Unless {@code recursive}, the folder must not have subfolders.
+     *
+     * @param recursive Whether to delete all folders and documents below the folder as well
+     */
+    @Transactional
+    public void deleteFolder(User caller, Long folderId, boolean recursive) {
         Folder folder = folderRepository.findById(folderId)
                 .orElseThrow(() -> new ResourceNotFoundException("Folder not found with id: " + folderId));
 
@@ -72,13 +149,43 @@ public class FolderService {
             throw new IllegalArgumentException("Folder does not belong to the same company");
         }
 
+        if (recursive) {
+            deleteSubtree(caller, folderId);
+            return;
+        }
+
         // Check if there are any child folders
-        List<Folder> childFolders = getChildFolders(folderId);
-        if (!childFolders.isEmpty()) {
+        if (!folderTreeCache.getChildIds(caller.getCompanyId(), folderId).isEmpty()) {
             throw new IllegalStateException("Folder contains subfolders, delete them first");
         }
 
         folderRepository.delete(folder);
+        folderTreeCache.folderDeleted(folder);
+    }
+
+    private void deleteSubtree(User caller, Long folderId) {
+        Long companyId = caller.getCompanyId();
+        folderStatsService.subtreeDetached(folderId);
+        FolderSubtreeDeletion deletion = folderRepository.deleteSubtree(folderId);
+
+        // Clean up what lives outside the database, once the delete has committed
+        deletion.getDocumentIds().forEach(fileNameCache::invalidate);
+        searchIndex.removeAllAfterCommit(companyId, deletion.getDocumentIds());
+        deletion.getArtifactKeys().forEach(documentStorageService::deleteAfterCommit);
+        listingVersionService.documentsChanged(companyId, deletion.getFolderIds());
+        folderTreeCache.foldersDeleted(companyId, deletion.getFolderIds());
+        log.info("User {} deleted folder {} with {} subfolders and {} documents", caller.getId(), folderId,
+                deletion.getFolderIds().size() - 1, deletion.getDocumentIds().size());
+    }
+
+    /**
+     * @return the folder and all folders below it, parents before their children
+     */
+    public List<Folder> getFolderHierarchy(User caller, Long folderId) {
+        folderRepository.findById(folderId)
+                .filter(folder -> folder.getCompanyId().equals(caller.getCompanyId()))
+                .orElseThrow(() -> new ResourceNotFoundException("Folder not found with id: " + folderId));
+        return folderRepository.findSubtree(folderId);
     }
 
     public Optional<Folder> getFolderById(User caller, Long folderId) {
@@ -90,52 +197,31 @@ public class FolderService {
     }
 
     public List<Folder> getAllFoldersForCompany(User caller) {
-        // Fetch all folders for the caller's company
-        List<Folder> allFolders = folderRepository.findAllByCompanyId(caller.getCompanyId());
+        FolderAccess access = folderAccessResolver.resolve(caller);
 
-        // If the caller is a client, return only folders linked to them
-        if (roleService.isClient(caller)) {
-            return allFolders.stream()
-                    .filter(folder -> folder.getClients() != null && folder.getClients().contains(caller))
+        // A client only loads the folders linked to them, however many the company has
+        if (access.isOnlyListed()) {
+            List<Long> folderIds = access.getListedFolderIds();
+            return folderIds.isEmpty() ? List.of() : folderRepository.findAllByIdIn(folderIds).stream()
+                    .filter(folder -> folder.getCompanyId().equals(caller.getCompanyId()))
                     .collect(Collectors.toList());
         }
 
-        // If the caller is an employee (SUPER_ADMIN, ADMIN, VIEWER), exclude blocked folders
-        if (caller.getBlockedFolderIds() != null && !caller.getBlockedFolderIds().isEmpty()) {
-            return allFolders.stream()
-                    .filter(folder -> !caller.getBlockedFolderIds().contains(folder.getId()))
-                    .collect(Collectors.toList());
+        // Employees (SUPER_ADMIN, ADMIN, VIEWER) see all folders but the ones blocked for them
+        List<Folder> allFolders = folderRepository.findAllByCompanyId(caller.getCompanyId());
+        if (access.isUnrestricted()) {
+            return allFolders;
         }
-
-        // If no blocked folders, return all folders
-        return allFolders;
+        return allFolders.stream()
+                .filter(folder -> access.canAccess(folder.getId()))
+                .collect(Collectors.toList());
     }
 
-//    public List<Folder> getFolderHierarchy(User caller, Long folderId) {
-//        Folder rootFolder = folderRepository.findById(folderId)
-//                .orElseThrow(() -> new ResourceNotFoundException("Folder not found with id: " + folderId));
-//
-//        // Ensure the folder belongs to the caller's company
-//        if (!rootFolder.getCompanyId().equals(caller.getCompanyId())) {
-//            throw new IllegalArgumentException("Folder does not belong to the same company");
-//        }
-//
-//        List<Folder> hierarchy = new ArrayList<>();
-//        buildFolderHierarchy(rootFolder, hierarchy);
-//        return hierarchy;
-//    }
-
-//    private void buildFolderHierarchy(Folder folder, List<Folder> hierarchy) {
-//        hierarchy.add(folder);
-//        for (Folder childFolder : getChildFolders(folder.getId())) {
-//            buildFolderHierarchy(childFolder, hierarchy);
-//        }
-//    }
-
     public List<Folder> getChildFolders(Long parentFolderId) {
         return folderRepository.findChildFoldersByParentId(parentFolderId);
     }
 
+    @Transactional
     public Folder linkFolderToClients(User caller, Long folderId, Set<Long> clientIds) {
         Folder folder = folderRepository.findById(folderId)
                 .orElseThrow(() -> new ResourceNotFoundException("Folder not found with id: " + folderId));
@@ -152,10 +238,42 @@ public class FolderService {
                 .collect(Collectors.toSet());
 
         folder.setClients(clients);
-        return folderRepository.save(folder);
+        Folder saved = folderRepository.save(folder);
+        // Listings are filtered by folder access, the clients linked or unlinked now see another one
+        listingVersionService.documentChanged(caller.getCompanyId(), folderId);
+        folderTreeCache.folderSaved(saved, clientIds(saved));
+        return saved;
+    }
+
+    /**
+     * Blocks the folder for exactly the given employees of the company, unblocking it for all others.
+     */
+    @Transactional
+    public Folder blockFolderForUsers(User caller, Long folderId, Set<Long> userIds) {
+        Folder folder = folderRepository.findById(folderId)
+                .filter(f -> f.getCompanyId().equals(caller.getCompanyId()))
+                .orElseThrow(() -> new ResourceNotFoundException("Folder not found with id: " + folderId));
+        for (Long userId : userIds) {
+            User user = userRepository.findById(userId)
+                    .filter(u -> caller.getCompanyId().equals(u.getCompanyId()))
+                    .orElseThrow(() -> new ResourceNotFoundException("User not found with id: " + userId));
+            if (roleService.isClient(user)) {
+                throw new InvalidDataException("Folders are blocked for employees, clients only see their linked folders");
+            }
+        }
+
+        folderRepository.replaceBlockedUsers(folderId, userIds);
+        listingVersionService.documentChanged(caller.getCompanyId(), folderId);
+        folderTreeCache.accessChanged(caller.getCompanyId());
+        return folder;
     }
 
     public Optional<Folder> findById(Long folderId) {
         return folderRepository.findById(folderId);
     }
+
+    private static Set<Long> clientIds(Folder folder) {
+        return folder.getClients() == null ? Set.of()
+                : folder.getClients().stream().map(User::getId).collect(Collectors.toSet());
+    }
 }
\ No newline at end of file
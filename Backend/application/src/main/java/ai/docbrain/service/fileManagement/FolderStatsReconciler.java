@@ -0,0 +1,38 @@
+package ai.docbrain.service.fileManagement;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+/**
+ * Nightly job that recomputes the folder counters from the documents, one company per
+ * transaction, and logs the folders that had drifted.
+ */
+@Log4j2
+@Service
+@RequiredArgsConstructor
+public class FolderStatsReconciler {
+
+    private final IFolderStatsRepository folderStatsRepository;
+    private final FolderStatsService folderStatsService;
+
+    @Scheduled(cron = "${app.folder-stats.reconcile-cron:0 30 3 * * *}")
+    public void reconcileAll() {
+        int companies = 0;
+        int corrected = 0;
+        for (Long companyId : folderStatsRepository.findCompanyIds()) {
+            try {
+                int folders = folderStatsService.reconcile(companyId);
+                if (folders > 0) {
+                    log.warn("Corrected the counters of {} folders of company {}", folders, companyId);
+                }
+                corrected += folders;
+                companies++;
+            } catch (Exception e) {
+                log.error("Failed to reconcile the folder counters of company {}", companyId, e);
+            }
+        }
+        log.info("Reconciled the folder counters of {} companies, {} folders corrected", companies, corrected);
+    }
+}
@@ -0,0 +1,111 @@
+package ai.docbrain.service.fileManagement;
+
+import ai.docbrain.domain.fileManagement.Document;
+import ai.docbrain.domain.users.User;
+import ai.docbrain.service.fileManagement.DTO.FolderStatsDto;
+import ai.docbrain.service.utils.exception.ResourceNotFoundException;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Size and document counters of every folder, directly in it and in its whole subtree.
+ * <p>
+ * Each document change applies its delta to the folder and to all folders above it, in the
+ * transaction of the change, so reading the counters of a folder is a single row lookup.
+ * Documents in the root belong to no folder and are not counted. {@link FolderStatsReconciler}
+ * corrects any drift against the documents every night.
+ */
+@Service
+@RequiredArgsConstructor
+public class FolderStatsService {
+
+    private final IFolderStatsRepository folderStatsRepository;
+    private final IFolderRepository folderRepository;
+    private final FolderAccessResolver folderAccessResolver;
+
+    @Transactional(readOnly = true)
+    public FolderStatsDto getStats(User caller, Long folderId) {
+        if (caller == null) {
+            throw new ResourceNotFoundException("User not found");
+        }
+        folderRepository.findById(folderId)
+                .filter(folder -> folder.getCompanyId().equals(caller.getCompanyId()))
+                .filter(folder -> folderAccessResolver.resolve(caller).canAccess(folderId))
+                .orElseThrow(() -> new ResourceNotFoundException("Folder not found with id: " + folderId));
+        return folderStatsRepository.findByFolderId(folderId)
+                .orElse(new FolderStatsDto(folderId, 0, 0, 0, 0, 0, 0));
+    }
+
+    @Transactional
+    public void folderCreated(Long folderId, Long companyId) {
+        folderStatsRepository.insertEmpty(folderId, companyId);
+    }
+
+    @Transactional
+    public void documentAdded(Document document) {
+        documentsAdded(document.getFolderId(), List.of(document));
+    }
+
+    /**
+     * @param documents New documents, all in the given folder
+     */
+    @Transactional
+    public void documentsAdded(Long folderId, Collection<Document> documents) {
+        if (folderId == null || documents.isEmpty()) {
+            return;
+        }
+        long bytes = documents.stream().mapToLong(Document::getSize).sum();
+        long processed = documents.stream().filter(Document::isAiProcessed).count();
+        folderStatsRepository.applyDelta(folderId, bytes, documents.size(), processed);
+    }
+
+    @Transactional
+    public void documentRemoved(Document document) {
+        if (document.getFolderId() != null) {
+            folderStatsRepository.applyDelta(document.getFolderId(), -document.getSize(), -1,
+                    document.isAiProcessed() ? -1 : 0);
+        }
+    }
+
+    @Transactional
+    public void documentResized(Document document, long previousSize) {
+        if (document.getFolderId() != null && document.getSize() != previousSize) {
+            folderStatsRepository.applyDelta(document.getFolderId(), document.getSize() - previousSize, 0, 0);
+        }
+    }
+
+    /**
+     * Counts a document that was just marked as processed by the AI service.
+     */
+    @Transactional
+    public void documentProcessed(Document document) {
+        if (document.getFolderId() != null) {
+            folderStatsRepository.applyDelta(document.getFolderId(), 0, 0, 1);
+        }
+    }
+
+    /**
+     * Takes the subtree of a folder out of the totals above it, before it is moved or deleted.
+     */
+    @Transactional
+    public void subtreeDetached(Long folderId) {
+        folderStatsRepository.applySubtreeToAncestors(folderId, -1);
+    }
+
+    /**
+     * Adds the subtree of a folder to the totals above it, after it has been moved.
+     */
+    @Transactional
+    public void subtreeAttached(Long folderId) {
+        folderStatsRepository.applySubtreeToAncestors(folderId, 1);
+    }
+
+    @Transactional
+    public int reconcile(Long companyId) {
+        return folderStatsRepository.reconcile(companyId);
+    }
+}
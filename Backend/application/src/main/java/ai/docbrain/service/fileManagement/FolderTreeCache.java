@@ -0,0 +1,362 @@
+package ai.docbrain.service.fileManagement;
+
+import ai.docbrain.domain.fileManagement.Folder;
+import ai.docbrain.service.fileManagement.DTO.FolderClientLink;
+import ai.docbrain.service.utils.exception.ResourceNotFoundException;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * The folder hierarchy of each company held in memory: names, parent and child links and the
+ * clients linked to each folder, so paths, child lists and subtree walks cost no queries.
+ * <p>
+ * A company's tree is loaded with two queries the first time it is needed. Folder changes are
+ * applied to it once their transaction commits and announced to the other nodes, which drop their
+ * copy and load it again on next use. An unknown folder is not found, the tree is only loaded again
+ * for it if the tree was loaded before the last change announced by another node, so made-up IDs
+ * cannot force loads.
+ */
+@Log4j2
+@Component
+@RequiredArgsConstructor
+public class FolderTreeCache {
+
+    private final IFolderRepository folderRepository;
+    // Tells this node's own change notifications apart from the ones of other nodes
+    private final String nodeId = UUID.randomUUID().toString();
+    private final ConcurrentHashMap<Long, Tree> trees = new ConcurrentHashMap<>();
+    // Bumped by every change, a tree loaded while a change committed is not kept
+    private final ConcurrentHashMap<Long, Long> generations = new ConcurrentHashMap<>();
+    // System.nanoTime() of the last change announced by another node
+    private final ConcurrentHashMap<Long, Long> notifiedAt = new ConcurrentHashMap<>();
+
+    /**
+     * @return the names of the folder and its ancestors from the root, joined by "/"
+     */
+    public String buildPath(Long companyId, Long folderId) {
+        String path = find(companyId, tree -> tree.path(folderId));
+        if (path == null) {
+            throw new ResourceNotFoundException("Folder not found with ID: " + folderId);
+        }
+        return path;
+    }
+
+    /**
+     * @return the parent of the folder, null for a root folder
+     */
+    public Long getParentId(Long companyId, Long folderId) {
+        Node node = find(companyId, tree -> tree.node(folderId));
+        if (node == null) {
+            throw new ResourceNotFoundException("Folder not found with ID: " + folderId);
+        }
+        return node.parentId;
+    }
+
+    /**
+     * @param parentId The parent folder, or null for the root folders
+     */
+    public List<Long> getChildIds(Long companyId, Long parentId) {
+        return tree(companyId).children(parentId);
+    }
+
+    /**
+     * @return the folder and all folders below it, parents before their children
+     */
+    public Set<Long> getSubtreeIds(Long companyId, Long folderId) {
+        Set<Long> subtree = find(companyId, tree -> tree.subtree(folderId));
+        if (subtree == null) {
+            throw new ResourceNotFoundException("Folder not found with ID: " + folderId);
+        }
+        return subtree;
+    }
+
+    public Set<Long> getFolderIdsOfClient(Long companyId, Long clientId) {
+        return tree(companyId).foldersOfClient(clientId);
+    }
+
+    /**
+     * @return a number that changes whenever a folder, client link or block of the company changes
+     */
+    public long getGeneration(Long companyId) {
+        return generations.getOrDefault(companyId, 0L);
+    }
+
+    /**
+     * Records changed folder access of users other than client links, once the current transaction
+     * commits.
+     */
+    public void accessChanged(Long companyId) {
+        changed(companyId, tree -> {
+        });
+    }
+
+    /**
+     * Records a created or changed folder, once the current transaction commits.
+     *
+     * @param clientIds The clients now linked to the folder, or null if they did not change
+     */
+    public void folderSaved(Folder folder, Set<Long> clientIds) {
+        Long id = folder.getId();
+        Long parentId = folder.getParentId();
+        String name = folder.getName();
+        Set<Long> clients = clientIds == null ? null : Set.copyOf(clientIds);
+        changed(folder.getCompanyId(), tree -> tree.put(id, parentId, name, clients));
+    }
+
+    /**
+     * Records a deleted folder, once the current transaction commits.
+     */
+    public void folderDeleted(Folder folder) {
+        Long id = folder.getId();
+        changed(folder.getCompanyId(), tree -> tree.remove(id));
+    }
+
+    /**
+     * Records deleted folders, once the current transaction commits.
+     */
+    public void foldersDeleted(Long companyId, Collection<Long> folderIds) {
+        List<Long> ids = List.copyOf(folderIds);
+        changed(companyId, tree -> ids.forEach(tree::remove));
+    }
+
+    /**
+     * Applies a change announced by a node, dropping the tree unless this node made the change.
+     */
+    public void changedElsewhere(Long companyId, String originNodeId) {
+        if (!nodeId.equals(originNodeId)) {
+            notifiedAt.put(companyId, System.nanoTime());
+            invalidate(companyId);
+        }
+    }
+
+    public void invalidate(Long companyId) {
+        trees.compute(companyId, (id, tree) -> {
+            generations.merge(id, 1L, Long::sum);
+            return null;
+        });
+    }
+
+    /**
+     * Drops all trees, e.g. after change notifications may have been missed.
+     */
+    public void invalidateAll() {
+        trees.keySet().forEach(this::invalidate);
+    }
+
+    private void changed(Long companyId, Consumer<Tree> change) {
+        // Delivered to the other nodes when the transaction commits, not at all on rollback
+        folderRepository.notifyTreeChanged(companyId, nodeId);
+        Runnable apply = () -> trees.compute(companyId, (id, tree) -> {
+            generations.merge(id, 1L, Long::sum);
+            if (tree != null) {
+                change.accept(tree);
+            }
+            return tree;
+        });
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    apply.run();
+                }
+            });
+        } else {
+            apply.run();
+        }
+    }
+
+    private Tree tree(Long companyId) {
+        Tree tree = trees.get(companyId);
+        return tree != null ? tree : load(companyId);
+    }
+
+    /**
+     * Looks something up in the company's tree, in a tree loaded again if the first one predates
+     * the last change announced by another node.
+     *
+     * @return the result of the lookup, null if it found nothing
+     */
+    private <T> T find(Long companyId, Function<Tree, T> lookup) {
+        Tree tree = tree(companyId);
+        T found = lookup.apply(tree);
+        Long notified = notifiedAt.get(companyId);
+        if (found == null && notified != null && tree.loadedAt - notified < 0) {
+            // Dropped without a new generation, the folder access built on it is not affected
+            trees.remove(companyId, tree);
+            found = lookup.apply(load(companyId));
+        }
+        return found;
+    }
+
+    private Tree load(Long companyId) {
+        long generation = generations.getOrDefault(companyId, 0L);
+        Tree loaded = new Tree(System.nanoTime());
+        List<Folder> folders = folderRepository.findAllByCompanyId(companyId);
+        Map<Long, Set<Long>> clientsByFolder = new HashMap<>();
+        for (FolderClientLink link : folderRepository.findClientLinksByCompanyId(companyId)) {
+            clientsByFolder.computeIfAbsent(link.getFolderId(), k -> new HashSet<>()).add(link.getClientId());
+        }
+        for (Folder folder : folders) {
+            loaded.put(folder.getId(), folder.getParentId(), folder.getName(),
+                    clientsByFolder.getOrDefault(folder.getId(), Set.of()));
+        }
+        log.debug("Loaded {} folders of company {}", folders.size(), companyId);
+
+        Tree cached = trees.compute(companyId, (id, existing) -> existing != null ? existing
+                : generations.getOrDefault(id, 0L) == generation ? loaded : null);
+        return cached != null ? cached : loaded;
+    }
+
+    private static final class Tree {
+
+        // Taken before the folders are read
+        private final long loadedAt;
+        private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+        private final Map<Long, Node> nodes = new HashMap<>();
+        // Root folders under the null key
+        private final Map<Long, Set<Long>> children = new HashMap<>();
+        private final Map<Long, Set<Long>> foldersByClient = new HashMap<>();
+
+        Tree(long loadedAt) {
+            this.loadedAt = loadedAt;
+        }
+
+        String path(Long folderId) {
+            lock.readLock().lock();
+            try {
+                Deque<String> names = new ArrayDeque<>();
+                Node node = nodes.get(folderId);
+                if (node == null) {
+                    return null;
+                }
+                // Bounded by the number of folders, in case of a cycle
+                for (int depth = 0; node != null && depth <= nodes.size(); depth++) {
+                    names.addFirst(node.name);
+                    node = node.parentId == null ? null : nodes.get(node.parentId);
+                }
+                return String.join("/", names);
+            } finally {
+                lock.readLock().unlock();
+            }
+        }
+
+        Node node(Long folderId) {
+            lock.readLock().lock();
+            try {
+                return nodes.get(folderId);
+            } finally {
+                lock.readLock().unlock();
+            }
+        }
+
+        List<Long> children(Long parentId) {
+            lock.readLock().lock();
+            try {
+                return new ArrayList<>(children.getOrDefault(parentId, Set.of()));
+            } finally {
+                lock.readLock().unlock();
+            }
+        }
+
+        Set<Long> subtree(Long folderId) {
+            lock.readLock().lock();
+            try {
+                if (!nodes.containsKey(folderId)) {
+                    return null;
+                }
+                Set<Long> subtree = new LinkedHashSet<>();
+                Deque<Long> pending = new ArrayDeque<>(List.of(folderId));
+                while (!pending.isEmpty()) {
+                    Long id = pending.poll();
+                    if (subtree.add(id)) {
+                        pending.addAll(children.getOrDefault(id, Set.of()));
+                    }
+                }
+                return subtree;
+            } finally {
+                lock.readLock().unlock();
+            }
+        }
+
+        Set<Long> foldersOfClient(Long clientId) {
+            lock.readLock().lock();
+            try {
+                return new HashSet<>(foldersByClient.getOrDefault(clientId, Set.of()));
+            } finally {
+                lock.readLock().unlock();
+            }
+        }
+
+        void put(Long id, Long parentId, String name, Set<Long> clientIds) {
+            lock.writeLock().lock();
+            try {
+                Node node = nodes.get(id);
+                if (node == null) {
+                    node = new Node(parentId, name, Set.of());
+                    nodes.put(id, node);
+                    children.computeIfAbsent(parentId, k -> new LinkedHashSet<>()).add(id);
+                } else if (!Objects.equals(node.parentId, parentId)) {
+                    unlinkChild(node.parentId, id);
+                    children.computeIfAbsent(parentId, k -> new LinkedHashSet<>()).add(id);
+                    node.parentId = parentId;
+                }
+                node.name = name;
+                if (clientIds != null) {
+                    node.clientIds.forEach(clientId -> unlinkClient(clientId, id));
+                    clientIds.forEach(clientId -> foldersByClient.computeIfAbsent(clientId, k -> new HashSet<>()).add(id));
+                    node.clientIds = clientIds;
+                }
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+
+        void remove(Long id) {
+            lock.writeLock().lock();
+            try {
+                Node node = nodes.remove(id);
+                if (node != null) {
+                    unlinkChild(node.parentId, id);
+                    node.clientIds.forEach(clientId -> unlinkClient(clientId, id));
+                }
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+
+        private void unlinkChild(Long parentId, Long id) {
+            Set<Long> siblings = children.get(parentId);
+            if (siblings != null && siblings.remove(id) && siblings.isEmpty()) {
+                children.remove(parentId);
+            }
+        }
+
+        private void unlinkClient(Long clientId, Long id) {
+            Set<Long> folders = foldersByClient.get(clientId);
+            if (folders != null && folders.remove(id) && folders.isEmpty()) {
+                foldersByClient.remove(clientId);
+            }
+        }
+    }
+
+    private static final class Node {
+        private Long parentId;
+        private String name;
+        private Set<Long> clientIds;
+
+        Node(Long parentId, String name, Set<Long> clientIds) {
+            this.parentId = parentId;
+            this.name = name;
+            this.clientIds = clientIds;
+        }
+    }
+}
@@ -7,5 +7,10 @@ import java.util.List;
 public interface IDocumentActivityLogRepository {
     void save(DocumentActivityLog documentActivityLog);
 
+    /**
+     * Inserts the logs with one batched statement.
+     */
+    void insertAll(List<DocumentActivityLog> documentActivityLogs);
+
     List<DocumentActivityLog> findTop20ByCompanyIdOrderByTimestampDesc(Long companyId);
 }
@@ -0,0 +1,44 @@
+package ai.docbrain.service.fileManagement;
+
+import ai.docbrain.domain.fileManagement.DocumentContent;
+import ai.docbrain.service.fileManagement.storage.StagedContent;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+public interface IDocumentContentRepository {
+    /**
+     * Inserts the content, or adds a reference to the row of the same company with the same hash.
+     *
+     * @return the id of the content row that is now referenced
+     */
+    Long insertOrReference(Long companyId, String storageKey, long size, String contentHash, byte codec, long storedSize);
+
+    /**
+     * Batch form of {@link #insertOrReference}, one statement for many contents.
+     *
+     * @param contents Contents with distinct hashes
+     * @param referencesByHash References to add per content hash
+     * @return the referenced rows by content hash, with id, storage key, hash and sizes loaded
+     */
+    Map<String, DocumentContent> insertOrReferenceAll(Long companyId, List<StagedContent> contents, Map<String, Integer> referencesByHash);
+
+    Optional<DocumentContent> findById(Long contentId);
+
+    int decrementRefCount(Long contentId);
+
+    List<Long> findIdsUnreferenced(Long afterId, int limit);
+
+    int deleteIfUnreferenced(Long contentId);
+
+    List<Long> findIdsPendingBlobMigration(Long afterId, int limit);
+
+    int moveFileDataToBlob(Long contentId, String storageKey);
+
+    /**
+     * Bytes the company's content actually takes in the blob store, after deduplication and
+     * compression. Legacy content without a stored size counts with its plaintext size.
+     */
+    Long calculateStoredSizeByCompanyId(Long companyId);
+}
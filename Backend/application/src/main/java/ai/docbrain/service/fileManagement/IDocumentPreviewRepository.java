@@ -0,0 +1,19 @@
+package ai.docbrain.service.fileManagement;
+
+import ai.docbrain.domain.fileManagement.DocumentPreview;
+
+import java.util.List;
+import java.util.Optional;
+
+public interface IDocumentPreviewRepository {
+    DocumentPreview save(DocumentPreview preview);
+
+    Optional<DocumentPreview> findByDocumentId(Long documentId);
+
+    void deleteByDocumentId(Long documentId);
+
+    /**
+     * PDFs and images without previews, or whose previews were derived from older content.
+     */
+    List<Long> findDocumentIdsNeedingPreview(Long afterId, int limit);
+}
@@ -2,22 +2,34 @@ package ai.docbrain.service.fileManagement;
 
 import ai.docbrain.domain.fileManagement.Document;
 import ai.docbrain.service.dashboard.DTO.StorageGrowthDTO;
+import ai.docbrain.service.fileManagement.DTO.DocumentMetadataFilterRequest;
 import ai.docbrain.service.fileManagement.DTO.FileMetadataResponseDto;
 
 import java.time.LocalDateTime;
 import java.time.ZonedDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
 public interface IDocumentRepository {
     void save(Document document);
 
+    /**
+     * Inserts new documents with batched statements instead of one insert per entity, and sets
+     * their generated ids. The documents are not attached to the persistence context.
+     */
+    void insertAll(List<Document> documents);
+
     void delete(Document document);
 
     void deleteById(Long documentId);
 
     Optional<Document> findById(Long documentId);
 
+    Optional<Document> findByIdWithContent(Long documentId);
+
+    Optional<Document> findProcessedDocumentWithSameContent(Long contentId, Long excludedDocumentId);
+
     Document findByName(String fileName);
 
 
@@ -27,10 +39,20 @@ public interface IDocumentRepository {
 
     List<Document> findAllByCompanyId(Long companyId);
 
+    List<Document> findAllByFolderIdInAndCompanyId(Collection<Long> folderIds, Long companyId);
+
+    List<Document> findAllByIdInAndCompanyId(Collection<Long> documentIds, Long companyId);
+
     List<FileMetadataResponseDto> findMetadataByFolderIdAndCompanyId(Long folderId, Long companyId);
 
     List<FileMetadataResponseDto> findAllMetadataByCompanyId(Long companyId);
 
+    /**
+     * One page of a company's document metadata, newest first, starting after the cursor in the
+     * filter. Reads at most {@code limit} rows however many documents the company has.
+     */
+    List<FileMetadataResponseDto> findMetadataPage(Long companyId, DocumentMetadataFilterRequest filter, int limit);
+
     Long calculateTotalStorageByCompanyId(Long companyId);
 
 
@@ -0,0 +1,40 @@
+package ai.docbrain.service.fileManagement;
+
+import ai.docbrain.domain.fileManagement.TermKind;
+import ai.docbrain.service.fileManagement.DTO.TermCountDto;
+
+import java.util.Collection;
+import java.util.List;
+
+public interface IDocumentTermRepository {
+
+    /**
+     * Links each of the documents to exactly the given terms of this kind, creating terms that
+     * are new to the company and adjusting the document counts of all terms involved.
+     */
+    void replaceTerms(Long companyId, TermKind kind, Collection<Long> documentIds, Collection<String> values);
+
+    /**
+     * Links a document to the terms of this kind another document of the same company carries.
+     */
+    void copyTerms(TermKind kind, Long sourceDocumentId, Long targetDocumentId);
+
+    /**
+     * Unlinks all terms of a document and lowers their counts, before the document is deleted.
+     */
+    void removeDocument(Long documentId);
+
+    /**
+     * The company's most used terms, from the maintained counts.
+     */
+    List<TermCountDto> findTopTerms(Long companyId, TermKind kind, int limit);
+
+    /**
+     * The most used terms counted over the documents of some folders only.
+     *
+     * @param includedFolderIds Only documents in these folders, or null for all folders
+     * @param excludedFolderIds Documents in these folders are not counted
+     */
+    List<TermCountDto> countTopTerms(Long companyId, TermKind kind, Collection<Long> includedFolderIds,
+                                     Collection<Long> excludedFolderIds, int limit);
+}
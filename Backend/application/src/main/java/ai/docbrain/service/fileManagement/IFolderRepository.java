@@ -1,7 +1,10 @@
 package ai.docbrain.service.fileManagement;
 
 import ai.docbrain.domain.fileManagement.Folder;
+import ai.docbrain.service.fileManagement.DTO.FolderClientLink;
+import ai.docbrain.service.fileManagement.DTO.FolderSubtreeDeletion;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -14,7 +17,56 @@ public interface IFolderRepository {
 
     Optional<Folder> findById(Long folderId);
 
+    List<Folder> findAllByIdIn(Collection<Long> folderIds);
+
     void delete(Folder folder);
 
     int countByCompanyId(Long companyId);
+
+    List<FolderClientLink> findClientLinksByCompanyId(Long companyId);
+
+    List<Long> findBlockedFolderIds(Long userId);
+
+    /**
+     * Blocks the folder for exactly the given users, unblocking it for all others.
+     */
+    void replaceBlockedUsers(Long folderId, Collection<Long> userIds);
+
+    /**
+     * Adds a new folder to the closure table, below all ancestors of its parent.
+     */
+    void insertClosure(Long folderId, Long parentId);
+
+    /**
+     * @return the folder and all folders below it, parents before their children
+     */
+    List<Folder> findSubtree(Long folderId);
+
+    boolean isInSubtree(Long ancestorId, Long folderId);
+
+    /**
+     * Rewrites the paths of all documents in the subtree of a renamed folder.
+     *
+     * @return the number of documents updated
+     */
+    int renameInDocumentPaths(Long folderId, String newName);
+
+    /**
+     * Moves a subtree below another parent, relinking the closure table and rewriting the paths of
+     * all documents in the subtree. The folder's own parent_id is left to the caller.
+     *
+     * @param newParentId The new parent, or null to make the folder a root folder
+     * @return the number of documents whose path was rewritten
+     */
+    int moveSubtree(Long folderId, Long newParentId);
+
+    /**
+     * Deletes a folder with all folders and documents below it, releasing their contents and terms.
+     */
+    FolderSubtreeDeletion deleteSubtree(Long folderId);
+
+    /**
+     * Announces a change of the company's folders to all nodes once the current transaction commits.
+     */
+    void notifyTreeChanged(Long companyId, String originNodeId);
 }
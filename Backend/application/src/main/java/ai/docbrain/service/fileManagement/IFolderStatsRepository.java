@@ -0,0 +1,36 @@
+package ai.docbrain.service.fileManagement;
+
+import ai.docbrain.service.fileManagement.DTO.FolderStatsDto;
+
+import java.util.List;
+import java.util.Optional;
+
+public interface IFolderStatsRepository {
+
+    Optional<FolderStatsDto> findByFolderId(Long folderId);
+
+    /**
+     * Adds the zeroed counters of a new folder.
+     */
+    void insertEmpty(Long folderId, Long companyId);
+
+    /**
+     * Adds to the direct counters of a folder and to the totals of the folder and all its ancestors.
+     */
+    void applyDelta(Long folderId, long bytes, long documents, long processed);
+
+    /**
+     * Adds ({@code sign} 1) or subtracts ({@code sign} -1) the totals of a folder to or from
+     * the totals of all folders above it, for moving or deleting the folder's subtree.
+     */
+    void applySubtreeToAncestors(Long folderId, int sign);
+
+    /**
+     * Recomputes the counters of every folder of a company from its documents.
+     *
+     * @return the number of folders whose counters were off
+     */
+    int reconcile(Long companyId);
+
+    List<Long> findCompanyIds();
+}
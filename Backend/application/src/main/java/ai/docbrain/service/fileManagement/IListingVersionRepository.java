@@ -0,0 +1,16 @@
+package ai.docbrain.service.fileManagement;
+
+import java.util.Collection;
+
+public interface IListingVersionRepository {
+
+    /**
+     * @return the version of a listing, 0 if it never changed
+     */
+    long findVersion(Long companyId, Long scopeId);
+
+    /**
+     * Increments the versions of the given listings of a company by one.
+     */
+    void increment(Long companyId, Collection<Long> scopeIds);
+}
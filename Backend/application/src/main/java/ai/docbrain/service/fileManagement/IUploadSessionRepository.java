@@ -0,0 +1,28 @@
+package ai.docbrain.service.fileManagement;
+
+import ai.docbrain.domain.fileManagement.UploadSession;
+import ai.docbrain.domain.fileManagement.UploadSessionStatus;
+
+import java.time.ZonedDateTime;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+public interface IUploadSessionRepository {
+    UploadSession save(UploadSession session);
+
+    Optional<UploadSession> findById(UUID id);
+
+    boolean existsById(UUID id);
+
+    /**
+     * Moves the session from one status to another, only if it is still in {@code from}.
+     *
+     * @return true when this caller made the transition
+     */
+    boolean transitionStatus(UUID id, UploadSessionStatus from, UploadSessionStatus to);
+
+    List<UploadSession> findExpired(ZonedDateTime now, int limit);
+
+    void deleteById(UUID id);
+}
@@ -0,0 +1,74 @@
+package ai.docbrain.service.fileManagement;
+
+import ai.docbrain.domain.users.User;
+import ai.docbrain.service.utils.exception.ResourceNotFoundException;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Versions of the folder and company document listings, for conditional GETs.
+ * <p>
+ * Every change to a listed document bumps the version of its folder and of its company, in the
+ * transaction of the change. Listings read the version before the documents, so a response may
+ * carry an older version than its data, which only costs one extra fetch, but never a newer one.
+ * <p>
+ * Listings are filtered by the caller's folder access, so the ETags name the caller and a change
+ * of the clients linked to a folder or the users blocked from it bumps the folder like a document
+ * change.
+ */
+@Service
+@RequiredArgsConstructor
+public class ListingVersionService {
+
+    // Scope of the listing of all documents of a company, folder IDs start at 1
+    private static final long COMPANY_SCOPE = 0L;
+
+    private final IListingVersionRepository listingVersionRepository;
+    private final FolderAccessResolver folderAccessResolver;
+
+    /**
+     * @throws ResourceNotFoundException if the caller may not see the folder, so no 304 is answered for it
+     */
+    public String getFolderEtag(User caller, Long folderId) {
+        if (caller == null) {
+            throw new ResourceNotFoundException("User not found");
+        }
+        if (!folderAccessResolver.resolve(caller).canAccess(folderId)) {
+            throw new ResourceNotFoundException("Folder not found with ID: " + folderId);
+        }
+        return "\"f" + folderId + "-" + listingVersionRepository.findVersion(caller.getCompanyId(), folderId)
+                + "-u" + caller.getId() + "\"";
+    }
+
+    public String getCompanyEtag(User caller) {
+        if (caller == null) {
+            throw new ResourceNotFoundException("User not found");
+        }
+        return "\"c-" + listingVersionRepository.findVersion(caller.getCompanyId(), COMPANY_SCOPE)
+                + "-u" + caller.getId() + "\"";
+    }
+
+    /**
+     * Marks the listings holding documents of the given folders as changed.
+     *
+     * @param folderIds Folders of the changed documents, null for the root
+     */
+    @Transactional
+    public void documentsChanged(Long companyId, Collection<Long> folderIds) {
+        List<Long> scopes = new ArrayList<>();
+        scopes.add(COMPANY_SCOPE);
+        folderIds.stream().filter(Objects::nonNull).forEach(scopes::add);
+        listingVersionRepository.increment(companyId, scopes);
+    }
+
+    @Transactional
+    public void documentChanged(Long companyId, Long folderId) {
+        documentsChanged(companyId, folderId == null ? List.of() : List.of(folderId));
+    }
+}
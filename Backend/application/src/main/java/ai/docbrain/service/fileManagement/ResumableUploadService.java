@@ -0,0 +1,196 @@
+package ai.docbrain.service.fileManagement;
+
+import ai.docbrain.domain.fileManagement.Document;
+import ai.docbrain.domain.fileManagement.UploadSession;
+import ai.docbrain.domain.fileManagement.UploadSessionStatus;
+import ai.docbrain.domain.users.User;
+import ai.docbrain.service.fileManagement.DTO.CreateFileResponseDto;
+import ai.docbrain.service.fileManagement.DTO.CreateUploadSessionRequestDto;
+import ai.docbrain.service.fileManagement.DTO.UploadSessionStatusDto;
+import ai.docbrain.service.fileManagement.storage.UploadStagingArea;
+import ai.docbrain.service.utils.EncryptionUtil;
+import ai.docbrain.service.utils.ServerConstants;
+import ai.docbrain.service.utils.exception.DocumentException;
+import ai.docbrain.service.utils.exception.InvalidDataException;
+import ai.docbrain.service.utils.exception.ResourceNotFoundException;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.util.unit.DataSize;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.time.Duration;
+import java.time.ZonedDateTime;
+import java.util.Base64;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Resumable uploads for files above the multipart limit.
+ * <p>
+ * A client creates a session, PUTs the file in chunks of {@code chunkSize} bytes at offsets that
+ * are multiples of it, in any order and in parallel, and completes the session once every chunk
+ * is staged. After a failure the status lists the chunks already received, so only the missing
+ * ones are sent again. Completing streams the staged chunks through the normal upload path,
+ * so the file is never held in memory as a whole.
+ */
+@Log4j2
+@Service
+@RequiredArgsConstructor
+public class ResumableUploadService {
+
+    private final IUploadSessionRepository uploadSessionRepository;
+    private final UploadStagingArea stagingArea;
+    private final DocumentService documentService;
+    private final EncryptionUtil encryptionUtil;
+
+    @Value("${app.resumable-upload.max-file-size:500MB}")
+    private DataSize maxFileSize;
+
+    @Value("${app.resumable-upload.chunk-size:8MB}")
+    private DataSize chunkSize;
+
+    @Value("${app.resumable-upload.session-ttl:24h}")
+    private Duration sessionTtl;
+
+    @Transactional
+    public UploadSessionStatusDto createSession(User caller, CreateUploadSessionRequestDto request) {
+        if (caller == null) {
+            throw new ResourceNotFoundException("User not found");
+        }
+        if (request.getFileName() == null || request.getFileName().isBlank() || request.getFileName().contains(",")
+                || !DocumentService.isAllowedUploadType(request.getContentType())
+                || request.getSize() == null || request.getSize() <= 0) {
+            throw new InvalidDataException(ServerConstants.INVALID_DATA);
+        }
+        if (request.getSize() > maxFileSize.toBytes()) {
+            throw new InvalidDataException(ServerConstants.FILE_LIMIT_EXCEEDED);
+        }
+        documentService.targetFolderPath(caller, request.getFolderId());
+
+        String encryptedFileName;
+        try {
+            encryptedFileName = Base64.getEncoder().encodeToString(encryptionUtil.encrypt(request.getFileName().getBytes()));
+        } catch (Exception e) {
+            throw new IllegalStateException("Failed to encrypt file name", e);
+        }
+
+        UploadSession session = uploadSessionRepository.save(UploadSession.builder()
+                .id(UUID.randomUUID())
+                .companyId(caller.getCompanyId())
+                .userId(caller.getId())
+                .folderId(request.getFolderId())
+                .fileName(encryptedFileName)
+                .contentType(request.getContentType())
+                .totalSize(request.getSize())
+                .chunkSize((int) chunkSize.toBytes())
+                .status(UploadSessionStatus.OPEN)
+                .expiresAt(ZonedDateTime.now().plus(sessionTtl))
+                .build());
+        return toStatus(session, List.of());
+    }
+
+    /**
+     * Stages the chunk starting at {@code offset}. Sending a chunk again replaces it.
+     * Deliberately not transactional, no connection is held while the chunk comes in.
+     */
+    public UploadSessionStatusDto receiveChunk(User caller, UUID uploadId, long offset, InputStream data) throws IOException {
+        UploadSession session = findSession(caller, uploadId);
+        if (session.getStatus() != UploadSessionStatus.OPEN) {
+            throw new InvalidDataException("Upload " + uploadId + " is already being completed");
+        }
+        if (offset < 0 || offset >= session.getTotalSize() || offset % session.getChunkSize() != 0) {
+            throw new InvalidDataException("Chunk offset must be a multiple of " + session.getChunkSize() + " below " + session.getTotalSize());
+        }
+
+        int index = (int) (offset / session.getChunkSize());
+        long expectedLength = session.getChunkLength(index);
+        long length = stagingArea.writeChunk(uploadId, index, data, expectedLength);
+        if (length != expectedLength) {
+            throw new InvalidDataException("Chunk at offset " + offset + " must be " + expectedLength + " bytes");
+        }
+        return toStatus(session, stagingArea.listChunks(uploadId));
+    }
+
+    public UploadSessionStatusDto getStatus(User caller, UUID uploadId) throws IOException {
+        UploadSession session = findSession(caller, uploadId);
+        return toStatus(session, stagingArea.listChunks(uploadId));
+    }
+
+    /**
+     * Assembles the staged chunks into a document. Only one request can complete a session,
+     * if storing fails the session is open again and can be completed once more.
+     */
+    @Transactional(rollbackFor = Exception.class)
+    public CreateFileResponseDto complete(User caller, UUID uploadId) throws IOException {
+        UploadSession session = findSession(caller, uploadId);
+        if (!uploadSessionRepository.transitionStatus(uploadId, UploadSessionStatus.OPEN, UploadSessionStatus.COMPLETING)) {
+            throw new InvalidDataException("Upload " + uploadId + " is already being completed");
+        }
+        List<Integer> received = stagingArea.listChunks(uploadId);
+        if (received.size() != session.getChunkCount()) {
+            throw new InvalidDataException("Upload " + uploadId + " is missing " + (session.getChunkCount() - received.size()) + " chunks");
+        }
+
+        String fileName = decryptFileName(session);
+        Document document;
+        try (InputStream assembled = stagingArea.openAssembled(uploadId, session.getChunkCount())) {
+            document = documentService.createUploadedDocument(caller, assembled, session.getTotalSize(),
+                    session.getContentType(), fileName, session.getFolderId());
+        }
+        if (!document.getSize().equals(document.getContent().getSize())) {
+            throw new DocumentException("Assembled upload " + uploadId + " has " + document.getContent().getSize()
+                    + " bytes instead of " + session.getTotalSize());
+        }
+
+        uploadSessionRepository.deleteById(uploadId);
+        deleteStagingAfterCommit(uploadId);
+        return new CreateFileResponseDto(document.getId(), fileName, document.getType(), document.getPath(),
+                document.getSize(), document.getFolderId(), document.getCompanyId(), ServerConstants.FILE_UPLOADED);
+    }
+
+    @Transactional
+    public void abort(User caller, UUID uploadId) {
+        findSession(caller, uploadId);
+        uploadSessionRepository.deleteById(uploadId);
+        deleteStagingAfterCommit(uploadId);
+    }
+
+    private UploadSession findSession(User caller, UUID uploadId) {
+        if (caller == null) {
+            throw new ResourceNotFoundException("User not found");
+        }
+        return uploadSessionRepository.findById(uploadId)
+                .filter(s -> s.getCompanyId().equals(caller.getCompanyId()) && s.getUserId().equals(caller.getId()))
+                .filter(s -> s.getExpiresAt().isAfter(ZonedDateTime.now()))
+                .orElseThrow(() -> new ResourceNotFoundException("Upload session not found: " + uploadId));
+    }
+
+    private String decryptFileName(UploadSession session) throws DocumentException {
+        try {
+            return new String(encryptionUtil.decrypt(Base64.getDecoder().decode(session.getFileName())));
+        } catch (Exception e) {
+            throw new DocumentException("Failed to decrypt file name of upload " + session.getId(), e);
+        }
+    }
+
+    private void deleteStagingAfterCommit(UUID uploadId) {
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                stagingArea.delete(uploadId);
+            }
+        });
+    }
+
+    private static UploadSessionStatusDto toStatus(UploadSession session, List<Integer> receivedChunks) {
+        long receivedBytes = receivedChunks.stream().mapToLong(session::getChunkLength).sum();
+        return new UploadSessionStatusDto(session.getId(), session.getTotalSize(), session.getChunkSize(),
+                session.getChunkCount(), receivedChunks, receivedBytes, session.getStatus().name(), session.getExpiresAt());
+    }
+}
@@ -0,0 +1,67 @@
+package ai.docbrain.service.fileManagement;
+
+import ai.docbrain.domain.fileManagement.UploadSession;
+import ai.docbrain.service.fileManagement.storage.UploadStagingArea;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.nio.file.attribute.FileTime;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZonedDateTime;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Background job that removes abandoned resumable uploads, the expired sessions and their
+ * staged chunks, as well as chunk directories left without a session, e.g. after a crash
+ * between committing a completed upload and deleting its chunks.
+ */
+@Log4j2
+@Service
+@RequiredArgsConstructor
+public class UploadSessionJanitor {
+
+    private final IUploadSessionRepository uploadSessionRepository;
+    private final UploadStagingArea stagingArea;
+
+    @Value("${app.resumable-upload.janitor-batch-size:100}")
+    private int batchSize;
+
+    @Value("${app.resumable-upload.session-ttl:24h}")
+    private Duration sessionTtl;
+
+    @Scheduled(fixedDelayString = "${app.resumable-upload.janitor-interval-ms:3600000}", initialDelay = 120000)
+    public void removeAbandonedUploads() {
+        List<UploadSession> expired = uploadSessionRepository.findExpired(ZonedDateTime.now(), batchSize);
+        for (UploadSession session : expired) {
+            try {
+                uploadSessionRepository.deleteById(session.getId());
+                stagingArea.delete(session.getId());
+            } catch (Exception e) {
+                log.error("Failed to remove expired upload session {}", session.getId(), e);
+            }
+        }
+
+        int orphans = 0;
+        try {
+            // Idle for a whole session lifetime, so a session created meanwhile is never touched
+            FileTime cutoff = FileTime.from(Instant.now().minus(sessionTtl));
+            for (UUID sessionId : stagingArea.findSessionsIdleSince(cutoff)) {
+                if (!uploadSessionRepository.existsById(sessionId)) {
+                    stagingArea.delete(sessionId);
+                    orphans++;
+                }
+            }
+        } catch (Exception e) {
+            log.error("Failed to sweep the upload staging area", e);
+        }
+
+        if (!expired.isEmpty() || orphans > 0) {
+            log.info("Removed {} expired upload sessions and {} orphaned staging directories", expired.size(), orphans);
+        }
+    }
+}
@@ -0,0 +1,160 @@
+package ai.docbrain.service.fileManagement.preview;
+
+import ai.docbrain.domain.fileManagement.Document;
+import ai.docbrain.domain.fileManagement.DocumentContent;
+import ai.docbrain.domain.fileManagement.DocumentPreview;
+import ai.docbrain.domain.fileManagement.DocumentPreviewStatus;
+import ai.docbrain.domain.users.User;
+import ai.docbrain.service.fileManagement.DTO.DocumentPreviewArtifact;
+import ai.docbrain.service.fileManagement.FolderAccessResolver;
+import ai.docbrain.service.fileManagement.IDocumentPreviewRepository;
+import ai.docbrain.service.fileManagement.IDocumentRepository;
+import ai.docbrain.service.fileManagement.ListingVersionService;
+import ai.docbrain.service.fileManagement.storage.DocumentStorageService;
+import ai.docbrain.service.utils.exception.DocumentException;
+import ai.docbrain.service.utils.exception.ResourceNotFoundException;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.util.unit.DataSize;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.function.Function;
+
+/**
+ * Derives and serves small preview artifacts, so a grid of documents does not need to
+ * download and decrypt every file: a downscaled thumbnail for images, and the page count
+ * plus a single page PDF of the first page for PDFs.
+ * <p>
+ * Artifacts are derived in the background by {@link DocumentPreviewSweeper} and stored
+ * encrypted in the blob store. They are tied to the content they were derived from, a
+ * document whose content changes simply gets new ones.
+ */
+@Log4j2
+@Service
+@RequiredArgsConstructor
+public class DocumentPreviewService {
+
+    private final IDocumentRepository documentRepository;
+    private final IDocumentPreviewRepository previewRepository;
+    private final DocumentStorageService documentStorageService;
+    private final ListingVersionService listingVersionService;
+    private final FolderAccessResolver folderAccessResolver;
+
+    @Value("${app.preview.thumbnail-size:256}")
+    private int thumbnailSize;
+
+    @Value("${app.preview.max-source-size:64MB}")
+    private DataSize maxSourceSize;
+
+    /**
+     * Derives the previews of a document unless they are up to date with its content.
+     */
+    @Transactional
+    public void generate(Long documentId) {
+        Document document = documentRepository.findByIdWithContent(documentId).orElse(null);
+        if (document == null || document.getContent() == null) {
+            return;
+        }
+        DocumentContent content = document.getContent();
+        DocumentPreview existing = previewRepository.findByDocumentId(documentId).orElse(null);
+        if (existing != null && existing.getContentId().equals(content.getId())) {
+            return;
+        }
+        String staleThumbnailKey = existing == null ? null : existing.getThumbnailKey();
+        String staleFirstPageKey = existing == null ? null : existing.getFirstPageKey();
+
+        DocumentPreview preview = existing != null ? existing : DocumentPreview.builder().documentId(documentId).build();
+        preview.setContentId(content.getId());
+        preview.setPageCount(null);
+        preview.setThumbnailKey(null);
+        preview.setThumbnailType(null);
+        preview.setFirstPageKey(null);
+
+        if (content.getSize() > maxSourceSize.toBytes()) {
+            preview.setStatus(DocumentPreviewStatus.SKIPPED);
+        } else {
+            try {
+                derive(document, preview);
+                preview.setStatus(DocumentPreviewStatus.READY);
+            } catch (IOException e) {
+                log.warn("Failed to derive previews of document {}", documentId, e);
+                preview.setStatus(DocumentPreviewStatus.FAILED);
+            }
+        }
+        previewRepository.save(preview);
+        // Listings show the page count
+        listingVersionService.documentChanged(document.getCompanyId(), document.getFolderId());
+        documentStorageService.deleteAfterCommit(staleThumbnailKey);
+        documentStorageService.deleteAfterCommit(staleFirstPageKey);
+    }
+
+    /**
+     * Drops the previews of a document, e.g. before its content changes or it is deleted.
+     */
+    @Transactional
+    public void invalidate(Long documentId) {
+        previewRepository.findByDocumentId(documentId).ifPresent(preview -> {
+            previewRepository.deleteByDocumentId(documentId);
+            documentStorageService.deleteAfterCommit(preview.getThumbnailKey());
+            documentStorageService.deleteAfterCommit(preview.getFirstPageKey());
+        });
+    }
+
+    @Transactional(readOnly = true)
+    public DocumentPreviewArtifact getThumbnail(User caller, Long documentId) throws DocumentException {
+        return getArtifact(caller, documentId, "t", DocumentPreview::getThumbnailKey, DocumentPreview::getThumbnailType);
+    }
+
+    @Transactional(readOnly = true)
+    public DocumentPreviewArtifact getFirstPage(User caller, Long documentId) throws DocumentException {
+        return getArtifact(caller, documentId, "p", DocumentPreview::getFirstPageKey, preview -> "application/pdf");
+    }
+
+    private void derive(Document document, DocumentPreview preview) throws IOException {
+        if (document.getType().startsWith("image/")) {
+            PreviewRenderer.Thumbnail thumbnail;
+            try (InputStream in = documentStorageService.openDecrypted(document.getContent())) {
+                thumbnail = PreviewRenderer.thumbnail(in, thumbnailSize);
+            }
+            if (thumbnail == null) {
+                throw new IOException("Unsupported image format " + document.getType());
+            }
+            preview.setThumbnailKey(documentStorageService.storeArtifact(thumbnail.data()));
+            preview.setThumbnailType(thumbnail.contentType());
+        } else if (document.getType().equals("application/pdf")) {
+            byte[] pdf;
+            try (InputStream in = documentStorageService.openDecrypted(document.getContent())) {
+                pdf = in.readAllBytes();
+            }
+            PreviewRenderer.PdfPreview pdfPreview = PreviewRenderer.pdfPreview(pdf);
+            preview.setPageCount(pdfPreview.pageCount());
+            if (pdfPreview.firstPage() != null) {
+                preview.setFirstPageKey(documentStorageService.storeArtifact(pdfPreview.firstPage()));
+            }
+        }
+    }
+
+    private DocumentPreviewArtifact getArtifact(User caller, Long documentId, String kind,
+                                                Function<DocumentPreview, String> key,
+                                                Function<DocumentPreview, String> contentType) throws DocumentException {
+        if (caller == null) {
+            throw new ResourceNotFoundException("User not found");
+        }
+        Document document = documentRepository.findById(documentId)
+                .filter(d -> d.getCompanyId().equals(caller.getCompanyId()))
+                .filter(d -> folderAccessResolver.resolve(caller).canAccess(d.getFolderId()))
+                .orElseThrow(() -> new ResourceNotFoundException("Document not found with ID: " + documentId));
+        DocumentPreview preview = previewRepository.findByDocumentId(documentId)
+                .filter(p -> p.getStatus() == DocumentPreviewStatus.READY && key.apply(p) != null)
+                .filter(p -> document.getContent() != null && p.getContentId().equals(document.getContent().getId()))
+                .orElseThrow(() -> new ResourceNotFoundException("No preview available for document " + documentId));
+
+        byte[] data = documentStorageService.readArtifact(key.apply(preview));
+        String etag = "\"" + kind + preview.getContentId() + "\"";
+        return new DocumentPreviewArtifact(data, contentType.apply(preview), etag, preview.getContentId());
+    }
+}
@@ -0,0 +1,49 @@
+package ai.docbrain.service.fileManagement.preview;
+
+import ai.docbrain.service.fileManagement.IDocumentPreviewRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.List;
+
+/**
+ * Background stage that derives previews for new uploads and for documents whose content
+ * changed. Working off the database instead of an in-memory queue means nothing is lost on
+ * a restart, and uploads never wait for previews.
+ */
+@Log4j2
+@Service
+@RequiredArgsConstructor
+public class DocumentPreviewSweeper {
+
+    private final IDocumentPreviewRepository previewRepository;
+    private final DocumentPreviewService documentPreviewService;
+
+    @Value("${app.preview.batch-size:20}")
+    private int batchSize;
+
+    // Keyset cursor so a document that keeps failing does not block the ones after it
+    private long lastDocumentId = 0L;
+
+    @Scheduled(fixedDelayString = "${app.preview.interval-ms:10000}", initialDelay = 30000)
+    public void generateNextBatch() {
+        List<Long> documentIds = previewRepository.findDocumentIdsNeedingPreview(lastDocumentId, batchSize);
+        if (documentIds.isEmpty()) {
+            lastDocumentId = 0L;
+            return;
+        }
+
+        for (Long documentId : documentIds) {
+            try {
+                documentPreviewService.generate(documentId);
+            } catch (Exception e) {
+                log.error("Failed to generate previews of document {}", documentId, e);
+            }
+            lastDocumentId = documentId;
+        }
+        log.debug("Generated previews of {} documents", documentIds.size());
+    }
+}
@@ -0,0 +1,111 @@
+package ai.docbrain.service.fileManagement.preview;
+
+import com.itextpdf.kernel.pdf.PdfDocument;
+import com.itextpdf.kernel.pdf.PdfReader;
+import com.itextpdf.kernel.pdf.PdfWriter;
+
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Iterator;
+
+/**
+ * Derives preview artifacts from plaintext content. Stateless, safe to share between threads.
+ */
+public final class PreviewRenderer {
+
+    private PreviewRenderer() {
+    }
+
+    /**
+     * Downscales an image so its longer side is at most {@code maxDimension} pixels.
+     * Large scans are subsampled while they are decoded, so the full resolution image is never
+     * held in memory.
+     *
+     * @return the thumbnail, or null if no ImageIO reader understands the image
+     */
+    public static Thumbnail thumbnail(InputStream image, int maxDimension) throws IOException {
+        try (ImageInputStream input = ImageIO.createImageInputStream(image)) {
+            if (input == null) {
+                return null;
+            }
+            Iterator<ImageReader> readers = ImageIO.getImageReaders(input);
+            if (!readers.hasNext()) {
+                return null;
+            }
+            ImageReader reader = readers.next();
+            BufferedImage source;
+            try {
+                reader.setInput(input, true, true);
+                int width = reader.getWidth(0);
+                int height = reader.getHeight(0);
+                ImageReadParam param = reader.getDefaultReadParam();
+                // Decode at no less than twice the target size, the final scaling smooths it out
+                int subsampling = Math.max(1, Math.max(width, height) / (2 * maxDimension));
+                param.setSourceSubsampling(subsampling, subsampling, 0, 0);
+                source = reader.read(0, param);
+            } finally {
+                reader.dispose();
+            }
+
+            double scale = Math.min(1.0, (double) maxDimension / Math.max(source.getWidth(), source.getHeight()));
+            int width = Math.max(1, (int) Math.round(source.getWidth() * scale));
+            int height = Math.max(1, (int) Math.round(source.getHeight() * scale));
+            boolean alpha = source.getColorModel().hasAlpha();
+
+            BufferedImage scaled = new BufferedImage(width, height, alpha ? BufferedImage.TYPE_INT_ARGB : BufferedImage.TYPE_INT_RGB);
+            Graphics2D graphics = scaled.createGraphics();
+            try {
+                graphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+                graphics.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+                graphics.drawImage(source, 0, 0, width, height, null);
+            } finally {
+                graphics.dispose();
+            }
+
+            // JPEG has no alpha channel, transparent images stay PNG
+            String format = alpha ? "png" : "jpg";
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            if (!ImageIO.write(scaled, format, out)) {
+                throw new IOException("No ImageIO writer for " + format);
+            }
+            return new Thumbnail(out.toByteArray(), alpha ? "image/png" : "image/jpeg");
+        }
+    }
+
+    /**
+     * Reads the page count of a PDF and extracts its first page as a PDF of its own.
+     */
+    public static PdfPreview pdfPreview(byte[] pdf) throws IOException {
+        try (PdfDocument source = new PdfDocument(new PdfReader(new ByteArrayInputStream(pdf)))) {
+            int pageCount = source.getNumberOfPages();
+            if (pageCount == 0) {
+                return new PdfPreview(0, null);
+            }
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            try (PdfDocument firstPage = new PdfDocument(new PdfWriter(out))) {
+                source.copyPagesTo(1, 1, firstPage);
+            }
+            return new PdfPreview(pageCount, out.toByteArray());
+        } catch (IOException e) {
+            throw e;
+        } catch (Exception e) {
+            // iText reports damaged or encrypted files with unchecked exceptions
+            throw new IOException("Failed to read PDF", e);
+        }
+    }
+
+    public record Thumbnail(byte[] data, String contentType) {
+    }
+
+    public record PdfPreview(int pageCount, byte[] firstPage) {
+    }
+}
@@ -0,0 +1,31 @@
+package ai.docbrain.service.fileManagement.storage;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.SeekableByteChannel;
+
+/**
+ * Storage for opaque (already encrypted) document bytes, addressed by a key.
+ * Blobs are written through a {@link PendingBlob} and only become visible once committed,
+ * so a crashed or aborted upload never leaves a half-written blob behind a key.
+ */
+public interface BlobStore {
+
+    /**
+     * Opens a new blob for writing. The caller must either commit or close it.
+     */
+    PendingBlob create() throws IOException;
+
+    InputStream open(String key) throws IOException;
+
+    /**
+     * Opens a blob for random access reads.
+     */
+    SeekableByteChannel openChannel(String key) throws IOException;
+
+    long size(String key) throws IOException;
+
+    boolean exists(String key);
+
+    void delete(String key) throws IOException;
+}
@@ -0,0 +1,62 @@
+package ai.docbrain.service.fileManagement.storage;
+
+import ai.docbrain.service.fileManagement.IDocumentContentRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.List;
+
+/**
+ * Background job that moves the content of documents uploaded before the blob store existed
+ * out of {@code document_contents.file_data}.
+ * <p>
+ * The job is resumable by construction: a migrated row has a storage key and no file data, so
+ * after a restart it simply continues with the rows that are still pending. Every row is
+ * migrated in its own transaction, a failing row is logged and skipped until the next pass.
+ */
+@Log4j2
+@Service
+@RequiredArgsConstructor
+public class DocumentBlobMigrationService {
+
+    private final IDocumentContentRepository contentRepository;
+    private final DocumentStorageService documentStorageService;
+
+    @Value("${app.storage.migration.enabled:true}")
+    private boolean enabled;
+
+    @Value("${app.storage.migration.batch-size:50}")
+    private int batchSize;
+
+    // Keyset cursor of the current pass, reset once a pass reaches the end of the table
+    private long lastContentId = 0L;
+
+    @Scheduled(fixedDelayString = "${app.storage.migration.interval-ms:60000}", initialDelay = 30000)
+    public void migrateNextBatch() {
+        if (!enabled) {
+            return;
+        }
+
+        List<Long> contentIds = contentRepository.findIdsPendingBlobMigration(lastContentId, batchSize);
+        if (contentIds.isEmpty()) {
+            lastContentId = 0L;
+            return;
+        }
+
+        int migrated = 0;
+        for (Long contentId : contentIds) {
+            try {
+                if (documentStorageService.migrateLegacyContent(contentId)) {
+                    migrated++;
+                }
+            } catch (Exception e) {
+                log.error("Failed to migrate document content {} to the blob store", contentId, e);
+            }
+            lastContentId = contentId;
+        }
+        log.info("Moved {} of {} document contents from file_data to the blob store", migrated, contentIds.size());
+    }
+}
@@ -0,0 +1,54 @@
+package ai.docbrain.service.fileManagement.storage;
+
+import ai.docbrain.service.fileManagement.IDocumentContentRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.List;
+
+/**
+ * Background job that removes document contents no document points at anymore.
+ * <p>
+ * Deleting a document only drops a reference, so the delete stays cheap and an identical upload
+ * arriving in the meantime can still pick the content up again. Each row is removed in its own
+ * transaction and only while its reference count is still zero.
+ */
+@Log4j2
+@Service
+@RequiredArgsConstructor
+public class DocumentContentGarbageCollector {
+
+    private final IDocumentContentRepository contentRepository;
+    private final DocumentStorageService documentStorageService;
+
+    @Value("${app.storage.gc.batch-size:100}")
+    private int batchSize;
+
+    // Keyset cursor so a row that keeps failing does not block the ones after it
+    private long lastContentId = 0L;
+
+    @Scheduled(fixedDelayString = "${app.storage.gc.interval-ms:300000}", initialDelay = 60000)
+    public void collectNextBatch() {
+        List<Long> contentIds = contentRepository.findIdsUnreferenced(lastContentId, batchSize);
+        if (contentIds.isEmpty()) {
+            lastContentId = 0L;
+            return;
+        }
+
+        int deleted = 0;
+        for (Long contentId : contentIds) {
+            try {
+                if (documentStorageService.deleteUnreferenced(contentId)) {
+                    deleted++;
+                }
+            } catch (Exception e) {
+                log.error("Failed to delete unreferenced document content {}", contentId, e);
+            }
+            lastContentId = contentId;
+        }
+        log.info("Deleted {} of {} unreferenced document contents", deleted, contentIds.size());
+    }
+}
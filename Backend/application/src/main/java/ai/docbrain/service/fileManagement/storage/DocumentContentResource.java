@@ -0,0 +1,53 @@
+package ai.docbrain.service.fileManagement.storage;
+
+import ai.docbrain.domain.fileManagement.DocumentContent;
+import org.springframework.core.io.AbstractResource;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Decrypted document content as a Spring {@link org.springframework.core.io.Resource}.
+ * <p>
+ * Every call to {@link #getInputStream()} opens a fresh decrypting stream and the length is
+ * known up front, which is what Spring needs to serve {@code Range} requests as
+ * {@link org.springframework.core.io.support.ResourceRegion}s. Skipping to the start of a range
+ * only decrypts the frames that are actually sent.
+ */
+public class DocumentContentResource extends AbstractResource {
+
+    private final DocumentStorageService storageService;
+    private final DocumentContent content;
+    private final String filename;
+
+    public DocumentContentResource(DocumentStorageService storageService, DocumentContent content, String filename) {
+        this.storageService = storageService;
+        this.content = content;
+        this.filename = filename;
+    }
+
+    @Override
+    public InputStream getInputStream() throws IOException {
+        return storageService.openDecrypted(content);
+    }
+
+    @Override
+    public long contentLength() {
+        return content.getSize();
+    }
+
+    @Override
+    public String getFilename() {
+        return filename;
+    }
+
+    @Override
+    public boolean exists() {
+        return true;
+    }
+
+    @Override
+    public String getDescription() {
+        return "Document content " + content.getId();
+    }
+}
@@ -0,0 +1,294 @@
+package ai.docbrain.service.fileManagement.storage;
+
+import ai.docbrain.domain.fileManagement.DocumentContent;
+import ai.docbrain.service.fileManagement.IDocumentContentRepository;
+import ai.docbrain.service.utils.CompressFileOps;
+import ai.docbrain.service.utils.EncryptionUtil;
+import ai.docbrain.service.utils.exception.DocumentException;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Reads and writes encrypted document content through the {@link BlobStore}.
+ * <p>
+ * Content is encrypted while it is copied, so uploads and downloads only ever hold one
+ * small buffer of the file in memory. Content that was stored before the blob store
+ * existed still carries its ciphertext in {@code document_contents.file_data} and is read from
+ * there until {@link DocumentBlobMigrationService} has moved it out.
+ */
+@Log4j2
+@Service
+@RequiredArgsConstructor
+public class DocumentStorageService {
+
+    private final BlobStore blobStore;
+    private final EncryptionUtil encryptionUtil;
+    private final IDocumentContentRepository contentRepository;
+
+    /**
+     * Encrypts the plaintext stream into a new blob and records it as the content of a company.
+     * If the company already holds content with the same SHA-256 that row gets another reference
+     * and the new blob is dropped again. If a transaction is active the blob is removed again
+     * when it rolls back.
+     * <p>
+     * The content is compressed before encryption when a sample of its first bytes shows it
+     * is worth it, see {@link CompressFileOps#chooseCodec(String, byte[])}.
+     */
+    public DocumentContent store(Long companyId, InputStream plaintext, String contentType) throws DocumentException {
+        return reference(companyId, stage(plaintext, contentType));
+    }
+
+    /**
+     * Encrypts the plaintext stream into a new blob without recording it. Touches no database
+     * state, so it is safe to call from worker threads outside of a transaction. The blob is
+     * only kept once {@link #reference} or {@link #referenceAll} recorded it.
+     */
+    public StagedContent stage(InputStream plaintext, String contentType) throws DocumentException {
+        MessageDigest digest = sha256();
+        try (PendingBlob pending = blobStore.create()) {
+            BufferedInputStream buffered = new BufferedInputStream(plaintext, CompressFileOps.SAMPLE_SIZE);
+            buffered.mark(CompressFileOps.SAMPLE_SIZE);
+            byte codec = CompressFileOps.chooseCodec(contentType, buffered.readNBytes(CompressFileOps.SAMPLE_SIZE));
+            buffered.reset();
+
+            long size;
+            try (OutputStream encrypted = encryptionUtil.encryptingStream(pending.outputStream(), codec)) {
+                size = new DigestInputStream(buffered, digest).transferTo(encrypted);
+            }
+            String key = pending.commit();
+            return new StagedContent(key, size, HexFormat.of().formatHex(digest.digest()), codec, blobStore.size(key));
+        } catch (Exception e) {
+            throw new DocumentException("Failed to store document content", e);
+        }
+    }
+
+    /**
+     * Records staged content for a company, see {@link #store}.
+     */
+    public DocumentContent reference(Long companyId, StagedContent staged) throws DocumentException {
+        deleteOnRollback(staged.storageKey());
+        Long contentId = contentRepository.insertOrReference(companyId, staged.storageKey(), staged.size(),
+                staged.contentHash(), staged.codec(), staged.storedSize());
+        DocumentContent content = contentRepository.findById(contentId)
+                .orElseThrow(() -> new DocumentException("Document content " + contentId + " not found after insert"));
+
+        if (!staged.storageKey().equals(content.getStorageKey())) {
+            // Duplicate of content the company already has, nothing points at the new blob
+            log.debug("Upload deduplicated onto document content {}", contentId);
+            deleteQuietly(staged.storageKey());
+        }
+        return content;
+    }
+
+    /**
+     * Records a batch of staged content for a company in one statement. Duplicates within the
+     * batch and of content the company already has end up on one row each, their extra blobs
+     * are dropped.
+     *
+     * @return for every staged content, in the same order, the row that now references it
+     */
+    public List<DocumentContent> referenceAll(Long companyId, List<StagedContent> staged) {
+        staged.forEach(s -> deleteOnRollback(s.storageKey()));
+
+        Map<String, StagedContent> distinct = new LinkedHashMap<>();
+        Map<String, Integer> references = new HashMap<>();
+        for (StagedContent s : staged) {
+            distinct.putIfAbsent(s.contentHash(), s);
+            references.merge(s.contentHash(), 1, Integer::sum);
+        }
+        Map<String, DocumentContent> byHash = contentRepository.insertOrReferenceAll(companyId, List.copyOf(distinct.values()), references);
+
+        List<DocumentContent> contents = new ArrayList<>(staged.size());
+        for (StagedContent s : staged) {
+            DocumentContent content = byHash.get(s.contentHash());
+            if (!s.storageKey().equals(content.getStorageKey())) {
+                deleteQuietly(s.storageKey());
+            }
+            contents.add(content);
+        }
+        return contents;
+    }
+
+    /**
+     * Deletes staged content that will not be referenced, e.g. after the rest of its upload failed.
+     */
+    public void discard(StagedContent staged) {
+        deleteQuietly(staged.storageKey());
+    }
+
+    /**
+     * Opens the decrypted content, from the blob store or from the legacy column.
+     */
+    public InputStream openDecrypted(DocumentContent content) throws DocumentException {
+        if (content == null) {
+            throw new DocumentException("Document has no content");
+        }
+        try {
+            if (content.getStorageKey() != null) {
+                return encryptionUtil.decryptingStream(blobStore.open(content.getStorageKey()));
+            }
+            if (content.getFileData() != null) {
+                return encryptionUtil.decryptingStream(new ByteArrayInputStream(content.getFileData()));
+            }
+        } catch (Exception e) {
+            throw new DocumentException("Failed to open document content " + content.getId(), e);
+        }
+        throw new DocumentException("Document content " + content.getId() + " is empty");
+    }
+
+    /**
+     * Encrypts a small derived artifact, e.g. a thumbnail, into its own blob. If a transaction
+     * is active the blob is removed again when it rolls back.
+     *
+     * @return the key of the new blob
+     */
+    public String storeArtifact(byte[] data) throws DocumentException {
+        try (PendingBlob pending = blobStore.create()) {
+            try (OutputStream encrypted = encryptionUtil.encryptingStream(pending.outputStream())) {
+                encrypted.write(data);
+            }
+            String key = pending.commit();
+            deleteOnRollback(key);
+            return key;
+        } catch (Exception e) {
+            throw new DocumentException("Failed to store artifact", e);
+        }
+    }
+
+    /**
+     * Reads and decrypts a whole artifact written by {@link #storeArtifact(byte[])}.
+     */
+    public byte[] readArtifact(String key) throws DocumentException {
+        try (InputStream in = encryptionUtil.decryptingStream(blobStore.open(key))) {
+            return in.readAllBytes();
+        } catch (Exception e) {
+            throw new DocumentException("Failed to read artifact " + key, e);
+        }
+    }
+
+    /**
+     * Drops one reference to a content row. Rows without references are removed together with
+     * their blob by {@link DocumentContentGarbageCollector}.
+     */
+    public void release(DocumentContent content) {
+        if (content == null) {
+            return;
+        }
+        contentRepository.decrementRefCount(content.getId());
+    }
+
+    /**
+     * Deletes a content row that has no references left, its blob is removed once the
+     * transaction has committed.
+     *
+     * @return false if the content was referenced again in the meantime
+     */
+    @Transactional
+    public boolean deleteUnreferenced(Long contentId) {
+        DocumentContent content = contentRepository.findById(contentId).orElse(null);
+        if (content == null || contentRepository.deleteIfUnreferenced(contentId) != 1) {
+            return false;
+        }
+        deleteAfterCommit(content.getStorageKey());
+        return true;
+    }
+
+    /**
+     * Removes a blob once the surrounding transaction has committed, so a rolled back
+     * delete or content update never loses the data it still points to.
+     */
+    public void deleteAfterCommit(String key) {
+        if (key == null) {
+            return;
+        }
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            deleteQuietly(key);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                deleteQuietly(key);
+            }
+        });
+    }
+
+    /**
+     * Moves the ciphertext of legacy content from {@code file_data} into the blob store.
+     * The bytes are copied as they are, both places use the same encryption format.
+     *
+     * @return false if the content did not need migrating anymore
+     */
+    @Transactional
+    public boolean migrateLegacyContent(Long contentId) throws DocumentException {
+        DocumentContent content = contentRepository.findById(contentId).orElse(null);
+        if (content == null || content.getStorageKey() != null || content.getFileData() == null) {
+            return false;
+        }
+
+        try (PendingBlob pending = blobStore.create()) {
+            try (OutputStream out = pending.outputStream()) {
+                out.write(content.getFileData());
+            }
+            String key = pending.commit();
+            deleteOnRollback(key);
+
+            if (contentRepository.moveFileDataToBlob(contentId, key) != 1) {
+                deleteAfterCommit(key);
+                return false;
+            }
+            return true;
+        } catch (IOException e) {
+            throw new DocumentException("Failed to migrate document content " + contentId, e);
+        }
+    }
+
+    private static MessageDigest sha256() throws DocumentException {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new DocumentException("SHA-256 is not available", e);
+        }
+    }
+
+    private void deleteOnRollback(String key) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                if (status == STATUS_ROLLED_BACK) {
+                    deleteQuietly(key);
+                }
+            }
+        });
+    }
+
+    private void deleteQuietly(String key) {
+        try {
+            blobStore.delete(key);
+        } catch (Exception e) {
+            log.warn("Could not delete blob {}", key, e);
+        }
+    }
+}
@@ -0,0 +1,13 @@
+package ai.docbrain.service.fileManagement.storage;
+
+/**
+ * How hard the local blob store pushes data to disk before a blob is considered committed.
+ */
+public enum FsyncPolicy {
+    // Rely on the OS page cache, fastest but a power loss can lose recently committed blobs
+    NEVER,
+    // fsync the blob file before it is renamed into place
+    FILE,
+    // fsync the blob file and the shard directory so the rename itself is durable
+    FILE_AND_DIRECTORY
+}
@@ -0,0 +1,152 @@
+package ai.docbrain.service.fileManagement.storage;
+
+import lombok.extern.log4j.Log4j2;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedOutputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.SeekableByteChannel;
+import java.nio.file.*;
+import java.util.UUID;
+import java.util.regex.Pattern;
+
+/**
+ * {@link BlobStore} backed by the local file system.
+ * <p>
+ * Blobs live under {@code root/ab/cd/<key>} where {@code ab} and {@code cd} are the first
+ * four characters of the key, which keeps every directory small even with millions of documents.
+ * Writes go to {@code root/tmp} first and are moved into place with an atomic rename on commit.
+ */
+@Log4j2
+@Component
+public class LocalFileSystemBlobStore implements BlobStore {
+
+    private static final Pattern KEY_PATTERN = Pattern.compile("[0-9a-f]{32}");
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final Path root;
+    private final Path tmpDir;
+    private final FsyncPolicy fsyncPolicy;
+
+    public LocalFileSystemBlobStore(@Value("${app.storage.local.root:./data/blobs}") String root,
+                                    @Value("${app.storage.local.fsync:FILE_AND_DIRECTORY}") FsyncPolicy fsyncPolicy) throws IOException {
+        this.root = Paths.get(root).toAbsolutePath().normalize();
+        this.tmpDir = this.root.resolve("tmp");
+        this.fsyncPolicy = fsyncPolicy;
+        Files.createDirectories(tmpDir);
+    }
+
+    @Override
+    public PendingBlob create() throws IOException {
+        String key = UUID.randomUUID().toString().replace("-", "");
+        Path tmpFile = tmpDir.resolve(key + ".part");
+        FileChannel channel = FileChannel.open(tmpFile, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+        return new LocalPendingBlob(key, tmpFile, channel);
+    }
+
+    @Override
+    public InputStream open(String key) throws IOException {
+        return Files.newInputStream(resolve(key), StandardOpenOption.READ);
+    }
+
+    @Override
+    public SeekableByteChannel openChannel(String key) throws IOException {
+        return Files.newByteChannel(resolve(key), StandardOpenOption.READ);
+    }
+
+    @Override
+    public long size(String key) throws IOException {
+        return Files.size(resolve(key));
+    }
+
+    @Override
+    public boolean exists(String key) {
+        return key != null && KEY_PATTERN.matcher(key).matches() && Files.exists(resolve(key));
+    }
+
+    @Override
+    public void delete(String key) throws IOException {
+        Files.deleteIfExists(resolve(key));
+    }
+
+    private Path resolve(String key) {
+        if (key == null || !KEY_PATTERN.matcher(key).matches()) {
+            throw new IllegalArgumentException("Invalid blob key: " + key);
+        }
+        return root.resolve(key.substring(0, 2)).resolve(key.substring(2, 4)).resolve(key);
+    }
+
+    private void fsyncDirectory(Path directory) {
+        try (FileChannel dir = FileChannel.open(directory, StandardOpenOption.READ)) {
+            dir.force(true);
+        } catch (IOException e) {
+            // Not every platform allows opening a directory, the file itself is already synced
+            log.debug("Could not fsync directory {}", directory, e);
+        }
+    }
+
+    private class LocalPendingBlob implements PendingBlob {
+
+        private final String key;
+        private final Path tmpFile;
+        private final FileChannel channel;
+        private final OutputStream outputStream;
+        private boolean committed = false;
+
+        LocalPendingBlob(String key, Path tmpFile, FileChannel channel) {
+            this.key = key;
+            this.tmpFile = tmpFile;
+            this.channel = channel;
+            // Callers usually wrap this in a CipherOutputStream which closes its delegate,
+            // so closing only flushes and the channel stays open until commit
+            this.outputStream = new FilterOutputStream(new BufferedOutputStream(Channels.newOutputStream(channel), BUFFER_SIZE)) {
+                @Override
+                public void write(byte[] b, int off, int len) throws IOException {
+                    out.write(b, off, len);
+                }
+
+                @Override
+                public void close() throws IOException {
+                    flush();
+                }
+            };
+        }
+
+        @Override
+        public OutputStream outputStream() {
+            return outputStream;
+        }
+
+        @Override
+        public String commit() throws IOException {
+            outputStream.flush();
+            if (fsyncPolicy != FsyncPolicy.NEVER) {
+                channel.force(true);
+            }
+            channel.close();
+
+            Path target = resolve(key);
+            Files.createDirectories(target.getParent());
+            Files.move(tmpFile, target, StandardCopyOption.ATOMIC_MOVE);
+            if (fsyncPolicy == FsyncPolicy.FILE_AND_DIRECTORY) {
+                fsyncDirectory(target.getParent());
+            }
+            committed = true;
+            return key;
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (!committed) {
+                channel.close();
+                Files.deleteIfExists(tmpFile);
+            }
+        }
+    }
+}
@@ -0,0 +1,26 @@
+package ai.docbrain.service.fileManagement.storage;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * A blob that is being written. Closing it without calling {@link #commit()} discards the data.
+ */
+public interface PendingBlob extends Closeable {
+
+    /**
+     * Stream to write the blob content to. Closing this stream does not commit the blob.
+     */
+    OutputStream outputStream();
+
+    /**
+     * Makes the blob durable according to the store's fsync policy and publishes it.
+     *
+     * @return the key under which the blob can be opened
+     */
+    String commit() throws IOException;
+
+    @Override
+    void close() throws IOException;
+}
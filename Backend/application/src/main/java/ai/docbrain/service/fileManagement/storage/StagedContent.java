@@ -0,0 +1,15 @@
+package ai.docbrain.service.fileManagement.storage;
+
+/**
+ * Content that is already encrypted into the blob store but not yet recorded in
+ * {@code document_contents}. Nothing references the blob until it is, so staging can run
+ * outside of any transaction and in parallel.
+ *
+ * @param storageKey Key of the new blob
+ * @param size Plaintext size in bytes
+ * @param contentHash Hex SHA-256 of the plaintext
+ * @param codec Codec applied before encryption
+ * @param storedSize Encrypted size in the blob store
+ */
+public record StagedContent(String storageKey, long size, String contentHash, byte codec, long storedSize) {
+}
@@ -0,0 +1,12 @@
+package ai.docbrain.service.fileManagement.storage;
+
+/**
+ * An uploaded file whose content and name are encrypted and ready to be persisted.
+ *
+ * @param originalFilename The file name as sent by the client, for the activity log
+ * @param encryptedFilename The sanitized and encrypted file name, as stored in {@code documents.name}
+ * @param contentType The validated content type
+ * @param content The staged content
+ */
+public record StagedUpload(String originalFilename, String encryptedFilename, String contentType, StagedContent content) {
+}
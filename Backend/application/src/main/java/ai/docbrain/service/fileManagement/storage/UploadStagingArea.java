@@ -0,0 +1,188 @@
+package ai.docbrain.service.fileManagement.storage;
+
+import ai.docbrain.service.utils.EncryptionUtil;
+import ai.docbrain.service.utils.exception.DocumentException;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.SequenceInputStream;
+import java.io.UncheckedIOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.*;
+import java.nio.file.attribute.FileTime;
+import java.util.*;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+/**
+ * Local disk staging of the chunks of resumable uploads, one directory per upload session.
+ * <p>
+ * Chunks are encrypted like stored content, so a file waiting to be completed is never on disk
+ * in plaintext. A chunk is written to a temporary file and renamed into place once it is
+ * complete and synced, which lets clients send chunks in parallel, out of order and again
+ * after a failure without ever exposing a half written chunk.
+ */
+@Log4j2
+@Component
+public class UploadStagingArea {
+
+    private static final Pattern CHUNK_PATTERN = Pattern.compile("(\\d+)\\.chunk");
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final Path root;
+    private final EncryptionUtil encryptionUtil;
+
+    public UploadStagingArea(@Value("${app.resumable-upload.staging-dir:./data/uploads}") String root,
+                             EncryptionUtil encryptionUtil) throws IOException {
+        this.root = Paths.get(root).toAbsolutePath().normalize();
+        this.encryptionUtil = encryptionUtil;
+        Files.createDirectories(this.root);
+    }
+
+    /**
+     * Stores one chunk, replacing an earlier copy of it.
+     *
+     * @param maxLength Bytes the chunk may have, reading stops one byte after it
+     * @return the number of bytes read from {@code data}, the chunk is only kept when it equals {@code maxLength}
+     */
+    public long writeChunk(UUID sessionId, int index, InputStream data, long maxLength) throws DocumentException {
+        Path dir = root.resolve(sessionId.toString());
+        Path tmpFile = dir.resolve(index + "." + UUID.randomUUID() + ".tmp");
+        long length = 0;
+        try {
+            Files.createDirectories(dir);
+            try (FileChannel channel = FileChannel.open(tmpFile, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE)) {
+                // Closing the cipher stream must not close the channel, it is synced afterwards
+                OutputStream target = new FilterOutputStream(Channels.newOutputStream(channel)) {
+                    @Override
+                    public void write(byte[] b, int off, int len) throws IOException {
+                        out.write(b, off, len);
+                    }
+
+                    @Override
+                    public void close() throws IOException {
+                        flush();
+                    }
+                };
+                OutputStream encrypted = encryptionUtil.encryptingStream(target);
+                byte[] buffer = new byte[BUFFER_SIZE];
+                int n;
+                while (length <= maxLength && (n = data.read(buffer, 0, (int) Math.min(buffer.length, maxLength + 1 - length))) > 0) {
+                    encrypted.write(buffer, 0, n);
+                    length += n;
+                }
+                encrypted.close();
+                if (length == maxLength) {
+                    channel.force(false);
+                }
+            }
+            if (length == maxLength) {
+                Files.move(tmpFile, dir.resolve(index + ".chunk"), StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            }
+            return length;
+        } catch (Exception e) {
+            throw new DocumentException("Failed to stage chunk " + index + " of upload " + sessionId, e);
+        } finally {
+            deleteQuietly(tmpFile);
+        }
+    }
+
+    /**
+     * Indexes of the chunks staged so far, in ascending order.
+     */
+    public List<Integer> listChunks(UUID sessionId) throws IOException {
+        Path dir = root.resolve(sessionId.toString());
+        if (!Files.isDirectory(dir)) {
+            return List.of();
+        }
+        List<Integer> indexes = new ArrayList<>();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(dir, "*.chunk")) {
+            for (Path file : files) {
+                Matcher matcher = CHUNK_PATTERN.matcher(file.getFileName().toString());
+                if (matcher.matches()) {
+                    indexes.add(Integer.parseInt(matcher.group(1)));
+                }
+            }
+        }
+        Collections.sort(indexes);
+        return indexes;
+    }
+
+    /**
+     * Opens the plaintext of all chunks as one stream. Each chunk is only opened once the
+     * previous one is read to its end, so just one chunk file is open at a time.
+     */
+    public InputStream openAssembled(UUID sessionId, int chunkCount) {
+        Path dir = root.resolve(sessionId.toString());
+        Enumeration<InputStream> chunks = new Enumeration<>() {
+            private int next = 0;
+
+            @Override
+            public boolean hasMoreElements() {
+                return next < chunkCount;
+            }
+
+            @Override
+            public InputStream nextElement() {
+                if (next >= chunkCount) {
+                    throw new NoSuchElementException();
+                }
+                Path chunk = dir.resolve(next++ + ".chunk");
+                try {
+                    return encryptionUtil.decryptingStream(Files.newInputStream(chunk));
+                } catch (Exception e) {
+                    throw new UncheckedIOException(new DocumentException("Failed to open staged chunk " + chunk.getFileName(), e));
+                }
+            }
+        };
+        return new SequenceInputStream(chunks);
+    }
+
+    /**
+     * Directories of sessions whose chunks were last touched before {@code cutoff}.
+     */
+    public List<UUID> findSessionsIdleSince(FileTime cutoff) throws IOException {
+        List<UUID> sessionIds = new ArrayList<>();
+        try (Stream<Path> dirs = Files.list(root)) {
+            for (Path dir : (Iterable<Path>) dirs::iterator) {
+                try {
+                    UUID sessionId = UUID.fromString(dir.getFileName().toString());
+                    if (Files.getLastModifiedTime(dir).compareTo(cutoff) < 0) {
+                        sessionIds.add(sessionId);
+                    }
+                } catch (IllegalArgumentException e) {
+                    // Not a session directory
+                }
+            }
+        }
+        return sessionIds;
+    }
+
+    public void delete(UUID sessionId) {
+        Path dir = root.resolve(sessionId.toString());
+        if (!Files.exists(dir)) {
+            return;
+        }
+        try (Stream<Path> files = Files.list(dir)) {
+            files.forEach(this::deleteQuietly);
+        } catch (IOException e) {
+            log.warn("Failed to list staged chunks of upload {}", sessionId, e);
+        }
+        deleteQuietly(dir);
+    }
+
+    private void deleteQuietly(Path path) {
+        try {
+            Files.deleteIfExists(path);
+        } catch (IOException e) {
+            log.warn("Failed to delete staged upload file {}", path, e);
+        }
+    }
+}
@@ -0,0 +1,16 @@
+package ai.docbrain.service.search.DTO;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class SearchResponseDto {
+    private String query;
+    private List<SearchResultDto> results; // One entry per document, best first
+    private long tookMs;
+}
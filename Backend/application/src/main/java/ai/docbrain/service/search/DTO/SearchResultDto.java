@@ -0,0 +1,19 @@
+package ai.docbrain.service.search.DTO;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class SearchResultDto {
+    private Long documentId;
+    private String name;
+    private String type;
+    private Long folderId;
+    private float score; // BM25 score of the best matching chunk
+    private List<String> snippets; // Best matches first, terms wrapped in <b></b>
+}
@@ -0,0 +1,18 @@
+package ai.docbrain.service.search.DTO;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class SemanticSearchHitDto {
+    private Long documentId;
+    private String name;
+    private String type;
+    private Long folderId;
+    private Integer chunkOrder;
+    private float score; // (1 + cosine similarity) / 2 of the chunk and the query
+    private String text; // Start of the chunk text
+}
@@ -0,0 +1,16 @@
+package ai.docbrain.service.search.DTO;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class SemanticSearchResponseDto {
+    private String query;
+    private List<SemanticSearchHitDto> hits; // One entry per chunk, nearest first
+    private long tookMs;
+}
@@ -0,0 +1,442 @@
+package ai.docbrain.service.search;
+
+import ai.docbrain.domain.fileManagement.Document;
+import ai.docbrain.service.AI.DTO.DocumentChunkText;
+import ai.docbrain.service.AI.IDocumentChunkRepository;
+import ai.docbrain.service.fileManagement.IDocumentRepository;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.log4j.Log4j2;
+import org.apache.lucene.analysis.Analyzer;
+import org.apache.lucene.analysis.standard.StandardAnalyzer;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.document.FieldType;
+import org.apache.lucene.document.KnnFloatVectorField;
+import org.apache.lucene.document.LongPoint;
+import org.apache.lucene.document.StoredField;
+import org.apache.lucene.document.StringField;
+import org.apache.lucene.document.TextField;
+import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.IndexOptions;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.index.SegmentInfos;
+import org.apache.lucene.index.StoredFields;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.index.VectorSimilarityFunction;
+import org.apache.lucene.search.BooleanClause;
+import org.apache.lucene.search.BooleanQuery;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.KnnFloatVectorQuery;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.ScoreDoc;
+import org.apache.lucene.search.SearcherManager;
+import org.apache.lucene.search.TopDocs;
+import org.apache.lucene.search.uhighlight.UnifiedHighlighter;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.store.FSDirectory;
+import org.apache.lucene.util.VectorUtil;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Full text and vector index of the extracted text of a company's documents, one Lucene index per
+ * company on local disk, memory mapped by {@link FSDirectory}.
+ * <p>
+ * Every chunk is one index entry and the summary and keywords of a document one more, all tagged
+ * with the document and folder so hits can be grouped and filtered by folder access. Chunk entries
+ * also hold the chunk embedding in an HNSW graph for nearest neighbour search. Updates are
+ * applied on a single background thread once the transaction that changed the database has
+ * committed, and are visible to searches right away. They are made durable every few seconds, an
+ * index lost or damaged in between can always be rebuilt from the database.
+ */
+@Log4j2
+@Component
+public class SearchIndex {
+
+    static final String DOCUMENT_ID = "documentId";
+    static final String FOLDER_ID = "folderId";
+    static final String CHUNK_ORDER = "chunkOrder";
+    static final String CONTENT = "content";
+    static final String KEYWORDS = "keywords";
+    static final String VECTOR = "vector";
+
+    // Stored with every commit, an index of an older format is rebuilt when opened
+    private static final String FORMAT_KEY = "docbrain.format";
+    private static final String FORMAT = "2";
+    private static final int VECTOR_SNIPPET_LENGTH = 300;
+
+    // Documents in the root folder, LongPoint has no null
+    private static final long ROOT_FOLDER = -1;
+    private static final int REBUILD_PAGE_SIZE = 1000;
+
+    // Offsets in the postings let the highlighter build snippets without analysing the text again
+    private static final FieldType CONTENT_TYPE = new FieldType(TextField.TYPE_STORED);
+
+    static {
+        CONTENT_TYPE.setIndexOptions(IndexOptions.DOCS_AND_FREQS_AND_POSITIONS_AND_OFFSETS);
+        CONTENT_TYPE.freeze();
+    }
+
+    private final IDocumentRepository documentRepository;
+    private final IDocumentChunkRepository chunkRepository;
+    private final Path root;
+    private final int vectorDimensions;
+    private final Analyzer analyzer = new StandardAnalyzer();
+    private final Map<Long, CompanyIndex> indexes = new ConcurrentHashMap<>();
+    // Not committed while being rebuilt, a crash then leaves the previous index in place
+    private final Set<Long> rebuilding = ConcurrentHashMap.newKeySet();
+    private final ExecutorService indexer = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "search-indexer");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    public SearchIndex(IDocumentRepository documentRepository,
+                       IDocumentChunkRepository chunkRepository,
+                       @Value("${app.search.index-dir:./data/search}") String root,
+                       @Value("${app.search.vector-dimensions:384}") int vectorDimensions) throws IOException {
+        this.documentRepository = documentRepository;
+        this.chunkRepository = chunkRepository;
+        this.root = Paths.get(root).toAbsolutePath().normalize();
+        this.vectorDimensions = vectorDimensions;
+        Files.createDirectories(this.root);
+    }
+
+    public Analyzer analyzer() {
+        return analyzer;
+    }
+
+    /**
+     * Searches a company's index.
+     *
+     * @param query The parsed user query, also used to pick the snippets
+     * @param accessFilter Restricts the hits to what the caller may see, see {@link #folderFilter}
+     * @param maxHits Number of chunk hits to return
+     * @return the best hits, highest score first
+     */
+    public List<ChunkHit> search(Long companyId, Query query, Query accessFilter, int maxHits) throws IOException {
+        SearcherManager searchers = open(companyId).searchers();
+        IndexSearcher searcher = searchers.acquire();
+        try {
+            Query filtered = new BooleanQuery.Builder()
+                    .add(query, BooleanClause.Occur.MUST)
+                    .add(accessFilter, BooleanClause.Occur.FILTER)
+                    .build();
+            TopDocs topDocs = searcher.search(filtered, maxHits);
+            String[] snippets = UnifiedHighlighter.builder(searcher, analyzer).build()
+                    .highlight(CONTENT, query, topDocs, 1);
+
+            StoredFields storedFields = searcher.storedFields();
+            List<ChunkHit> hits = new ArrayList<>(topDocs.scoreDocs.length);
+            for (int i = 0; i < topDocs.scoreDocs.length; i++) {
+                ScoreDoc scoreDoc = topDocs.scoreDocs[i];
+                org.apache.lucene.document.Document stored = storedFields.document(scoreDoc.doc, Set.of(DOCUMENT_ID, CHUNK_ORDER));
+                Number chunkOrder = stored.getField(CHUNK_ORDER) == null ? null : stored.getField(CHUNK_ORDER).numericValue();
+                hits.add(new ChunkHit(Long.parseLong(stored.get(DOCUMENT_ID)),
+                        chunkOrder == null ? null : chunkOrder.intValue(), scoreDoc.score, snippets[i]));
+            }
+            return hits;
+        } finally {
+            searchers.release(searcher);
+        }
+    }
+
+    /**
+     * Finds the chunks whose embeddings are nearest to the query vector. The access filter is
+     * applied while walking the graph, so the hits are the nearest chunks the caller may see.
+     *
+     * @param vector The embedded query, of {@code app.search.vector-dimensions} values
+     * @param accessFilter Restricts the hits to what the caller may see, see {@link #folderFilter}
+     * @return the nearest chunks, nearest first, with the start of their text as snippet
+     */
+    public List<ChunkHit> searchNearest(Long companyId, float[] vector, Query accessFilter, int maxHits) throws IOException {
+        float[] unit = unitVector(vector);
+        if (unit == null) {
+            return List.of();
+        }
+        SearcherManager searchers = open(companyId).searchers();
+        IndexSearcher searcher = searchers.acquire();
+        try {
+            TopDocs topDocs = searcher.search(new KnnFloatVectorQuery(VECTOR, unit, maxHits, accessFilter), maxHits);
+            StoredFields storedFields = searcher.storedFields();
+            List<ChunkHit> hits = new ArrayList<>(topDocs.scoreDocs.length);
+            for (ScoreDoc scoreDoc : topDocs.scoreDocs) {
+                org.apache.lucene.document.Document stored = storedFields.document(scoreDoc.doc, Set.of(DOCUMENT_ID, CHUNK_ORDER, CONTENT));
+                Number chunkOrder = stored.getField(CHUNK_ORDER) == null ? null : stored.getField(CHUNK_ORDER).numericValue();
+                String content = stored.get(CONTENT);
+                hits.add(new ChunkHit(Long.parseLong(stored.get(DOCUMENT_ID)), chunkOrder == null ? null : chunkOrder.intValue(),
+                        scoreDoc.score, content == null || content.length() <= VECTOR_SNIPPET_LENGTH
+                        ? content : content.substring(0, VECTOR_SNIPPET_LENGTH)));
+            }
+            return hits;
+        } finally {
+            searchers.release(searcher);
+        }
+    }
+
+    /**
+     * Matches entries in the given folders only, documents in the root folder are excluded.
+     */
+    public static Query folderFilter(Collection<Long> folderIds) {
+        return LongPoint.newSetQuery(FOLDER_ID, folderIds);
+    }
+
+    /**
+     * Matches entries outside the given folders, root folder included.
+     */
+    public static Query excludedFoldersFilter(Collection<Long> folderIds) {
+        return new BooleanQuery.Builder()
+                .add(LongPoint.newRangeQuery(FOLDER_ID, Long.MIN_VALUE, Long.MAX_VALUE), BooleanClause.Occur.FILTER)
+                .add(LongPoint.newSetQuery(FOLDER_ID, folderIds), BooleanClause.Occur.MUST_NOT)
+                .build();
+    }
+
+    /**
+     * Indexes the document's current summary, keywords and chunks once the running transaction commits.
+     */
+    public void reindexAfterCommit(Long companyId, Long documentId) {
+        afterCommit(() -> reindex(companyId, documentId));
+    }
+
+    /**
+     * Drops the document from the index once the running transaction commits.
+     */
+    public void removeAfterCommit(Long companyId, Long documentId) {
+        afterCommit(() -> {
+            CompanyIndex index = open(companyId);
+            index.writer().deleteDocuments(new Term(DOCUMENT_ID, documentId.toString()));
+            index.searchers().maybeRefresh();
+        });
+    }
+
+    /**
+     * Same as {@link #removeAfterCommit(Long, Long)} for many documents, with a single refresh.
+     */
+    public void removeAllAfterCommit(Long companyId, Collection<Long> documentIds) {
+        if (documentIds.isEmpty()) {
+            return;
+        }
+        Term[] terms = documentIds.stream().map(id -> new Term(DOCUMENT_ID, id.toString())).toArray(Term[]::new);
+        afterCommit(() -> {
+            CompanyIndex index = open(companyId);
+            index.writer().deleteDocuments(terms);
+            index.searchers().maybeRefresh();
+        });
+    }
+
+    /**
+     * Queues a rebuild of the company's index from the database. Searches keep seeing the old
+     * index until the rebuild is complete.
+     */
+    public void rebuild(Long companyId) {
+        indexer.execute(() -> {
+            rebuilding.add(companyId);
+            try {
+                rebuildNow(companyId);
+            } catch (Exception e) {
+                log.error("Failed to rebuild the search index of company {}", companyId, e);
+            } finally {
+                rebuilding.remove(companyId);
+            }
+        });
+    }
+
+    @Scheduled(fixedDelayString = "${app.search.commit-interval-ms:5000}", initialDelay = 5000)
+    public void commit() {
+        indexes.forEach((companyId, index) -> {
+            try {
+                if (!rebuilding.contains(companyId) && index.writer().hasUncommittedChanges()) {
+                    index.writer().commit();
+                }
+            } catch (IOException e) {
+                log.error("Failed to commit the search index of company {}", companyId, e);
+            }
+        });
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        indexer.shutdown();
+        indexes.forEach((companyId, index) -> {
+            try {
+                index.searchers().close();
+                index.writer().close();
+                index.directory().close();
+            } catch (IOException e) {
+                log.warn("Failed to close the search index of company {}", companyId, e);
+            }
+        });
+    }
+
+    private void reindex(Long companyId, Long documentId) throws IOException {
+        CompanyIndex index = open(companyId);
+        Term term = new Term(DOCUMENT_ID, documentId.toString());
+        Document document = documentRepository.findById(documentId).orElse(null);
+        if (document == null) {
+            index.writer().deleteDocuments(term);
+        } else {
+            index.writer().updateDocuments(term, toEntries(document, chunkRepository.findTextWithVectorByDocumentId(documentId)));
+        }
+        index.searchers().maybeRefresh();
+    }
+
+    private void rebuildNow(Long companyId) throws IOException {
+        CompanyIndex index = open(companyId);
+        IndexWriter writer = index.writer();
+        writer.deleteAll();
+
+        Map<Long, Document> documentsById = new HashMap<>();
+        for (Document document : documentRepository.findAllByCompanyId(companyId)) {
+            documentsById.put(document.getId(), document);
+            writer.addDocument(documentEntry(document));
+        }
+        long chunks = 0;
+        long afterChunkId = 0;
+        List<DocumentChunkText> page;
+        do {
+            page = chunkRepository.findTextWithVectorByCompanyId(companyId, afterChunkId, REBUILD_PAGE_SIZE);
+            for (DocumentChunkText chunk : page) {
+                Document document = documentsById.get(chunk.documentId());
+                if (document != null) {
+                    writer.addDocument(chunkEntry(document, chunk));
+                    chunks++;
+                }
+                afterChunkId = chunk.id();
+            }
+        } while (page.size() == REBUILD_PAGE_SIZE);
+
+        writer.setLiveCommitData(Map.of(FORMAT_KEY, FORMAT).entrySet());
+        writer.commit();
+        index.searchers().maybeRefresh();
+        log.info("Rebuilt the search index of company {} from {} documents and {} chunks", companyId, documentsById.size(), chunks);
+    }
+
+    private List<org.apache.lucene.document.Document> toEntries(Document document, List<DocumentChunkText> chunks) {
+        List<org.apache.lucene.document.Document> entries = new ArrayList<>(chunks.size() + 1);
+        entries.add(documentEntry(document));
+        for (DocumentChunkText chunk : chunks) {
+            entries.add(chunkEntry(document, chunk));
+        }
+        return entries;
+    }
+
+    private static org.apache.lucene.document.Document documentEntry(Document document) {
+        org.apache.lucene.document.Document entry = baseEntry(document);
+        if (document.getSummary() != null) {
+            entry.add(new Field(CONTENT, document.getSummary(), CONTENT_TYPE));
+        }
+        if (document.getKeywords() != null) {
+            entry.add(new TextField(KEYWORDS, document.getKeywords().replace(',', ' '), Field.Store.NO));
+        }
+        return entry;
+    }
+
+    private org.apache.lucene.document.Document chunkEntry(Document document, DocumentChunkText chunk) {
+        org.apache.lucene.document.Document entry = baseEntry(document);
+        if (chunk.chunkOrder() != null) {
+            entry.add(new StoredField(CHUNK_ORDER, chunk.chunkOrder()));
+        }
+        if (chunk.content() != null) {
+            entry.add(new Field(CONTENT, chunk.content(), CONTENT_TYPE));
+        }
+        float[] unit = chunk.vector() == null ? null : unitVector(chunk.vector());
+        if (unit != null) {
+            entry.add(new KnnFloatVectorField(VECTOR, unit, VectorSimilarityFunction.DOT_PRODUCT));
+        }
+        return entry;
+    }
+
+    /**
+     * @return the vector scaled to unit length as dot product similarity needs, null if it has the
+     * wrong number of dimensions or no direction
+     */
+    private float[] unitVector(float[] vector) {
+        if (vector.length != vectorDimensions || VectorUtil.dotProduct(vector, vector) == 0) {
+            return null;
+        }
+        return VectorUtil.l2normalize(vector.clone());
+    }
+
+    private static org.apache.lucene.document.Document baseEntry(Document document) {
+        org.apache.lucene.document.Document entry = new org.apache.lucene.document.Document();
+        entry.add(new StringField(DOCUMENT_ID, document.getId().toString(), Field.Store.YES));
+        entry.add(new LongPoint(FOLDER_ID, document.getFolderId() == null ? ROOT_FOLDER : document.getFolderId()));
+        return entry;
+    }
+
+    private CompanyIndex open(Long companyId) {
+        return indexes.computeIfAbsent(companyId, id -> {
+            try {
+                Directory directory = FSDirectory.open(root.resolve("company-" + id));
+                boolean created = !DirectoryReader.indexExists(directory);
+                boolean outdated = !created && !FORMAT.equals(SegmentInfos.readLatestCommit(directory).getUserData().get(FORMAT_KEY));
+                IndexWriter writer = new IndexWriter(directory, new IndexWriterConfig(analyzer));
+                if (created) {
+                    // First use of search for this company, or the index was lost
+                    writer.commit();
+                }
+                if (created || outdated) {
+                    // The rebuild marks the index current once it is complete
+                    rebuild(id);
+                } else {
+                    writer.setLiveCommitData(Map.of(FORMAT_KEY, FORMAT).entrySet());
+                }
+                return new CompanyIndex(directory, writer, new SearcherManager(writer, null));
+            } catch (IOException e) {
+                throw new UncheckedIOException("Failed to open the search index of company " + id, e);
+            }
+        });
+    }
+
+    private void afterCommit(IndexTask task) {
+        Runnable submit = () -> indexer.execute(() -> {
+            try {
+                task.run();
+            } catch (Exception e) {
+                log.error("Failed to update the search index", e);
+            }
+        });
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    submit.run();
+                }
+            });
+        } else {
+            submit.run();
+        }
+    }
+
+    /**
+     * A chunk, or the summary of a document when {@code chunkOrder} is null, matching a query.
+     */
+    public record ChunkHit(Long documentId, Integer chunkOrder, float score, String snippet) {
+    }
+
+    private record CompanyIndex(Directory directory, IndexWriter writer, SearcherManager searchers) {
+    }
+
+    @FunctionalInterface
+    private interface IndexTask {
+        void run() throws IOException;
+    }
+}
@@ -0,0 +1,200 @@
+package ai.docbrain.service.search;
+
+import ai.docbrain.domain.fileManagement.Document;
+import ai.docbrain.domain.users.User;
+import ai.docbrain.service.AI.EmbeddingClient;
+import ai.docbrain.service.fileManagement.FolderAccess;
+import ai.docbrain.service.fileManagement.FolderAccessResolver;
+import ai.docbrain.service.fileManagement.IDocumentRepository;
+import ai.docbrain.service.role.RoleService;
+import ai.docbrain.service.search.DTO.SearchResponseDto;
+import ai.docbrain.service.search.DTO.SearchResultDto;
+import ai.docbrain.service.search.DTO.SemanticSearchHitDto;
+import ai.docbrain.service.search.DTO.SemanticSearchResponseDto;
+import ai.docbrain.service.utils.EncryptionUtil;
+import ai.docbrain.service.utils.ServerConstants;
+import ai.docbrain.service.utils.ServerUtils;
+import ai.docbrain.service.utils.exception.InvalidDataException;
+import ai.docbrain.service.utils.exception.ResourceNotFoundException;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.log4j.Log4j2;
+import org.apache.lucene.queryparser.simple.SimpleQueryParser;
+import org.apache.lucene.search.BooleanClause;
+import org.apache.lucene.search.MatchAllDocsQuery;
+import org.apache.lucene.search.MatchNoDocsQuery;
+import org.apache.lucene.search.Query;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.IOException;
+import java.util.*;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Full text search over the extracted text, summaries and keywords of the caller's documents, and
+ * semantic search over their chunk embeddings.
+ * <p>
+ * Queries use the simple query syntax: terms are all required, {@code "quoted text"} is a phrase,
+ * {@code -term} excludes, {@code term*} matches a prefix and {@code a | b} either term. Semantic
+ * queries are plain text, embedded like the chunks were.
+ */
+@Log4j2
+@Service
+@RequiredArgsConstructor
+public class SearchService {
+
+    private static final int MAX_QUERY_LENGTH = 500;
+    private static final int MAX_LIMIT = 50;
+    private static final int SNIPPETS_PER_DOCUMENT = 3;
+    // Chunk hits fetched per requested document, several chunks of a document usually match
+    private static final int HITS_PER_RESULT = 5;
+
+    private final SearchIndex searchIndex;
+    private final IDocumentRepository documentRepository;
+    private final FolderAccessResolver folderAccessResolver;
+    private final RoleService roleService;
+    private final EncryptionUtil encryptionUtil;
+    private final EmbeddingClient embeddingClient;
+
+    @Transactional(readOnly = true)
+    public SearchResponseDto search(User caller, String queryText, int limit) throws IOException {
+        validate(caller, queryText, limit);
+        long start = System.nanoTime();
+
+        SimpleQueryParser parser = new SimpleQueryParser(searchIndex.analyzer(),
+                Map.of(SearchIndex.CONTENT, 1f, SearchIndex.KEYWORDS, 2f));
+        parser.setDefaultOperator(BooleanClause.Occur.MUST);
+        Query query = parser.parse(queryText);
+        if (query == null) {
+            // Only stop characters or operators
+            return new SearchResponseDto(queryText, List.of(), 0);
+        }
+
+        List<SearchIndex.ChunkHit> hits = searchIndex.search(caller.getCompanyId(), query, accessFilter(caller),
+                limit * HITS_PER_RESULT);
+
+        // Group the chunk hits by document, in the order of each document's best hit
+        Map<Long, List<SearchIndex.ChunkHit>> hitsByDocument = new LinkedHashMap<>();
+        for (SearchIndex.ChunkHit hit : hits) {
+            hitsByDocument.computeIfAbsent(hit.documentId(), id -> new ArrayList<>()).add(hit);
+        }
+        List<Long> documentIds = hitsByDocument.keySet().stream().limit(limit).toList();
+
+        Map<Long, Document> documentsById = findDocuments(caller, documentIds);
+        Map<Long, String> names = decryptNames(documentsById.values());
+
+        List<SearchResultDto> results = new ArrayList<>(documentsById.size());
+        for (Long documentId : documentIds) {
+            Document document = documentsById.get(documentId);
+            if (document == null) {
+                continue;
+            }
+            List<SearchIndex.ChunkHit> documentHits = hitsByDocument.get(documentId);
+            List<String> snippets = documentHits.stream()
+                    .map(SearchIndex.ChunkHit::snippet)
+                    .filter(Objects::nonNull)
+                    .limit(SNIPPETS_PER_DOCUMENT)
+                    .toList();
+            results.add(new SearchResultDto(documentId, names.get(documentId), document.getType(),
+                    document.getFolderId(), documentHits.get(0).score(), snippets));
+        }
+        return new SearchResponseDto(queryText, results, (System.nanoTime() - start) / 1_000_000);
+    }
+
+    /**
+     * Finds the chunks nearest in meaning to the query among the documents the caller can see.
+     */
+    @Transactional(readOnly = true)
+    public SemanticSearchResponseDto semanticSearch(User caller, String queryText, int limit) throws IOException {
+        validate(caller, queryText, limit);
+        long start = System.nanoTime();
+
+        List<SearchIndex.ChunkHit> hits = searchIndex.searchNearest(caller.getCompanyId(),
+                embeddingClient.embed(queryText), accessFilter(caller), limit);
+        Map<Long, Document> documentsById = findDocuments(caller,
+                hits.stream().map(SearchIndex.ChunkHit::documentId).distinct().toList());
+        Map<Long, String> names = decryptNames(documentsById.values());
+
+        List<SemanticSearchHitDto> results = new ArrayList<>(hits.size());
+        for (SearchIndex.ChunkHit hit : hits) {
+            Document document = documentsById.get(hit.documentId());
+            if (document != null) {
+                results.add(new SemanticSearchHitDto(document.getId(), names.get(document.getId()), document.getType(),
+                        document.getFolderId(), hit.chunkOrder(), hit.score(), hit.snippet()));
+            }
+        }
+        return new SemanticSearchResponseDto(queryText, results, (System.nanoTime() - start) / 1_000_000);
+    }
+
+    /**
+     * Queues a rebuild of the caller's company index from the database.
+     */
+    public ResponseEntity<String> rebuildIndex(User caller) {
+        if (caller == null) {
+            return ServerUtils.getResponseEntity(ServerConstants.USER_NOT_FOUND, HttpStatus.UNAUTHORIZED);
+        }
+        if (!roleService.isAdmin(caller) && !roleService.isSuperAdmin(caller)) {
+            return ServerUtils.getResponseEntity(ServerConstants.UNAUTHORIZED_ACCESS, HttpStatus.FORBIDDEN);
+        }
+        searchIndex.rebuild(caller.getCompanyId());
+        log.info("User {} requested a search index rebuild for company {}", caller.getId(), caller.getCompanyId());
+        return ServerUtils.getResponseEntity(ServerConstants.SEARCH_INDEX_REBUILD_STARTED, HttpStatus.ACCEPTED);
+    }
+
+    private static void validate(User caller, String queryText, int limit) {
+        if (caller == null) {
+            throw new ResourceNotFoundException("User not found");
+        }
+        if (queryText == null || queryText.isBlank() || queryText.length() > MAX_QUERY_LENGTH) {
+            throw new InvalidDataException("Query must have between 1 and " + MAX_QUERY_LENGTH + " characters");
+        }
+        if (limit < 1 || limit > MAX_LIMIT) {
+            throw new InvalidDataException("Limit must be between 1 and " + MAX_LIMIT);
+        }
+    }
+
+    /**
+     * Also drops hits of documents deleted since they were indexed.
+     */
+    private Map<Long, Document> findDocuments(User caller, List<Long> documentIds) {
+        return documentRepository.findAllByIdInAndCompanyId(documentIds, caller.getCompanyId())
+                .stream()
+                .collect(Collectors.toMap(Document::getId, Function.identity()));
+    }
+
+    private Map<Long, String> decryptNames(Collection<Document> documents) {
+        List<Document> ordered = List.copyOf(documents);
+        List<byte[]> names;
+        try {
+            names = encryptionUtil.decryptAll(ordered.stream()
+                    .map(document -> Base64.getDecoder().decode(document.getName()))
+                    .toList());
+        } catch (Exception e) {
+            throw new IllegalStateException("Failed to decrypt file names", e);
+        }
+        Map<Long, String> namesById = new HashMap<>();
+        for (int i = 0; i < ordered.size(); i++) {
+            namesById.put(ordered.get(i).getId(), new String(names.get(i)));
+        }
+        return namesById;
+    }
+
+    /**
+     * Same folder rules as the folder listing: clients see the folders linked to them, everybody
+     * else all folders but the ones blocked for them.
+     */
+    private Query accessFilter(User caller) {
+        FolderAccess access = folderAccessResolver.resolve(caller);
+        if (access.isUnrestricted()) {
+            return new MatchAllDocsQuery();
+        }
+        List<Long> folderIds = access.getListedFolderIds();
+        if (access.isOnlyListed()) {
+            return folderIds.isEmpty() ? new MatchNoDocsQuery() : SearchIndex.folderFilter(folderIds);
+        }
+        return SearchIndex.excludedFoldersFilter(folderIds);
+    }
+}
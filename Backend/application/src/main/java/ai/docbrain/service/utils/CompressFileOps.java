@@ -2,12 +2,101 @@ package ai.docbrain.service.utils;
 
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Set;
 import java.util.zip.DataFormatException;
 import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
 import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
 
 public class CompressFileOps {
 
+    // Codec ids as stored in the header of framed document content
+    public static final byte CODEC_NONE = 0;
+    public static final byte CODEC_DEFLATE = 1;
+
+    public static final int SAMPLE_SIZE = 64 * 1024;
+    private static final int MIN_SAMPLE_SIZE = 256;
+    // Compress only when the sample shrinks to at most this share of its size
+    private static final double MAX_RATIO = 0.9;
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private static final Set<String> COMPRESSED_TYPES = Set.of(
+            "image/jpeg", "image/png", "image/gif", "image/webp",
+            "application/zip", "application/gzip", "application/x-7z-compressed");
+
+    /**
+     * Picks the codec for stored content from its type and a sample of its first bytes.
+     * Already compressed types are never compressed again, everything else is only when
+     * a fast deflate of the sample shows it is worth it, which also skips PDFs whose
+     * streams are already Flate encoded.
+     */
+    public static byte chooseCodec(String contentType, byte[] sample) {
+        if (contentType != null && COMPRESSED_TYPES.contains(contentType.toLowerCase())) {
+            return CODEC_NONE;
+        }
+        if (sample.length < MIN_SAMPLE_SIZE) {
+            return CODEC_NONE;
+        }
+
+        Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+        try {
+            deflater.setInput(sample);
+            deflater.finish();
+            byte[] scratch = new byte[8 * 1024];
+            long compressed = 0;
+            while (!deflater.finished()) {
+                compressed += deflater.deflate(scratch);
+            }
+            return compressed <= sample.length * MAX_RATIO ? CODEC_DEFLATE : CODEC_NONE;
+        } finally {
+            deflater.end();
+        }
+    }
+
+    /**
+     * Wraps {@code out} so that everything written to it is encoded with the codec.
+     * Closing the returned stream finishes the encoding and closes {@code out}.
+     */
+    public static OutputStream encodingStream(byte codec, OutputStream out) {
+        return switch (codec) {
+            case CODEC_NONE -> out;
+            case CODEC_DEFLATE -> new DeflaterOutputStream(out, new Deflater(Deflater.DEFAULT_COMPRESSION), BUFFER_SIZE) {
+                @Override
+                public void close() throws IOException {
+                    try {
+                        super.close();
+                    } finally {
+                        def.end();
+                    }
+                }
+            };
+            default -> throw new IllegalArgumentException("Unknown codec " + codec);
+        };
+    }
+
+    /**
+     * Streaming counterpart of {@link #encodingStream(byte, OutputStream)}.
+     */
+    public static InputStream decodingStream(byte codec, InputStream in) throws IOException {
+        return switch (codec) {
+            case CODEC_NONE -> in;
+            case CODEC_DEFLATE -> new InflaterInputStream(in, new Inflater(), BUFFER_SIZE) {
+                @Override
+                public void close() throws IOException {
+                    try {
+                        super.close();
+                    } finally {
+                        inf.end();
+                    }
+                }
+            };
+            default -> throw new IOException("Unknown codec " + codec);
+        };
+    }
+
     public static byte[] compress(byte[] data) {
         Deflater deflater = new Deflater(Deflater.BEST_COMPRESSION);
         deflater.setInput(data);
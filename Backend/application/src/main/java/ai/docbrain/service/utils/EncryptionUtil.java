@@ -1,14 +1,29 @@
 package ai.docbrain.service.utils;
 
 
+import ai.docbrain.service.utils.crypto.FrameHeader;
+import ai.docbrain.service.utils.crypto.FramedCipher;
+import jakarta.annotation.PostConstruct;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.PropertySource;
 import org.springframework.stereotype.Component;
 
 import javax.crypto.Cipher;
+import javax.crypto.CipherInputStream;
 import javax.crypto.spec.IvParameterSpec;
 import javax.crypto.spec.SecretKeySpec;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.PushbackInputStream;
+import java.nio.channels.SeekableByteChannel;
+import java.security.GeneralSecurityException;
+import java.util.Arrays;
 import java.util.Base64;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.stream.IntStream;
 
 @Component
 @PropertySource("classpath:secretkeyAES.properties")
@@ -16,6 +31,11 @@ public class EncryptionUtil {
 
     private static final String ALGORITHM = "AES";
     private static final String TRANSFORMATION = "AES/CBC/PKCS5Padding";
+    // Smaller batches are decrypted on the calling thread, splitting them costs more than it saves
+    private static final int PARALLEL_THRESHOLD = 256;
+    // Values a parallel worker decrypts with one pooled Cipher pair
+    private static final int PARALLEL_CHUNK = 64;
+    private static final int CIPHER_POOL_SIZE = 2 * Runtime.getRuntime().availableProcessors();
 
     @Value("${secret}")
     private String secretKey;
@@ -23,29 +43,207 @@ public class EncryptionUtil {
     @Value("${initVector}")
     private String initVector;
 
-    private SecretKeySpec getSecretKeySpec() {
-        byte[] decodedKey = Base64.getDecoder().decode(secretKey);
-        return new SecretKeySpec(decodedKey, ALGORITHM);
-    }
+    @Value("${app.storage.crypto.frame-size:65536}")
+    private int frameSize;
+
+    // Decoded once, shared by the pooled ciphers and the framed cipher
+    private volatile KeyMaterial keyMaterial;
+
+    // Cipher.getInstance does a provider lookup, so Cipher pairs are pooled. They are not kept per
+    // thread, the virtual threads of the upload executor are new for every task.
+    private final BlockingQueue<CipherPair> cipherPool = new ArrayBlockingQueue<>(CIPHER_POOL_SIZE);
 
-    private IvParameterSpec getIvParameterSpec() {
-        byte[] iv = Base64.getDecoder().decode(initVector);
-        return new IvParameterSpec(iv);
+    @PostConstruct
+    void init() {
+        keyMaterial = KeyMaterial.decode(secretKey, initVector, frameSize);
     }
 
     public byte[] encrypt(byte[] inputData) throws Exception {
-        Cipher cipher = Cipher.getInstance(TRANSFORMATION);
-        SecretKeySpec keySpec = getSecretKeySpec();
-        IvParameterSpec ivSpec = getIvParameterSpec();
-        cipher.init(Cipher.ENCRYPT_MODE, keySpec, ivSpec);
-        return cipher.doFinal(inputData);
+        return doFinal(Cipher.ENCRYPT_MODE, inputData);
     }
 
     public byte[] decrypt(byte[] encryptedData) throws Exception {
+        return doFinal(Cipher.DECRYPT_MODE, encryptedData);
+    }
+
+    /**
+     * Decrypts many values, e.g. the file names of a listing. Large batches are spread over
+     * the common ForkJoin pool in chunks, each chunk with one pooled Cipher.
+     *
+     * @return the plaintexts in the order of {@code encryptedData}
+     */
+    public List<byte[]> decryptAll(List<byte[]> encryptedData) throws Exception {
+        KeyMaterial material = keyMaterial;
+        byte[][] results = new byte[encryptedData.size()][];
+        if (encryptedData.size() < PARALLEL_THRESHOLD) {
+            decryptRange(material, encryptedData, results, 0, results.length);
+            return Arrays.asList(results);
+        }
+
+        int chunks = (results.length + PARALLEL_CHUNK - 1) / PARALLEL_CHUNK;
+        try {
+            IntStream.range(0, chunks).parallel().forEach(chunk -> {
+                int from = chunk * PARALLEL_CHUNK;
+                try {
+                    decryptRange(material, encryptedData, results, from, Math.min(results.length, from + PARALLEL_CHUNK));
+                } catch (GeneralSecurityException e) {
+                    throw new DecryptionFailure(e);
+                }
+            });
+        } catch (DecryptionFailure e) {
+            throw e.failure;
+        }
+        return Arrays.asList(results);
+    }
+
+    /**
+     * Encrypts document content into {@code out} with the framed AES-GCM format of {@link FramedCipher}.
+     * Closing the returned stream writes the last frame and closes {@code out}.
+     */
+    public OutputStream encryptingStream(OutputStream out) throws Exception {
+        return encryptingStream(out, CompressFileOps.CODEC_NONE);
+    }
+
+    /**
+     * Same as {@link #encryptingStream(OutputStream)}, encoding the plaintext with a
+     * {@link CompressFileOps} codec before it is encrypted. The codec is recorded in the header.
+     */
+    public OutputStream encryptingStream(OutputStream out, byte codec) throws Exception {
+        return CompressFileOps.encodingStream(codec, framedCipher().encrypt(out, codec));
+    }
+
+    /**
+     * Decrypts document content, either framed or legacy CBC as written by {@link #encrypt(byte[])}.
+     * The format is told apart by the magic at the start of the framed header, framed content
+     * is also decoded with the codec named in the header.
+     */
+    public InputStream decryptingStream(InputStream in) throws Exception {
+        PushbackInputStream pushback = new PushbackInputStream(in, FrameHeader.LENGTH);
+        byte[] prefix = pushback.readNBytes(FrameHeader.LENGTH);
+        pushback.unread(prefix);
+        if (prefix.length == FrameHeader.LENGTH && FrameHeader.hasMagic(prefix, prefix.length)) {
+            byte codec = FrameHeader.parse(prefix).codec();
+            return CompressFileOps.decodingStream(codec, framedCipher().decrypt(pushback));
+        }
+
+        // The stream keeps this Cipher, so it cannot be one of the thread's own
+        KeyMaterial material = keyMaterial;
         Cipher cipher = Cipher.getInstance(TRANSFORMATION);
-        SecretKeySpec keySpec = getSecretKeySpec();
-        IvParameterSpec ivSpec = getIvParameterSpec();
-        cipher.init(Cipher.DECRYPT_MODE, keySpec, ivSpec);
-        return cipher.doFinal(encryptedData);
+        cipher.init(Cipher.DECRYPT_MODE, material.key(), material.iv());
+        return new CipherInputStream(pushback, cipher) {
+            @Override
+            public long skip(long n) throws IOException {
+                // CipherInputStream only skips what it has buffered, range reads need the full distance
+                long skipped = 0;
+                byte[] buffer = new byte[8192];
+                while (skipped < n) {
+                    int read = read(buffer, 0, (int) Math.min(buffer.length, n - skipped));
+                    if (read < 0) {
+                        break;
+                    }
+                    skipped += read;
+                }
+                return skipped;
+            }
+        };
+    }
+
+    /**
+     * Random access view of framed document content. Legacy CBC content and compressed content
+     * have to be read from the start with {@link #decryptingStream(InputStream)}.
+     */
+    public SeekableByteChannel decryptingChannel(SeekableByteChannel channel) throws Exception {
+        if (FramedCipher.readHeader(channel).codec() != CompressFileOps.CODEC_NONE) {
+            throw new IOException("Compressed content does not support random access");
+        }
+        return framedCipher().decrypt(channel);
+    }
+
+    private byte[] doFinal(int mode, byte[] input) throws GeneralSecurityException {
+        CipherPair ciphers = borrowCiphers();
+        try {
+            return ciphers.doFinal(mode, keyMaterial, input);
+        } finally {
+            returnCiphers(ciphers);
+        }
+    }
+
+    private void decryptRange(KeyMaterial material, List<byte[]> encryptedData, byte[][] results,
+                              int from, int to) throws GeneralSecurityException {
+        CipherPair ciphers = borrowCiphers();
+        try {
+            for (int i = from; i < to; i++) {
+                results[i] = ciphers.doFinal(Cipher.DECRYPT_MODE, material, encryptedData.get(i));
+            }
+        } finally {
+            returnCiphers(ciphers);
+        }
+    }
+
+    private CipherPair borrowCiphers() {
+        CipherPair ciphers = cipherPool.poll();
+        return ciphers != null ? ciphers : new CipherPair();
+    }
+
+    private void returnCiphers(CipherPair ciphers) {
+        // Pairs created beyond the pool size while it was empty are dropped
+        cipherPool.offer(ciphers);
+    }
+
+    private FramedCipher framedCipher() {
+        return keyMaterial.framedCipher();
+    }
+
+    /**
+     * Carries a checked decryption failure out of the parallel stream of {@link #decryptAll}.
+     */
+    private static final class DecryptionFailure extends RuntimeException {
+
+        private final GeneralSecurityException failure;
+
+        DecryptionFailure(GeneralSecurityException failure) {
+            super(failure);
+            this.failure = failure;
+        }
+    }
+
+    private record KeyMaterial(SecretKeySpec key, IvParameterSpec iv, FramedCipher framedCipher) {
+
+        static KeyMaterial decode(String secretKey, String initVector, int frameSize) {
+            SecretKeySpec key = new SecretKeySpec(Base64.getDecoder().decode(secretKey), ALGORITHM);
+            IvParameterSpec iv = new IvParameterSpec(Base64.getDecoder().decode(initVector));
+            return new KeyMaterial(key, iv, new FramedCipher(key, frameSize));
+        }
+    }
+
+    /**
+     * A pooled Cipher pair, used by one caller at a time and initialised again only when the key
+     * material changed. CBC with a fixed IV returns to its initial state after every doFinal, so
+     * no init is needed between calls.
+     */
+    private static final class CipherPair {
+
+        private Cipher encryptCipher;
+        private Cipher decryptCipher;
+        private KeyMaterial initialisedWith;
+
+        byte[] doFinal(int mode, KeyMaterial material, byte[] input) throws GeneralSecurityException {
+            if (initialisedWith != material) {
+                if (encryptCipher == null) {
+                    encryptCipher = Cipher.getInstance(TRANSFORMATION);
+                    decryptCipher = Cipher.getInstance(TRANSFORMATION);
+                }
+                encryptCipher.init(Cipher.ENCRYPT_MODE, material.key(), material.iv());
+                decryptCipher.init(Cipher.DECRYPT_MODE, material.key(), material.iv());
+                initialisedWith = material;
+            }
+            try {
+                return (mode == Cipher.ENCRYPT_MODE ? encryptCipher : decryptCipher).doFinal(input);
+            } catch (GeneralSecurityException | RuntimeException e) {
+                // Do not rely on the state a failed doFinal leaves behind
+                initialisedWith = null;
+                throw e;
+            }
+        }
     }
-}
\ No newline at end of file
+}
@@ -57,4 +57,5 @@ public class ServerConstants {
     public static final String PASSWORD_RESET_SUCCESS = "Password reset successfully";
     public static final String PASSWORD_SAME = "New password cannot be the same as the old password";
     public static final String DOCUMENT_TRACKED = "Operation tracked successfully";
+    public static final String SEARCH_INDEX_REBUILD_STARTED = "Search index rebuild started";
 }
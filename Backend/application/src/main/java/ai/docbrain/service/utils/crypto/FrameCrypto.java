@@ -0,0 +1,105 @@
+package ai.docbrain.service.utils.crypto;
+
+import javax.crypto.AEADBadTagException;
+import javax.crypto.Cipher;
+import javax.crypto.Mac;
+import javax.crypto.SecretKey;
+import javax.crypto.spec.GCMParameterSpec;
+import javax.crypto.spec.SecretKeySpec;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.util.Arrays;
+
+/**
+ * Seals and opens single frames of one ciphertext.
+ * <p>
+ * Each ciphertext gets its own AES key, derived from the master key and the random salt in the
+ * header, so nonces never repeat across documents. The 12 byte nonce is the random prefix from
+ * the header followed by the frame index. The AAD is the header, the frame index and a flag
+ * marking the last frame, which stops frames from being reordered, dropped or truncated.
+ * Instances are not thread safe, every stream or channel uses its own.
+ */
+final class FrameCrypto {
+
+    static final int TAG_LENGTH = 16;
+    private static final int TAG_BITS = TAG_LENGTH * 8;
+    private static final String TRANSFORMATION = "AES/GCM/NoPadding";
+    private static final byte[] KEY_INFO = "docbrain/frame-key/v1".getBytes(StandardCharsets.US_ASCII);
+
+    private final FrameHeader header;
+    private final SecretKey frameKey;
+    private final Cipher cipher;
+    private final byte[] nonce = new byte[12];
+    private final byte[] frameAad = new byte[5];
+
+    FrameCrypto(SecretKey masterKey, FrameHeader header) throws IOException {
+        this.header = header;
+        try {
+            this.frameKey = deriveKey(masterKey, header.salt());
+            this.cipher = Cipher.getInstance(TRANSFORMATION);
+        } catch (GeneralSecurityException e) {
+            throw new IOException("Could not initialise frame cipher", e);
+        }
+        System.arraycopy(header.noncePrefix(), 0, nonce, 0, FrameHeader.NONCE_PREFIX_LENGTH);
+    }
+
+    /**
+     * Encrypts {@code length} bytes of {@code input} into {@code output}, returns the ciphertext length.
+     */
+    int seal(long frameIndex, boolean last, byte[] input, int length, byte[] output) throws IOException {
+        try {
+            init(Cipher.ENCRYPT_MODE, frameIndex, last);
+            return cipher.doFinal(input, 0, length, output, 0);
+        } catch (GeneralSecurityException e) {
+            throw new IOException("Could not encrypt frame " + frameIndex, e);
+        }
+    }
+
+    /**
+     * Decrypts and authenticates {@code length} bytes of {@code input} into {@code output},
+     * returns the plaintext length.
+     */
+    int open(long frameIndex, boolean last, byte[] input, int length, byte[] output) throws IOException {
+        try {
+            init(Cipher.DECRYPT_MODE, frameIndex, last);
+            return cipher.doFinal(input, 0, length, output, 0);
+        } catch (AEADBadTagException e) {
+            throw new IOException("Frame " + frameIndex + " failed authentication", e);
+        } catch (GeneralSecurityException e) {
+            throw new IOException("Could not decrypt frame " + frameIndex, e);
+        }
+    }
+
+    private void init(int mode, long frameIndex, boolean last) throws GeneralSecurityException {
+        if (frameIndex < 0 || frameIndex > 0xFFFFFFFFL) {
+            throw new GeneralSecurityException("Frame index out of range: " + frameIndex);
+        }
+        ByteBuffer.wrap(nonce, FrameHeader.NONCE_PREFIX_LENGTH, 4).putInt((int) frameIndex);
+        ByteBuffer.wrap(frameAad).putInt((int) frameIndex).put((byte) (last ? 1 : 0));
+
+        cipher.init(mode, frameKey, new GCMParameterSpec(TAG_BITS, nonce));
+        cipher.updateAAD(header.encoded());
+        cipher.updateAAD(frameAad);
+    }
+
+    private static SecretKey deriveKey(SecretKey masterKey, byte[] salt) throws GeneralSecurityException {
+        byte[] master = masterKey.getEncoded();
+        // HKDF with a single expand round, enough for keys up to 32 bytes
+        Mac mac = Mac.getInstance("HmacSHA256");
+        mac.init(new SecretKeySpec(salt, "HmacSHA256"));
+        byte[] prk = mac.doFinal(master);
+
+        mac.init(new SecretKeySpec(prk, "HmacSHA256"));
+        mac.update(KEY_INFO);
+        mac.update((byte) 1);
+        byte[] okm = mac.doFinal();
+        try {
+            return new SecretKeySpec(okm, 0, master.length, "AES");
+        } finally {
+            Arrays.fill(prk, (byte) 0);
+            Arrays.fill(okm, (byte) 0);
+        }
+    }
+}
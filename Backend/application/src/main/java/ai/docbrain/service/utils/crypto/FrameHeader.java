@@ -0,0 +1,149 @@
+package ai.docbrain.service.utils.crypto;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.security.SecureRandom;
+import java.util.Arrays;
+
+/**
+ * Header written in front of every framed ciphertext.
+ * <pre>
+ * magic "DBFC" (4) | version (1) | codec (1) | frame size (4) | key salt (16) | nonce prefix (8)
+ * </pre>
+ * The whole header is bound into the AAD of every frame, so none of these fields can be changed
+ * without the frames failing authentication.
+ */
+public final class FrameHeader {
+
+    static final byte[] MAGIC = {'D', 'B', 'F', 'C'};
+    static final byte VERSION = 1;
+    static final int SALT_LENGTH = 16;
+    static final int NONCE_PREFIX_LENGTH = 8;
+    public static final int LENGTH = MAGIC.length + 1 + 1 + 4 + SALT_LENGTH + NONCE_PREFIX_LENGTH;
+
+    static final int MIN_FRAME_SIZE = 4 * 1024;
+    static final int MAX_FRAME_SIZE = 4 * 1024 * 1024;
+
+    private final byte codec;
+    private final int frameSize;
+    private final byte[] salt;
+    private final byte[] noncePrefix;
+    private final byte[] encoded;
+
+    private FrameHeader(byte codec, int frameSize, byte[] salt, byte[] noncePrefix) {
+        this.codec = codec;
+        this.frameSize = frameSize;
+        this.salt = salt;
+        this.noncePrefix = noncePrefix;
+        this.encoded = ByteBuffer.allocate(LENGTH)
+                .put(MAGIC)
+                .put(VERSION)
+                .put(codec)
+                .putInt(frameSize)
+                .put(salt)
+                .put(noncePrefix)
+                .array();
+    }
+
+    static FrameHeader create(byte codec, int frameSize, SecureRandom random) {
+        checkFrameSize(frameSize);
+        byte[] salt = new byte[SALT_LENGTH];
+        byte[] noncePrefix = new byte[NONCE_PREFIX_LENGTH];
+        random.nextBytes(salt);
+        random.nextBytes(noncePrefix);
+        return new FrameHeader(codec, frameSize, salt, noncePrefix);
+    }
+
+    static FrameHeader read(InputStream in) throws IOException {
+        byte[] bytes = in.readNBytes(LENGTH);
+        if (bytes.length < LENGTH) {
+            throw new IOException("Truncated ciphertext header");
+        }
+        return parse(bytes);
+    }
+
+    public static FrameHeader parse(byte[] bytes) throws IOException {
+        if (!hasMagic(bytes, bytes.length)) {
+            throw new IOException("Not a framed ciphertext");
+        }
+        ByteBuffer buffer = ByteBuffer.wrap(bytes, MAGIC.length, LENGTH - MAGIC.length);
+        byte version = buffer.get();
+        if (version != VERSION) {
+            throw new IOException("Unsupported ciphertext version " + version);
+        }
+        byte codec = buffer.get();
+        int frameSize = buffer.getInt();
+        if (frameSize < MIN_FRAME_SIZE || frameSize > MAX_FRAME_SIZE) {
+            throw new IOException("Invalid frame size " + frameSize);
+        }
+        byte[] salt = new byte[SALT_LENGTH];
+        byte[] noncePrefix = new byte[NONCE_PREFIX_LENGTH];
+        buffer.get(salt).get(noncePrefix);
+        return new FrameHeader(codec, frameSize, salt, noncePrefix);
+    }
+
+    /**
+     * Whether the first bytes of a ciphertext carry the framed format magic. Legacy CBC
+     * ciphertext is random bytes and only matches by a 1 in 2^32 chance.
+     */
+    public static boolean hasMagic(byte[] prefix, int length) {
+        return length >= MAGIC.length && Arrays.equals(prefix, 0, MAGIC.length, MAGIC, 0, MAGIC.length);
+    }
+
+    static void checkFrameSize(int frameSize) {
+        if (frameSize < MIN_FRAME_SIZE || frameSize > MAX_FRAME_SIZE) {
+            throw new IllegalArgumentException("Frame size must be between " + MIN_FRAME_SIZE + " and " + MAX_FRAME_SIZE);
+        }
+    }
+
+    public byte codec() {
+        return codec;
+    }
+
+    public int frameSize() {
+        return frameSize;
+    }
+
+    byte[] salt() {
+        return salt;
+    }
+
+    byte[] noncePrefix() {
+        return noncePrefix;
+    }
+
+    byte[] encoded() {
+        return encoded;
+    }
+
+    /**
+     * Size of one full frame in the ciphertext, plaintext plus tag.
+     */
+    int encryptedFrameSize() {
+        return frameSize + FrameCrypto.TAG_LENGTH;
+    }
+
+    /**
+     * Position of the given frame in the ciphertext.
+     */
+    long frameOffset(long frameIndex) {
+        return LENGTH + frameIndex * encryptedFrameSize();
+    }
+
+    /**
+     * Plaintext length of a ciphertext of the given total length, header included.
+     */
+    long plaintextLength(long ciphertextLength) throws IOException {
+        long body = ciphertextLength - LENGTH;
+        if (body < FrameCrypto.TAG_LENGTH) {
+            throw new IOException("Truncated ciphertext");
+        }
+        long frames = (body + encryptedFrameSize() - 1) / encryptedFrameSize();
+        long lastFrame = body - (frames - 1) * encryptedFrameSize();
+        if (lastFrame < FrameCrypto.TAG_LENGTH) {
+            throw new IOException("Truncated ciphertext");
+        }
+        return body - frames * FrameCrypto.TAG_LENGTH;
+    }
+}
@@ -0,0 +1,86 @@
+package ai.docbrain.service.utils.crypto;
+
+import javax.crypto.SecretKey;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.SeekableByteChannel;
+import java.security.SecureRandom;
+
+/**
+ * Streaming AES-GCM encryption in fixed size authenticated frames.
+ * <p>
+ * A ciphertext is a {@link FrameHeader} followed by frames of {@code frameSize} plaintext bytes,
+ * each with its own 16 byte tag. Because every frame can be opened on its own, any byte range
+ * can be decrypted without touching the frames before it, and memory use stays at one frame
+ * per open stream regardless of the document size.
+ */
+public class FramedCipher {
+
+    public static final int DEFAULT_FRAME_SIZE = 64 * 1024;
+    public static final byte CODEC_NONE = 0;
+
+    private final SecretKey masterKey;
+    private final int frameSize;
+    private final SecureRandom random = new SecureRandom();
+
+    public FramedCipher(SecretKey masterKey, int frameSize) {
+        FrameHeader.checkFrameSize(frameSize);
+        this.masterKey = masterKey;
+        this.frameSize = frameSize;
+    }
+
+    /**
+     * Returns a stream that encrypts into {@code out}. The header is written immediately,
+     * closing the returned stream writes the last frame and closes {@code out}.
+     */
+    public OutputStream encrypt(OutputStream out) throws IOException {
+        return encrypt(out, CODEC_NONE);
+    }
+
+    /**
+     * Same as {@link #encrypt(OutputStream)}, recording which codec the plaintext was encoded with.
+     */
+    public OutputStream encrypt(OutputStream out, byte codec) throws IOException {
+        FrameHeader header = FrameHeader.create(codec, frameSize, random);
+        return new FramedEncryptingOutputStream(out, header, new FrameCrypto(masterKey, header));
+    }
+
+    /**
+     * Returns a stream that decrypts the framed ciphertext read from {@code in}, header included.
+     */
+    public InputStream decrypt(InputStream in) throws IOException {
+        FrameHeader header = FrameHeader.read(in);
+        return new FramedDecryptingInputStream(in, header, new FrameCrypto(masterKey, header));
+    }
+
+    /**
+     * Returns a random access channel over the plaintext of the ciphertext in {@code channel}.
+     */
+    public SeekableByteChannel decrypt(SeekableByteChannel channel) throws IOException {
+        FrameHeader header = readHeader(channel);
+        return new FramedDecryptingChannel(channel, header, new FrameCrypto(masterKey, header));
+    }
+
+    /**
+     * Reads the header at the start of a ciphertext, e.g. to find its codec.
+     */
+    public static FrameHeader readHeader(SeekableByteChannel channel) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(FrameHeader.LENGTH);
+        channel.position(0);
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer) < 0) {
+                throw new IOException("Truncated ciphertext header");
+            }
+        }
+        return FrameHeader.parse(buffer.array());
+    }
+
+    /**
+     * Plaintext length of a framed ciphertext of the given size.
+     */
+    public static long plaintextLength(FrameHeader header, long ciphertextLength) throws IOException {
+        return header.plaintextLength(ciphertextLength);
+    }
+}
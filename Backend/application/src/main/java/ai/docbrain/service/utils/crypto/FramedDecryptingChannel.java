@@ -0,0 +1,123 @@
+package ai.docbrain.service.utils.crypto;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.NonWritableChannelException;
+import java.nio.channels.SeekableByteChannel;
+
+/**
+ * Read-only random access view of the plaintext of a framed ciphertext.
+ * <p>
+ * Reading at a position only decrypts the frame that contains it, the last decrypted frame
+ * is kept so sequential reads through it cost nothing extra.
+ */
+class FramedDecryptingChannel implements SeekableByteChannel {
+
+    private final SeekableByteChannel channel;
+    private final FrameHeader header;
+    private final FrameCrypto crypto;
+    private final long ciphertextSize;
+    private final long size;
+    private final ByteBuffer sealed;
+    private final byte[] plain;
+    private long cachedFrame = -1;
+    private int plainLength = 0;
+    private long position = 0;
+
+    FramedDecryptingChannel(SeekableByteChannel channel, FrameHeader header, FrameCrypto crypto) throws IOException {
+        this.channel = channel;
+        this.header = header;
+        this.crypto = crypto;
+        this.ciphertextSize = channel.size();
+        this.size = header.plaintextLength(ciphertextSize);
+        this.sealed = ByteBuffer.allocate(header.encryptedFrameSize());
+        this.plain = new byte[header.frameSize()];
+    }
+
+    @Override
+    public int read(ByteBuffer dst) throws IOException {
+        ensureOpen();
+        if (position >= size) {
+            return -1;
+        }
+        int total = 0;
+        while (dst.hasRemaining() && position < size) {
+            long frame = position / header.frameSize();
+            loadFrame(frame);
+            int offset = (int) (position - frame * header.frameSize());
+            int n = Math.min(dst.remaining(), plainLength - offset);
+            dst.put(plain, offset, n);
+            position += n;
+            total += n;
+        }
+        return total;
+    }
+
+    @Override
+    public int write(ByteBuffer src) {
+        throw new NonWritableChannelException();
+    }
+
+    @Override
+    public long position() throws IOException {
+        ensureOpen();
+        return position;
+    }
+
+    @Override
+    public SeekableByteChannel position(long newPosition) throws IOException {
+        ensureOpen();
+        if (newPosition < 0) {
+            throw new IllegalArgumentException("Negative position");
+        }
+        this.position = newPosition;
+        return this;
+    }
+
+    @Override
+    public long size() throws IOException {
+        ensureOpen();
+        return size;
+    }
+
+    @Override
+    public SeekableByteChannel truncate(long size) {
+        throw new NonWritableChannelException();
+    }
+
+    @Override
+    public boolean isOpen() {
+        return channel.isOpen();
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    private void loadFrame(long frame) throws IOException {
+        if (frame == cachedFrame) {
+            return;
+        }
+        long offset = header.frameOffset(frame);
+        int length = (int) Math.min(header.encryptedFrameSize(), ciphertextSize - offset);
+        boolean last = offset + length == ciphertextSize;
+
+        sealed.clear().limit(length);
+        channel.position(offset);
+        while (sealed.hasRemaining()) {
+            if (channel.read(sealed) < 0) {
+                throw new IOException("Truncated ciphertext at frame " + frame);
+            }
+        }
+        plainLength = crypto.open(frame, last, sealed.array(), length, plain);
+        cachedFrame = frame;
+    }
+
+    private void ensureOpen() throws IOException {
+        if (!channel.isOpen()) {
+            throw new ClosedChannelException();
+        }
+    }
+}
@@ -0,0 +1,163 @@
+package ai.docbrain.service.utils.crypto;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Decrypts a framed ciphertext sequentially.
+ * <p>
+ * Only one frame is held in memory at a time. {@link #skip(long)} jumps over whole frames by
+ * skipping the underlying stream, so with a file or channel backed stream a range read only
+ * decrypts the frames it actually returns and the one right before them. That frame is opened so
+ * an end of the ciphertext after the skip is authenticated like any other. A skip that would pass
+ * the end of the ciphertext fails, since the final frame would go unchecked.
+ */
+class FramedDecryptingInputStream extends InputStream {
+
+    private final InputStream in;
+    private final FrameHeader header;
+    private final FrameCrypto crypto;
+    // One extra byte to tell whether a full frame is the last one
+    private final byte[] sealed;
+    private final byte[] plain;
+    private boolean carry = false;
+    private int plainLength = 0;
+    private int plainPosition = 0;
+    private long nextFrame = 0;
+    private boolean lastFrameRead = false;
+
+    FramedDecryptingInputStream(InputStream in, FrameHeader header, FrameCrypto crypto) {
+        this.in = in;
+        this.header = header;
+        this.crypto = crypto;
+        this.sealed = new byte[header.encryptedFrameSize() + 1];
+        this.plain = new byte[header.frameSize()];
+    }
+
+    @Override
+    public int read() throws IOException {
+        if (!ensureData()) {
+            return -1;
+        }
+        return plain[plainPosition++] & 0xFF;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        if (len == 0) {
+            return 0;
+        }
+        if (!ensureData()) {
+            return -1;
+        }
+        int n = Math.min(len, plainLength - plainPosition);
+        System.arraycopy(plain, plainPosition, b, off, n);
+        plainPosition += n;
+        return n;
+    }
+
+    @Override
+    public long skip(long n) throws IOException {
+        if (n <= 0) {
+            return 0;
+        }
+        long buffered = plainLength - plainPosition;
+        if (n <= buffered || lastFrameRead) {
+            long skipped = Math.min(n, buffered);
+            plainPosition += (int) skipped;
+            return skipped;
+        }
+
+        // Frames before the one holding the target are skipped without decrypting them
+        long remaining = n - buffered;
+        long framesToSkip = remaining / header.frameSize();
+        int offsetInFrame = (int) (remaining % header.frameSize());
+        long skipped = buffered;
+        plainPosition = plainLength;
+
+        if (framesToSkip > 0) {
+            // The last skipped frame is still decrypted, it tells whether the ciphertext really ends there
+            long blindFrames = framesToSkip - 1;
+            if (blindFrames > 0) {
+                long cipherToSkip = blindFrames * header.encryptedFrameSize() - (carry ? 1 : 0);
+                long cipherSkipped = skipCiphertext(cipherToSkip) + (carry ? 1 : 0);
+                carry = false;
+                if (cipherSkipped < blindFrames * header.encryptedFrameSize()) {
+                    throw new IOException("Ciphertext ended within skipped frame "
+                            + (nextFrame + cipherSkipped / header.encryptedFrameSize()));
+                }
+                nextFrame += blindFrames;
+                skipped += blindFrames * header.frameSize();
+            }
+            readFrame();
+            skipped += plainLength;
+            plainPosition = plainLength;
+        }
+
+        if (offsetInFrame > 0 && ensureData()) {
+            int inFrame = Math.min(offsetInFrame, plainLength);
+            plainPosition = inFrame;
+            skipped += inFrame;
+        }
+        return skipped;
+    }
+
+    @Override
+    public int available() {
+        return plainLength - plainPosition;
+    }
+
+    @Override
+    public void close() throws IOException {
+        in.close();
+    }
+
+    private boolean ensureData() throws IOException {
+        while (plainPosition == plainLength) {
+            if (lastFrameRead) {
+                return false;
+            }
+            readFrame();
+        }
+        return true;
+    }
+
+    private void readFrame() throws IOException {
+        int length = 0;
+        if (carry) {
+            // The carried byte is always the first byte of the next frame
+            sealed[0] = sealed[sealed.length - 1];
+            length = 1;
+            carry = false;
+        }
+        length += in.readNBytes(sealed, length, sealed.length - length);
+        if (length < FrameCrypto.TAG_LENGTH) {
+            throw new IOException("Truncated ciphertext at frame " + nextFrame);
+        }
+
+        boolean last = length < sealed.length;
+        if (!last) {
+            carry = true;
+            length--;
+        }
+        plainLength = crypto.open(nextFrame, last, sealed, length, plain);
+        plainPosition = 0;
+        lastFrameRead = last;
+        nextFrame++;
+    }
+
+    private long skipCiphertext(long n) throws IOException {
+        long total = 0;
+        while (total < n) {
+            long skipped = in.skip(n - total);
+            if (skipped <= 0) {
+                if (in.read() < 0) {
+                    break;
+                }
+                skipped = 1;
+            }
+            total += skipped;
+        }
+        return total;
+    }
+}
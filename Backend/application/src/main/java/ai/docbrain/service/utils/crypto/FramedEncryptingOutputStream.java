@@ -0,0 +1,85 @@
+package ai.docbrain.service.utils.crypto;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Encrypts everything written to it as a sequence of authenticated frames.
+ * <p>
+ * A full frame is only sealed once more data arrives, so the frame written on {@link #close()}
+ * is always the one marked as last. Closing is therefore required, a ciphertext that was never
+ * closed fails authentication on read. {@link #flush()} cannot emit a partial frame and only
+ * flushes the frames sealed so far.
+ */
+class FramedEncryptingOutputStream extends OutputStream {
+
+    private final OutputStream out;
+    private final FrameCrypto crypto;
+    private final byte[] plain;
+    private final byte[] sealed;
+    private int position = 0;
+    private long frameIndex = 0;
+    private boolean closed = false;
+
+    FramedEncryptingOutputStream(OutputStream out, FrameHeader header, FrameCrypto crypto) throws IOException {
+        this.out = out;
+        this.crypto = crypto;
+        this.plain = new byte[header.frameSize()];
+        this.sealed = new byte[header.encryptedFrameSize()];
+        out.write(header.encoded());
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        ensureOpen();
+        if (position == plain.length) {
+            sealFrame(false);
+        }
+        plain[position++] = (byte) b;
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+        ensureOpen();
+        while (len > 0) {
+            if (position == plain.length) {
+                sealFrame(false);
+            }
+            int n = Math.min(len, plain.length - position);
+            System.arraycopy(b, off, plain, position, n);
+            position += n;
+            off += n;
+            len -= n;
+        }
+    }
+
+    @Override
+    public void flush() throws IOException {
+        ensureOpen();
+        out.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        try (out) {
+            sealFrame(true);
+        }
+    }
+
+    private void sealFrame(boolean last) throws IOException {
+        int length = crypto.seal(frameIndex, last, plain, position, sealed);
+        out.write(sealed, 0, length);
+        frameIndex++;
+        position = 0;
+    }
+
+    private void ensureOpen() throws IOException {
+        if (closed) {
+            throw new IOException("Stream closed");
+        }
+    }
+}
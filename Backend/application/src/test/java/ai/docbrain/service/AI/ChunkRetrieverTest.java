@@ -0,0 +1,166 @@
+package ai.docbrain.service.AI;
+
+import ai.docbrain.service.AI.DTO.DocumentChunkDto;
+import ai.docbrain.service.AI.DTO.DocumentChunkEmbedding;
+import ai.docbrain.service.AI.DTO.DocumentChunkText;
+import ai.docbrain.service.AI.DTO.DocumentChunkVersion;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.util.unit.DataSize;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Ranking chunks for a question with the word hashing stub embedder, and sending all chunks when
+ * they cannot be ranked.
+ */
+class ChunkRetrieverTest {
+
+    private static final long DOCUMENT_ID = 1L;
+    private static final int TOP_K = 2;
+    private static final List<String> CHUNKS = List.of(
+            "The lease starts in March and runs for three years",
+            "Rent is paid monthly into the landlord's account",
+            "The invoice lists the payment due date and the late fee",
+            "Pets are allowed with the written consent of the landlord",
+            "Either party may terminate the lease with three months notice");
+
+    private final HashingEmbeddingClient embedder = new HashingEmbeddingClient(64);
+    private final List<DocumentChunkText> texts = new ArrayList<>();
+    private final List<DocumentChunkEmbedding> embeddings = new ArrayList<>();
+    private IDocumentChunkRepository documentChunkRepository;
+
+    @BeforeEach
+    void setUp() {
+        for (int i = 0; i < CHUNKS.size(); i++) {
+            long id = 100 + i;
+            texts.add(new DocumentChunkText(id, DOCUMENT_ID, i, CHUNKS.get(i), null));
+            // Half stored as binary, half as text from before the binary format
+            embeddings.add(i % 2 == 0
+                    ? new DocumentChunkEmbedding(id, i, CHUNKS.get(i).length(), 0, null,
+                            EmbeddingCodec.encode(embedder.embed(CHUNKS.get(i)), EmbeddingCodec.Format.FLOAT32))
+                    : new DocumentChunkEmbedding(id, i, CHUNKS.get(i).length(), 0,
+                            EmbeddingCodec.toText(EmbeddingCodec.encode(embedder.embed(CHUNKS.get(i)), EmbeddingCodec.Format.FLOAT32)), null));
+        }
+        documentChunkRepository = mock(IDocumentChunkRepository.class);
+        when(documentChunkRepository.findVersionByDocumentId(DOCUMENT_ID)).thenReturn(new DocumentChunkVersion(CHUNKS.size(), 104));
+        when(documentChunkRepository.findEmbeddingsByDocumentId(DOCUMENT_ID)).thenAnswer(invocation -> List.copyOf(embeddings));
+        when(documentChunkRepository.findTextByDocumentId(DOCUMENT_ID)).thenAnswer(invocation -> List.copyOf(texts));
+        when(documentChunkRepository.findTextByIds(anyCollection())).thenAnswer(invocation -> {
+            Collection<Long> ids = invocation.getArgument(0);
+            return texts.stream().filter(text -> ids.contains(text.id())).toList();
+        });
+    }
+
+    @Test
+    void sendsTheMostRelevantChunksInDocumentOrder() {
+        ChunkRetriever retriever = retriever(embedder);
+
+        List<DocumentChunkDto> chunks = retriever.retrieve(DOCUMENT_ID, "When is the invoice payment due?");
+
+        assertThat(chunks).extracting(DocumentChunkDto::getId).hasSize(TOP_K).contains(102L);
+        assertThat(chunks).extracting(DocumentChunkDto::getChunkOrder).isSorted();
+        assertThat(chunks).extracting(DocumentChunkDto::getEmbedding).containsOnlyNulls();
+        assertThat(retriever.stats().getFallbacks()).isZero();
+        verify(documentChunkRepository, never()).findTextByDocumentId(any());
+    }
+
+    @Test
+    void sendsAllChunksWhenTheQuestionCannotBeEmbedded() {
+        ChunkRetriever retriever = retriever(text -> {
+            throw new IllegalStateException("Model service down");
+        });
+
+        List<DocumentChunkDto> chunks = retriever.retrieve(DOCUMENT_ID, "When is the invoice payment due?");
+
+        assertThat(chunks).extracting(DocumentChunkDto::getId).containsExactly(100L, 101L, 102L, 103L, 104L);
+        assertThat(chunks).extracting(DocumentChunkDto::getEmbedding).containsOnlyNulls();
+        assertThat(retriever.stats().getFallbacks()).isEqualTo(1);
+    }
+
+    @Test
+    void sendsAllChunksWhenTheEmbeddingsDoNotMatchTheQuestion() {
+        ChunkRetriever retriever = retriever(new HashingEmbeddingClient(32));
+
+        assertThat(retriever.retrieve(DOCUMENT_ID, "invoice")).hasSize(CHUNKS.size());
+        assertThat(retriever.stats().getFallbacks()).isEqualTo(1);
+    }
+
+    @Test
+    void sendsAllChunksOfADocumentWithoutEmbeddings() {
+        embeddings.replaceAll(chunk -> new DocumentChunkEmbedding(chunk.id(), chunk.chunkOrder(), chunk.contentBytes(), 0, null, null));
+
+        assertThat(retriever(embedder).retrieve(DOCUMENT_ID, "invoice")).hasSize(CHUNKS.size());
+    }
+
+    @Test
+    void keepsTheMatrixUntilTheChunksChange() {
+        ChunkRetriever retriever = retriever(embedder);
+
+        retriever.retrieve(DOCUMENT_ID, "invoice");
+        retriever.retrieve(DOCUMENT_ID, "landlord");
+        verify(documentChunkRepository, times(1)).findEmbeddingsByDocumentId(DOCUMENT_ID);
+
+        // Reprocessed, the chunks got new IDs
+        when(documentChunkRepository.findVersionByDocumentId(DOCUMENT_ID)).thenReturn(new DocumentChunkVersion(CHUNKS.size(), 204));
+        retriever.retrieve(DOCUMENT_ID, "invoice");
+        verify(documentChunkRepository, times(2)).findEmbeddingsByDocumentId(DOCUMENT_ID);
+        assertThat(retriever.stats().getCachedDocuments()).isEqualTo(1);
+    }
+
+    @Test
+    void topKRanksByCosineSimilarity() {
+        ChunkMatrix matrix = ChunkMatrix.of(new DocumentChunkVersion(4, 4), List.of(
+                binary(1, 1, 0, 0),
+                binary(2, 0, 5, 0),
+                binary(3, 1, 1, 0),
+                // Longer than the others but pointing the same way as the query, length does not count
+                binary(4, 10, 0.1f, 0)));
+
+        assertThat(matrix.size()).isEqualTo(4);
+        assertThat(matrix.topK(new float[]{1, 0, 0}, 3)).containsExactly(1, 4, 3);
+        assertThat(matrix.topK(new float[]{0, 1, 0}, 10)).containsExactly(2, 3, 4, 1);
+        assertThat(matrix.topK(new float[]{0, 0, 1}, 0)).isEmpty();
+    }
+
+    @Test
+    void chunksThatCannotBeRankedAreLeftOut() {
+        ChunkMatrix matrix = ChunkMatrix.of(new DocumentChunkVersion(4, 4), List.of(
+                binary(1, 1, 0, 0),
+                binary(2, 1, 0),
+                new DocumentChunkEmbedding(3L, 3, 10, 5, "[not, a, vector]", null),
+                new DocumentChunkEmbedding(4L, 4, 10, 11, "[0.0, 1.0, 0.0]", null)));
+
+        assertThat(matrix.size()).isEqualTo(2);
+        assertThat(matrix.dimensions()).isEqualTo(3);
+        assertThat(matrix.topK(new float[]{0, 1, 0}, 5)).containsExactly(4, 1);
+    }
+
+    @Test
+    void dotHandlesLengthsNotDivisibleByFour() {
+        float[] matrix = {9, 1, 2, 3, 4, 5, 6};
+        float[] vector = {1, 1, 1, 1, 1, 1};
+
+        assertThat(ChunkMatrix.dot(matrix, 1, vector, 6)).isEqualTo(21f);
+        assertThat(ChunkMatrix.dot(matrix, 1, vector, 3)).isEqualTo(6f);
+    }
+
+    private ChunkRetriever retriever(EmbeddingClient embeddingClient) {
+        return new ChunkRetriever(documentChunkRepository, embeddingClient, TOP_K, DataSize.ofMegabytes(1));
+    }
+
+    private static DocumentChunkEmbedding binary(long id, float... values) {
+        return new DocumentChunkEmbedding(id, (int) id, 10, 0, null, EmbeddingCodec.encode(values, EmbeddingCodec.Format.FLOAT32));
+    }
+}
@@ -0,0 +1,104 @@
+package ai.docbrain.service.AI;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.within;
+
+class EmbeddingCodecTest {
+
+    private static final float[] VALUES = {0.5f, -1.27f, 0.01f, 0f, 1e-3f};
+
+    @Test
+    void float32RoundTripIsExact() {
+        byte[] data = EmbeddingCodec.encode(VALUES, EmbeddingCodec.Format.FLOAT32);
+
+        assertThat(data).hasSize(1 + 4 * VALUES.length);
+        assertThat(data[0]).isEqualTo((byte) 1);
+        assertThat(EmbeddingCodec.dimensions(data)).isEqualTo(VALUES.length);
+        assertThat(EmbeddingCodec.decode(data)).containsExactly(VALUES);
+    }
+
+    @Test
+    void int8RoundTripIsWithinHalfAStep() {
+        byte[] data = EmbeddingCodec.encode(VALUES, EmbeddingCodec.Format.INT8);
+
+        float scale = ByteBuffer.wrap(data, 1, 4).order(ByteOrder.LITTLE_ENDIAN).getFloat();
+        assertThat(data).hasSize(1 + 4 + VALUES.length);
+        assertThat(data[0]).isEqualTo((byte) 2);
+        // The largest magnitude maps to 127
+        assertThat(scale).isEqualTo(1.27f / 127);
+        assertThat(data[1 + 4 + 1]).isEqualTo((byte) -127);
+        assertThat(EmbeddingCodec.dimensions(data)).isEqualTo(VALUES.length);
+
+        float[] decoded = EmbeddingCodec.decode(data);
+        for (int i = 0; i < VALUES.length; i++) {
+            assertThat(decoded[i]).isCloseTo(VALUES[i], within(scale / 2 + 1e-6f));
+        }
+    }
+
+    @Test
+    void allZeroVectorSurvivesBothFormats() {
+        float[] zeros = new float[4];
+
+        byte[] int8 = EmbeddingCodec.encode(zeros, EmbeddingCodec.Format.INT8);
+        assertThat(ByteBuffer.wrap(int8, 1, 4).order(ByteOrder.LITTLE_ENDIAN).getFloat()).isEqualTo(1f);
+        assertThat(EmbeddingCodec.decode(int8)).containsExactly(zeros);
+        assertThat(EmbeddingCodec.decode(EmbeddingCodec.encode(zeros, EmbeddingCodec.Format.FLOAT32))).containsExactly(zeros);
+    }
+
+    @Test
+    void decodesIntoAnOffset() {
+        float[] target = new float[VALUES.length + 2];
+
+        EmbeddingCodec.decode(EmbeddingCodec.encode(VALUES, EmbeddingCodec.Format.FLOAT32), target, 2);
+
+        assertThat(target).containsExactly(0f, 0f, 0.5f, -1.27f, 0.01f, 0f, 1e-3f);
+    }
+
+    @Test
+    void encodesTextInTheConfiguredFormat() {
+        EmbeddingCodec int8 = new EmbeddingCodec(EmbeddingCodec.Format.INT8);
+        EmbeddingCodec float32 = new EmbeddingCodec(EmbeddingCodec.Format.FLOAT32);
+
+        assertThat(int8.encodeText("[1.0, -0.5]")[0]).isEqualTo((byte) 2);
+        assertThat(EmbeddingCodec.toText(float32.encodeText("[1.0, -0.5]"))).isEqualTo("1.0,-0.5");
+        assertThat(float32.encodeText("[1.0, x]")).isNull();
+        assertThat(float32.encodeText(null)).isNull();
+    }
+
+    @Test
+    void parsesWithAndWithoutBrackets() {
+        assertThat(EmbeddingCodec.parse("0.5,-1.5,2")).containsExactly(0.5f, -1.5f, 2f);
+        assertThat(EmbeddingCodec.parse("[0.5, -1.5, 2]")).containsExactly(0.5f, -1.5f, 2f);
+        assertThat(EmbeddingCodec.parse("  [ 0.5 ,-1.5 , 2 ]\n")).containsExactly(0.5f, -1.5f, 2f);
+        assertThat(EmbeddingCodec.parse("[1e-3]")).containsExactly(1e-3f);
+    }
+
+    @Test
+    void blankOrMalformedTextIsNoEmbedding() {
+        assertThat(EmbeddingCodec.parse(null)).isNull();
+        assertThat(EmbeddingCodec.parse("")).isNull();
+        assertThat(EmbeddingCodec.parse("  ")).isNull();
+        assertThat(EmbeddingCodec.parse("[]")).isNull();
+        assertThat(EmbeddingCodec.parse("[ ]")).isNull();
+        assertThat(EmbeddingCodec.parse("1,,2")).isNull();
+        assertThat(EmbeddingCodec.parse("1,2,")).isNull();
+        assertThat(EmbeddingCodec.parse("1;2")).isNull();
+        assertThat(EmbeddingCodec.parse("[1,abc]")).isNull();
+    }
+
+    @Test
+    void rejectsAnUnknownFormat() {
+        assertThatThrownBy(() -> EmbeddingCodec.decode(new byte[]{9, 0, 0, 0, 0}))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessage("Unknown embedding format 9");
+        assertThatThrownBy(() -> EmbeddingCodec.dimensions(new byte[0]))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessage("Unknown embedding format (empty)");
+    }
+}
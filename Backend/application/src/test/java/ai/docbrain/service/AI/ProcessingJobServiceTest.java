@@ -0,0 +1,104 @@
+package ai.docbrain.service.AI;
+
+import ai.docbrain.domain.AI.ProcessingJob;
+import ai.docbrain.domain.AI.ProcessingJobStatus;
+import ai.docbrain.service.fileManagement.FolderAccessResolver;
+import ai.docbrain.service.fileManagement.IDocumentRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Duration;
+import java.time.ZonedDateTime;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class ProcessingJobServiceTest {
+
+    private IProcessingJobRepository processingJobRepository;
+    private ProcessingJobService processingJobService;
+
+    @BeforeEach
+    void setUp() {
+        processingJobRepository = mock(IProcessingJobRepository.class);
+        when(processingJobRepository.retry(anyLong(), anyString(), any())).thenReturn(true);
+        when(processingJobRepository.fail(anyLong(), anyString())).thenReturn(true);
+        processingJobService = new ProcessingJobService(processingJobRepository, mock(IDocumentRepository.class),
+                mock(FolderAccessResolver.class));
+        ReflectionTestUtils.setField(processingJobService, "maxAttempts", 5);
+        ReflectionTestUtils.setField(processingJobService, "retryBackoff", Duration.ofSeconds(30));
+        ReflectionTestUtils.setField(processingJobService, "maxRetryBackoff", Duration.ofMinutes(3));
+    }
+
+    @Test
+    void backoffDoublesWithEveryAttemptUpToTheCap() {
+        assertThat(retryDelay(1)).isCloseTo(30, within(2L));
+        assertThat(retryDelay(2)).isCloseTo(60, within(2L));
+        assertThat(retryDelay(3)).isCloseTo(120, within(2L));
+        assertThat(retryDelay(4)).isCloseTo(180, within(2L));
+        verify(processingJobRepository, never()).fail(anyLong(), anyString());
+    }
+
+    @Test
+    void jobFailsOnceOutOfAttempts() {
+        ProcessingJob job = job(5);
+
+        processingJobService.retryOrFail(job, "Connection refused");
+
+        verify(processingJobRepository).fail(job.getId(), "Connection refused");
+        verify(processingJobRepository, never()).retry(anyLong(), anyString(), any());
+        assertThat(job.getStatus()).isEqualTo(ProcessingJobStatus.FAILED);
+        assertThat(job.getLastError()).isEqualTo("Connection refused");
+    }
+
+    @Test
+    void jobFinishedMeanwhileIsLeftAlone() {
+        ProcessingJob job = job(5);
+        when(processingJobRepository.fail(job.getId(), "late")).thenReturn(false);
+
+        processingJobService.retryOrFail(job, "late");
+
+        assertThat(job.getStatus()).isEqualTo(ProcessingJobStatus.SENT);
+    }
+
+    @Test
+    void unansweredJobsAreRetried() {
+        ProcessingJob job = job(1);
+        when(processingJobRepository.findSentBefore(any(), eq(4))).thenReturn(List.of(job));
+
+        processingJobService.retryUnanswered(Duration.ofMinutes(15), 4);
+
+        verify(processingJobRepository).retry(eq(job.getId()), eq("No callback within PT15M"), any());
+    }
+
+    private long retryDelay(int attempts) {
+        ProcessingJob job = job(attempts);
+        ZonedDateTime before = ZonedDateTime.now();
+        processingJobService.retryOrFail(job, "error");
+
+        ArgumentCaptor<ZonedDateTime> nextAttempt = ArgumentCaptor.forClass(ZonedDateTime.class);
+        verify(processingJobRepository).retry(eq(job.getId()), eq("error"), nextAttempt.capture());
+        return Duration.between(before, nextAttempt.getValue()).toSeconds();
+    }
+
+    private static ProcessingJob job(int attempts) {
+        return ProcessingJob.builder()
+                .id((long) attempts)
+                .documentId(100L + attempts)
+                .companyId(1L)
+                .status(ProcessingJobStatus.SENT)
+                .attempts(attempts)
+                .build();
+    }
+}
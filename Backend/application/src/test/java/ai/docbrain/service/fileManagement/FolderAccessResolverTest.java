@@ -0,0 +1,96 @@
+package ai.docbrain.service.fileManagement;
+
+import ai.docbrain.domain.fileManagement.Folder;
+import ai.docbrain.domain.users.User;
+import ai.docbrain.service.fileManagement.DTO.FolderClientLink;
+import ai.docbrain.service.role.RoleService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class FolderAccessResolverTest {
+
+    private static final long COMPANY_ID = 1L;
+
+    private final User client = User.builder().id(10L).companyId(COMPANY_ID).build();
+    private final User employee = User.builder().id(20L).companyId(COMPANY_ID).build();
+    private IFolderRepository folderRepository;
+    private FolderTreeCache folderTreeCache;
+    private FolderAccessResolver resolver;
+
+    @BeforeEach
+    void setUp() {
+        folderRepository = mock(IFolderRepository.class);
+        when(folderRepository.findAllByCompanyId(COMPANY_ID)).thenReturn(List.of(folder(1L), folder(2L)));
+        when(folderRepository.findClientLinksByCompanyId(COMPANY_ID)).thenReturn(List.of(new FolderClientLink(1L, client.getId())));
+        when(folderRepository.findBlockedFolderIds(employee.getId())).thenReturn(List.of(1L));
+        RoleService roleService = mock(RoleService.class);
+        when(roleService.isClient(client)).thenReturn(true);
+        folderTreeCache = new FolderTreeCache(folderRepository);
+        resolver = new FolderAccessResolver(folderTreeCache, folderRepository, roleService);
+    }
+
+    @Test
+    void keepsTheAccessWhileNothingChanges() {
+        FolderAccess first = resolver.resolve(employee);
+
+        assertThat(resolver.resolve(employee)).isSameAs(first);
+        assertThat(first.canAccess(1L)).isFalse();
+        assertThat(first.canAccess(2L)).isTrue();
+        verify(folderRepository, times(1)).findBlockedFolderIds(employee.getId());
+    }
+
+    @Test
+    void clientSeesAFolderOnceItIsLinked() {
+        assertThat(resolver.resolve(client).canAccess(2L)).isFalse();
+
+        folderTreeCache.folderSaved(folder(2L), Set.of(client.getId()));
+
+        FolderAccess access = resolver.resolve(client);
+        assertThat(access.canAccess(1L)).isTrue();
+        assertThat(access.canAccess(2L)).isTrue();
+        assertThat(access.canAccess(null)).isFalse();
+    }
+
+    @Test
+    void clientLosesAFolderOnceItIsUnlinked() {
+        assertThat(resolver.resolve(client).canAccess(1L)).isTrue();
+
+        folderTreeCache.folderSaved(folder(1L), Set.of());
+
+        assertThat(resolver.resolve(client).canAccess(1L)).isFalse();
+    }
+
+    @Test
+    void employeeAccessIsReadAgainAfterABlock() {
+        assertThat(resolver.resolve(employee).canAccess(2L)).isTrue();
+        when(folderRepository.findBlockedFolderIds(employee.getId())).thenReturn(List.of(1L, 2L));
+
+        folderTreeCache.accessChanged(COMPANY_ID);
+
+        assertThat(resolver.resolve(employee).canAccess(2L)).isFalse();
+        verify(folderRepository, times(2)).findBlockedFolderIds(employee.getId());
+    }
+
+    @Test
+    void changeOnAnotherNodeRebuildsTheAccess() {
+        FolderAccess first = resolver.resolve(employee);
+
+        folderTreeCache.changedElsewhere(COMPANY_ID, "other-node");
+
+        assertThat(resolver.resolve(employee)).isNotSameAs(first);
+        verify(folderRepository, times(2)).findBlockedFolderIds(employee.getId());
+    }
+
+    private static Folder folder(Long id) {
+        return Folder.builder().id(id).name("Folder " + id).companyId(COMPANY_ID).build();
+    }
+}
@@ -0,0 +1,71 @@
+package ai.docbrain.service.fileManagement;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class FolderAccessTest {
+
+    @Test
+    void clientSeesOnlyTheListedFolders() {
+        FolderAccess access = FolderAccess.only(List.of(12L, 10L, 40L));
+
+        assertThat(access.canAccess(10L)).isTrue();
+        assertThat(access.canAccess(12L)).isTrue();
+        assertThat(access.canAccess(40L)).isTrue();
+        assertThat(access.canAccess(11L)).isFalse();
+        assertThat(access.canAccess(41L)).isFalse();
+        assertThat(access.isOnlyListed()).isTrue();
+        assertThat(access.isUnrestricted()).isFalse();
+        assertThat(access.getListedFolderIds()).containsExactly(10L, 12L, 40L);
+    }
+
+    @Test
+    void employeeSeesAllButTheListedFolders() {
+        FolderAccess access = FolderAccess.allExcept(List.of(12L, 10L));
+
+        assertThat(access.canAccess(10L)).isFalse();
+        assertThat(access.canAccess(12L)).isFalse();
+        assertThat(access.canAccess(11L)).isTrue();
+        assertThat(access.canAccess(1000L)).isTrue();
+        assertThat(access.isOnlyListed()).isFalse();
+        assertThat(access.isUnrestricted()).isFalse();
+    }
+
+    @Test
+    void rootIsVisibleToEverybodyButClients() {
+        assertThat(FolderAccess.only(List.of(1L)).canAccess(null)).isFalse();
+        assertThat(FolderAccess.only(List.of()).canAccess(null)).isFalse();
+        assertThat(FolderAccess.allExcept(List.of(1L)).canAccess(null)).isTrue();
+        assertThat(FolderAccess.allExcept(List.of()).canAccess(null)).isTrue();
+    }
+
+    @Test
+    void emptyListsGrantNothingOrEverything() {
+        FolderAccess none = FolderAccess.only(List.of());
+        FolderAccess all = FolderAccess.allExcept(List.of());
+
+        assertThat(none.canAccess(0L)).isFalse();
+        assertThat(none.canAccess(1L)).isFalse();
+        assertThat(none.isUnrestricted()).isFalse();
+        assertThat(none.getListedFolderIds()).isEmpty();
+        assertThat(all.canAccess(0L)).isTrue();
+        assertThat(all.canAccess(1L)).isTrue();
+        assertThat(all.isUnrestricted()).isTrue();
+    }
+
+    @Test
+    void foldersOutsideTheBitmapAreNotListed() {
+        // The bitmap starts at the lowest listed ID, anything below or far above it is not in it
+        FolderAccess only = FolderAccess.only(List.of(1_000_000L, 1_000_005L));
+        FolderAccess allExcept = FolderAccess.allExcept(List.of(1_000_000L, 1_000_005L));
+
+        for (long folderId : new long[]{1L, 999_999L, 1_000_001L, 1_000_000L + Integer.MAX_VALUE + 1L}) {
+            assertThat(only.canAccess(folderId)).as("folder %d", folderId).isFalse();
+            assertThat(allExcept.canAccess(folderId)).as("folder %d", folderId).isTrue();
+        }
+        assertThat(only.getListedFolderIds()).containsExactly(1_000_000L, 1_000_005L);
+    }
+}
@@ -0,0 +1,143 @@
+package ai.docbrain.service.fileManagement;
+
+import ai.docbrain.domain.fileManagement.Folder;
+import ai.docbrain.service.fileManagement.DTO.FolderClientLink;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static org.mockito.Mockito.withSettings;
+
+/**
+ * Folder tree of a company with 20,000 folders in 10 levels, starting from 10 root folders and
+ * about twice as many folders on each level as on the one above. Every 20th folder is linked to
+ * one of 50 clients.
+ * <p>
+ * The repository is a stub returning prepared rows, so the load measures building the tree and
+ * not the two queries. Run with {@code gradle :application:jmh --args=FolderTreeCacheBenchmark}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class FolderTreeCacheBenchmark {
+
+    private static final long COMPANY_ID = 1L;
+    private static final int FOLDERS = 20_000;
+    private static final int LEVELS = 10;
+    private static final int ROOT_FOLDERS = 10;
+    private static final double GROWTH = 2.15;
+    private static final int CLIENTS = 50;
+
+    private FolderTreeCache cache;
+    private Folder rootFolder;
+    private Folder midFolder;
+    private Folder deepestFolder;
+    private int renames;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        Random random = new Random(42);
+        List<Folder> folders = new ArrayList<>(FOLDERS);
+        List<FolderClientLink> links = new ArrayList<>();
+        List<Folder> previousLevel = List.of();
+        for (int level = 0; level < LEVELS; level++) {
+            // The last level takes the folders left
+            int size = level == LEVELS - 1 ? FOLDERS - folders.size() : (int) Math.round(ROOT_FOLDERS * Math.pow(GROWTH, level));
+            List<Folder> currentLevel = new ArrayList<>(size);
+            for (int i = 0; i < size; i++) {
+                long id = folders.size() + 1;
+                Folder folder = Folder.builder()
+                        .id(id)
+                        .name("Folder " + id)
+                        .companyId(COMPANY_ID)
+                        .parentId(level == 0 ? null : previousLevel.get(random.nextInt(previousLevel.size())).getId())
+                        .build();
+                folders.add(folder);
+                currentLevel.add(folder);
+                if (id % 20 == 0) {
+                    links.add(new FolderClientLink(id, (long) random.nextInt(CLIENTS) + 1));
+                }
+            }
+            previousLevel = currentLevel;
+        }
+        rootFolder = folders.get(0);
+        midFolder = folders.get(folders.size() / 20);
+        deepestFolder = folders.get(folders.size() - 1);
+
+        // Stub only, the notifications of the rename benchmark are not recorded
+        IFolderRepository folderRepository = mock(IFolderRepository.class, withSettings().stubOnly());
+        when(folderRepository.findAllByCompanyId(anyLong())).thenReturn(folders);
+        when(folderRepository.findClientLinksByCompanyId(COMPANY_ID)).thenReturn(links);
+        cache = new FolderTreeCache(folderRepository);
+        cache.buildPath(COMPANY_ID, deepestFolder.getId());
+    }
+
+    /**
+     * Dropping the tree as a change on another node does, and loading it again on next use.
+     */
+    @Benchmark
+    public String invalidateAndLoad() {
+        cache.invalidate(COMPANY_ID);
+        return cache.buildPath(COMPANY_ID, deepestFolder.getId());
+    }
+
+    /**
+     * The path of a folder on the tenth level, formerly ten findById queries.
+     */
+    @Benchmark
+    public String buildDeepestPath() {
+        return cache.buildPath(COMPANY_ID, deepestFolder.getId());
+    }
+
+    @Benchmark
+    public List<Long> childIds() {
+        return cache.getChildIds(COMPANY_ID, midFolder.getId());
+    }
+
+    /**
+     * The walk of a folder export or delete below a root folder, about a tenth of the tree.
+     */
+    @Benchmark
+    public Set<Long> rootSubtree() {
+        return cache.getSubtreeIds(COMPANY_ID, rootFolder.getId());
+    }
+
+    @Benchmark
+    public Set<Long> foldersOfClient() {
+        return cache.getFolderIdsOfClient(COMPANY_ID, 1L);
+    }
+
+    /**
+     * An incremental update outside a transaction, applied right away.
+     */
+    @Benchmark
+    public void renameFolder() {
+        Folder renamed = Folder.builder()
+                .id(midFolder.getId())
+                .name("Renamed " + (renames++ & 1))
+                .companyId(COMPANY_ID)
+                .parentId(midFolder.getParentId())
+                .build();
+        cache.folderSaved(renamed, null);
+    }
+}
@@ -0,0 +1,85 @@
+package ai.docbrain.service.fileManagement;
+
+import ai.docbrain.domain.fileManagement.Folder;
+import ai.docbrain.service.utils.exception.ResourceNotFoundException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class FolderTreeCacheTest {
+
+    private static final long COMPANY_ID = 1L;
+
+    private final List<Folder> folders = new ArrayList<>();
+    private IFolderRepository folderRepository;
+    private FolderTreeCache cache;
+
+    @BeforeEach
+    void setUp() {
+        folders.add(folder(1L, "a", null));
+        folders.add(folder(2L, "b", 1L));
+        folderRepository = mock(IFolderRepository.class);
+        when(folderRepository.findAllByCompanyId(COMPANY_ID)).thenAnswer(invocation -> List.copyOf(folders));
+        when(folderRepository.findClientLinksByCompanyId(COMPANY_ID)).thenReturn(List.of());
+        cache = new FolderTreeCache(folderRepository);
+    }
+
+    @Test
+    void buildsPathsFromTheLoadedTree() {
+        assertThat(cache.buildPath(COMPANY_ID, 2L)).isEqualTo("a/b");
+        assertThat(cache.getSubtreeIds(COMPANY_ID, 1L)).containsExactly(1L, 2L);
+        verify(folderRepository, times(1)).findAllByCompanyId(COMPANY_ID);
+    }
+
+    @Test
+    void unknownFolderIsNotFoundWithoutReloading() {
+        cache.buildPath(COMPANY_ID, 2L);
+        long generation = cache.getGeneration(COMPANY_ID);
+
+        for (long unknown = 100; unknown < 110; unknown++) {
+            long folderId = unknown;
+            assertThatThrownBy(() -> cache.buildPath(COMPANY_ID, folderId)).isInstanceOf(ResourceNotFoundException.class);
+            assertThatThrownBy(() -> cache.getParentId(COMPANY_ID, folderId)).isInstanceOf(ResourceNotFoundException.class);
+            assertThatThrownBy(() -> cache.getSubtreeIds(COMPANY_ID, folderId)).isInstanceOf(ResourceNotFoundException.class);
+        }
+
+        verify(folderRepository, times(1)).findAllByCompanyId(COMPANY_ID);
+        assertThat(cache.getGeneration(COMPANY_ID)).isEqualTo(generation);
+    }
+
+    @Test
+    void folderCreatedOnAnotherNodeIsFoundAfterItsNotification() {
+        cache.buildPath(COMPANY_ID, 2L);
+        folders.add(folder(3L, "c", 2L));
+
+        cache.changedElsewhere(COMPANY_ID, "other-node");
+
+        assertThat(cache.buildPath(COMPANY_ID, 3L)).isEqualTo("a/b/c");
+        verify(folderRepository, times(2)).findAllByCompanyId(COMPANY_ID);
+    }
+
+    @Test
+    void localChangeIsAppliedWithoutReloading() {
+        cache.buildPath(COMPANY_ID, 2L);
+        long generation = cache.getGeneration(COMPANY_ID);
+
+        cache.folderSaved(folder(3L, "c", 2L), null);
+
+        assertThat(cache.buildPath(COMPANY_ID, 3L)).isEqualTo("a/b/c");
+        assertThat(cache.getGeneration(COMPANY_ID)).isGreaterThan(generation);
+        verify(folderRepository, times(1)).findAllByCompanyId(COMPANY_ID);
+    }
+
+    private static Folder folder(Long id, String name, Long parentId) {
+        return Folder.builder().id(id).name(name).parentId(parentId).companyId(COMPANY_ID).build();
+    }
+}
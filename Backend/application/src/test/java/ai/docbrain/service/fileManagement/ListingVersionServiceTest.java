@@ -0,0 +1,163 @@
+package ai.docbrain.service.fileManagement;
+
+import ai.docbrain.domain.fileManagement.Folder;
+import ai.docbrain.domain.users.User;
+import ai.docbrain.service.fileManagement.DTO.FolderClientLink;
+import ai.docbrain.service.fileManagement.storage.DocumentStorageService;
+import ai.docbrain.service.role.RoleService;
+import ai.docbrain.service.search.SearchIndex;
+import ai.docbrain.service.user.IUserRepository;
+import ai.docbrain.service.utils.exception.ResourceNotFoundException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * The ETags of the folder and company listings, which stay equal, and so answer 304, exactly
+ * as long as nothing the caller's listing shows has changed.
+ */
+class ListingVersionServiceTest {
+
+    private static final long COMPANY_ID = 1L;
+    private static final long FOLDER = 1L;
+    private static final long OTHER_FOLDER = 2L;
+
+    private final User employee = User.builder().id(10L).companyId(COMPANY_ID).build();
+    private final User otherEmployee = User.builder().id(11L).companyId(COMPANY_ID).build();
+    private final User client = User.builder().id(20L).companyId(COMPANY_ID).build();
+    private final Folder folder = Folder.builder().id(FOLDER).name("Folder").companyId(COMPANY_ID).build();
+    private final Map<Long, Long> versions = new HashMap<>();
+    private IFolderRepository folderRepository;
+    private ListingVersionService listingVersionService;
+    private FolderService folderService;
+
+    @BeforeEach
+    void setUp() {
+        folderRepository = mock(IFolderRepository.class);
+        when(folderRepository.findAllByCompanyId(COMPANY_ID))
+                .thenReturn(List.of(folder, Folder.builder().id(OTHER_FOLDER).name("Other").companyId(COMPANY_ID).build()));
+        when(folderRepository.findClientLinksByCompanyId(COMPANY_ID)).thenReturn(List.of(new FolderClientLink(FOLDER, client.getId())));
+        when(folderRepository.findById(FOLDER)).thenReturn(Optional.of(folder));
+        when(folderRepository.save(any(Folder.class))).thenAnswer(invocation -> invocation.getArgument(0));
+        IUserRepository userRepository = mock(IUserRepository.class);
+        when(userRepository.findById(employee.getId())).thenReturn(Optional.of(employee));
+        when(userRepository.findById(client.getId())).thenReturn(Optional.of(client));
+        RoleService roleService = mock(RoleService.class);
+        when(roleService.isClient(client)).thenReturn(true);
+
+        FolderTreeCache folderTreeCache = new FolderTreeCache(folderRepository);
+        FolderAccessResolver folderAccessResolver = new FolderAccessResolver(folderTreeCache, folderRepository, roleService);
+        listingVersionService = new ListingVersionService(new InMemoryVersions(), folderAccessResolver);
+        folderService = new FolderService(folderRepository, userRepository, roleService, folderTreeCache,
+                listingVersionService, mock(FileNameCache.class), mock(SearchIndex.class),
+                mock(DocumentStorageService.class), mock(FolderStatsService.class), folderAccessResolver);
+    }
+
+    @Test
+    void etagsStayWhileNothingChanges() {
+        String folderEtag = listingVersionService.getFolderEtag(employee, FOLDER);
+        String companyEtag = listingVersionService.getCompanyEtag(employee);
+
+        assertThat(listingVersionService.getFolderEtag(employee, FOLDER)).isEqualTo(folderEtag);
+        assertThat(listingVersionService.getCompanyEtag(employee)).isEqualTo(companyEtag);
+    }
+
+    @Test
+    void documentChangeRenewsItsFolderAndTheCompanyListing() {
+        String folderEtag = listingVersionService.getFolderEtag(employee, FOLDER);
+        String otherFolderEtag = listingVersionService.getFolderEtag(employee, OTHER_FOLDER);
+        String companyEtag = listingVersionService.getCompanyEtag(employee);
+
+        listingVersionService.documentChanged(COMPANY_ID, FOLDER);
+
+        assertThat(listingVersionService.getFolderEtag(employee, FOLDER)).isNotEqualTo(folderEtag);
+        assertThat(listingVersionService.getCompanyEtag(employee)).isNotEqualTo(companyEtag);
+        assertThat(listingVersionService.getFolderEtag(employee, OTHER_FOLDER)).isEqualTo(otherFolderEtag);
+    }
+
+    @Test
+    void rootDocumentChangeRenewsOnlyTheCompanyListing() {
+        String folderEtag = listingVersionService.getFolderEtag(employee, FOLDER);
+        String companyEtag = listingVersionService.getCompanyEtag(employee);
+
+        listingVersionService.documentChanged(COMPANY_ID, null);
+
+        assertThat(listingVersionService.getFolderEtag(employee, FOLDER)).isEqualTo(folderEtag);
+        assertThat(listingVersionService.getCompanyEtag(employee)).isNotEqualTo(companyEtag);
+    }
+
+    @Test
+    void etagsDifferBetweenUsers() {
+        // Listings are filtered per user, one user's copy must not validate another's
+        assertThat(listingVersionService.getFolderEtag(employee, FOLDER))
+                .isNotEqualTo(listingVersionService.getFolderEtag(otherEmployee, FOLDER));
+        assertThat(listingVersionService.getCompanyEtag(employee))
+                .isNotEqualTo(listingVersionService.getCompanyEtag(otherEmployee));
+    }
+
+    @Test
+    void noEtagForAFolderTheCallerMayNotSee() {
+        assertThatThrownBy(() -> listingVersionService.getFolderEtag(client, OTHER_FOLDER))
+                .isInstanceOf(ResourceNotFoundException.class);
+        assertThat(listingVersionService.getFolderEtag(client, FOLDER)).isNotNull();
+    }
+
+    @Test
+    void blockRenewsTheListingsAndHidesTheFolder() {
+        String companyEtag = listingVersionService.getCompanyEtag(employee);
+        listingVersionService.getFolderEtag(employee, FOLDER);
+
+        when(folderRepository.findBlockedFolderIds(employee.getId())).thenReturn(List.of(FOLDER));
+        folderService.blockFolderForUsers(employee, FOLDER, Set.of(employee.getId()));
+
+        assertThat(listingVersionService.getCompanyEtag(employee)).isNotEqualTo(companyEtag);
+        assertThatThrownBy(() -> listingVersionService.getFolderEtag(employee, FOLDER))
+                .isInstanceOf(ResourceNotFoundException.class);
+    }
+
+    @Test
+    void clientLinkRenewsTheListings() {
+        String folderEtag = listingVersionService.getFolderEtag(client, FOLDER);
+        String companyEtag = listingVersionService.getCompanyEtag(client);
+
+        folderService.linkFolderToClients(employee, FOLDER, Set.of(client.getId()));
+
+        assertThat(listingVersionService.getFolderEtag(client, FOLDER)).isNotEqualTo(folderEtag);
+        assertThat(listingVersionService.getCompanyEtag(client)).isNotEqualTo(companyEtag);
+    }
+
+    @Test
+    void clientUnlinkHidesTheFolder() {
+        listingVersionService.getFolderEtag(client, FOLDER);
+
+        folderService.linkFolderToClients(employee, FOLDER, Set.of());
+
+        assertThatThrownBy(() -> listingVersionService.getFolderEtag(client, FOLDER))
+                .isInstanceOf(ResourceNotFoundException.class);
+    }
+
+    private class InMemoryVersions implements IListingVersionRepository {
+
+        @Override
+        public long findVersion(Long companyId, Long scopeId) {
+            return versions.getOrDefault(scopeId, 0L);
+        }
+
+        @Override
+        public void increment(Long companyId, Collection<Long> scopeIds) {
+            scopeIds.stream().distinct().forEach(scopeId -> versions.merge(scopeId, 1L, Long::sum));
+        }
+    }
+}
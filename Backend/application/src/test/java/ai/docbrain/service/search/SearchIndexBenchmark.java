@@ -0,0 +1,171 @@
+package ai.docbrain.service.search;
+
+import ai.docbrain.domain.fileManagement.Document;
+import ai.docbrain.service.AI.DTO.DocumentChunkText;
+import ai.docbrain.service.AI.IDocumentChunkRepository;
+import ai.docbrain.service.fileManagement.IDocumentRepository;
+import org.apache.lucene.queryparser.simple.SimpleQueryParser;
+import org.apache.lucene.search.BooleanClause;
+import org.apache.lucene.search.MatchAllDocsQuery;
+import org.apache.lucene.search.Query;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.LongStream;
+
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Search latency of one company's index, as {@code GET /api/search} with the default limit runs
+ * it. The tenant is generated: {@code chunks} chunks of 80 words over 50 chunks per document and
+ * 100 documents per folder, words drawn from a skewed vocabulary so common terms match a large
+ * part of the index.
+ * <p>
+ * The index is built once under {@code build/jmh} and reused by later runs, delete it after
+ * changing the generator. Run with {@code gradle :application:jmh --args=SearchIndexBenchmark},
+ * sample time mode reports the percentiles.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(value = 1, jvmArgs = "-Xmx4g")
+public class SearchIndexBenchmark {
+
+    private static final long COMPANY_ID = 1L;
+    private static final int CHUNKS_PER_DOCUMENT = 50;
+    private static final int DOCUMENTS_PER_FOLDER = 100;
+    private static final int WORDS_PER_CHUNK = 80;
+    private static final int VOCABULARY = 50_000;
+    // SearchService asks for five chunk hits per result, ten results by default
+    private static final int MAX_HITS = 50;
+    // Folders linked to the client of the client filter
+    private static final int CLIENT_FOLDERS = 10;
+
+    @Param({"1000000"})
+    private int chunks;
+
+    /**
+     * common: a term in most chunks, rare: a term in a few hundred, and: two mid frequency
+     * terms, phrase: two common terms next to each other.
+     */
+    @Param({"common", "rare", "and", "phrase"})
+    private String queryKind;
+
+    /**
+     * all: an employee without blocked folders, client: a client linked to ten folders.
+     */
+    @Param({"all", "client"})
+    private String access;
+
+    private SearchIndex searchIndex;
+    private Query query;
+    private Query accessFilter;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        int documents = chunks / CHUNKS_PER_DOCUMENT;
+        IDocumentRepository documentRepository = mock(IDocumentRepository.class);
+        when(documentRepository.findAllByCompanyId(COMPANY_ID)).thenReturn(documents(documents));
+        IDocumentChunkRepository chunkRepository = mock(IDocumentChunkRepository.class);
+        when(chunkRepository.findTextWithVectorByCompanyId(eq(COMPANY_ID), anyLong(), anyInt()))
+                .thenAnswer(invocation -> chunkPage(invocation.getArgument(1), invocation.getArgument(2)));
+
+        Path root = Paths.get("build", "jmh", "search-index-" + chunks);
+        boolean built = Files.exists(root);
+        searchIndex = new SearchIndex(documentRepository, chunkRepository, root.toString(), 384);
+        // Opens the index, a new one is rebuilt on the indexer thread
+        searchIndex.search(COMPANY_ID, new MatchAllDocsQuery(), new MatchAllDocsQuery(), 1);
+        if (!built) {
+            ExecutorService indexer = (ExecutorService) ReflectionTestUtils.getField(searchIndex, "indexer");
+            indexer.submit(() -> { }).get();
+        }
+
+        SimpleQueryParser parser = new SimpleQueryParser(searchIndex.analyzer(),
+                Map.of(SearchIndex.CONTENT, 1f, SearchIndex.KEYWORDS, 2f));
+        parser.setDefaultOperator(BooleanClause.Occur.MUST);
+        query = parser.parse(switch (queryKind) {
+            case "common" -> word(1);
+            case "rare" -> word(20_000);
+            case "and" -> word(200) + " " + word(300);
+            case "phrase" -> "\"" + word(2) + " " + word(3) + "\"";
+            default -> throw new IllegalArgumentException(queryKind);
+        });
+        accessFilter = "client".equals(access)
+                ? SearchIndex.folderFilter(LongStream.rangeClosed(1, CLIENT_FOLDERS).boxed().toList())
+                : new MatchAllDocsQuery();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        searchIndex.shutdown();
+    }
+
+    @Benchmark
+    public List<SearchIndex.ChunkHit> search() throws Exception {
+        return searchIndex.search(COMPANY_ID, query, accessFilter, MAX_HITS);
+    }
+
+    private static List<Document> documents(int count) {
+        List<Document> documents = new ArrayList<>(count);
+        for (long id = 1; id <= count; id++) {
+            documents.add(Document.builder()
+                    .id(id)
+                    .companyId(COMPANY_ID)
+                    .folderId((id - 1) / DOCUMENTS_PER_FOLDER + 1)
+                    .summary(text(new Random(-id), WORDS_PER_CHUNK))
+                    .keywords(word((int) (id % 1000) + 1) + "," + word((int) (id % 777) + 1))
+                    .build());
+        }
+        return documents;
+    }
+
+    private List<DocumentChunkText> chunkPage(long afterChunkId, int limit) {
+        List<DocumentChunkText> page = new ArrayList<>(limit);
+        for (long id = afterChunkId + 1; id <= chunks && page.size() < limit; id++) {
+            page.add(new DocumentChunkText(id, (id - 1) / CHUNKS_PER_DOCUMENT + 1,
+                    (int) ((id - 1) % CHUNKS_PER_DOCUMENT), text(new Random(id), WORDS_PER_CHUNK), null));
+        }
+        return page;
+    }
+
+    private static String text(Random random, int words) {
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < words; i++) {
+            // Cubing skews the ranks towards the front, the first words are in most chunks
+            double skewed = Math.pow(random.nextDouble(), 3);
+            text.append(word((int) (skewed * VOCABULARY) + 1)).append(' ');
+        }
+        return text.toString();
+    }
+
+    private static String word(int rank) {
+        return "w" + Integer.toString(rank, 36);
+    }
+}
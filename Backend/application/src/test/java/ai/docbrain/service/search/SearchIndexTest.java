@@ -0,0 +1,142 @@
+package ai.docbrain.service.search;
+
+import ai.docbrain.domain.fileManagement.Document;
+import ai.docbrain.service.AI.DTO.DocumentChunkText;
+import ai.docbrain.service.AI.IDocumentChunkRepository;
+import ai.docbrain.service.fileManagement.IDocumentRepository;
+import org.apache.lucene.search.MatchAllDocsQuery;
+import org.apache.lucene.search.MatchNoDocsQuery;
+import org.apache.lucene.search.Query;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Nearest neighbour search over chunk embeddings, restricted to the folders the caller may see
+ * while the graph is walked rather than after.
+ */
+class SearchIndexTest {
+
+    private static final long COMPANY_ID = 1L;
+    private static final int DIMENSIONS = 4;
+    private static final long OPEN_FOLDER = 10L;
+    private static final long CLIENT_FOLDER = 20L;
+    // Chunks of the open folder, all nearer to the query than any the client may see
+    private static final int OPEN_CHUNKS = 300;
+    private static final float[] QUERY = {1, 0, 0, 0};
+
+    @TempDir
+    private Path indexDir;
+
+    private final List<Document> documents = new ArrayList<>();
+    private final List<DocumentChunkText> chunks = new ArrayList<>();
+    private SearchIndex searchIndex;
+
+    @BeforeEach
+    void buildIndex() throws Exception {
+        Document open = document(1L, OPEN_FOLDER);
+        Document client = document(2L, CLIENT_FOLDER);
+        Document root = document(3L, null);
+        for (int i = 0; i < OPEN_CHUNKS; i++) {
+            chunk(open, new float[]{1, 0.001f * i, 0, 0});
+        }
+        chunk(client, new float[]{1, 1, 0, 0});
+        chunk(client, new float[]{0, 1, 0, 0});
+        chunk(client, null);
+        chunk(root, new float[]{1, 0.5f, 0, 0});
+
+        IDocumentRepository documentRepository = mock(IDocumentRepository.class);
+        when(documentRepository.findAllByCompanyId(COMPANY_ID)).thenReturn(documents);
+        IDocumentChunkRepository chunkRepository = mock(IDocumentChunkRepository.class);
+        when(chunkRepository.findTextWithVectorByCompanyId(eq(COMPANY_ID), anyLong(), anyInt())).thenAnswer(invocation -> {
+            long afterChunkId = invocation.getArgument(1);
+            int limit = invocation.getArgument(2);
+            return chunks.stream().filter(chunk -> chunk.id() > afterChunkId).limit(limit).toList();
+        });
+        searchIndex = new SearchIndex(documentRepository, chunkRepository, indexDir.toString(), DIMENSIONS);
+        // The first use opens the index and queues its rebuild
+        searchIndex.search(COMPANY_ID, new MatchAllDocsQuery(), new MatchAllDocsQuery(), 1);
+        awaitIndexer();
+    }
+
+    @AfterEach
+    void closeIndex() {
+        searchIndex.shutdown();
+    }
+
+    @Test
+    void unrestrictedSearchReturnsTheNearestChunks() throws Exception {
+        List<SearchIndex.ChunkHit> hits = searchIndex.searchNearest(COMPANY_ID, QUERY, new MatchAllDocsQuery(), 5);
+
+        assertThat(hits).hasSize(5).allMatch(hit -> hit.documentId() == 1L);
+        assertThat(hits).extracting(SearchIndex.ChunkHit::chunkOrder).containsExactly(0, 1, 2, 3, 4);
+        assertThat(hits).extracting(SearchIndex.ChunkHit::score).isSortedAccordingTo((a, b) -> Float.compare(b, a));
+    }
+
+    @Test
+    void clientFindsItsChunksBehindNearerOnesItMayNotSee() throws Exception {
+        List<SearchIndex.ChunkHit> hits = searchIndex.searchNearest(COMPANY_ID, QUERY,
+                SearchIndex.folderFilter(List.of(CLIENT_FOLDER)), 5);
+
+        // Both embedded chunks of the client's folder, nearest first, the one without embedding is no hit
+        assertThat(hits).extracting(SearchIndex.ChunkHit::documentId).containsExactly(2L, 2L);
+        assertThat(hits).extracting(SearchIndex.ChunkHit::chunkOrder).containsExactly(0, 1);
+        assertThat(hits.get(0).snippet()).isEqualTo("Chunk 0 of document 2");
+    }
+
+    @Test
+    void blockedFolderIsLeftOutAndTheRootKept() throws Exception {
+        List<SearchIndex.ChunkHit> hits = searchIndex.searchNearest(COMPANY_ID, QUERY,
+                SearchIndex.excludedFoldersFilter(List.of(OPEN_FOLDER)), 5);
+
+        assertThat(hits).extracting(SearchIndex.ChunkHit::documentId).containsExactly(3L, 2L, 2L);
+    }
+
+    @Test
+    void nothingIsFoundWithoutAccessOrWithAnUnusableQuery() throws Exception {
+        Query nothing = new MatchNoDocsQuery();
+
+        assertThat(searchIndex.searchNearest(COMPANY_ID, QUERY, nothing, 5)).isEmpty();
+        assertThat(searchIndex.searchNearest(COMPANY_ID, new float[]{1, 0, 0}, new MatchAllDocsQuery(), 5)).isEmpty();
+        assertThat(searchIndex.searchNearest(COMPANY_ID, new float[DIMENSIONS], new MatchAllDocsQuery(), 5)).isEmpty();
+    }
+
+    @Test
+    void removedDocumentIsNoLongerFound() throws Exception {
+        searchIndex.removeAfterCommit(COMPANY_ID, 2L);
+        awaitIndexer();
+
+        assertThat(searchIndex.searchNearest(COMPANY_ID, QUERY, SearchIndex.folderFilter(List.of(CLIENT_FOLDER)), 5)).isEmpty();
+    }
+
+    private void awaitIndexer() throws Exception {
+        ExecutorService indexer = (ExecutorService) ReflectionTestUtils.getField(searchIndex, "indexer");
+        indexer.submit(() -> { }).get();
+    }
+
+    private Document document(Long id, Long folderId) {
+        Document document = Document.builder().id(id).companyId(COMPANY_ID).folderId(folderId).build();
+        documents.add(document);
+        return document;
+    }
+
+    private void chunk(Document document, float[] vector) {
+        int order = (int) chunks.stream().filter(chunk -> chunk.documentId().equals(document.getId())).count();
+        chunks.add(new DocumentChunkText(chunks.size() + 1L, document.getId(), order,
+                "Chunk " + order + " of document " + document.getId(), vector));
+    }
+}
@@ -0,0 +1,158 @@
+package ai.docbrain.service.utils;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import javax.crypto.Cipher;
+import javax.crypto.spec.IvParameterSpec;
+import javax.crypto.spec.SecretKeySpec;
+import java.security.SecureRandom;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares {@link EncryptionUtil} with the implementation it replaced, which decoded the key and
+ * looked up a new Cipher on every call.
+ * <p>
+ * Run with {@code gradle :application:jmh --args=EncryptionUtilBenchmark}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class EncryptionUtilBenchmark {
+
+    private static final int LISTING_SIZE = 5_000;
+    // Uploads of one batch, each encrypted on a virtual thread of its own
+    private static final int UPLOAD_TASKS = 64;
+
+    private EncryptionUtil encryptionUtil;
+    private LegacyEncryptionUtil legacy;
+    private byte[] encryptedName;
+    private List<byte[]> listing;
+    private ExecutorService virtualThreads;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        SecureRandom random = new SecureRandom();
+        byte[] key = new byte[32];
+        byte[] iv = new byte[16];
+        random.nextBytes(key);
+        random.nextBytes(iv);
+
+        encryptionUtil = new EncryptionUtil();
+        ReflectionTestUtils.setField(encryptionUtil, "secretKey", Base64.getEncoder().encodeToString(key));
+        ReflectionTestUtils.setField(encryptionUtil, "initVector", Base64.getEncoder().encodeToString(iv));
+        ReflectionTestUtils.setField(encryptionUtil, "frameSize", 65536);
+        encryptionUtil.init();
+        legacy = new LegacyEncryptionUtil(Base64.getEncoder().encodeToString(key), Base64.getEncoder().encodeToString(iv));
+
+        encryptedName = encryptionUtil.encrypt("Quarterly report 2024.pdf".getBytes());
+        listing = new ArrayList<>(LISTING_SIZE);
+        for (int i = 0; i < LISTING_SIZE; i++) {
+            listing.add(encryptionUtil.encrypt(("Document " + i + ".pdf").getBytes()));
+        }
+        virtualThreads = Executors.newVirtualThreadPerTaskExecutor();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        virtualThreads.close();
+    }
+
+    @Benchmark
+    public byte[] decryptOneLegacy() throws Exception {
+        return legacy.decrypt(encryptedName);
+    }
+
+    @Benchmark
+    public byte[] decryptOne() throws Exception {
+        return encryptionUtil.decrypt(encryptedName);
+    }
+
+    @Benchmark
+    public List<byte[]> decryptListingLegacy() throws Exception {
+        List<byte[]> names = new ArrayList<>(listing.size());
+        for (byte[] name : listing) {
+            names.add(legacy.decrypt(name));
+        }
+        return names;
+    }
+
+    @Benchmark
+    public List<byte[]> decryptListing() throws Exception {
+        return encryptionUtil.decryptAll(listing);
+    }
+
+    @Benchmark
+    public List<byte[]> encryptOnVirtualThreadsLegacy() throws Exception {
+        return onVirtualThreads(() -> legacy.encrypt(encryptedName));
+    }
+
+    @Benchmark
+    public List<byte[]> encryptOnVirtualThreads() throws Exception {
+        return onVirtualThreads(() -> encryptionUtil.encrypt(encryptedName));
+    }
+
+    private List<byte[]> onVirtualThreads(Callable<byte[]> task) throws Exception {
+        List<Future<byte[]>> futures = new ArrayList<>(UPLOAD_TASKS);
+        for (int i = 0; i < UPLOAD_TASKS; i++) {
+            futures.add(virtualThreads.submit(task));
+        }
+        List<byte[]> results = new ArrayList<>(UPLOAD_TASKS);
+        for (Future<byte[]> future : futures) {
+            results.add(future.get());
+        }
+        return results;
+    }
+
+    /**
+     * EncryptionUtil as it was before the key material and Ciphers were reused.
+     */
+    static final class LegacyEncryptionUtil {
+
+        private static final String ALGORITHM = "AES";
+        private static final String TRANSFORMATION = "AES/CBC/PKCS5Padding";
+
+        private final String secretKey;
+        private final String initVector;
+
+        LegacyEncryptionUtil(String secretKey, String initVector) {
+            this.secretKey = secretKey;
+            this.initVector = initVector;
+        }
+
+        byte[] encrypt(byte[] inputData) throws Exception {
+            Cipher cipher = Cipher.getInstance(TRANSFORMATION);
+            cipher.init(Cipher.ENCRYPT_MODE, new SecretKeySpec(Base64.getDecoder().decode(secretKey), ALGORITHM),
+                    new IvParameterSpec(Base64.getDecoder().decode(initVector)));
+            return cipher.doFinal(inputData);
+        }
+
+        byte[] decrypt(byte[] encryptedData) throws Exception {
+            Cipher cipher = Cipher.getInstance(TRANSFORMATION);
+            cipher.init(Cipher.DECRYPT_MODE, new SecretKeySpec(Base64.getDecoder().decode(secretKey), ALGORITHM),
+                    new IvParameterSpec(Base64.getDecoder().decode(initVector)));
+            return cipher.doFinal(encryptedData);
+        }
+    }
+}
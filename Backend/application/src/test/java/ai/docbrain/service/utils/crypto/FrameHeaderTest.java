@@ -0,0 +1,93 @@
+package ai.docbrain.service.utils.crypto;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.security.SecureRandom;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class FrameHeaderTest {
+
+    private static final int FRAME_SIZE = FrameHeader.MIN_FRAME_SIZE;
+    private static final int SEALED_FRAME = FRAME_SIZE + FrameCrypto.TAG_LENGTH;
+
+    @Test
+    void parsesWhatItEncodes() throws IOException {
+        FrameHeader header = FrameHeader.create((byte) 3, FRAME_SIZE, new SecureRandom());
+
+        FrameHeader parsed = FrameHeader.parse(header.encoded());
+
+        assertThat(parsed.codec()).isEqualTo((byte) 3);
+        assertThat(parsed.frameSize()).isEqualTo(FRAME_SIZE);
+        assertThat(parsed.salt()).isEqualTo(header.salt());
+        assertThat(parsed.noncePrefix()).isEqualTo(header.noncePrefix());
+        assertThat(parsed.encoded()).isEqualTo(header.encoded());
+    }
+
+    @Test
+    void rejectsForeignAndDamagedHeaders() {
+        byte[] encoded = header().encoded();
+
+        byte[] noMagic = encoded.clone();
+        noMagic[0] = 'X';
+        assertThatThrownBy(() -> FrameHeader.parse(noMagic)).hasMessage("Not a framed ciphertext");
+
+        byte[] version = encoded.clone();
+        version[4] = 2;
+        assertThatThrownBy(() -> FrameHeader.parse(version)).hasMessage("Unsupported ciphertext version 2");
+
+        byte[] frameSize = encoded.clone();
+        ByteBuffer.wrap(frameSize, 6, 4).putInt(FrameHeader.MAX_FRAME_SIZE + 1);
+        assertThatThrownBy(() -> FrameHeader.parse(frameSize)).hasMessageStartingWith("Invalid frame size");
+
+        assertThatThrownBy(() -> FrameHeader.read(new ByteArrayInputStream(encoded, 0, FrameHeader.LENGTH - 1)))
+                .hasMessage("Truncated ciphertext header");
+    }
+
+    @Test
+    void rejectsFrameSizesOutOfRange() {
+        assertThatThrownBy(() -> FrameHeader.checkFrameSize(FrameHeader.MIN_FRAME_SIZE - 1))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> FrameHeader.checkFrameSize(FrameHeader.MAX_FRAME_SIZE + 1))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void plaintextLengthCountsOneTagPerFrame() throws IOException {
+        FrameHeader header = header();
+
+        assertThat(header.plaintextLength(FrameHeader.LENGTH + FrameCrypto.TAG_LENGTH)).isZero();
+        assertThat(header.plaintextLength(FrameHeader.LENGTH + FrameCrypto.TAG_LENGTH + 1)).isEqualTo(1);
+        assertThat(header.plaintextLength(FrameHeader.LENGTH + SEALED_FRAME)).isEqualTo(FRAME_SIZE);
+        assertThat(header.plaintextLength(FrameHeader.LENGTH + SEALED_FRAME + FrameCrypto.TAG_LENGTH + 1))
+                .isEqualTo(FRAME_SIZE + 1);
+        assertThat(header.frameOffset(2)).isEqualTo(FrameHeader.LENGTH + 2L * SEALED_FRAME);
+    }
+
+    @Test
+    void plaintextLengthRejectsATailShorterThanATag() {
+        FrameHeader header = header();
+
+        assertThatThrownBy(() -> header.plaintextLength(FrameHeader.LENGTH + FrameCrypto.TAG_LENGTH - 1))
+                .hasMessage("Truncated ciphertext");
+        assertThatThrownBy(() -> header.plaintextLength(FrameHeader.LENGTH + SEALED_FRAME + 1))
+                .hasMessage("Truncated ciphertext");
+    }
+
+    @Test
+    void recognisesTheMagic() {
+        byte[] encoded = header().encoded();
+
+        assertThat(FrameHeader.hasMagic(encoded, encoded.length)).isTrue();
+        assertThat(FrameHeader.hasMagic(encoded, 3)).isFalse();
+        assertThat(FrameHeader.hasMagic(new byte[]{1, 2, 3, 4}, 4)).isFalse();
+    }
+
+    private static FrameHeader header() {
+        return FrameHeader.create(FramedCipher.CODEC_NONE, FRAME_SIZE, new SecureRandom());
+    }
+}
@@ -0,0 +1,264 @@
+package ai.docbrain.service.utils.crypto;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import javax.crypto.SecretKey;
+import javax.crypto.spec.SecretKeySpec;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.SeekableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Round trips through the stream and channel readers, and the changes to a ciphertext that
+ * must fail authentication. The smallest frame size keeps the boundary cases cheap.
+ */
+class FramedCipherTest {
+
+    private static final int FRAME = FrameHeader.MIN_FRAME_SIZE;
+    private static final int SEALED_FRAME = FRAME + FrameCrypto.TAG_LENGTH;
+
+    private final SecretKey key = new SecretKeySpec(plaintext(32), "AES");
+    private final FramedCipher cipher = new FramedCipher(key, FRAME);
+
+    @TempDir
+    private Path tempDir;
+
+    @ParameterizedTest
+    @ValueSource(ints = {0, 1, FRAME - 1, FRAME, FRAME + 1, 3 * FRAME})
+    void streamRoundTrip(int length) throws IOException {
+        byte[] plaintext = plaintext(length);
+        byte[] ciphertext = encrypt(plaintext);
+
+        // An empty plaintext still gets one frame, the tag that marks the end
+        int frames = Math.max(1, (length + FRAME - 1) / FRAME);
+        assertThat(ciphertext).hasSize(FrameHeader.LENGTH + length + frames * FrameCrypto.TAG_LENGTH);
+        assertThat(decrypt(ciphertext)).isEqualTo(plaintext);
+    }
+
+    @ParameterizedTest
+    @ValueSource(ints = {0, 1, FRAME - 1, FRAME, FRAME + 1, 3 * FRAME})
+    void channelRoundTrip(int length) throws IOException {
+        byte[] plaintext = plaintext(length);
+
+        try (SeekableByteChannel channel = cipher.decrypt(channel(encrypt(plaintext)))) {
+            assertThat(channel.size()).isEqualTo(length);
+            assertThat(read(channel, length + 1)).isEqualTo(plaintext);
+            assertThat(channel.read(ByteBuffer.allocate(1))).isEqualTo(-1);
+        }
+    }
+
+    @Test
+    void codecIsKeptInTheHeader() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        cipher.encrypt(out, (byte) 7).close();
+
+        assertThat(FramedCipher.readHeader(channel(out.toByteArray())).codec()).isEqualTo((byte) 7);
+    }
+
+    @Test
+    void truncationAtAFrameBoundaryIsDetected() throws IOException {
+        byte[] ciphertext = encrypt(plaintext(2 * FRAME + 10));
+        byte[] truncated = Arrays.copyOf(ciphertext, FrameHeader.LENGTH + 2 * SEALED_FRAME);
+
+        assertThatThrownBy(() -> decrypt(truncated)).hasMessageContaining("failed authentication");
+        assertThatThrownBy(() -> readAll(cipher.decrypt(channel(truncated)))).hasMessageContaining("failed authentication");
+    }
+
+    @Test
+    void truncationWithinAFrameIsDetected() throws IOException {
+        byte[] ciphertext = encrypt(plaintext(2 * FRAME));
+        byte[] truncated = Arrays.copyOf(ciphertext, ciphertext.length - 1);
+
+        assertThatThrownBy(() -> decrypt(truncated)).hasMessageContaining("failed authentication");
+        assertThatThrownBy(() -> decrypt(Arrays.copyOf(ciphertext, FrameHeader.LENGTH + FrameCrypto.TAG_LENGTH - 1)))
+                .hasMessageContaining("Truncated ciphertext");
+    }
+
+    @Test
+    void reorderedFramesAreDetected() throws IOException {
+        byte[] ciphertext = encrypt(plaintext(3 * FRAME + 1));
+        byte[] swapped = ciphertext.clone();
+        System.arraycopy(ciphertext, FrameHeader.LENGTH, swapped, FrameHeader.LENGTH + SEALED_FRAME, SEALED_FRAME);
+        System.arraycopy(ciphertext, FrameHeader.LENGTH + SEALED_FRAME, swapped, FrameHeader.LENGTH, SEALED_FRAME);
+
+        assertThatThrownBy(() -> decrypt(swapped)).hasMessage("Frame 0 failed authentication");
+        try (SeekableByteChannel channel = cipher.decrypt(channel(swapped))) {
+            channel.position(FRAME);
+            assertThatThrownBy(() -> channel.read(ByteBuffer.allocate(1))).hasMessage("Frame 1 failed authentication");
+        }
+    }
+
+    @Test
+    void frameFromAnotherCiphertextIsDetected() throws IOException {
+        byte[] plaintext = plaintext(FRAME + 1);
+        byte[] first = encrypt(plaintext);
+        byte[] spliced = encrypt(plaintext);
+        System.arraycopy(first, FrameHeader.LENGTH, spliced, FrameHeader.LENGTH, SEALED_FRAME);
+
+        assertThatThrownBy(() -> decrypt(spliced)).hasMessage("Frame 0 failed authentication");
+    }
+
+    @Test
+    void tamperedHeaderIsDetected() throws IOException {
+        byte[] ciphertext = encrypt(plaintext(FRAME + 1));
+
+        // Codec, salt and nonce prefix, none of them checked by parsing
+        for (int offset : new int[]{5, 10, FrameHeader.LENGTH - 1}) {
+            byte[] tampered = ciphertext.clone();
+            tampered[offset] ^= 1;
+            assertThatThrownBy(() -> decrypt(tampered)).hasMessage("Frame 0 failed authentication");
+        }
+    }
+
+    @Test
+    void tamperedFrameIsDetected() throws IOException {
+        byte[] ciphertext = encrypt(plaintext(FRAME + 1));
+        byte[] tampered = ciphertext.clone();
+        tampered[FrameHeader.LENGTH + SEALED_FRAME] ^= 1;
+
+        assertThatThrownBy(() -> decrypt(tampered)).hasMessage("Frame 1 failed authentication");
+    }
+
+    @Test
+    void frameSealedAsLastCannotBeReadAsAMiddleFrame() throws IOException {
+        FrameHeader header = FrameHeader.parse(Arrays.copyOf(encrypt(new byte[0]), FrameHeader.LENGTH));
+        byte[] frame = new byte[SEALED_FRAME];
+        int sealed = new FrameCrypto(key, header).seal(0, true, new byte[FRAME], FRAME, frame);
+
+        assertThat(sealed).isEqualTo(SEALED_FRAME);
+        assertThatThrownBy(() -> new FrameCrypto(key, header).open(0, false, frame, sealed, new byte[FRAME]))
+                .hasMessage("Frame 0 failed authentication");
+        assertThat(new FrameCrypto(key, header).open(0, true, frame, sealed, new byte[FRAME])).isEqualTo(FRAME);
+    }
+
+    @Test
+    void wrongKeyFailsAuthentication() throws IOException {
+        byte[] ciphertext = encrypt(plaintext(10));
+        FramedCipher other = new FramedCipher(new SecretKeySpec(new byte[32], "AES"), FRAME);
+
+        assertThatThrownBy(() -> other.decrypt(new ByteArrayInputStream(ciphertext)).readAllBytes())
+                .hasMessage("Frame 0 failed authentication");
+    }
+
+    @Test
+    void skipLandsOnTheRequestedByte() throws IOException {
+        byte[] plaintext = plaintext(5 * FRAME + 100);
+        byte[] ciphertext = encrypt(plaintext);
+
+        for (int offset : new int[]{1, FRAME - 1, FRAME, FRAME + 1, 3 * FRAME + 17, 5 * FRAME, 5 * FRAME + 99}) {
+            try (InputStream in = cipher.decrypt(new ByteArrayInputStream(ciphertext))) {
+                assertThat(in.skip(offset)).isEqualTo(offset);
+                assertThat(in.readAllBytes()).isEqualTo(Arrays.copyOfRange(plaintext, offset, plaintext.length));
+            }
+        }
+    }
+
+    @Test
+    void skipContinuesFromAPartlyReadFrame() throws IOException {
+        byte[] plaintext = plaintext(3 * FRAME);
+
+        try (InputStream in = cipher.decrypt(new ByteArrayInputStream(encrypt(plaintext)))) {
+            assertThat(in.readNBytes(10)).isEqualTo(Arrays.copyOf(plaintext, 10));
+            assertThat(in.skip(FRAME)).isEqualTo(FRAME);
+            assertThat(in.read()).isEqualTo(plaintext[FRAME + 10] & 0xFF);
+            assertThat(in.readAllBytes()).isEqualTo(Arrays.copyOfRange(plaintext, FRAME + 11, plaintext.length));
+        }
+    }
+
+    @Test
+    void skipPastTheEndOfTheCiphertextFails() throws IOException {
+        byte[] ciphertext = encrypt(plaintext(2 * FRAME + 5));
+
+        try (InputStream in = cipher.decrypt(new ByteArrayInputStream(ciphertext))) {
+            assertThatThrownBy(() -> in.skip(10L * FRAME)).hasMessageStartingWith("Ciphertext ended within skipped frame");
+        }
+    }
+
+    @Test
+    void skipOverATruncationAtAFrameBoundaryIsDetected() throws IOException {
+        byte[] ciphertext = encrypt(plaintext(3 * FRAME));
+        // The last two frames dropped, the one left was not sealed as the last
+        byte[] truncated = Arrays.copyOf(ciphertext, FrameHeader.LENGTH + SEALED_FRAME);
+
+        try (InputStream in = cipher.decrypt(new ByteArrayInputStream(truncated))) {
+            assertThatThrownBy(() -> in.skip(FRAME)).hasMessage("Frame 0 failed authentication");
+        }
+        byte[] twoFrames = Arrays.copyOf(ciphertext, FrameHeader.LENGTH + 2 * SEALED_FRAME);
+        try (InputStream in = cipher.decrypt(new ByteArrayInputStream(twoFrames))) {
+            assertThatThrownBy(() -> in.skip(2 * FRAME)).hasMessage("Frame 1 failed authentication");
+        }
+    }
+
+    @Test
+    void channelReadsRanges() throws IOException {
+        byte[] plaintext = plaintext(4 * FRAME + 33);
+
+        try (SeekableByteChannel channel = cipher.decrypt(channel(encrypt(plaintext)))) {
+            for (int start : new int[]{3 * FRAME + 20, 0, FRAME - 2, 2 * FRAME, 4 * FRAME + 32}) {
+                int length = Math.min(FRAME + 5, plaintext.length - start);
+                channel.position(start);
+                assertThat(read(channel, length)).isEqualTo(Arrays.copyOfRange(plaintext, start, start + length));
+                assertThat(channel.position()).isEqualTo(start + length);
+            }
+            channel.position(plaintext.length + 10L);
+            assertThat(channel.read(ByteBuffer.allocate(1))).isEqualTo(-1);
+        }
+    }
+
+    private byte[] encrypt(byte[] plaintext) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (OutputStream encrypting = cipher.encrypt(out)) {
+            // Odd sized writes, so frames are filled across several calls
+            for (int offset = 0; offset < plaintext.length; offset += 1000) {
+                encrypting.write(plaintext, offset, Math.min(1000, plaintext.length - offset));
+            }
+        }
+        return out.toByteArray();
+    }
+
+    private byte[] decrypt(byte[] ciphertext) throws IOException {
+        try (InputStream in = cipher.decrypt(new ByteArrayInputStream(ciphertext))) {
+            return in.readAllBytes();
+        }
+    }
+
+    private SeekableByteChannel channel(byte[] ciphertext) throws IOException {
+        Path file = Files.createTempFile(tempDir, "frames", ".bin");
+        Files.write(file, ciphertext);
+        return Files.newByteChannel(file);
+    }
+
+    private static byte[] read(SeekableByteChannel channel, int length) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(length);
+        while (buffer.hasRemaining() && channel.read(buffer) > 0) {
+            // reads until the buffer is full or the plaintext ends
+        }
+        return Arrays.copyOf(buffer.array(), buffer.position());
+    }
+
+    private static byte[] readAll(SeekableByteChannel channel) throws IOException {
+        try (channel) {
+            return read(channel, (int) channel.size());
+        }
+    }
+
+    private static byte[] plaintext(int length) {
+        byte[] plaintext = new byte[length];
+        new Random(length).nextBytes(plaintext);
+        return plaintext;
+    }
+}
@@ -28,6 +28,10 @@ public class DocumentChunk {
     @Column(name = "chunk_order")
     private Integer chunkOrder;
 
+    // Legacy text form, new chunks only have embeddingVector
     @Column(columnDefinition = "TEXT")
     private String embedding;
+
+    @Column(name = "embedding_vector")
+    private byte[] embeddingVector;
 }
@@ -0,0 +1,12 @@
+package ai.docbrain.domain.AI;
+
+public enum ProcessingJobStatus {
+    QUEUED,
+    SENT, // Accepted by the processing service, waiting for its callback
+    CALLBACK_RECEIVED,
+    FAILED; // Out of attempts
+
+    public boolean isFinished() {
+        return this == CALLBACK_RECEIVED || this == FAILED;
+    }
+}
@@ -55,8 +55,8 @@ public class Document extends BaseEntity {
     @Column(name = "ai_processed", nullable = false)
     private boolean aiProcessed = false;
 
-//    @Lob is used in postgres to store OID - Object Identifier
-//    NOT BYTEA SO IT WAS CONFLICT WITH COLUMN DEFINITION
-    @Column(name = "file_data", nullable = false, columnDefinition = "bytea")
-    private byte[] fileData;
+    // Content lives in its own table and is only fetched for real content reads
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "content_id")
+    private DocumentContent content;
 }
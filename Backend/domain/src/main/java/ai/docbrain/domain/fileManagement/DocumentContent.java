@@ -0,0 +1,53 @@
+package ai.docbrain.domain.fileManagement;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.ZonedDateTime;
+
+/**
+ * Encrypted content of a document, kept apart from the document metadata so loading a
+ * {@link Document} for a listing, a rename or a chat never pulls the file bytes.
+ * Identical uploads within a company share one row, see {@code refCount}.
+ */
+@Entity
+@Table(name = "document_contents")
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class DocumentContent {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "company_id", nullable = false)
+    private Long companyId;
+
+    @Column(name = "storage_key", length = 64)
+    private String storageKey; // Key of the encrypted content in the BlobStore
+
+    // Only set for content uploaded before the blob store, moved out by the background migration
+    @Column(name = "file_data", columnDefinition = "bytea")
+    private byte[] fileData;
+
+    @Column(name = "size", nullable = false)
+    private Long size; // Plaintext size in bytes
+
+    @Column(name = "content_hash", length = 64)
+    private String contentHash; // Hex SHA-256 of the plaintext, null for legacy content
+
+    @Column(name = "codec", nullable = false)
+    private byte codec; // Codec applied before encryption, see CompressFileOps
+
+    @Column(name = "stored_size")
+    private Long storedSize; // Encrypted size in the blob store, null for legacy content
+
+    @Column(name = "ref_count", nullable = false)
+    private int refCount; // Documents sharing this content, garbage collected at 0
+
+    @Column(name = "created_at")
+    private ZonedDateTime createdAt;
+}
@@ -0,0 +1,46 @@
+package ai.docbrain.domain.fileManagement;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.ZonedDateTime;
+
+/**
+ * Preview artifacts of a document, derived in the background from its content. The artifacts
+ * themselves are small encrypted blobs in the blob store.
+ */
+@Entity
+@Table(name = "document_previews")
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class DocumentPreview {
+
+    @Id
+    @Column(name = "document_id")
+    private Long documentId;
+
+    @Column(name = "content_id", nullable = false)
+    private Long contentId; // Content the artifacts were derived from, doubles as their version
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "status", nullable = false)
+    private DocumentPreviewStatus status;
+
+    @Column(name = "page_count")
+    private Integer pageCount; // PDFs only
+
+    @Column(name = "thumbnail_key", length = 64)
+    private String thumbnailKey; // Images only
+
+    @Column(name = "thumbnail_type", length = 50)
+    private String thumbnailType;
+
+    @Column(name = "first_page_key", length = 64)
+    private String firstPageKey; // PDFs only
+
+    @Column(name = "created_at", insertable = false, updatable = false)
+    private ZonedDateTime createdAt;
+}
@@ -0,0 +1,7 @@
+package ai.docbrain.domain.fileManagement;
+
+public enum DocumentPreviewStatus {
+    READY,
+    SKIPPED, // Content too large to derive previews from
+    FAILED
+}
@@ -0,0 +1,37 @@
+package ai.docbrain.domain.fileManagement;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.io.Serializable;
+
+/**
+ * Links a document to one of its keywords or tags.
+ */
+@Entity
+@Table(name = "document_terms")
+@IdClass(DocumentTerm.Key.class)
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class DocumentTerm {
+
+    @Id
+    @Column(name = "document_id")
+    private Long documentId;
+
+    @Id
+    @Column(name = "term_id")
+    private Long termId;
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Key implements Serializable {
+        private static final long serialVersionUID = 1L;
+
+        private Long documentId;
+        private Long termId;
+    }
+}
@@ -0,0 +1,34 @@
+package ai.docbrain.domain.fileManagement;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+/**
+ * A keyword or tag of a company's documents, with the number of documents carrying it.
+ */
+@Entity
+@Table(name = "terms")
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class Term {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "company_id", nullable = false)
+    private Long companyId;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "kind", nullable = false, length = 10)
+    private TermKind kind;
+
+    @Column(name = "value", nullable = false)
+    private String value; // Trimmed and lower case
+
+    @Column(name = "document_count", nullable = false)
+    private int documentCount;
+}
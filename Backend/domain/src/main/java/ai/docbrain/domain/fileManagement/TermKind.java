@@ -0,0 +1,6 @@
+package ai.docbrain.domain.fileManagement;
+
+public enum TermKind {
+    KEYWORD, // Extracted by the AI processing
+    TAG
+}
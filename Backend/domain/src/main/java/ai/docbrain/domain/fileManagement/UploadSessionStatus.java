@@ -0,0 +1,6 @@
+package ai.docbrain.domain.fileManagement;
+
+public enum UploadSessionStatus {
+    OPEN,
+    COMPLETING
+}
@@ -0,0 +1,141 @@
+package ai.docbrain.persistence.AI;
+
+import ai.docbrain.service.AI.DTO.DocumentChunkDto;
+import ai.docbrain.service.AI.EmbeddingCodec;
+import ai.docbrain.service.AI.IDocumentChunkBulkRepository;
+import lombok.extern.log4j.Log4j2;
+import org.postgresql.PGConnection;
+import org.postgresql.copy.PGCopyOutputStream;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Writes chunks with {@code COPY ... FROM STDIN (FORMAT binary)}, one round trip for all chunks of
+ * a document. Connections that are not PostgreSQL ones, or {@code app.chunk-ingest.copy: false},
+ * fall back to multi-row INSERTs.
+ */
+@Log4j2
+@Repository
+public class DocumentChunkBulkRepositoryImpl implements IDocumentChunkBulkRepository {
+
+    private static final String TARGET = "document_chunks (document_id, content, chunk_order, embedding_vector)";
+    private static final byte[] COPY_SIGNATURE = {'P', 'G', 'C', 'O', 'P', 'Y', '\n', (byte) 0xFF, '\r', '\n', 0};
+    private static final int COPY_BUFFER_SIZE = 64 * 1024;
+    // Four parameters a row, far below the 32767 parameters PostgreSQL allows a statement
+    private static final int ROWS_PER_INSERT = 250;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final EmbeddingCodec embeddingCodec;
+    private final boolean copyEnabled;
+
+    public DocumentChunkBulkRepositoryImpl(JdbcTemplate jdbcTemplate,
+                                           EmbeddingCodec embeddingCodec,
+                                           @Value("${app.chunk-ingest.copy:true}") boolean copyEnabled) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.embeddingCodec = embeddingCodec;
+        this.copyEnabled = copyEnabled;
+    }
+
+    @Override
+    public int insertAll(Long documentId, List<DocumentChunkDto> chunks) {
+        if (chunks.isEmpty()) {
+            return 0;
+        }
+        long start = System.nanoTime();
+        List<Row> rows = chunks.stream()
+                .map(chunk -> new Row(withoutNul(chunk.getContent()), chunk.getChunkOrder(),
+                        embeddingCodec.encodeText(chunk.getEmbedding())))
+                .toList();
+
+        boolean copied = copyEnabled
+                && Boolean.TRUE.equals(jdbcTemplate.execute((ConnectionCallback<Boolean>) connection -> copy(connection, documentId, rows)));
+        if (!copied) {
+            insertBatched(documentId, rows);
+        }
+
+        long micros = Math.max(1, (System.nanoTime() - start) / 1000);
+        log.info("Inserted {} chunks of document {} with {} in {} ms, {} rows/s", rows.size(), documentId,
+                copied ? "COPY" : "multi-row INSERTs", micros / 1000, rows.size() * 1_000_000L / micros);
+        return rows.size();
+    }
+
+    /**
+     * @return false if the connection cannot COPY
+     */
+    private boolean copy(Connection connection, Long documentId, List<Row> rows) throws SQLException {
+        if (!connection.isWrapperFor(PGConnection.class)) {
+            return false;
+        }
+        PGCopyOutputStream copy = new PGCopyOutputStream(connection.unwrap(PGConnection.class).getCopyAPI()
+                .copyIn("COPY " + TARGET + " FROM STDIN (FORMAT binary)"), COPY_BUFFER_SIZE);
+        // Closing the stream ends the COPY
+        try (DataOutputStream out = new DataOutputStream(copy)) {
+            out.write(COPY_SIGNATURE);
+            out.writeInt(0); // flags
+            out.writeInt(0); // header extension length
+            for (Row row : rows) {
+                out.writeShort(4);
+                out.writeInt(8);
+                out.writeLong(documentId);
+                writeBytes(out, row.content() == null ? null : row.content().getBytes(StandardCharsets.UTF_8));
+                if (row.chunkOrder() == null) {
+                    out.writeInt(-1);
+                } else {
+                    out.writeInt(4);
+                    out.writeInt(row.chunkOrder());
+                }
+                writeBytes(out, row.vector());
+            }
+            out.writeShort(-1);
+        } catch (IOException e) {
+            throw new SQLException("Failed to copy the chunks of document " + documentId, e);
+        }
+        return true;
+    }
+
+    private void insertBatched(Long documentId, List<Row> rows) {
+        for (int from = 0; from < rows.size(); from += ROWS_PER_INSERT) {
+            List<Row> batch = rows.subList(from, Math.min(rows.size(), from + ROWS_PER_INSERT));
+            String sql = "INSERT INTO " + TARGET + " VALUES " + String.join(", ", Collections.nCopies(batch.size(), "(?, ?, ?, ?)"));
+            jdbcTemplate.update(sql, ps -> {
+                int parameter = 1;
+                for (Row row : batch) {
+                    ps.setLong(parameter++, documentId);
+                    ps.setString(parameter++, row.content());
+                    ps.setObject(parameter++, row.chunkOrder(), Types.INTEGER);
+                    ps.setBytes(parameter++, row.vector());
+                }
+            });
+        }
+    }
+
+    private static void writeBytes(DataOutputStream out, byte[] value) throws IOException {
+        if (value == null) {
+            out.writeInt(-1);
+        } else {
+            out.writeInt(value.length);
+            out.write(value);
+        }
+    }
+
+    /**
+     * PostgreSQL text cannot hold NUL characters, which PDF extraction sometimes produces.
+     */
+    private static String withoutNul(String content) {
+        return content == null || content.indexOf('\u0000') < 0 ? content : content.replace("\u0000", "");
+    }
+
+    private record Row(String content, Integer chunkOrder, byte[] vector) {
+    }
+}
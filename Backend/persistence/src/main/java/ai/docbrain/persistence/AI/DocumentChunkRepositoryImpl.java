@@ -1,34 +1,44 @@
 package ai.docbrain.persistence.AI;
 
 import ai.docbrain.domain.AI.DocumentChunk;
-import ai.docbrain.domain.fileManagement.Document;
 import ai.docbrain.service.AI.DTO.DocumentChunkDto;
+import ai.docbrain.service.AI.DTO.DocumentChunkEmbedding;
+import ai.docbrain.service.AI.DTO.DocumentChunkText;
+import ai.docbrain.service.AI.DTO.DocumentChunkVersion;
+import ai.docbrain.service.AI.EmbeddingCodec;
 import ai.docbrain.service.AI.IDocumentChunkRepository;
 import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
 import org.springframework.stereotype.Repository;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 import java.util.stream.Collectors;
 
 @RequiredArgsConstructor
 @Repository
 public class DocumentChunkRepositoryImpl implements IDocumentChunkRepository {
-    private final DocumentChunkSpringRepository documentChunkSpringRepository;
+    private static final RowMapper<DocumentChunkText> TEXT_ROW_MAPPER = (rs, rowNum) -> new DocumentChunkText(
+            rs.getLong("id"), rs.getLong("document_id"), (Integer) rs.getObject("chunk_order"), rs.getString("content"), null);
 
+    // Text embeddings are chunks the background migration has not converted yet
+    private static final RowMapper<DocumentChunkText> TEXT_WITH_VECTOR_ROW_MAPPER = (rs, rowNum) -> {
+        byte[] vector = rs.getBytes("embedding_vector");
+        return new DocumentChunkText(rs.getLong("id"), rs.getLong("document_id"), (Integer) rs.getObject("chunk_order"),
+                rs.getString("content"), vector != null ? EmbeddingCodec.decode(vector) : EmbeddingCodec.parse(rs.getString("embedding")));
+    };
+
+    private static final RowMapper<DocumentChunkEmbedding> EMBEDDING_ROW_MAPPER = (rs, rowNum) -> new DocumentChunkEmbedding(
+            rs.getLong("id"), (Integer) rs.getObject("chunk_order"), rs.getInt("content_bytes"),
+            rs.getInt("embedding_bytes"), rs.getString("embedding"), rs.getBytes("embedding_vector"));
+
+    private final DocumentChunkSpringRepository documentChunkSpringRepository;
+    private final JdbcTemplate jdbcTemplate;
 
-    @Override
-    public void saveAll(List<DocumentChunkDto> documentChunkDto, Document document) {
-        List<DocumentChunk> documentChunks = documentChunkDto.stream()
-                .map(chunk -> DocumentChunk.builder()
-                        .id(chunk.getId())
-                        .document(document)
-                        .content(chunk.getContent())
-                        .chunkOrder(chunk.getChunkOrder())
-                        .embedding(chunk.getEmbedding())
-                        .build())
-                .collect(Collectors.toList());
-        List<DocumentChunk> savedDocumentChunks = documentChunkSpringRepository.saveAll(documentChunks);
-    }
 
     @Override
     public List<DocumentChunkDto> findByDocumentIdOrderByChunkOrder(Long documentId) {
@@ -38,9 +48,78 @@ public class DocumentChunkRepositoryImpl implements IDocumentChunkRepository {
                         .id(chunk.getId())
                         .content(chunk.getContent())
                         .chunkOrder(chunk.getChunkOrder())
-                        .embedding(chunk.getEmbedding())
+                        .embedding(chunk.getEmbeddingVector() != null
+                                ? EmbeddingCodec.toText(chunk.getEmbeddingVector()) : chunk.getEmbedding())
                         .build())
                 .collect(Collectors.toList());
     }
 
+    @Override
+    public int copyChunks(Long sourceDocumentId, Long targetDocumentId) {
+        return documentChunkSpringRepository.copyChunks(sourceDocumentId, targetDocumentId);
+    }
+
+    @Override
+    public int deleteByDocumentId(Long documentId) {
+        return jdbcTemplate.update("DELETE FROM document_chunks WHERE document_id = ?", documentId);
+    }
+
+    @Override
+    public List<DocumentChunkText> findTextByDocumentId(Long documentId) {
+        return jdbcTemplate.query("SELECT id, document_id, chunk_order, content FROM document_chunks " +
+                "WHERE document_id = ? ORDER BY chunk_order", TEXT_ROW_MAPPER, documentId);
+    }
+
+    @Override
+    public List<DocumentChunkText> findTextWithVectorByDocumentId(Long documentId) {
+        return jdbcTemplate.query("SELECT id, document_id, chunk_order, content, embedding, embedding_vector FROM document_chunks " +
+                "WHERE document_id = ? ORDER BY chunk_order", TEXT_WITH_VECTOR_ROW_MAPPER, documentId);
+    }
+
+    @Override
+    public List<DocumentChunkText> findTextWithVectorByCompanyId(Long companyId, Long afterChunkId, int limit) {
+        return jdbcTemplate.query("SELECT c.id, c.document_id, c.chunk_order, c.content, c.embedding, c.embedding_vector " +
+                "FROM document_chunks c JOIN documents d ON d.id = c.document_id " +
+                "WHERE d.company_id = ? AND c.id > ? ORDER BY c.id LIMIT ?", TEXT_WITH_VECTOR_ROW_MAPPER, companyId, afterChunkId, limit);
+    }
+
+    @Override
+    public List<DocumentChunkText> findTextByIds(Collection<Long> chunkIds) {
+        if (chunkIds.isEmpty()) {
+            return List.of();
+        }
+        return jdbcTemplate.query("SELECT id, document_id, chunk_order, content FROM document_chunks " +
+                "WHERE id = ANY(?) ORDER BY chunk_order", ps -> ps.setArray(1,
+                ps.getConnection().createArrayOf("bigint", chunkIds.toArray())), TEXT_ROW_MAPPER);
+    }
+
+    @Override
+    public List<DocumentChunkEmbedding> findEmbeddingsByDocumentId(Long documentId) {
+        return jdbcTemplate.query("SELECT id, chunk_order, COALESCE(octet_length(content), 0) AS content_bytes, " +
+                "COALESCE(octet_length(embedding), 0) AS embedding_bytes, embedding, embedding_vector FROM document_chunks " +
+                "WHERE document_id = ? ORDER BY chunk_order", EMBEDDING_ROW_MAPPER, documentId);
+    }
+
+    @Override
+    public List<DocumentChunkEmbedding> findPendingEmbeddingMigration(Long afterChunkId, int limit) {
+        return jdbcTemplate.query("SELECT id, chunk_order, 0 AS content_bytes, octet_length(embedding) AS embedding_bytes, " +
+                "embedding, embedding_vector FROM document_chunks " +
+                "WHERE embedding IS NOT NULL AND embedding_vector IS NULL AND id > ? ORDER BY id LIMIT ?",
+                EMBEDDING_ROW_MAPPER, afterChunkId, limit);
+    }
+
+    @Override
+    public int replaceTextEmbeddings(Map<Long, byte[]> vectors) {
+        List<Object[]> rows = new ArrayList<>(vectors.size());
+        vectors.forEach((id, vector) -> rows.add(new Object[]{vector, id}));
+        int[] counts = jdbcTemplate.batchUpdate("UPDATE document_chunks SET embedding_vector = ?, embedding = NULL " +
+                "WHERE id = ? AND embedding_vector IS NULL", rows);
+        return Arrays.stream(counts).sum();
+    }
+
+    @Override
+    public DocumentChunkVersion findVersionByDocumentId(Long documentId) {
+        return jdbcTemplate.queryForObject("SELECT count(*), COALESCE(max(id), 0) FROM document_chunks WHERE document_id = ?",
+                (rs, rowNum) -> new DocumentChunkVersion(rs.getLong(1), rs.getLong(2)), documentId);
+    }
 }
@@ -2,9 +2,19 @@ package ai.docbrain.persistence.AI;
 
 import ai.docbrain.domain.AI.DocumentChunk;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
 import java.util.List;
 
 public interface DocumentChunkSpringRepository extends JpaRepository<DocumentChunk, Long> {
     List<DocumentChunk> findByDocumentIdOrderByChunkOrder(Long documentId);
+
+    // Copied inside the database so the chunk texts never travel through the application
+    @Modifying
+    @Query(value = "INSERT INTO document_chunks (document_id, content, chunk_order, embedding, embedding_vector) " +
+            "SELECT :targetDocumentId, content, chunk_order, embedding, embedding_vector FROM document_chunks " +
+            "WHERE document_id = :sourceDocumentId ORDER BY chunk_order", nativeQuery = true)
+    int copyChunks(@Param("sourceDocumentId") Long sourceDocumentId, @Param("targetDocumentId") Long targetDocumentId);
 }
@@ -0,0 +1,101 @@
+package ai.docbrain.persistence.AI;
+
+import ai.docbrain.domain.AI.ProcessingJob;
+import ai.docbrain.domain.AI.ProcessingJobStatus;
+import ai.docbrain.service.AI.IProcessingJobRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Timestamp;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+@RequiredArgsConstructor
+public class ProcessingJobRepositoryImpl implements IProcessingJobRepository {
+
+    private static final RowMapper<ProcessingJob> JOB = (rs, rowNum) -> ProcessingJob.builder()
+            .id(rs.getLong("id"))
+            .documentId(rs.getLong("document_id"))
+            .companyId(rs.getLong("company_id"))
+            .status(ProcessingJobStatus.valueOf(rs.getString("status")))
+            .attempts(rs.getInt("attempts"))
+            .nextAttemptAt(toZoned(rs.getTimestamp("next_attempt_at")))
+            .sentAt(toZoned(rs.getTimestamp("sent_at")))
+            .lastError(rs.getString("last_error"))
+            .createdAt(toZoned(rs.getTimestamp("created_at")))
+            .updatedAt(toZoned(rs.getTimestamp("updated_at")))
+            .build();
+
+    private final ProcessingJobSpringRepository processingJobSpringRepository;
+    private final JdbcTemplate jdbcTemplate;
+
+    @Override
+    public ProcessingJob enqueue(Long documentId, Long companyId) {
+        jdbcTemplate.update("INSERT INTO processing_jobs (document_id, company_id, status) VALUES (?, ?, 'QUEUED') " +
+                "ON CONFLICT (document_id) WHERE status IN ('QUEUED', 'SENT') DO NOTHING", documentId, companyId);
+        return jdbcTemplate.query("SELECT * FROM processing_jobs WHERE document_id = ? AND status IN ('QUEUED', 'SENT')",
+                JOB, documentId).stream().findFirst()
+                // Finished between the insert and the select
+                .orElseGet(() -> findLatestByDocumentId(documentId).orElseThrow());
+    }
+
+    @Override
+    public Optional<ProcessingJob> findById(Long id) {
+        return processingJobSpringRepository.findById(id);
+    }
+
+    @Override
+    public Optional<ProcessingJob> findLatestByDocumentId(Long documentId) {
+        return processingJobSpringRepository.findFirstByDocumentIdOrderByIdDesc(documentId);
+    }
+
+    @Override
+    public List<ProcessingJob> findLatestByDocumentIds(Collection<Long> documentIds) {
+        return jdbcTemplate.query("SELECT DISTINCT ON (document_id) * FROM processing_jobs " +
+                "WHERE document_id = ANY(?) ORDER BY document_id, id DESC", ps -> ps.setArray(1,
+                ps.getConnection().createArrayOf("bigint", documentIds.toArray())), JOB);
+    }
+
+    @Override
+    public List<ProcessingJob> claimDue(int limit) {
+        return jdbcTemplate.query("UPDATE processing_jobs SET status = 'SENT', attempts = attempts + 1, " +
+                "sent_at = now(), updated_at = now() " +
+                "WHERE id IN (SELECT id FROM processing_jobs WHERE status = 'QUEUED' AND next_attempt_at <= now() " +
+                "             ORDER BY next_attempt_at LIMIT ? FOR UPDATE SKIP LOCKED) " +
+                "RETURNING *", JOB, limit);
+    }
+
+    @Override
+    public List<ProcessingJob> findSentBefore(ZonedDateTime cutoff, int limit) {
+        return jdbcTemplate.query("SELECT * FROM processing_jobs WHERE status = 'SENT' AND sent_at < ? " +
+                "ORDER BY sent_at LIMIT ?", JOB, Timestamp.from(cutoff.toInstant()), limit);
+    }
+
+    @Override
+    public boolean retry(Long id, String error, ZonedDateTime nextAttemptAt) {
+        return jdbcTemplate.update("UPDATE processing_jobs SET status = 'QUEUED', last_error = ?, next_attempt_at = ?, " +
+                "updated_at = now() WHERE id = ? AND status = 'SENT'", error, Timestamp.from(nextAttemptAt.toInstant()), id) == 1;
+    }
+
+    @Override
+    public boolean fail(Long id, String error) {
+        return jdbcTemplate.update("UPDATE processing_jobs SET status = 'FAILED', last_error = ?, updated_at = now() " +
+                "WHERE id = ? AND status = 'SENT'", error, id) == 1;
+    }
+
+    @Override
+    public List<ProcessingJob> markCallbackReceived(Long documentId) {
+        return jdbcTemplate.query("UPDATE processing_jobs SET status = 'CALLBACK_RECEIVED', updated_at = now() " +
+                "WHERE document_id = ? AND status IN ('QUEUED', 'SENT') RETURNING *", JOB, documentId);
+    }
+
+    private static ZonedDateTime toZoned(Timestamp timestamp) {
+        return timestamp == null ? null : timestamp.toInstant().atZone(ZoneId.systemDefault());
+    }
+}
@@ -0,0 +1,11 @@
+package ai.docbrain.persistence.AI;
+
+import ai.docbrain.domain.AI.ProcessingJob;
+import org.springframework.data.jpa.repository.JpaRepository;
+
+import java.util.Optional;
+
+public interface ProcessingJobSpringRepository extends JpaRepository<ProcessingJob, Long> {
+
+    Optional<ProcessingJob> findFirstByDocumentIdOrderByIdDesc(Long documentId);
+}
@@ -3,6 +3,7 @@ package ai.docbrain.persistence.fileManagement;
 import ai.docbrain.domain.fileManagement.DocumentActivityLog;
 import ai.docbrain.service.fileManagement.IDocumentActivityLogRepository;
 import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Repository;
 
 import java.util.List;
@@ -11,13 +12,30 @@ import java.util.List;
 @RequiredArgsConstructor
 public class DocumentActivityLogRepositoryImpl implements IDocumentActivityLogRepository {
 
+    private static final String INSERT_SQL = "INSERT INTO document_activity_logs " +
+            "(document_id, document_name, company_id, user_id, user_name, action, timestamp) VALUES (?, ?, ?, ?, ?, ?, ?)";
+
     private final DocumentActivityLogSpringRepository documentActivityLogSpringRepository;
+    private final JdbcTemplate jdbcTemplate;
 
     @Override
     public void save(DocumentActivityLog documentActivityLog) {
         documentActivityLogSpringRepository.save(documentActivityLog);
     }
 
+    @Override
+    public void insertAll(List<DocumentActivityLog> documentActivityLogs) {
+        jdbcTemplate.batchUpdate(INSERT_SQL, documentActivityLogs, documentActivityLogs.size(), (ps, log) -> {
+            ps.setLong(1, log.getDocumentId());
+            ps.setString(2, log.getDocumentName());
+            ps.setLong(3, log.getCompanyId());
+            ps.setLong(4, log.getUserId());
+            ps.setString(5, log.getUserName());
+            ps.setString(6, log.getAction());
+            ps.setObject(7, log.getTimestamp().toOffsetDateTime());
+        });
+    }
+
     @Override
     public List<DocumentActivityLog> findTop20ByCompanyIdOrderByTimestampDesc(Long companyId) {
         return documentActivityLogSpringRepository.findTop20ByCompanyIdOrderByTimestampDesc(companyId);
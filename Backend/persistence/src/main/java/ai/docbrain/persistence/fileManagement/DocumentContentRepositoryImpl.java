@@ -0,0 +1,112 @@
+package ai.docbrain.persistence.fileManagement;
+
+import ai.docbrain.domain.fileManagement.DocumentContent;
+import ai.docbrain.service.fileManagement.IDocumentContentRepository;
+import ai.docbrain.service.fileManagement.storage.StagedContent;
+import lombok.RequiredArgsConstructor;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+@Repository
+@RequiredArgsConstructor
+public class DocumentContentRepositoryImpl implements IDocumentContentRepository {
+
+    // Rows per statement, well below the 65535 bind parameters PostgreSQL accepts
+    private static final int INSERT_BATCH_SIZE = 1000;
+
+    private final DocumentContentSpringRepository documentContentSpringRepository;
+    private final JdbcTemplate jdbcTemplate;
+
+    @Override
+    public Long insertOrReference(Long companyId, String storageKey, long size, String contentHash, byte codec, long storedSize) {
+        // Upsert so two concurrent uploads of the same file end up on one row instead of a unique violation
+        return jdbcTemplate.queryForObject("INSERT INTO document_contents " +
+                        "(company_id, storage_key, size, content_hash, codec, stored_size, ref_count) VALUES (?, ?, ?, ?, ?, ?, 1) " +
+                        "ON CONFLICT (company_id, content_hash) WHERE content_hash IS NOT NULL " +
+                        "DO UPDATE SET ref_count = document_contents.ref_count + 1 " +
+                        "RETURNING id",
+                Long.class, companyId, storageKey, size, contentHash, (short) codec, storedSize);
+    }
+
+    @Override
+    public Map<String, DocumentContent> insertOrReferenceAll(Long companyId, List<StagedContent> contents, Map<String, Integer> referencesByHash) {
+        Map<String, DocumentContent> byHash = new HashMap<>();
+        for (int from = 0; from < contents.size(); from += INSERT_BATCH_SIZE) {
+            List<StagedContent> batch = contents.subList(from, Math.min(contents.size(), from + INSERT_BATCH_SIZE));
+            String sql = "INSERT INTO document_contents (company_id, storage_key, size, content_hash, codec, stored_size, ref_count) VALUES " +
+                    String.join(", ", Collections.nCopies(batch.size(), "(?, ?, ?, ?, ?, ?, ?)")) +
+                    " ON CONFLICT (company_id, content_hash) WHERE content_hash IS NOT NULL " +
+                    "DO UPDATE SET ref_count = document_contents.ref_count + EXCLUDED.ref_count " +
+                    "RETURNING id, storage_key, size, content_hash, codec, stored_size, ref_count";
+
+            List<Object> params = new ArrayList<>(batch.size() * 7);
+            for (StagedContent content : batch) {
+                params.add(companyId);
+                params.add(content.storageKey());
+                params.add(content.size());
+                params.add(content.contentHash());
+                params.add((short) content.codec());
+                params.add(content.storedSize());
+                params.add(referencesByHash.getOrDefault(content.contentHash(), 1));
+            }
+
+            jdbcTemplate.query(sql, rs -> {
+                DocumentContent content = DocumentContent.builder()
+                        .id(rs.getLong("id"))
+                        .companyId(companyId)
+                        .storageKey(rs.getString("storage_key"))
+                        .size(rs.getLong("size"))
+                        .contentHash(rs.getString("content_hash"))
+                        .codec((byte) rs.getShort("codec"))
+                        .storedSize(rs.getObject("stored_size", Long.class))
+                        .refCount(rs.getInt("ref_count"))
+                        .build();
+                byHash.put(content.getContentHash(), content);
+            }, params.toArray());
+        }
+        return byHash;
+    }
+
+    @Override
+    public Optional<DocumentContent> findById(Long contentId) {
+        return documentContentSpringRepository.findById(contentId);
+    }
+
+    @Override
+    public int decrementRefCount(Long contentId) {
+        return documentContentSpringRepository.decrementRefCount(contentId);
+    }
+
+    @Override
+    public List<Long> findIdsUnreferenced(Long afterId, int limit) {
+        return documentContentSpringRepository.findIdsUnreferenced(afterId, PageRequest.of(0, limit));
+    }
+
+    @Override
+    public int deleteIfUnreferenced(Long contentId) {
+        return documentContentSpringRepository.deleteIfUnreferenced(contentId);
+    }
+
+    @Override
+    public List<Long> findIdsPendingBlobMigration(Long afterId, int limit) {
+        return documentContentSpringRepository.findIdsPendingBlobMigration(afterId, PageRequest.of(0, limit));
+    }
+
+    @Override
+    public int moveFileDataToBlob(Long contentId, String storageKey) {
+        return documentContentSpringRepository.moveFileDataToBlob(contentId, storageKey);
+    }
+
+    @Override
+    public Long calculateStoredSizeByCompanyId(Long companyId) {
+        return documentContentSpringRepository.calculateStoredSizeByCompanyId(companyId);
+    }
+}
@@ -0,0 +1,34 @@
+package ai.docbrain.persistence.fileManagement;
+
+import ai.docbrain.domain.fileManagement.DocumentContent;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.util.List;
+
+public interface DocumentContentSpringRepository extends JpaRepository<DocumentContent, Long> {
+
+    @Modifying
+    @Query("UPDATE DocumentContent c SET c.refCount = c.refCount - 1 WHERE c.id = :contentId AND c.refCount > 0")
+    int decrementRefCount(@Param("contentId") Long contentId);
+
+    @Query("SELECT c.id FROM DocumentContent c WHERE c.refCount = 0 AND c.id > :afterId ORDER BY c.id")
+    List<Long> findIdsUnreferenced(@Param("afterId") Long afterId, Pageable pageable);
+
+    @Modifying
+    @Query("DELETE FROM DocumentContent c WHERE c.id = :contentId AND c.refCount = 0")
+    int deleteIfUnreferenced(@Param("contentId") Long contentId);
+
+    @Query("SELECT c.id FROM DocumentContent c WHERE c.storageKey IS NULL AND c.fileData IS NOT NULL AND c.id > :afterId ORDER BY c.id")
+    List<Long> findIdsPendingBlobMigration(@Param("afterId") Long afterId, Pageable pageable);
+
+    @Modifying
+    @Query("UPDATE DocumentContent c SET c.storageKey = :storageKey, c.fileData = NULL WHERE c.id = :contentId AND c.storageKey IS NULL")
+    int moveFileDataToBlob(@Param("contentId") Long contentId, @Param("storageKey") String storageKey);
+
+    @Query("SELECT SUM(COALESCE(c.storedSize, c.size)) FROM DocumentContent c WHERE c.companyId = :companyId AND c.refCount > 0")
+    Long calculateStoredSizeByCompanyId(@Param("companyId") Long companyId);
+}
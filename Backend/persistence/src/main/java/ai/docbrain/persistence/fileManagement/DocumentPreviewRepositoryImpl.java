@@ -0,0 +1,36 @@
+package ai.docbrain.persistence.fileManagement;
+
+import ai.docbrain.domain.fileManagement.DocumentPreview;
+import ai.docbrain.service.fileManagement.IDocumentPreviewRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+@RequiredArgsConstructor
+public class DocumentPreviewRepositoryImpl implements IDocumentPreviewRepository {
+
+    private final DocumentPreviewSpringRepository documentPreviewSpringRepository;
+
+    @Override
+    public DocumentPreview save(DocumentPreview preview) {
+        return documentPreviewSpringRepository.save(preview);
+    }
+
+    @Override
+    public Optional<DocumentPreview> findByDocumentId(Long documentId) {
+        return documentPreviewSpringRepository.findById(documentId);
+    }
+
+    @Override
+    public void deleteByDocumentId(Long documentId) {
+        documentPreviewSpringRepository.deleteByDocumentId(documentId);
+    }
+
+    @Override
+    public List<Long> findDocumentIdsNeedingPreview(Long afterId, int limit) {
+        return documentPreviewSpringRepository.findDocumentIdsNeedingPreview(afterId, limit);
+    }
+}
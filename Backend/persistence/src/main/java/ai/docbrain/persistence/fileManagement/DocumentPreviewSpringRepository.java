@@ -0,0 +1,22 @@
+package ai.docbrain.persistence.fileManagement;
+
+import ai.docbrain.domain.fileManagement.DocumentPreview;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.util.List;
+
+public interface DocumentPreviewSpringRepository extends JpaRepository<DocumentPreview, Long> {
+
+    @Query(value = "SELECT d.id FROM documents d LEFT JOIN document_previews p ON p.document_id = d.id " +
+            "WHERE (p.document_id IS NULL OR p.content_id <> d.content_id) AND d.content_id IS NOT NULL " +
+            "AND (d.type = 'application/pdf' OR d.type LIKE 'image/%') AND d.id > :afterId " +
+            "ORDER BY d.id LIMIT :limit", nativeQuery = true)
+    List<Long> findDocumentIdsNeedingPreview(@Param("afterId") Long afterId, @Param("limit") int limit);
+
+    @Modifying
+    @Query("DELETE FROM DocumentPreview p WHERE p.documentId = :documentId")
+    void deleteByDocumentId(@Param("documentId") Long documentId);
+}
@@ -2,26 +2,75 @@ package ai.docbrain.persistence.fileManagement;
 
 import ai.docbrain.domain.fileManagement.Document;
 import ai.docbrain.service.dashboard.DTO.StorageGrowthDTO;
+import ai.docbrain.service.fileManagement.DTO.DocumentMetadataFilterRequest;
 import ai.docbrain.service.fileManagement.DTO.FileMetadataResponseDto;
 import ai.docbrain.service.fileManagement.IDocumentRepository;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.TypedQuery;
 import lombok.RequiredArgsConstructor;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Repository;
 
+import java.sql.Types;
 import java.time.ZonedDateTime;
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 @Repository
 @RequiredArgsConstructor
 public class DocumentRepositoryImpl implements IDocumentRepository {
 
+    private static final String INSERT_SQL = "INSERT INTO documents (id, name, type, path, size, folder_id, company_id, content_id, " +
+            "tags, summary, keywords, ai_processed, created_at, last_modified_at, status_code) " +
+            "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+
     private final DocumentSpringRepository documentSpringRepository;
+    private final JdbcTemplate jdbcTemplate;
+    private final EntityManager entityManager;
 
     @Override
     public void save(Document document) {
         documentSpringRepository.save(document);
     }
 
+    @Override
+    public void insertAll(List<Document> documents) {
+        if (documents.isEmpty()) {
+            return;
+        }
+        // IDENTITY ids keep Hibernate from batching, so take the ids from the sequence in one go
+        List<Long> ids = jdbcTemplate.queryForList(
+                "SELECT nextval(pg_get_serial_sequence('documents', 'id')) FROM generate_series(1, ?)",
+                Long.class, documents.size());
+        for (int i = 0; i < documents.size(); i++) {
+            Document document = documents.get(i);
+            document.setId(ids.get(i));
+            document.prePersist();
+        }
+
+        jdbcTemplate.batchUpdate(INSERT_SQL, documents, documents.size(), (ps, document) -> {
+            ps.setLong(1, document.getId());
+            ps.setString(2, document.getName());
+            ps.setString(3, document.getType());
+            ps.setString(4, document.getPath());
+            ps.setLong(5, document.getSize());
+            ps.setObject(6, document.getFolderId(), Types.BIGINT);
+            ps.setLong(7, document.getCompanyId());
+            ps.setObject(8, document.getContent() == null ? null : document.getContent().getId(), Types.BIGINT);
+            ps.setString(9, document.getTags());
+            ps.setString(10, document.getSummary());
+            ps.setString(11, document.getKeywords());
+            ps.setBoolean(12, document.isAiProcessed());
+            ps.setObject(13, document.getCreatedAt().toOffsetDateTime());
+            ps.setObject(14, document.getLastModifiedAt().toOffsetDateTime());
+            ps.setString(15, document.getStatusCode().name());
+        });
+    }
+
     @Override
     public void delete(Document document) {
         documentSpringRepository.delete(document);
@@ -37,6 +86,18 @@ public class DocumentRepositoryImpl implements IDocumentRepository {
         return documentSpringRepository.findById(documentId);
     }
 
+    @Override
+    public Optional<Document> findProcessedDocumentWithSameContent(Long contentId, Long excludedDocumentId) {
+        return documentSpringRepository.findProcessedDocumentsWithSameContent(contentId, excludedDocumentId, PageRequest.of(0, 1))
+                .stream()
+                .findFirst();
+    }
+
+    @Override
+    public Optional<Document> findByIdWithContent(Long documentId) {
+        return documentSpringRepository.findByIdWithContent(documentId);
+    }
+
     @Override
     public Document findByName(String fileName) {
         return documentSpringRepository.findByName(fileName).orElse(null);
@@ -57,6 +118,16 @@ public class DocumentRepositoryImpl implements IDocumentRepository {
         return documentSpringRepository.findAllByCompanyId(companyId);
     }
 
+    @Override
+    public List<Document> findAllByFolderIdInAndCompanyId(Collection<Long> folderIds, Long companyId) {
+        return documentSpringRepository.findAllByFolderIdInAndCompanyIdOrderById(folderIds, companyId);
+    }
+
+    @Override
+    public List<Document> findAllByIdInAndCompanyId(Collection<Long> documentIds, Long companyId) {
+        return documentSpringRepository.findAllByIdInAndCompanyIdOrderById(documentIds, companyId);
+    }
+
     @Override
     public List<FileMetadataResponseDto> findMetadataByFolderIdAndCompanyId(Long folderId, Long companyId) {
         return documentSpringRepository.findMetadataByFolderIdAndCompanyId(folderId, companyId);
@@ -66,10 +137,83 @@ public class DocumentRepositoryImpl implements IDocumentRepository {
     public List<FileMetadataResponseDto> findAllMetadataByCompanyId(Long companyId) {
         return documentSpringRepository.findAllMetadataByCompanyId(companyId);
     }
+
+    @Override
+    public List<FileMetadataResponseDto> findMetadataPage(Long companyId, DocumentMetadataFilterRequest filter, int limit) {
+        StringBuilder hql = new StringBuilder("SELECT new ai.docbrain.service.fileManagement.DTO.FileMetadataResponseDto(" +
+                "d.id, d.name, d.type, d.path, d.size, d.folderId, d.companyId, d.tags, ")
+                // The summary is TOASTed text, leave it out unless it is asked for
+                .append(filter.isIncludeSummary() ? "d.summary" : "cast(null as String)")
+                .append(", d.keywords, d.accessedAt, d.lastModifiedAt, d.aiProcessed, p.pageCount, p.contentId) " +
+                        "FROM Document d LEFT JOIN DocumentPreview p ON p.documentId = d.id AND p.contentId = d.content.id " +
+                        "AND p.status = ai.docbrain.domain.fileManagement.DocumentPreviewStatus.READY " +
+                        "WHERE d.companyId = :companyId");
+        Map<String, Object> parameters = new HashMap<>();
+        parameters.put("companyId", companyId);
+
+        if (filter.getFolderId() != null) {
+            hql.append(" AND d.folderId = :folderId");
+            parameters.put("folderId", filter.getFolderId());
+        }
+        if (filter.getIncludedFolderIds() != null) {
+            hql.append(" AND d.folderId IN :includedFolderIds");
+            parameters.put("includedFolderIds", filter.getIncludedFolderIds());
+        }
+        if (filter.getExcludedFolderIds() != null && !filter.getExcludedFolderIds().isEmpty()) {
+            hql.append(" AND (d.folderId IS NULL OR d.folderId NOT IN :excludedFolderIds)");
+            parameters.put("excludedFolderIds", filter.getExcludedFolderIds());
+        }
+        if (filter.getTypes() != null && !filter.getTypes().isEmpty()) {
+            hql.append(" AND d.type IN :types");
+            parameters.put("types", filter.getTypes());
+        }
+        appendTermFilters(hql, parameters, "TAG", "tag", filter.getTags());
+        appendTermFilters(hql, parameters, "KEYWORD", "keyword", filter.getKeywords());
+        if (filter.getAiProcessed() != null) {
+            hql.append(" AND d.aiProcessed = :aiProcessed");
+            parameters.put("aiProcessed", filter.getAiProcessed());
+        }
+        if (filter.getModifiedFrom() != null) {
+            hql.append(" AND d.lastModifiedAt >= :modifiedFrom");
+            parameters.put("modifiedFrom", filter.getModifiedFrom());
+        }
+        if (filter.getModifiedTo() != null) {
+            hql.append(" AND d.lastModifiedAt < :modifiedTo");
+            parameters.put("modifiedTo", filter.getModifiedTo());
+        }
+        if (filter.getAfterModifiedAt() != null && filter.getAfterId() != null) {
+            // Row value comparison, so the index scan starts right at the cursor
+            hql.append(" AND (d.lastModifiedAt, d.id) < (:afterModifiedAt, :afterId)");
+            parameters.put("afterModifiedAt", filter.getAfterModifiedAt());
+            parameters.put("afterId", filter.getAfterId());
+        }
+        hql.append(" ORDER BY d.lastModifiedAt DESC, d.id DESC");
+
+        TypedQuery<FileMetadataResponseDto> query = entityManager.createQuery(hql.toString(), FileMetadataResponseDto.class);
+        parameters.forEach(query::setParameter);
+        return query.setMaxResults(limit).getResultList();
+    }
 //----------------------------for dashboard--------------------------------
     /**
      * Calculate total storage used by a company in bytes
      */
+
+    /**
+     * A document must carry every one of the terms, each is looked up through the term index.
+     */
+    private static void appendTermFilters(StringBuilder hql, Map<String, Object> parameters, String kind,
+                                          String name, List<String> values) {
+        if (values == null) {
+            return;
+        }
+        for (int i = 0; i < values.size(); i++) {
+            hql.append(" AND EXISTS (SELECT 1 FROM DocumentTerm dt JOIN Term t ON t.id = dt.termId " +
+                            "WHERE dt.documentId = d.id AND t.companyId = :companyId " +
+                            "AND t.kind = ai.docbrain.domain.fileManagement.TermKind.").append(kind)
+                    .append(" AND t.value = :").append(name).append(i).append(")");
+            parameters.put(name + i, values.get(i));
+        }
+    }
     @Override
     public Long calculateTotalStorageByCompanyId(Long companyId) {
         return documentSpringRepository.calculateTotalStorageByCompanyId(companyId);
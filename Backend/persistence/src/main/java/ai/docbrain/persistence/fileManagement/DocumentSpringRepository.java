@@ -4,6 +4,7 @@ package ai.docbrain.persistence.fileManagement;
 import ai.docbrain.domain.fileManagement.Document;
 import ai.docbrain.service.dashboard.DTO.StorageGrowthDTO;
 import ai.docbrain.service.fileManagement.DTO.FileMetadataResponseDto;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
@@ -11,6 +12,7 @@ import org.springframework.stereotype.Repository;
 
 import java.time.LocalDateTime;
 import java.time.ZonedDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -21,10 +23,22 @@ public interface DocumentSpringRepository extends JpaRepository<Document, Long>
 
     Optional<Document> findById(Long documentId);
 
+    // Only for real content reads, every other caller works on the metadata alone
+    @Query("SELECT d FROM Document d LEFT JOIN FETCH d.content WHERE d.id = :documentId")
+    Optional<Document> findByIdWithContent(@Param("documentId") Long documentId);
+
+    // Another document sharing the content whose AI results have already come back
+    @Query("SELECT d FROM Document d WHERE d.content.id = :contentId AND d.id <> :excludedDocumentId " +
+            "AND d.aiProcessed = true AND EXISTS (SELECT 1 FROM DocumentChunk c WHERE c.document = d) ORDER BY d.id")
+    List<Document> findProcessedDocumentsWithSameContent(
+            @Param("contentId") Long contentId,
+            @Param("excludedDocumentId") Long excludedDocumentId,
+            Pageable pageable
+    );
 
 
-    // Find documents by company ID and file ID
-    @Query("SELECT d FROM Document d WHERE d.companyId = :companyId AND d.id = :fileId")
+    // Find documents by company ID and file ID, with their content since this is used for downloads
+    @Query("SELECT d FROM Document d LEFT JOIN FETCH d.content WHERE d.companyId = :companyId AND d.id = :fileId")
     List<Document> getByCompanyIdAndFileId(
             @Param("companyId") Long companyId,
             @Param("fileId") Long fileId
@@ -41,6 +55,10 @@ public interface DocumentSpringRepository extends JpaRepository<Document, Long>
     @Query("SELECT d FROM Document d WHERE d.companyId = :companyId")
     List<Document> findAllByCompanyId(@Param("companyId") Long companyId);
 
+    List<Document> findAllByFolderIdInAndCompanyIdOrderById(Collection<Long> folderIds, Long companyId);
+
+    List<Document> findAllByIdInAndCompanyIdOrderById(Collection<Long> documentIds, Long companyId);
+
 //
 //    @Query("SELECT new ai.docbrain.service.fileManagement.DTO.FileMetadataResponseDto(" +
 //            "d.id, d.name, d.type, d.path, d.size, d.folderId, d.companyId, d.tags, d.aiProcessed) " +
@@ -54,8 +72,11 @@ public interface DocumentSpringRepository extends JpaRepository<Document, Long>
 
     // Find metadata for documents by folder ID and company ID
     @Query("SELECT new ai.docbrain.service.fileManagement.DTO.FileMetadataResponseDto(" +
-            "d.id, d.name, d.type, d.path, d.size, d.folderId, d.companyId, d.tags, d.summary, d.keywords, d.accessedAt, d.lastModifiedAt, d.aiProcessed) " +
-            "FROM Document d WHERE d.folderId = :folderId AND d.companyId = :companyId")
+            "d.id, d.name, d.type, d.path, d.size, d.folderId, d.companyId, d.tags, d.summary, d.keywords, d.accessedAt, d.lastModifiedAt, d.aiProcessed, " +
+            "p.pageCount, p.contentId) " +
+            "FROM Document d LEFT JOIN DocumentPreview p ON p.documentId = d.id AND p.contentId = d.content.id " +
+            "AND p.status = ai.docbrain.domain.fileManagement.DocumentPreviewStatus.READY " +
+            "WHERE d.folderId = :folderId AND d.companyId = :companyId")
     List<FileMetadataResponseDto> findMetadataByFolderIdAndCompanyId(
             @Param("folderId") Long folderId,
             @Param("companyId") Long companyId
@@ -63,8 +84,11 @@ public interface DocumentSpringRepository extends JpaRepository<Document, Long>
 
     // Find metadata for all documents by company ID
     @Query("SELECT new ai.docbrain.service.fileManagement.DTO.FileMetadataResponseDto(" +
-            "d.id, d.name, d.type, d.path, d.size, d.folderId, d.companyId, d.tags, d.summary, d.keywords, d.accessedAt, d.lastModifiedAt, d.aiProcessed) " +
-            "FROM Document d WHERE d.companyId = :companyId")
+            "d.id, d.name, d.type, d.path, d.size, d.folderId, d.companyId, d.tags, d.summary, d.keywords, d.accessedAt, d.lastModifiedAt, d.aiProcessed, " +
+            "p.pageCount, p.contentId) " +
+            "FROM Document d LEFT JOIN DocumentPreview p ON p.documentId = d.id AND p.contentId = d.content.id " +
+            "AND p.status = ai.docbrain.domain.fileManagement.DocumentPreviewStatus.READY " +
+            "WHERE d.companyId = :companyId")
     List<FileMetadataResponseDto> findAllMetadataByCompanyId(
             @Param("companyId") Long companyId
     );
@@ -0,0 +1,132 @@
+package ai.docbrain.persistence.fileManagement;
+
+import ai.docbrain.domain.fileManagement.TermKind;
+import ai.docbrain.service.fileManagement.DTO.TermCountDto;
+import ai.docbrain.service.fileManagement.IDocumentTermRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+@RequiredArgsConstructor
+public class DocumentTermRepositoryImpl implements IDocumentTermRepository {
+
+    private final TermSpringRepository termSpringRepository;
+    private final JdbcTemplate jdbcTemplate;
+
+    @Override
+    public void replaceTerms(Long companyId, TermKind kind, Collection<Long> documentIds, Collection<String> values) {
+        if (documentIds.isEmpty()) {
+            return;
+        }
+        Long[] documents = documentIds.toArray(Long[]::new);
+        Long[] termIds = new Long[0];
+        if (!values.isEmpty()) {
+            String[] terms = values.toArray(String[]::new);
+            jdbcTemplate.update("INSERT INTO terms (company_id, kind, value) SELECT ?, ?, unnest(?) " +
+                    "ON CONFLICT (company_id, kind, value) DO NOTHING", ps -> {
+                ps.setLong(1, companyId);
+                ps.setString(2, kind.name());
+                setArray(ps, 3, "varchar", terms);
+            });
+            termIds = jdbcTemplate.query("SELECT id FROM terms WHERE company_id = ? AND kind = ? AND value = ANY(?)", ps -> {
+                ps.setLong(1, companyId);
+                ps.setString(2, kind.name());
+                setArray(ps, 3, "varchar", terms);
+            }, (rs, rowNum) -> rs.getLong(1)).toArray(Long[]::new);
+        }
+        Long[] wanted = termIds;
+
+        // Lock every term whose count may change in ID order, concurrent updates then cannot deadlock
+        jdbcTemplate.query("SELECT id FROM terms WHERE (id = ANY(?) OR id IN " +
+                "(SELECT term_id FROM document_terms WHERE document_id = ANY(?))) AND kind = ? ORDER BY id FOR UPDATE", ps -> {
+            setArray(ps, 1, "bigint", wanted);
+            setArray(ps, 2, "bigint", documents);
+            ps.setString(3, kind.name());
+        }, rs -> null);
+
+        jdbcTemplate.update("WITH removed AS (DELETE FROM document_terms dt USING terms t " +
+                "WHERE dt.term_id = t.id AND dt.document_id = ANY(?) AND t.kind = ? AND NOT (dt.term_id = ANY(?)) " +
+                "RETURNING dt.term_id) " +
+                "UPDATE terms SET document_count = document_count - r.n " +
+                "FROM (SELECT term_id, count(*) AS n FROM removed GROUP BY term_id) r WHERE terms.id = r.term_id", ps -> {
+            setArray(ps, 1, "bigint", documents);
+            ps.setString(2, kind.name());
+            setArray(ps, 3, "bigint", wanted);
+        });
+        if (wanted.length > 0) {
+            jdbcTemplate.update("WITH added AS (INSERT INTO document_terms (document_id, term_id) " +
+                    "SELECT d, t FROM unnest(?) d CROSS JOIN unnest(?) t ON CONFLICT DO NOTHING RETURNING term_id) " +
+                    "UPDATE terms SET document_count = document_count + a.n " +
+                    "FROM (SELECT term_id, count(*) AS n FROM added GROUP BY term_id) a WHERE terms.id = a.term_id", ps -> {
+                setArray(ps, 1, "bigint", documents);
+                setArray(ps, 2, "bigint", wanted);
+            });
+        }
+    }
+
+    @Override
+    public void copyTerms(TermKind kind, Long sourceDocumentId, Long targetDocumentId) {
+        jdbcTemplate.query("SELECT id FROM terms WHERE id IN (SELECT term_id FROM document_terms WHERE document_id = ?) " +
+                "AND kind = ? ORDER BY id FOR UPDATE", rs -> null, sourceDocumentId, kind.name());
+        jdbcTemplate.update("WITH added AS (INSERT INTO document_terms (document_id, term_id) " +
+                "SELECT ?, dt.term_id FROM document_terms dt JOIN terms t ON t.id = dt.term_id " +
+                "WHERE dt.document_id = ? AND t.kind = ? ON CONFLICT DO NOTHING RETURNING term_id) " +
+                "UPDATE terms SET document_count = document_count + 1 WHERE id IN (SELECT term_id FROM added)",
+                targetDocumentId, sourceDocumentId, kind.name());
+    }
+
+    @Override
+    public void removeDocument(Long documentId) {
+        jdbcTemplate.query("SELECT id FROM terms WHERE id IN (SELECT term_id FROM document_terms WHERE document_id = ?) " +
+                "ORDER BY id FOR UPDATE", rs -> null, documentId);
+        jdbcTemplate.update("WITH removed AS (DELETE FROM document_terms WHERE document_id = ? RETURNING term_id) " +
+                "UPDATE terms SET document_count = document_count - 1 WHERE id IN (SELECT term_id FROM removed)", documentId);
+    }
+
+    @Override
+    public List<TermCountDto> findTopTerms(Long companyId, TermKind kind, int limit) {
+        return termSpringRepository.findTopTerms(companyId, kind, PageRequest.of(0, limit));
+    }
+
+    @Override
+    public List<TermCountDto> countTopTerms(Long companyId, TermKind kind, Collection<Long> includedFolderIds,
+                                            Collection<Long> excludedFolderIds, int limit) {
+        StringBuilder sql = new StringBuilder("SELECT t.value, count(*) AS n FROM document_terms dt " +
+                "JOIN terms t ON t.id = dt.term_id JOIN documents d ON d.id = dt.document_id " +
+                "WHERE t.company_id = ? AND t.kind = ? AND d.company_id = ?");
+        List<Object> parameters = new ArrayList<>(List.of(companyId, kind.name(), companyId));
+        if (includedFolderIds != null) {
+            sql.append(" AND d.folder_id = ANY(?)");
+            parameters.add(includedFolderIds.toArray(Long[]::new));
+        }
+        if (excludedFolderIds != null && !excludedFolderIds.isEmpty()) {
+            sql.append(" AND (d.folder_id IS NULL OR NOT d.folder_id = ANY(?))");
+            parameters.add(excludedFolderIds.toArray(Long[]::new));
+        }
+        sql.append(" GROUP BY t.value ORDER BY n DESC, t.value LIMIT ?");
+        parameters.add(limit);
+
+        return jdbcTemplate.query(sql.toString(), ps -> {
+            for (int i = 0; i < parameters.size(); i++) {
+                Object parameter = parameters.get(i);
+                if (parameter instanceof Long[] ids) {
+                    setArray(ps, i + 1, "bigint", ids);
+                } else {
+                    ps.setObject(i + 1, parameter);
+                }
+            }
+        }, (rs, rowNum) -> new TermCountDto(rs.getString("value"), rs.getLong("n")));
+    }
+
+    private static void setArray(PreparedStatement ps, int index, String type, Object[] values) throws SQLException {
+        ps.setArray(index, ps.getConnection().createArrayOf(type, values));
+    }
+}
@@ -1,10 +1,15 @@
 package ai.docbrain.persistence.fileManagement;
 
 import ai.docbrain.domain.fileManagement.Folder;
+import ai.docbrain.service.fileManagement.DTO.FolderClientLink;
+import ai.docbrain.service.fileManagement.DTO.FolderSubtreeDeletion;
 import ai.docbrain.service.fileManagement.IFolderRepository;
 import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Repository;
 
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -13,6 +18,7 @@ import java.util.Optional;
 public class FolderRepositoryImpl implements IFolderRepository {
 
     private final FolderSpringRepository folderSpringRepository;
+    private final JdbcTemplate jdbcTemplate;
 
     @Override
     public List<Folder> findAllByCompanyId(long companyId) {
@@ -34,11 +40,159 @@ public class FolderRepositoryImpl implements IFolderRepository {
         return folderSpringRepository.findById(folderId);
     }
 
+    @Override
+    public List<Folder> findAllByIdIn(Collection<Long> folderIds) {
+        return folderSpringRepository.findAllById(folderIds);
+    }
+
     @Override
     public void delete(Folder folder) {
         folderSpringRepository.delete(folder);
     }
 
+    @Override
+    public List<FolderClientLink> findClientLinksByCompanyId(Long companyId) {
+        return folderSpringRepository.findClientLinksByCompanyId(companyId);
+    }
+
+    @Override
+    public List<Long> findBlockedFolderIds(Long userId) {
+        return jdbcTemplate.queryForList("SELECT folder_id FROM user_blocked_folders WHERE user_id = ?", Long.class, userId);
+    }
+
+    @Override
+    public void replaceBlockedUsers(Long folderId, Collection<Long> userIds) {
+        Long[] users = userIds.toArray(Long[]::new);
+        jdbcTemplate.update("DELETE FROM user_blocked_folders WHERE folder_id = ? AND NOT (user_id = ANY(?))", ps -> {
+            ps.setLong(1, folderId);
+            ps.setArray(2, ps.getConnection().createArrayOf("bigint", users));
+        });
+        jdbcTemplate.update("INSERT INTO user_blocked_folders (user_id, folder_id) " +
+                "SELECT u, ? FROM unnest(?) AS u WHERE NOT EXISTS " +
+                "(SELECT 1 FROM user_blocked_folders b WHERE b.user_id = u AND b.folder_id = ?)", ps -> {
+            ps.setLong(1, folderId);
+            ps.setArray(2, ps.getConnection().createArrayOf("bigint", users));
+            ps.setLong(3, folderId);
+        });
+    }
+
+    @Override
+    public void insertClosure(Long folderId, Long parentId) {
+        jdbcTemplate.update("INSERT INTO folder_closure (ancestor_id, descendant_id, depth) " +
+                "SELECT ancestor_id, ?, depth + 1 FROM folder_closure WHERE descendant_id = ? " +
+                "UNION ALL SELECT ?, ?, 0", folderId, parentId, folderId, folderId);
+    }
+
+    @Override
+    public List<Folder> findSubtree(Long folderId) {
+        return folderSpringRepository.findSubtree(folderId);
+    }
+
+    @Override
+    public boolean isInSubtree(Long ancestorId, Long folderId) {
+        return !jdbcTemplate.queryForList("SELECT 1 FROM folder_closure WHERE ancestor_id = ? AND descendant_id = ?",
+                Integer.class, ancestorId, folderId).isEmpty();
+    }
+
+    @Override
+    public int renameInDocumentPaths(Long folderId, String newName) {
+        // The new name may not be flushed yet, so it is put in place here
+        return jdbcTemplate.update("UPDATE documents d SET path = p.path " +
+                "FROM (SELECT s.descendant_id AS folder_id, " +
+                "             string_agg(CASE WHEN f.id = ? THEN ? ELSE f.name END, '/' ORDER BY c.depth DESC) AS path " +
+                "      FROM folder_closure s " +
+                "      JOIN folder_closure c ON c.descendant_id = s.descendant_id " +
+                "      JOIN folders f ON f.id = c.ancestor_id " +
+                "      WHERE s.ancestor_id = ? " +
+                "      GROUP BY s.descendant_id) p " +
+                "WHERE d.folder_id = p.folder_id", folderId, newName, folderId);
+    }
+
+    @Override
+    public int moveSubtree(Long folderId, Long newParentId) {
+        // Links from outside ancestors that stay ancestors are kept and get their new depth,
+        // so the rows deleted and the rows written never overlap
+        return jdbcTemplate.update("WITH subtree AS (" +
+                "    SELECT descendant_id, depth FROM folder_closure WHERE ancestor_id = ?), " +
+                "new_ancestors AS (" +
+                "    SELECT ancestor_id, depth FROM folder_closure WHERE descendant_id = ?), " +
+                "detached AS (" +
+                "    DELETE FROM folder_closure c USING subtree s " +
+                "    WHERE c.descendant_id = s.descendant_id " +
+                "      AND c.ancestor_id NOT IN (SELECT descendant_id FROM subtree) " +
+                "      AND c.ancestor_id NOT IN (SELECT ancestor_id FROM new_ancestors)), " +
+                "attached AS (" +
+                "    INSERT INTO folder_closure (ancestor_id, descendant_id, depth) " +
+                "    SELECT a.ancestor_id, s.descendant_id, a.depth + s.depth + 1 FROM new_ancestors a CROSS JOIN subtree s " +
+                "    ON CONFLICT (ancestor_id, descendant_id) DO UPDATE SET depth = EXCLUDED.depth), " +
+                "parent_path AS (" +
+                "    SELECT string_agg(f.name, '/' ORDER BY a.depth DESC) AS path " +
+                "    FROM new_ancestors a JOIN folders f ON f.id = a.ancestor_id), " +
+                "paths AS (" +
+                "    SELECT s.descendant_id AS folder_id, " +
+                "           concat_ws('/', (SELECT path FROM parent_path), string_agg(f.name, '/' ORDER BY c.depth DESC)) AS path " +
+                "    FROM subtree s " +
+                "    JOIN folder_closure c ON c.descendant_id = s.descendant_id " +
+                "    JOIN subtree inside ON inside.descendant_id = c.ancestor_id " +
+                "    JOIN folders f ON f.id = c.ancestor_id " +
+                "    GROUP BY s.descendant_id) " +
+                "UPDATE documents d SET path = p.path FROM paths p WHERE d.folder_id = p.folder_id",
+                folderId, newParentId);
+    }
+
+    @Override
+    public FolderSubtreeDeletion deleteSubtree(Long folderId) {
+        // Chunks, terms links, chat sessions, upload sessions and closure rows go with their rows by cascade
+        List<Long> folderIds = new ArrayList<>();
+        List<Long> documentIds = new ArrayList<>();
+        List<String> artifactKeys = new ArrayList<>();
+        jdbcTemplate.query("WITH subtree AS (" +
+                "    SELECT descendant_id AS id FROM folder_closure WHERE ancestor_id = ?), " +
+                "deleted_documents AS (" +
+                "    DELETE FROM documents d USING subtree s WHERE d.folder_id = s.id RETURNING d.id, d.content_id), " +
+                "deleted_previews AS (" +
+                "    DELETE FROM document_previews p USING deleted_documents d WHERE p.document_id = d.id " +
+                "    RETURNING p.document_id, p.thumbnail_key, p.first_page_key), " +
+                "released_contents AS (" +
+                "    UPDATE document_contents c SET ref_count = c.ref_count - r.n " +
+                "    FROM (SELECT content_id, count(*) AS n FROM deleted_documents WHERE content_id IS NOT NULL GROUP BY content_id) r " +
+                "    WHERE c.id = r.content_id), " +
+                "released_terms AS (" +
+                "    UPDATE terms t SET document_count = t.document_count - r.n " +
+                "    FROM (SELECT dt.term_id, count(*) AS n FROM document_terms dt JOIN deleted_documents d ON d.id = dt.document_id " +
+                "          GROUP BY dt.term_id) r " +
+                "    WHERE t.id = r.term_id), " +
+                "unlinked_clients AS (" +
+                "    DELETE FROM folder_clients fc USING subtree s WHERE fc.folder_id = s.id), " +
+                "unblocked_users AS (" +
+                "    DELETE FROM user_blocked_folders b USING subtree s WHERE b.folder_id = s.id), " +
+                "deleted_folders AS (" +
+                "    DELETE FROM folders f USING subtree s WHERE f.id = s.id RETURNING f.id) " +
+                "SELECT 'FOLDER' AS kind, id, NULL AS thumbnail_key, NULL AS first_page_key FROM deleted_folders " +
+                "UNION ALL " +
+                "SELECT 'DOCUMENT', d.id, p.thumbnail_key, p.first_page_key " +
+                "FROM deleted_documents d LEFT JOIN deleted_previews p ON p.document_id = d.id", rs -> {
+            if ("FOLDER".equals(rs.getString("kind"))) {
+                folderIds.add(rs.getLong("id"));
+                return;
+            }
+            documentIds.add(rs.getLong("id"));
+            if (rs.getString("thumbnail_key") != null) {
+                artifactKeys.add(rs.getString("thumbnail_key"));
+            }
+            if (rs.getString("first_page_key") != null) {
+                artifactKeys.add(rs.getString("first_page_key"));
+            }
+        }, folderId);
+        return new FolderSubtreeDeletion(folderIds, documentIds, artifactKeys);
+    }
+
+    @Override
+    public void notifyTreeChanged(Long companyId, String originNodeId) {
+        jdbcTemplate.query("SELECT pg_notify(?, ?)", rs -> null,
+                FolderTreeChangeListener.CHANNEL, companyId + ":" + originNodeId);
+    }
+
     //---------------------------FOR DASHBOARD---------------------------//
 
     /**
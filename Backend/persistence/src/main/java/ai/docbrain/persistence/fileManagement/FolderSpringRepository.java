@@ -2,6 +2,7 @@ package ai.docbrain.persistence.fileManagement;
 
 
 import ai.docbrain.domain.fileManagement.Folder;
+import ai.docbrain.service.fileManagement.DTO.FolderClientLink;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
@@ -19,4 +20,12 @@ public interface FolderSpringRepository extends JpaRepository<Folder, Long> {
      * Count folders by company ID
      */
     int countByCompanyId(Long companyId);
+
+    @Query(value = "SELECT f.* FROM folders f JOIN folder_closure c ON c.descendant_id = f.id " +
+            "WHERE c.ancestor_id = :folderId ORDER BY c.depth, f.id", nativeQuery = true)
+    List<Folder> findSubtree(@Param("folderId") Long folderId);
+
+    @Query("SELECT new ai.docbrain.service.fileManagement.DTO.FolderClientLink(f.id, c.id) " +
+            "FROM Folder f JOIN f.clients c WHERE f.companyId = :companyId")
+    List<FolderClientLink> findClientLinksByCompanyId(@Param("companyId") Long companyId);
 }
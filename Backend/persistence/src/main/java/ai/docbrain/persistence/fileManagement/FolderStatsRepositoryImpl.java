@@ -0,0 +1,109 @@
+package ai.docbrain.persistence.fileManagement;
+
+import ai.docbrain.service.fileManagement.DTO.FolderStatsDto;
+import ai.docbrain.service.fileManagement.IFolderStatsRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+@RequiredArgsConstructor
+public class FolderStatsRepositoryImpl implements IFolderStatsRepository {
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @Override
+    public Optional<FolderStatsDto> findByFolderId(Long folderId) {
+        return jdbcTemplate.query("SELECT * FROM folder_stats WHERE folder_id = ?", (rs, rowNum) -> new FolderStatsDto(
+                rs.getLong("folder_id"),
+                rs.getLong("direct_bytes"),
+                rs.getLong("direct_documents"),
+                rs.getLong("direct_processed"),
+                rs.getLong("total_bytes"),
+                rs.getLong("total_documents"),
+                rs.getLong("total_processed")), folderId).stream().findFirst();
+    }
+
+    @Override
+    public void insertEmpty(Long folderId, Long companyId) {
+        jdbcTemplate.update("INSERT INTO folder_stats (folder_id, company_id) VALUES (?, ?) ON CONFLICT DO NOTHING",
+                folderId, companyId);
+    }
+
+    @Override
+    public void applyDelta(Long folderId, long bytes, long documents, long processed) {
+        lockAncestors(folderId);
+        jdbcTemplate.update("UPDATE folder_stats s SET " +
+                "direct_bytes = s.direct_bytes + CASE WHEN c.depth = 0 THEN ? ELSE 0 END, " +
+                "direct_documents = s.direct_documents + CASE WHEN c.depth = 0 THEN ? ELSE 0 END, " +
+                "direct_processed = s.direct_processed + CASE WHEN c.depth = 0 THEN ? ELSE 0 END, " +
+                "total_bytes = s.total_bytes + ?, " +
+                "total_documents = s.total_documents + ?, " +
+                "total_processed = s.total_processed + ? " +
+                "FROM folder_closure c WHERE c.descendant_id = ? AND s.folder_id = c.ancestor_id",
+                bytes, documents, processed, bytes, documents, processed, folderId);
+    }
+
+    @Override
+    public void applySubtreeToAncestors(Long folderId, int sign) {
+        lockAncestors(folderId);
+        jdbcTemplate.update("UPDATE folder_stats s SET " +
+                "total_bytes = s.total_bytes + ? * t.total_bytes, " +
+                "total_documents = s.total_documents + ? * t.total_documents, " +
+                "total_processed = s.total_processed + ? * t.total_processed " +
+                "FROM folder_stats t, folder_closure c " +
+                "WHERE t.folder_id = ? AND c.descendant_id = t.folder_id AND c.depth > 0 AND s.folder_id = c.ancestor_id",
+                sign, sign, sign, folderId);
+    }
+
+    @Override
+    public int reconcile(Long companyId) {
+        // Deltas lock the same rows in the same order, so a delta either committed before the
+        // counts below are taken or is applied on top of them afterwards
+        jdbcTemplate.query("SELECT folder_id FROM folder_stats WHERE company_id = ? ORDER BY folder_id FOR UPDATE",
+                rs -> null, companyId);
+        return jdbcTemplate.update("WITH direct AS (" +
+                "    SELECT f.id AS folder_id, coalesce(sum(d.size), 0) AS bytes, count(d.id) AS documents, " +
+                "           count(d.id) FILTER (WHERE d.ai_processed) AS processed " +
+                "    FROM folders f LEFT JOIN documents d ON d.folder_id = f.id " +
+                "    WHERE f.company_id = ? GROUP BY f.id), " +
+                "actual AS (" +
+                "    SELECT a.folder_id, a.bytes, a.documents, a.processed, " +
+                "           sum(d.bytes) AS total_bytes, sum(d.documents) AS total_documents, sum(d.processed) AS total_processed " +
+                "    FROM direct a " +
+                "    JOIN folder_closure c ON c.ancestor_id = a.folder_id " +
+                "    JOIN direct d ON d.folder_id = c.descendant_id " +
+                "    GROUP BY a.folder_id, a.bytes, a.documents, a.processed) " +
+                "INSERT INTO folder_stats (folder_id, company_id, direct_bytes, direct_documents, direct_processed, " +
+                "                          total_bytes, total_documents, total_processed) " +
+                "SELECT folder_id, ?, bytes, documents, processed, total_bytes, total_documents, total_processed " +
+                "FROM actual ORDER BY folder_id " +
+                "ON CONFLICT (folder_id) DO UPDATE SET " +
+                "direct_bytes = EXCLUDED.direct_bytes, direct_documents = EXCLUDED.direct_documents, " +
+                "direct_processed = EXCLUDED.direct_processed, total_bytes = EXCLUDED.total_bytes, " +
+                "total_documents = EXCLUDED.total_documents, total_processed = EXCLUDED.total_processed " +
+                "WHERE (folder_stats.direct_bytes, folder_stats.direct_documents, folder_stats.direct_processed, " +
+                "       folder_stats.total_bytes, folder_stats.total_documents, folder_stats.total_processed) " +
+                "IS DISTINCT FROM (EXCLUDED.direct_bytes, EXCLUDED.direct_documents, EXCLUDED.direct_processed, " +
+                "                  EXCLUDED.total_bytes, EXCLUDED.total_documents, EXCLUDED.total_processed)",
+                companyId, companyId);
+    }
+
+    @Override
+    public List<Long> findCompanyIds() {
+        return jdbcTemplate.queryForList("SELECT DISTINCT company_id FROM folders ORDER BY company_id", Long.class);
+    }
+
+    /**
+     * Locks the counters of a folder and its ancestors in ID order, concurrent changes below
+     * overlapping folders then cannot deadlock.
+     */
+    private void lockAncestors(Long folderId) {
+        jdbcTemplate.query("SELECT folder_id FROM folder_stats WHERE folder_id IN " +
+                "(SELECT ancestor_id FROM folder_closure WHERE descendant_id = ?) ORDER BY folder_id FOR UPDATE",
+                rs -> null, folderId);
+    }
+}
@@ -0,0 +1,94 @@
+package ai.docbrain.persistence.fileManagement;
+
+import ai.docbrain.service.fileManagement.FolderTreeCache;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.log4j.Log4j2;
+import org.postgresql.PGConnection;
+import org.postgresql.PGNotification;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+/**
+ * Listens for folder changes made by any node and drops the changed company trees from the
+ * {@link FolderTreeCache}. Holds one connection of the pool for as long as the application runs.
+ */
+@Log4j2
+@Component
+public class FolderTreeChangeListener {
+
+    static final String CHANNEL = "folder_tree";
+    private static final int POLL_TIMEOUT_MS = 10_000;
+    private static final long RECONNECT_DELAY_MS = 5_000;
+
+    private final DataSource dataSource;
+    private final FolderTreeCache folderTreeCache;
+    private volatile boolean running = true;
+    private Thread thread;
+
+    public FolderTreeChangeListener(@Qualifier("coreDataSource") DataSource dataSource, FolderTreeCache folderTreeCache) {
+        this.dataSource = dataSource;
+        this.folderTreeCache = folderTreeCache;
+    }
+
+    @PostConstruct
+    public void start() {
+        thread = new Thread(this::listen, "folder-tree-listener");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    @PreDestroy
+    public void stop() {
+        running = false;
+        thread.interrupt();
+    }
+
+    private void listen() {
+        while (running) {
+            try (Connection connection = dataSource.getConnection()) {
+                connection.setAutoCommit(true);
+                try (Statement statement = connection.createStatement()) {
+                    statement.execute("LISTEN " + CHANNEL);
+                }
+                // Changes made while nobody listened are lost, start over from the database
+                folderTreeCache.invalidateAll();
+
+                PGConnection pgConnection = connection.unwrap(PGConnection.class);
+                while (running) {
+                    PGNotification[] notifications = pgConnection.getNotifications(POLL_TIMEOUT_MS);
+                    if (notifications == null) {
+                        continue;
+                    }
+                    for (PGNotification notification : notifications) {
+                        handle(notification.getParameter());
+                    }
+                }
+            } catch (SQLException e) {
+                if (!running) {
+                    return;
+                }
+                log.warn("Lost the folder change notifications, reconnecting", e);
+                try {
+                    Thread.sleep(RECONNECT_DELAY_MS);
+                } catch (InterruptedException interrupted) {
+                    return;
+                }
+            }
+        }
+    }
+
+    private void handle(String payload) {
+        int separator = payload.indexOf(':');
+        try {
+            folderTreeCache.changedElsewhere(Long.parseLong(payload.substring(0, separator)), payload.substring(separator + 1));
+        } catch (RuntimeException e) {
+            log.warn("Ignoring malformed folder change notification {}", payload);
+        }
+    }
+}
@@ -0,0 +1,34 @@
+package ai.docbrain.persistence.fileManagement;
+
+import ai.docbrain.service.fileManagement.IListingVersionRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+@RequiredArgsConstructor
+public class ListingVersionRepositoryImpl implements IListingVersionRepository {
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @Override
+    public long findVersion(Long companyId, Long scopeId) {
+        List<Long> versions = jdbcTemplate.queryForList(
+                "SELECT version FROM listing_versions WHERE company_id = ? AND folder_id = ?", Long.class, companyId, scopeId);
+        return versions.isEmpty() ? 0 : versions.get(0);
+    }
+
+    @Override
+    public void increment(Long companyId, Collection<Long> scopeIds) {
+        // Rows are locked in key order, so transactions bumping overlapping listings cannot deadlock
+        jdbcTemplate.update("INSERT INTO listing_versions (company_id, folder_id, version) " +
+                "SELECT ?, scope_id, 1 FROM unnest(?) AS s(scope_id) ORDER BY scope_id " +
+                "ON CONFLICT (company_id, folder_id) DO UPDATE SET version = listing_versions.version + 1", ps -> {
+            ps.setLong(1, companyId);
+            ps.setArray(2, ps.getConnection().createArrayOf("bigint", scopeIds.stream().distinct().toArray()));
+        });
+    }
+}
@@ -0,0 +1,19 @@
+package ai.docbrain.persistence.fileManagement;
+
+import ai.docbrain.domain.fileManagement.Term;
+import ai.docbrain.domain.fileManagement.TermKind;
+import ai.docbrain.service.fileManagement.DTO.TermCountDto;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.util.List;
+
+public interface TermSpringRepository extends JpaRepository<Term, Long> {
+
+    @Query("SELECT new ai.docbrain.service.fileManagement.DTO.TermCountDto(t.value, cast(t.documentCount as Long)) " +
+            "FROM Term t WHERE t.companyId = :companyId AND t.kind = :kind AND t.documentCount > 0 " +
+            "ORDER BY t.documentCount DESC, t.value")
+    List<TermCountDto> findTopTerms(@Param("companyId") Long companyId, @Param("kind") TermKind kind, Pageable pageable);
+}
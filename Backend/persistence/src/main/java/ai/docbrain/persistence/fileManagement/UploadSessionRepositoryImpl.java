@@ -0,0 +1,50 @@
+package ai.docbrain.persistence.fileManagement;
+
+import ai.docbrain.domain.fileManagement.UploadSession;
+import ai.docbrain.domain.fileManagement.UploadSessionStatus;
+import ai.docbrain.service.fileManagement.IUploadSessionRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Repository;
+
+import java.time.ZonedDateTime;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+@Repository
+@RequiredArgsConstructor
+public class UploadSessionRepositoryImpl implements IUploadSessionRepository {
+
+    private final UploadSessionSpringRepository uploadSessionSpringRepository;
+
+    @Override
+    public UploadSession save(UploadSession session) {
+        return uploadSessionSpringRepository.save(session);
+    }
+
+    @Override
+    public Optional<UploadSession> findById(UUID id) {
+        return uploadSessionSpringRepository.findById(id);
+    }
+
+    @Override
+    public boolean existsById(UUID id) {
+        return uploadSessionSpringRepository.existsById(id);
+    }
+
+    @Override
+    public boolean transitionStatus(UUID id, UploadSessionStatus from, UploadSessionStatus to) {
+        return uploadSessionSpringRepository.transitionStatus(id, from, to) == 1;
+    }
+
+    @Override
+    public List<UploadSession> findExpired(ZonedDateTime now, int limit) {
+        return uploadSessionSpringRepository.findExpired(now, PageRequest.of(0, limit));
+    }
+
+    @Override
+    public void deleteById(UUID id) {
+        uploadSessionSpringRepository.deleteById(id);
+    }
+}
@@ -0,0 +1,31 @@
+-- Split the document content from the document metadata
+CREATE TABLE document_contents (
+                                   id BIGSERIAL PRIMARY KEY,
+                                   company_id BIGINT NOT NULL,
+                                   storage_key VARCHAR(64),
+                                   file_data BYTEA,
+                                   size BIGINT NOT NULL,
+                                   created_at TIMESTAMP WITH TIME ZONE DEFAULT CURRENT_TIMESTAMP,
+                                   FOREIGN KEY (company_id) REFERENCES companies(id)
+);
+
+-- Existing documents keep their id as content id so the rows can be linked without a lookup
+INSERT INTO document_contents (id, company_id, storage_key, file_data, size, created_at)
+SELECT id, company_id, storage_key, file_data, size, created_at FROM documents;
+
+SELECT setval(pg_get_serial_sequence('document_contents', 'id'), COALESCE((SELECT MAX(id) FROM document_contents), 0) + 1, false);
+
+ALTER TABLE documents ADD COLUMN content_id BIGINT;
+UPDATE documents SET content_id = id;
+ALTER TABLE documents ADD CONSTRAINT fk_documents_content FOREIGN KEY (content_id) REFERENCES document_contents(id);
+
+ALTER TABLE documents DROP COLUMN file_data;
+ALTER TABLE documents DROP COLUMN storage_key;
+
+CREATE INDEX idx_documents_content_id ON documents(content_id);
+CREATE INDEX idx_document_contents_pending_blob_migration ON document_contents(id) WHERE storage_key IS NULL AND file_data IS NOT NULL;
+
+COMMENT ON TABLE document_contents IS 'Encrypted document content, separated from the documents metadata';
+COMMENT ON COLUMN document_contents.storage_key IS 'Key of the encrypted content in the blob store';
+COMMENT ON COLUMN document_contents.file_data IS 'Legacy encrypted content, moved to the blob store by the background migration';
+COMMENT ON COLUMN document_contents.size IS 'Plaintext size in bytes';
@@ -0,0 +1,4 @@
+-- SHA-256 of the plaintext, used for download ETags. Legacy rows stay NULL until their content is rewritten
+ALTER TABLE document_contents ADD COLUMN content_hash VARCHAR(64);
+
+COMMENT ON COLUMN document_contents.content_hash IS 'Hex encoded SHA-256 of the plaintext content';
@@ -0,0 +1,9 @@
+-- Identical uploads within a company share one content row, counted by ref_count
+ALTER TABLE document_contents ADD COLUMN ref_count INTEGER NOT NULL DEFAULT 1;
+
+UPDATE document_contents c SET ref_count = (SELECT COUNT(*) FROM documents d WHERE d.content_id = c.id);
+
+CREATE UNIQUE INDEX uq_document_contents_company_hash ON document_contents(company_id, content_hash) WHERE content_hash IS NOT NULL;
+CREATE INDEX idx_document_contents_unreferenced ON document_contents(id) WHERE ref_count = 0;
+
+COMMENT ON COLUMN document_contents.ref_count IS 'Number of documents pointing at this content, rows at 0 are garbage collected';
@@ -0,0 +1,6 @@
+-- Content may be compressed before it is encrypted, stored_size is what it takes on disk
+ALTER TABLE document_contents ADD COLUMN codec SMALLINT NOT NULL DEFAULT 0;
+ALTER TABLE document_contents ADD COLUMN stored_size BIGINT;
+
+COMMENT ON COLUMN document_contents.codec IS 'Codec applied before encryption: 0 none, 1 deflate';
+COMMENT ON COLUMN document_contents.stored_size IS 'Size of the encrypted blob in bytes, NULL for legacy content';
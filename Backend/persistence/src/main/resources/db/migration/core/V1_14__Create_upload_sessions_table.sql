@@ -0,0 +1,23 @@
+-- Resumable uploads, the chunks themselves are staged on the local disk of the server
+CREATE TABLE upload_sessions (
+                                 id UUID PRIMARY KEY,
+                                 company_id BIGINT NOT NULL,
+                                 user_id BIGINT NOT NULL,
+                                 folder_id BIGINT,
+                                 file_name VARCHAR(512) NOT NULL,
+                                 content_type VARCHAR(255) NOT NULL,
+                                 total_size BIGINT NOT NULL,
+                                 chunk_size INTEGER NOT NULL,
+                                 status VARCHAR(20) NOT NULL,
+                                 created_at TIMESTAMP WITH TIME ZONE DEFAULT CURRENT_TIMESTAMP,
+                                 expires_at TIMESTAMP WITH TIME ZONE NOT NULL,
+                                 FOREIGN KEY (company_id) REFERENCES companies(id),
+                                 FOREIGN KEY (user_id) REFERENCES users(id),
+                                 FOREIGN KEY (folder_id) REFERENCES folders(id) ON DELETE CASCADE
+);
+
+CREATE INDEX idx_upload_sessions_expires_at ON upload_sessions(expires_at);
+
+COMMENT ON TABLE upload_sessions IS 'Resumable uploads in progress, removed on completion or by the janitor once expired';
+COMMENT ON COLUMN upload_sessions.file_name IS 'Encrypted file name, like documents.name';
+COMMENT ON COLUMN upload_sessions.status IS 'OPEN while chunks are accepted, COMPLETING while the chunks are assembled';
@@ -0,0 +1,17 @@
+-- Small preview artifacts derived from a document's content after upload
+CREATE TABLE document_previews (
+                                   document_id BIGINT PRIMARY KEY,
+                                   content_id BIGINT NOT NULL,
+                                   status VARCHAR(20) NOT NULL,
+                                   page_count INTEGER,
+                                   thumbnail_key VARCHAR(64),
+                                   thumbnail_type VARCHAR(50),
+                                   first_page_key VARCHAR(64),
+                                   created_at TIMESTAMP WITH TIME ZONE DEFAULT CURRENT_TIMESTAMP,
+                                   FOREIGN KEY (document_id) REFERENCES documents(id) ON DELETE CASCADE
+);
+
+COMMENT ON TABLE document_previews IS 'Thumbnails, page counts and first page extracts, regenerated when content_id no longer matches the document';
+COMMENT ON COLUMN document_previews.content_id IS 'Content the artifacts were derived from';
+COMMENT ON COLUMN document_previews.thumbnail_key IS 'Blob store key of the encrypted image thumbnail';
+COMMENT ON COLUMN document_previews.first_page_key IS 'Blob store key of the encrypted single page PDF';
@@ -0,0 +1,9 @@
+-- Keyset pagination of document metadata orders by (last_modified_at, id), which needs it set on every row
+UPDATE documents SET last_modified_at = COALESCE(created_at, CURRENT_TIMESTAMP) WHERE last_modified_at IS NULL;
+ALTER TABLE documents ALTER COLUMN last_modified_at SET NOT NULL;
+
+-- Listings are scanned backwards along these, newest first, starting right after the cursor
+CREATE INDEX idx_documents_company_modified ON documents(company_id, last_modified_at, id);
+CREATE INDEX idx_documents_company_folder_modified ON documents(company_id, folder_id, last_modified_at, id);
+CREATE INDEX idx_documents_company_type_modified ON documents(company_id, type, last_modified_at, id);
+CREATE INDEX idx_documents_company_unprocessed_modified ON documents(company_id, last_modified_at, id) WHERE ai_processed = FALSE;
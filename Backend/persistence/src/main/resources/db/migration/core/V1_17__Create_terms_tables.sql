@@ -0,0 +1,51 @@
+-- Normalized keywords and tags, the comma separated documents columns are kept for display
+CREATE TABLE terms (
+                       id BIGSERIAL PRIMARY KEY,
+                       company_id BIGINT NOT NULL,
+                       kind VARCHAR(10) NOT NULL,
+                       value VARCHAR(255) NOT NULL,
+                       document_count INTEGER NOT NULL DEFAULT 0,
+                       FOREIGN KEY (company_id) REFERENCES companies(id),
+                       UNIQUE (company_id, kind, value)
+);
+
+CREATE TABLE document_terms (
+                                document_id BIGINT NOT NULL,
+                                term_id BIGINT NOT NULL,
+                                PRIMARY KEY (document_id, term_id),
+                                FOREIGN KEY (document_id) REFERENCES documents(id) ON DELETE CASCADE,
+                                FOREIGN KEY (term_id) REFERENCES terms(id)
+);
+
+CREATE INDEX idx_terms_company_kind_count ON terms(company_id, kind, document_count DESC);
+CREATE INDEX idx_document_terms_term ON document_terms(term_id, document_id);
+
+COMMENT ON TABLE terms IS 'Per company dictionary of document keywords and tags, values are trimmed and lower case';
+COMMENT ON COLUMN terms.document_count IS 'Documents linked to the term, kept up to date with every link change';
+
+-- Existing keywords and tags
+INSERT INTO terms (company_id, kind, value)
+SELECT DISTINCT d.company_id, 'KEYWORD', lower(trim(k.value))
+FROM documents d CROSS JOIN LATERAL unnest(string_to_array(d.keywords, ',')) AS k(value)
+WHERE trim(k.value) <> ''
+ON CONFLICT DO NOTHING;
+
+INSERT INTO terms (company_id, kind, value)
+SELECT DISTINCT d.company_id, 'TAG', lower(trim(k.value))
+FROM documents d CROSS JOIN LATERAL unnest(string_to_array(d.tags, ',')) AS k(value)
+WHERE trim(k.value) <> ''
+ON CONFLICT DO NOTHING;
+
+INSERT INTO document_terms (document_id, term_id)
+SELECT d.id, t.id
+FROM documents d CROSS JOIN LATERAL unnest(string_to_array(d.keywords, ',')) AS k(value)
+         JOIN terms t ON t.company_id = d.company_id AND t.kind = 'KEYWORD' AND t.value = lower(trim(k.value))
+ON CONFLICT DO NOTHING;
+
+INSERT INTO document_terms (document_id, term_id)
+SELECT d.id, t.id
+FROM documents d CROSS JOIN LATERAL unnest(string_to_array(d.tags, ',')) AS k(value)
+         JOIN terms t ON t.company_id = d.company_id AND t.kind = 'TAG' AND t.value = lower(trim(k.value))
+ON CONFLICT DO NOTHING;
+
+UPDATE terms t SET document_count = (SELECT count(*) FROM document_terms dt WHERE dt.term_id = t.id);
@@ -0,0 +1,12 @@
+-- Change counters of document listings, so unchanged listings can be answered with 304
+CREATE TABLE listing_versions (
+                                  company_id BIGINT NOT NULL,
+                                  folder_id BIGINT NOT NULL,
+                                  version BIGINT NOT NULL,
+                                  PRIMARY KEY (company_id, folder_id),
+                                  FOREIGN KEY (company_id) REFERENCES companies(id)
+);
+
+COMMENT ON TABLE listing_versions IS 'Bumped in the same transaction as every change to the documents of a listing';
+COMMENT ON COLUMN listing_versions.folder_id IS 'Folder of the listing, 0 for the listing of the whole company';
+COMMENT ON COLUMN listing_versions.version IS 'Missing rows count as version 0';
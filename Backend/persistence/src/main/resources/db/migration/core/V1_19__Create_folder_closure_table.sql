@@ -0,0 +1,31 @@
+-- Every ancestor/descendant pair of folders, a folder is its own ancestor at depth 0
+CREATE TABLE folder_closure (
+                                ancestor_id BIGINT NOT NULL,
+                                descendant_id BIGINT NOT NULL,
+                                depth INTEGER NOT NULL,
+                                PRIMARY KEY (ancestor_id, descendant_id),
+                                FOREIGN KEY (ancestor_id) REFERENCES folders(id) ON DELETE CASCADE,
+                                FOREIGN KEY (descendant_id) REFERENCES folders(id) ON DELETE CASCADE
+);
+
+CREATE INDEX idx_folder_closure_descendant ON folder_closure(descendant_id, depth);
+
+COMMENT ON TABLE folder_closure IS 'Kept in the transaction of every folder create, move and delete, subtrees are read and changed with single statements';
+
+WITH RECURSIVE tree AS (
+    SELECT id AS ancestor_id, id AS descendant_id, 0 AS depth FROM folders
+    UNION ALL
+    SELECT t.ancestor_id, f.id, t.depth + 1 FROM tree t JOIN folders f ON f.parent_id = t.descendant_id
+)
+INSERT INTO folder_closure (ancestor_id, descendant_id, depth)
+SELECT ancestor_id, descendant_id, depth FROM tree;
+
+-- Deep paths do not fit 255 characters
+ALTER TABLE documents ALTER COLUMN path TYPE TEXT;
+
+-- Paths went stale when a parent folder was renamed
+UPDATE documents d SET path = p.path
+FROM (SELECT c.descendant_id AS folder_id, string_agg(f.name, '/' ORDER BY c.depth DESC) AS path
+      FROM folder_closure c JOIN folders f ON f.id = c.ancestor_id
+      GROUP BY c.descendant_id) p
+WHERE d.folder_id = p.folder_id AND d.path <> p.path;
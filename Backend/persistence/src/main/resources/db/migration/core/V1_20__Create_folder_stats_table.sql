@@ -0,0 +1,35 @@
+-- Size and document counters per folder, directly in it and in its whole subtree
+CREATE TABLE folder_stats (
+                              folder_id BIGINT PRIMARY KEY,
+                              company_id BIGINT NOT NULL,
+                              direct_bytes BIGINT NOT NULL DEFAULT 0,
+                              direct_documents BIGINT NOT NULL DEFAULT 0,
+                              direct_processed BIGINT NOT NULL DEFAULT 0,
+                              total_bytes BIGINT NOT NULL DEFAULT 0,
+                              total_documents BIGINT NOT NULL DEFAULT 0,
+                              total_processed BIGINT NOT NULL DEFAULT 0,
+                              FOREIGN KEY (folder_id) REFERENCES folders(id) ON DELETE CASCADE,
+                              FOREIGN KEY (company_id) REFERENCES companies(id)
+);
+
+CREATE INDEX idx_folder_stats_company ON folder_stats(company_id);
+
+COMMENT ON TABLE folder_stats IS 'Deltas are applied in the transaction of every document change, a nightly job reconciles them with the documents';
+COMMENT ON COLUMN folder_stats.direct_processed IS 'Documents with ai_processed set';
+
+WITH direct AS (
+    SELECT f.id AS folder_id, f.company_id,
+           coalesce(sum(d.size), 0) AS bytes,
+           count(d.id) AS documents,
+           count(d.id) FILTER (WHERE d.ai_processed) AS processed
+    FROM folders f LEFT JOIN documents d ON d.folder_id = f.id
+    GROUP BY f.id
+)
+INSERT INTO folder_stats (folder_id, company_id, direct_bytes, direct_documents, direct_processed,
+                          total_bytes, total_documents, total_processed)
+SELECT a.folder_id, a.company_id, a.bytes, a.documents, a.processed,
+       sum(d.bytes), sum(d.documents), sum(d.processed)
+FROM direct a
+JOIN folder_closure c ON c.ancestor_id = a.folder_id
+JOIN direct d ON d.folder_id = c.descendant_id
+GROUP BY a.folder_id, a.company_id, a.bytes, a.documents, a.processed;
@@ -0,0 +1,10 @@
+-- Folders blocked for employees, so far only created by Hibernate
+CREATE TABLE IF NOT EXISTS user_blocked_folders (
+                                                    user_id BIGINT NOT NULL,
+                                                    folder_id BIGINT,
+                                                    FOREIGN KEY (user_id) REFERENCES users(id)
+);
+
+-- Blocks are looked up per user when resolving access and replaced per folder
+CREATE INDEX IF NOT EXISTS idx_user_blocked_folders_user ON user_blocked_folders(user_id);
+CREATE INDEX IF NOT EXISTS idx_user_blocked_folders_folder ON user_blocked_folders(folder_id);
@@ -0,0 +1,25 @@
+-- Documents waiting for, or sent to, the Python processing service
+CREATE TABLE processing_jobs (
+                                 id BIGSERIAL PRIMARY KEY,
+                                 document_id BIGINT NOT NULL,
+                                 company_id BIGINT NOT NULL,
+                                 status VARCHAR(20) NOT NULL,
+                                 attempts INTEGER NOT NULL DEFAULT 0,
+                                 next_attempt_at TIMESTAMP WITH TIME ZONE NOT NULL DEFAULT CURRENT_TIMESTAMP,
+                                 sent_at TIMESTAMP WITH TIME ZONE,
+                                 last_error TEXT,
+                                 created_at TIMESTAMP WITH TIME ZONE DEFAULT CURRENT_TIMESTAMP,
+                                 updated_at TIMESTAMP WITH TIME ZONE DEFAULT CURRENT_TIMESTAMP,
+                                 FOREIGN KEY (document_id) REFERENCES documents(id) ON DELETE CASCADE,
+                                 FOREIGN KEY (company_id) REFERENCES companies(id)
+);
+
+-- At most one job per document is queued or waiting for its callback
+CREATE UNIQUE INDEX idx_processing_jobs_active_document ON processing_jobs(document_id) WHERE status IN ('QUEUED', 'SENT');
+CREATE INDEX idx_processing_jobs_due ON processing_jobs(next_attempt_at) WHERE status = 'QUEUED';
+CREATE INDEX idx_processing_jobs_sent ON processing_jobs(sent_at) WHERE status = 'SENT';
+CREATE INDEX idx_processing_jobs_document ON processing_jobs(document_id, id);
+
+COMMENT ON TABLE processing_jobs IS 'Claimed by the worker pool with SKIP LOCKED, retried with exponential backoff';
+COMMENT ON COLUMN processing_jobs.status IS 'QUEUED, SENT, CALLBACK_RECEIVED or FAILED';
+COMMENT ON COLUMN processing_jobs.next_attempt_at IS 'Earliest time a QUEUED job is sent';
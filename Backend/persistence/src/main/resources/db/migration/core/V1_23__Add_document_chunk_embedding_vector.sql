@@ -0,0 +1,9 @@
+-- Chunk embeddings move from comma separated text to a binary column, see EmbeddingCodec
+ALTER TABLE document_chunks ADD COLUMN embedding_vector BYTEA;
+
+-- Lets the background migration find the chunks that still carry a text embedding
+CREATE INDEX idx_document_chunks_pending_embedding_migration ON document_chunks(id)
+    WHERE embedding IS NOT NULL AND embedding_vector IS NULL;
+
+COMMENT ON COLUMN document_chunks.embedding_vector IS 'Embedding as a format byte followed by little endian float32 values, or by a float32 scale and int8 values';
+COMMENT ON COLUMN document_chunks.embedding IS 'Legacy text embedding, moved to embedding_vector by the background migration';
@@ -0,0 +1,8 @@
+-- Deleting a document, alone or with its folder, deletes its chat sessions and their messages
+ALTER TABLE chat_sessions DROP CONSTRAINT chat_sessions_document_id_fkey;
+ALTER TABLE chat_sessions ADD CONSTRAINT chat_sessions_document_id_fkey
+    FOREIGN KEY (document_id) REFERENCES documents(id) ON DELETE CASCADE;
+
+ALTER TABLE chat_messages DROP CONSTRAINT chat_messages_chat_session_id_fkey;
+ALTER TABLE chat_messages ADD CONSTRAINT chat_messages_chat_session_id_fkey
+    FOREIGN KEY (chat_session_id) REFERENCES chat_sessions(id) ON DELETE CASCADE;
@@ -0,0 +1,9 @@
+-- Document content moves out of the documents table into the blob store
+ALTER TABLE documents ADD COLUMN storage_key VARCHAR(64);
+ALTER TABLE documents ALTER COLUMN file_data DROP NOT NULL;
+
+-- Lets the background migration find the rows that still carry their bytes in file_data
+CREATE INDEX idx_documents_pending_blob_migration ON documents(id) WHERE storage_key IS NULL AND file_data IS NOT NULL;
+
+COMMENT ON COLUMN documents.storage_key IS 'Key of the encrypted document content in the blob store';
+COMMENT ON COLUMN documents.file_data IS 'Legacy encrypted content, moved to the blob store by the background migration';
@@ -0,0 +1,120 @@
+package ai.docbrain.persistence.AI;
+
+import ai.docbrain.service.AI.DTO.DocumentChunkDto;
+import ai.docbrain.service.AI.EmbeddingCodec;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.postgresql.PGConnection;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * The binary COPY and the multi-row INSERT fallback of the chunk ingest must store the same rows.
+ */
+@DataJpaTest(properties = "spring.flyway.enabled=false")
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+class ChunkIngestParityTest {
+
+    // More than two INSERT statements of the fallback
+    private static final int CHUNKS = 600;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private final EmbeddingCodec embeddingCodec = new EmbeddingCodec(EmbeddingCodec.Format.FLOAT32);
+    private Long companyId;
+
+    @BeforeEach
+    void createCompany() {
+        companyId = jdbcTemplate.queryForObject(
+                "INSERT INTO companies (company_name) VALUES ('Test') RETURNING id", Long.class);
+    }
+
+    @Test
+    void copyAndInsertStoreTheSameRows() {
+        // The COPY path is only taken on a PostgreSQL connection
+        assertThat(jdbcTemplate.execute((ConnectionCallback<Boolean>) connection -> connection.isWrapperFor(PGConnection.class)))
+                .isTrue();
+        List<DocumentChunkDto> chunks = chunks();
+        Long copied = createDocument();
+        Long inserted = createDocument();
+
+        assertThat(new DocumentChunkBulkRepositoryImpl(jdbcTemplate, embeddingCodec, true).insertAll(copied, chunks))
+                .isEqualTo(CHUNKS);
+        assertThat(new DocumentChunkBulkRepositoryImpl(jdbcTemplate, embeddingCodec, false).insertAll(inserted, chunks))
+                .isEqualTo(CHUNKS);
+
+        List<Map<String, Object>> copiedRows = rows(copied);
+        List<Map<String, Object>> insertedRows = rows(inserted);
+        assertThat(copiedRows).hasSize(CHUNKS);
+        for (int i = 0; i < CHUNKS; i++) {
+            Map<String, Object> copiedRow = copiedRows.get(i);
+            Map<String, Object> insertedRow = insertedRows.get(i);
+            assertThat(copiedRow.get("content")).as("content of chunk %d", i).isEqualTo(insertedRow.get("content"));
+            assertThat(copiedRow.get("chunk_order")).as("order of chunk %d", i).isEqualTo(insertedRow.get("chunk_order"));
+            assertThat((byte[]) copiedRow.get("embedding_vector")).as("vector of chunk %d", i)
+                    .isEqualTo((byte[]) insertedRow.get("embedding_vector"));
+        }
+    }
+
+    @Test
+    void rowsKeepTheirValues() {
+        Long documentId = createDocument();
+
+        new DocumentChunkBulkRepositoryImpl(jdbcTemplate, embeddingCodec, true).insertAll(documentId, chunks());
+
+        List<Map<String, Object>> rows = rows(documentId);
+        assertThat(rows.get(0).get("content")).isEqualTo("Chunk 0 with a NUL and ü");
+        assertThat(rows.get(0).get("chunk_order")).isEqualTo(0);
+        assertThat(EmbeddingCodec.decode((byte[]) rows.get(0).get("embedding_vector"))).containsExactly(0f, 0.5f, -1f);
+        assertThat(rows.get(1).get("content")).isNull();
+        assertThat(rows.get(1).get("chunk_order")).isNull();
+        assertThat(rows.get(2).get("embedding_vector")).isNull();
+        assertThat(rows.get(3).get("embedding_vector")).isNull();
+    }
+
+    @Test
+    void nothingIsWrittenForNoChunks() {
+        Long documentId = createDocument();
+
+        assertThat(new DocumentChunkBulkRepositoryImpl(jdbcTemplate, embeddingCodec, true).insertAll(documentId, List.of())).isZero();
+        assertThat(rows(documentId)).isEmpty();
+    }
+
+    private static List<DocumentChunkDto> chunks() {
+        List<DocumentChunkDto> chunks = new ArrayList<>(CHUNKS);
+        chunks.add(new DocumentChunkDto(null, "Chunk 0 with a NUL\u0000 and ü", 0, "[0.0, 0.5, -1.0]"));
+        chunks.add(new DocumentChunkDto(null, null, null, "[1.0, 2.0, 3.0]"));
+        chunks.add(new DocumentChunkDto(null, "Chunk 2 without embedding", 2, null));
+        chunks.add(new DocumentChunkDto(null, "Chunk 3 with a malformed embedding", 3, "[1.0, x]"));
+        for (int i = chunks.size(); i < CHUNKS; i++) {
+            float[] vector = new float[8];
+            Arrays.fill(vector, i / 1000f);
+            chunks.add(new DocumentChunkDto(null, "Chunk " + i + " " + "text ".repeat(i % 50), i,
+                    EmbeddingCodec.toText(EmbeddingCodec.encode(vector, EmbeddingCodec.Format.FLOAT32))));
+        }
+        return chunks;
+    }
+
+    private List<Map<String, Object>> rows(Long documentId) {
+        return jdbcTemplate.queryForList("SELECT content, chunk_order, embedding_vector FROM document_chunks " +
+                "WHERE document_id = ? ORDER BY id", documentId);
+    }
+
+    private Long createDocument() {
+        return jdbcTemplate.queryForObject("INSERT INTO documents (name, type, path, size, company_id, ai_processed, " +
+                        "created_at, last_modified_at, status_code) " +
+                        "VALUES ('name', 'application/pdf', '/', 1, ?, false, now(), now(), 'ACTIVE') RETURNING id",
+                Long.class, companyId);
+    }
+}
@@ -0,0 +1,140 @@
+package ai.docbrain.persistence.AI;
+
+import ai.docbrain.domain.AI.ProcessingJob;
+import ai.docbrain.domain.AI.ProcessingJobStatus;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.time.ZonedDateTime;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+
+/**
+ * State transitions of processing jobs as the worker and the callback drive them. The test runs
+ * in one transaction, so now() in the SQL is the time the test started.
+ */
+@DataJpaTest(properties = "spring.flyway.enabled=false")
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Import(ProcessingJobRepositoryImpl.class)
+class ProcessingJobQueueTest {
+
+    @Autowired
+    private ProcessingJobRepositoryImpl processingJobRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private Long companyId;
+    private Long documentId;
+
+    @BeforeEach
+    void createCompany() {
+        companyId = jdbcTemplate.queryForObject(
+                "INSERT INTO companies (company_name) VALUES ('Test') RETURNING id", Long.class);
+        documentId = createDocument();
+    }
+
+    @Test
+    void documentHasAtMostOneActiveJob() {
+        ProcessingJob queued = processingJobRepository.enqueue(documentId, companyId);
+
+        assertThat(queued.getStatus()).isEqualTo(ProcessingJobStatus.QUEUED);
+        assertThat(processingJobRepository.enqueue(documentId, companyId).getId()).isEqualTo(queued.getId());
+        claim(1);
+        assertThat(processingJobRepository.enqueue(documentId, companyId).getId()).isEqualTo(queued.getId());
+    }
+
+    @Test
+    void claimSendsDueJobsUpToTheLimit() {
+        Long first = processingJobRepository.enqueue(documentId, companyId).getId();
+        Long second = processingJobRepository.enqueue(createDocument(), companyId).getId();
+
+        List<ProcessingJob> claimed = claim(1);
+
+        assertThat(claimed).hasSize(1);
+        assertThat(claimed.get(0).getStatus()).isEqualTo(ProcessingJobStatus.SENT);
+        assertThat(claimed.get(0).getAttempts()).isEqualTo(1);
+        assertThat(claimed.get(0).getSentAt()).isNotNull();
+        List<ProcessingJob> rest = claim(5);
+        assertThat(rest).hasSize(1);
+        assertThat(List.of(claimed.get(0).getId(), rest.get(0).getId())).containsExactlyInAnyOrder(first, second);
+        assertThat(claim(5)).isEmpty();
+    }
+
+    @Test
+    void retriedJobIsClaimedOnceDue() {
+        ProcessingJob job = processingJobRepository.enqueue(documentId, companyId);
+        claim(1);
+
+        assertThat(processingJobRepository.retry(job.getId(), "Connection refused", ZonedDateTime.now().plusHours(1))).isTrue();
+
+        ProcessingJob retried = processingJobRepository.findById(job.getId()).orElseThrow();
+        assertThat(retried.getStatus()).isEqualTo(ProcessingJobStatus.QUEUED);
+        assertThat(retried.getLastError()).isEqualTo("Connection refused");
+        assertThat(claim(1)).isEmpty();
+
+        jdbcTemplate.update("UPDATE processing_jobs SET next_attempt_at = now() - interval '1 second' WHERE id = ?", job.getId());
+        List<ProcessingJob> claimed = claim(1);
+        assertThat(claimed).extracting(ProcessingJob::getId).containsExactly(job.getId());
+        assertThat(claimed.get(0).getAttempts()).isEqualTo(2);
+    }
+
+    @Test
+    void onlySentJobsAreRetriedOrFailed() {
+        ProcessingJob job = processingJobRepository.enqueue(documentId, companyId);
+
+        assertThat(processingJobRepository.retry(job.getId(), "error", ZonedDateTime.now())).isFalse();
+        assertThat(processingJobRepository.fail(job.getId(), "error")).isFalse();
+
+        claim(1);
+        assertThat(processingJobRepository.fail(job.getId(), "Out of attempts")).isTrue();
+        // A second worker finding the same timeout loses the race
+        assertThat(processingJobRepository.fail(job.getId(), "Out of attempts")).isFalse();
+        assertThat(processingJobRepository.retry(job.getId(), "error", ZonedDateTime.now())).isFalse();
+        assertThat(processingJobRepository.findById(job.getId()).orElseThrow().getStatus()).isEqualTo(ProcessingJobStatus.FAILED);
+    }
+
+    @Test
+    void callbackFinishesTheJobAndAFreshOneCanBeQueued() {
+        ProcessingJob job = processingJobRepository.enqueue(documentId, companyId);
+        claim(1);
+
+        assertThat(processingJobRepository.markCallbackReceived(documentId))
+                .extracting(ProcessingJob::getId, ProcessingJob::getStatus)
+                .containsExactly(tuple(job.getId(), ProcessingJobStatus.CALLBACK_RECEIVED));
+        assertThat(processingJobRepository.markCallbackReceived(documentId)).isEmpty();
+        assertThat(processingJobRepository.fail(job.getId(), "late timeout")).isFalse();
+
+        ProcessingJob again = processingJobRepository.enqueue(documentId, companyId);
+        assertThat(again.getId()).isNotEqualTo(job.getId());
+        assertThat(processingJobRepository.findLatestByDocumentId(documentId).orElseThrow().getId()).isEqualTo(again.getId());
+    }
+
+    @Test
+    void sentJobsWithoutCallbackAreFoundAfterTheCutoff() {
+        ProcessingJob job = processingJobRepository.enqueue(documentId, companyId);
+        claim(1);
+
+        assertThat(processingJobRepository.findSentBefore(ZonedDateTime.now().minusHours(1), 10)).isEmpty();
+        assertThat(processingJobRepository.findSentBefore(ZonedDateTime.now().plusSeconds(1), 10))
+                .extracting(ProcessingJob::getId).containsExactly(job.getId());
+    }
+
+    private List<ProcessingJob> claim(int limit) {
+        return processingJobRepository.claimDue(limit);
+    }
+
+    private Long createDocument() {
+        return jdbcTemplate.queryForObject("INSERT INTO documents (name, type, path, size, company_id, ai_processed, " +
+                        "created_at, last_modified_at, status_code) " +
+                        "VALUES ('name', 'application/pdf', '/', 1, ?, false, now(), now(), 'ACTIVE') RETURNING id",
+                Long.class, companyId);
+    }
+}
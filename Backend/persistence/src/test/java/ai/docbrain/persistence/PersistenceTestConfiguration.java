@@ -0,0 +1,54 @@
+package ai.docbrain.persistence;
+
+import io.zonky.test.db.postgres.embedded.EmbeddedPostgres;
+import org.springframework.boot.SpringBootConfiguration;
+import org.springframework.boot.autoconfigure.domain.EntityScan;
+import org.springframework.context.annotation.Bean;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.support.PathMatchingResourcePatternResolver;
+import org.springframework.data.jpa.repository.config.EnableJpaRepositories;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Comparator;
+
+/**
+ * Configuration of the repository tests: the entities and Spring Data repositories on a throwaway
+ * PostgreSQL, migrated with the scripts Flyway runs. Tests use it with
+ * {@code @DataJpaTest(properties = "spring.flyway.enabled=false")} and
+ * {@code @AutoConfigureTestDatabase(replace = NONE)}, importing the repository implementations
+ * they exercise.
+ */
+@SpringBootConfiguration
+@EntityScan("ai.docbrain.domain")
+@EnableJpaRepositories("ai.docbrain.persistence")
+public class PersistenceTestConfiguration {
+
+    @Bean(destroyMethod = "close")
+    EmbeddedPostgres embeddedPostgres() throws IOException {
+        return EmbeddedPostgres.start();
+    }
+
+    @Bean
+    DataSource dataSource(EmbeddedPostgres postgres) throws IOException {
+        DataSource dataSource = postgres.getPostgresDatabase();
+        migrate(new JdbcTemplate(dataSource));
+        return dataSource;
+    }
+
+    // The same scripts Flyway runs, in version order
+    private static void migrate(JdbcTemplate jdbcTemplate) throws IOException {
+        Resource[] scripts = new PathMatchingResourcePatternResolver().getResources("classpath:db/migration/core/V*.sql");
+        Arrays.sort(scripts, Comparator.comparingInt(PersistenceTestConfiguration::version));
+        for (Resource script : scripts) {
+            jdbcTemplate.execute(script.getContentAsString(StandardCharsets.UTF_8));
+        }
+    }
+
+    private static int version(Resource script) {
+        return Integer.parseInt(script.getFilename().replaceAll("V1_(\\d+)__.*", "$1"));
+    }
+}
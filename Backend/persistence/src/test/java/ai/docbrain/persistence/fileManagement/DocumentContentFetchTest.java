@@ -0,0 +1,205 @@
+package ai.docbrain.persistence.fileManagement;
+
+import ai.docbrain.domain.fileManagement.Document;
+import ai.docbrain.domain.fileManagement.DocumentContent;
+import ai.docbrain.service.fileManagement.DTO.DocumentMetadataFilterRequest;
+import jakarta.persistence.EntityManager;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import javax.sql.DataSource;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.nio.charset.StandardCharsets;
+import java.sql.CallableStatement;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Listing, rename and delete must not read document content. Every operation runs against
+ * PostgreSQL with the real migrations, the bytes it reads from result sets are counted.
+ *
+ * @see ai.docbrain.persistence.PersistenceTestConfiguration
+ */
+@DataJpaTest(properties = {
+        "spring.flyway.enabled=false",
+        "spring.jpa.properties.hibernate.generate_statistics=true"
+})
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Import(DocumentRepositoryImpl.class)
+class DocumentContentFetchTest {
+
+    private static final int CONTENT_SIZE = 4 * 1024 * 1024;
+    // Metadata of the document, names and types are a few hundred bytes at most
+    private static final long METADATA_BUDGET = 4 * 1024;
+    private static final AtomicLong BYTES_READ = new AtomicLong();
+
+    @Autowired
+    private DocumentRepositoryImpl documentRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    private Long companyId;
+    private Long folderId;
+    private Long documentId;
+
+    @BeforeEach
+    void createDocument() {
+        companyId = jdbcTemplate.queryForObject(
+                "INSERT INTO companies (company_name) VALUES ('Test') RETURNING id", Long.class);
+        folderId = jdbcTemplate.queryForObject(
+                "INSERT INTO folders (name, company_id) VALUES ('Folder', ?) RETURNING id", Long.class, companyId);
+        // Legacy content still held in the table, the worst case for an accidental fetch
+        Long contentId = jdbcTemplate.queryForObject(
+                "INSERT INTO document_contents (company_id, file_data, size) VALUES (?, ?, ?) RETURNING id",
+                Long.class, companyId, new byte[CONTENT_SIZE], CONTENT_SIZE);
+        documentId = jdbcTemplate.queryForObject(
+                "INSERT INTO documents (name, type, path, size, folder_id, company_id, content_id, ai_processed, " +
+                        "created_at, last_modified_at, status_code) " +
+                        "VALUES ('name', 'application/pdf', '/', ?, ?, ?, ?, false, now(), now(), 'ACTIVE') RETURNING id",
+                Long.class, CONTENT_SIZE, folderId, companyId, contentId);
+        entityManager.clear();
+        statistics().clear();
+        BYTES_READ.set(0);
+    }
+
+    @Test
+    void folderListingReadsNoContent() {
+        assertThat(documentRepository.findMetadataByFolderIdAndCompanyId(folderId, companyId)).hasSize(1);
+
+        assertNoContentRead();
+    }
+
+    @Test
+    void companyListingReadsNoContent() {
+        assertThat(documentRepository.findAllMetadataByCompanyId(companyId)).hasSize(1);
+
+        assertNoContentRead();
+    }
+
+    @Test
+    void metadataPageReadsNoContent() {
+        DocumentMetadataFilterRequest filter = DocumentMetadataFilterRequest.builder().includeSummary(true).build();
+        assertThat(documentRepository.findMetadataPage(companyId, filter, 10)).hasSize(1);
+
+        assertNoContentRead();
+    }
+
+    @Test
+    void renameReadsNoContent() {
+        Document document = documentRepository.findById(documentId).orElseThrow();
+        document.setName("renamed");
+        documentRepository.save(document);
+        entityManager.flush();
+
+        assertNoContentRead();
+    }
+
+    @Test
+    void deleteReadsNoContent() {
+        documentRepository.delete(documentRepository.findById(documentId).orElseThrow());
+        entityManager.flush();
+
+        assertNoContentRead();
+        assertThat(documentRepository.findById(documentId)).isEmpty();
+    }
+
+    @Test
+    void contentReadIsCounted() {
+        Document document = documentRepository.findByIdWithContent(documentId).orElseThrow();
+
+        assertThat(document.getContent().getFileData()).hasSize(CONTENT_SIZE);
+        assertThat(BYTES_READ.get()).isGreaterThanOrEqualTo(CONTENT_SIZE);
+    }
+
+    private void assertNoContentRead() {
+        assertThat(BYTES_READ.get()).isLessThan(METADATA_BUDGET);
+        assertThat(statistics().getEntityStatistics(DocumentContent.class.getName()).getLoadCount()).isZero();
+    }
+
+    private Statistics statistics() {
+        return entityManager.getEntityManagerFactory().unwrap(SessionFactory.class).getStatistics();
+    }
+
+    @TestConfiguration
+    static class CountingDataSource {
+
+        @Bean
+        static BeanPostProcessor countingDataSourceProcessor() {
+            return new BeanPostProcessor() {
+                @Override
+                public Object postProcessAfterInitialization(Object bean, String beanName) {
+                    return bean instanceof DataSource dataSource ? countingProxy(DataSource.class, dataSource) : bean;
+                }
+            };
+        }
+    }
+
+    /**
+     * Wraps the JDBC objects down to the result sets and adds the size of every value read.
+     */
+    @SuppressWarnings("unchecked")
+    private static <T> T countingProxy(Class<T> type, T target) {
+        return (T) Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[]{type}, (proxy, method, args) -> {
+            Object result;
+            try {
+                result = method.invoke(target, args);
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+            Class<?> returnType = method.getReturnType();
+            if (result instanceof byte[] bytes) {
+                BYTES_READ.addAndGet(bytes.length);
+            } else if (result instanceof String string && type == ResultSet.class) {
+                BYTES_READ.addAndGet(string.getBytes(StandardCharsets.UTF_8).length);
+            } else if (result instanceof InputStream in && type == ResultSet.class) {
+                return new FilterInputStream(in) {
+                    @Override
+                    public int read() throws IOException {
+                        int b = super.read();
+                        if (b >= 0) {
+                            BYTES_READ.incrementAndGet();
+                        }
+                        return b;
+                    }
+
+                    @Override
+                    public int read(byte[] b, int off, int len) throws IOException {
+                        int n = super.read(b, off, len);
+                        if (n > 0) {
+                            BYTES_READ.addAndGet(n);
+                        }
+                        return n;
+                    }
+                };
+            } else if (returnType == Connection.class || returnType == Statement.class
+                    || returnType == PreparedStatement.class || returnType == CallableStatement.class
+                    || returnType == ResultSet.class) {
+                return result == null ? null : countingProxy((Class<Object>) returnType, result);
+            }
+            return result;
+        });
+    }
+}
@@ -0,0 +1,147 @@
+package ai.docbrain.persistence.fileManagement;
+
+import ai.docbrain.domain.fileManagement.TermKind;
+import ai.docbrain.service.fileManagement.DTO.TermCountDto;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * The maintained document counts of keywords and tags through uploads, processing callbacks,
+ * reused results and deletes, checked against the links they count.
+ */
+@DataJpaTest(properties = "spring.flyway.enabled=false")
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Import(DocumentTermRepositoryImpl.class)
+class DocumentTermCountsTest {
+
+    @Autowired
+    private DocumentTermRepositoryImpl documentTermRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private Long companyId;
+    private Long folder1;
+    private Long folder2;
+    private Long document1;
+    private Long document2;
+    private Long rootDocument;
+
+    @BeforeEach
+    void createDocuments() {
+        companyId = jdbcTemplate.queryForObject(
+                "INSERT INTO companies (company_name) VALUES ('Test') RETURNING id", Long.class);
+        folder1 = createFolder("one");
+        folder2 = createFolder("two");
+        document1 = createDocument(folder1);
+        document2 = createDocument(folder2);
+        rootDocument = createDocument(null);
+    }
+
+    @Test
+    void uploadCountsTheTagsOfEveryDocument() {
+        documentTermRepository.replaceTerms(companyId, TermKind.TAG, List.of(document1, document2), List.of("contract", "urgent"));
+        documentTermRepository.replaceTerms(companyId, TermKind.TAG, List.of(rootDocument), List.of("contract"));
+
+        assertThat(topTerms(TermKind.TAG)).containsExactly(count("contract", 3), count("urgent", 2));
+        assertThat(topTerms(TermKind.KEYWORD)).isEmpty();
+        assertCountsMatchLinks();
+    }
+
+    @Test
+    void callbackReplacesTheKeywordsOfADocument() {
+        documentTermRepository.replaceTerms(companyId, TermKind.KEYWORD, List.of(document1), List.of("alpha", "beta"));
+        documentTermRepository.replaceTerms(companyId, TermKind.KEYWORD, List.of(document2), List.of("beta"));
+
+        // Processed again, alpha is dropped and gamma added
+        documentTermRepository.replaceTerms(companyId, TermKind.KEYWORD, List.of(document1), List.of("beta", "gamma"));
+
+        assertThat(topTerms(TermKind.KEYWORD)).containsExactly(count("beta", 2), count("gamma", 1));
+        assertCountsMatchLinks();
+    }
+
+    @Test
+    void keywordsAndTagsWithTheSameValueAreCountedApart() {
+        documentTermRepository.replaceTerms(companyId, TermKind.TAG, List.of(document1), List.of("invoice"));
+        documentTermRepository.replaceTerms(companyId, TermKind.KEYWORD, List.of(document1), List.of("invoice"));
+
+        documentTermRepository.replaceTerms(companyId, TermKind.KEYWORD, List.of(document1), List.of());
+
+        assertThat(topTerms(TermKind.TAG)).containsExactly(count("invoice", 1));
+        assertThat(topTerms(TermKind.KEYWORD)).isEmpty();
+        assertCountsMatchLinks();
+    }
+
+    @Test
+    void reusedResultsCountForTheCopy() {
+        documentTermRepository.replaceTerms(companyId, TermKind.KEYWORD, List.of(document1), List.of("alpha", "beta"));
+
+        documentTermRepository.copyTerms(TermKind.KEYWORD, document1, document2);
+        // Copying twice links nothing new
+        documentTermRepository.copyTerms(TermKind.KEYWORD, document1, document2);
+
+        assertThat(topTerms(TermKind.KEYWORD)).containsExactly(count("alpha", 2), count("beta", 2));
+        assertCountsMatchLinks();
+    }
+
+    @Test
+    void deleteLowersTheCounts() {
+        documentTermRepository.replaceTerms(companyId, TermKind.TAG, List.of(document1, document2), List.of("contract", "urgent"));
+        documentTermRepository.replaceTerms(companyId, TermKind.KEYWORD, List.of(document2), List.of("alpha"));
+
+        documentTermRepository.removeDocument(document2);
+        jdbcTemplate.update("DELETE FROM documents WHERE id = ?", document2);
+
+        assertThat(topTerms(TermKind.TAG)).containsExactly(count("contract", 1), count("urgent", 1));
+        assertThat(topTerms(TermKind.KEYWORD)).isEmpty();
+        assertCountsMatchLinks();
+    }
+
+    @Test
+    void restrictedCountsOnlyCoverVisibleFolders() {
+        documentTermRepository.replaceTerms(companyId, TermKind.TAG, List.of(document1, document2, rootDocument), List.of("contract"));
+        documentTermRepository.replaceTerms(companyId, TermKind.TAG, List.of(document2), List.of("contract", "urgent"));
+
+        // A client linked to the first folder, an employee blocked from it
+        assertThat(documentTermRepository.countTopTerms(companyId, TermKind.TAG, List.of(folder1), null, 10))
+                .containsExactly(count("contract", 1));
+        assertThat(documentTermRepository.countTopTerms(companyId, TermKind.TAG, null, List.of(folder1), 10))
+                .containsExactly(count("contract", 2), count("urgent", 1));
+        assertThat(documentTermRepository.countTopTerms(companyId, TermKind.TAG, null, List.of(folder1), 1))
+                .containsExactly(count("contract", 2));
+    }
+
+    private List<TermCountDto> topTerms(TermKind kind) {
+        return documentTermRepository.findTopTerms(companyId, kind, 10);
+    }
+
+    private void assertCountsMatchLinks() {
+        assertThat(jdbcTemplate.queryForList("SELECT t.value FROM terms t WHERE t.company_id = ? AND t.document_count <> " +
+                "(SELECT count(*) FROM document_terms dt WHERE dt.term_id = t.id)", String.class, companyId)).isEmpty();
+    }
+
+    private static TermCountDto count(String value, long count) {
+        return new TermCountDto(value, count);
+    }
+
+    private Long createFolder(String name) {
+        return jdbcTemplate.queryForObject("INSERT INTO folders (name, company_id) VALUES (?, ?) RETURNING id",
+                Long.class, name, companyId);
+    }
+
+    private Long createDocument(Long folderId) {
+        return jdbcTemplate.queryForObject("INSERT INTO documents (name, type, path, size, folder_id, company_id, ai_processed, " +
+                        "created_at, last_modified_at, status_code) " +
+                        "VALUES ('name', 'application/pdf', '/', 1, ?, ?, false, now(), now(), 'ACTIVE') RETURNING id",
+                Long.class, folderId, companyId);
+    }
+}
@@ -0,0 +1,148 @@
+package ai.docbrain.persistence.fileManagement;
+
+import ai.docbrain.service.fileManagement.DTO.FolderStatsDto;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Folder counters kept up to date by deltas. After every change they must equal what the
+ * nightly reconcile computes from the documents, so reconcile finds nothing to correct.
+ */
+@DataJpaTest(properties = "spring.flyway.enabled=false")
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Import({FolderStatsRepositoryImpl.class, FolderRepositoryImpl.class})
+class FolderStatsTest {
+
+    @Autowired
+    private FolderStatsRepositoryImpl folderStatsRepository;
+
+    @Autowired
+    private FolderRepositoryImpl folderRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private Long companyId;
+    // a/b/c, and x as a second root folder
+    private Long a;
+    private Long b;
+    private Long c;
+    private Long x;
+
+    @BeforeEach
+    void createFolders() {
+        companyId = jdbcTemplate.queryForObject(
+                "INSERT INTO companies (company_name) VALUES ('Test') RETURNING id", Long.class);
+        a = createFolder("a", null);
+        b = createFolder("b", a);
+        c = createFolder("c", b);
+        x = createFolder("x", null);
+    }
+
+    @Test
+    void addedDocumentsCountInTheirFolderAndAllAbove() {
+        addDocument(c, 100, false);
+        addDocument(b, 50, true);
+
+        assertThat(stats(c)).isEqualTo(new FolderStatsDto(c, 100, 1, 0, 100, 1, 0));
+        assertThat(stats(b)).isEqualTo(new FolderStatsDto(b, 50, 1, 1, 150, 2, 1));
+        assertThat(stats(a)).isEqualTo(new FolderStatsDto(a, 0, 0, 0, 150, 2, 1));
+        assertThat(stats(x)).isEqualTo(new FolderStatsDto(x, 0, 0, 0, 0, 0, 0));
+        assertNoDrift();
+    }
+
+    @Test
+    void removedResizedAndProcessedDocumentsApplyTheirDeltas() {
+        Long removed = addDocument(c, 100, true);
+        Long resized = addDocument(c, 10, false);
+
+        jdbcTemplate.update("DELETE FROM documents WHERE id = ?", removed);
+        folderStatsRepository.applyDelta(c, -100, -1, -1);
+        jdbcTemplate.update("UPDATE documents SET size = 25, ai_processed = true WHERE id = ?", resized);
+        folderStatsRepository.applyDelta(c, 15, 0, 0);
+        folderStatsRepository.applyDelta(c, 0, 0, 1);
+
+        assertThat(stats(c)).isEqualTo(new FolderStatsDto(c, 25, 1, 1, 25, 1, 1));
+        assertThat(stats(a)).isEqualTo(new FolderStatsDto(a, 0, 0, 0, 25, 1, 1));
+        assertNoDrift();
+    }
+
+    @Test
+    void movedSubtreeTakesItsTotalsAlong() {
+        addDocument(c, 100, false);
+        addDocument(b, 50, true);
+        addDocument(a, 7, false);
+
+        folderStatsRepository.applySubtreeToAncestors(b, -1);
+        jdbcTemplate.update("UPDATE folders SET parent_id = ? WHERE id = ?", x, b);
+        folderRepository.moveSubtree(b, x);
+        folderStatsRepository.applySubtreeToAncestors(b, 1);
+
+        assertThat(stats(a)).isEqualTo(new FolderStatsDto(a, 7, 1, 0, 7, 1, 0));
+        assertThat(stats(x)).isEqualTo(new FolderStatsDto(x, 0, 0, 0, 150, 2, 1));
+        assertThat(stats(b)).isEqualTo(new FolderStatsDto(b, 50, 1, 1, 150, 2, 1));
+        assertNoDrift();
+    }
+
+    @Test
+    void deletedSubtreeLeavesTheTotalsAbove() {
+        addDocument(c, 100, false);
+        addDocument(a, 7, false);
+
+        folderStatsRepository.applySubtreeToAncestors(b, -1);
+        folderRepository.deleteSubtree(b);
+
+        assertThat(stats(a)).isEqualTo(new FolderStatsDto(a, 7, 1, 0, 7, 1, 0));
+        assertThat(folderStatsRepository.findByFolderId(b)).isEmpty();
+        assertNoDrift();
+    }
+
+    @Test
+    void reconcileCorrectsDriftedFolders() {
+        addDocument(c, 100, true);
+        // Drift a delta never applied would leave
+        jdbcTemplate.update("INSERT INTO documents (name, type, path, size, folder_id, company_id, ai_processed, " +
+                "created_at, last_modified_at, status_code) " +
+                "VALUES ('name', 'application/pdf', '/', 40, ?, ?, false, now(), now(), 'ACTIVE')", b, companyId);
+        jdbcTemplate.update("UPDATE folder_stats SET total_documents = 99 WHERE folder_id = ?", x);
+
+        assertThat(folderStatsRepository.reconcile(companyId)).isEqualTo(3);
+
+        assertThat(stats(b)).isEqualTo(new FolderStatsDto(b, 40, 1, 0, 140, 2, 1));
+        assertThat(stats(a)).isEqualTo(new FolderStatsDto(a, 0, 0, 0, 140, 2, 1));
+        assertThat(stats(x)).isEqualTo(new FolderStatsDto(x, 0, 0, 0, 0, 0, 0));
+        assertNoDrift();
+    }
+
+    private void assertNoDrift() {
+        assertThat(folderStatsRepository.reconcile(companyId)).isZero();
+    }
+
+    private FolderStatsDto stats(Long folderId) {
+        return folderStatsRepository.findByFolderId(folderId).orElseThrow();
+    }
+
+    private Long createFolder(String name, Long parentId) {
+        Long id = jdbcTemplate.queryForObject("INSERT INTO folders (name, parent_id, company_id) VALUES (?, ?, ?) RETURNING id",
+                Long.class, name, parentId, companyId);
+        folderRepository.insertClosure(id, parentId);
+        folderStatsRepository.insertEmpty(id, companyId);
+        return id;
+    }
+
+    private Long addDocument(Long folderId, long size, boolean processed) {
+        Long id = jdbcTemplate.queryForObject("INSERT INTO documents (name, type, path, size, folder_id, company_id, ai_processed, " +
+                        "created_at, last_modified_at, status_code) " +
+                        "VALUES ('name', 'application/pdf', '/', ?, ?, ?, ?, now(), now(), 'ACTIVE') RETURNING id",
+                Long.class, size, folderId, companyId, processed);
+        folderStatsRepository.applyDelta(folderId, size, 1, processed ? 1 : 0);
+        return id;
+    }
+}
@@ -0,0 +1,123 @@
+package ai.docbrain.persistence.fileManagement;
+
+import ai.docbrain.service.fileManagement.DTO.FolderSubtreeDeletion;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Moves and recursive deletes of folder subtrees, which work on the closure table with single
+ * statements.
+ */
+@DataJpaTest(properties = "spring.flyway.enabled=false")
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Import(FolderRepositoryImpl.class)
+class FolderSubtreeTest {
+
+    @Autowired
+    private FolderRepositoryImpl folderRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private Long companyId;
+    // a/b/c, and x as a second root folder
+    private Long a;
+    private Long b;
+    private Long c;
+    private Long x;
+
+    @BeforeEach
+    void createFolders() {
+        companyId = jdbcTemplate.queryForObject(
+                "INSERT INTO companies (company_name) VALUES ('Test') RETURNING id", Long.class);
+        a = createFolder("a", null);
+        b = createFolder("b", a);
+        c = createFolder("c", b);
+        x = createFolder("x", null);
+    }
+
+    @Test
+    void moveRelinksTheSubtreeToItsNewAncestors() {
+        Long document = createDocument(c, "a/b/c");
+
+        jdbcTemplate.update("UPDATE folders SET parent_id = ? WHERE id = ?", x, b);
+        folderRepository.moveSubtree(b, x);
+
+        assertThat(ancestors(c)).containsExactlyInAnyOrderEntriesOf(Map.of(c, 0, b, 1, x, 2));
+        assertThat(ancestors(b)).containsExactlyInAnyOrderEntriesOf(Map.of(b, 0, x, 1));
+        assertThat(ancestors(a)).containsExactlyInAnyOrderEntriesOf(Map.of(a, 0));
+        assertThat(folderRepository.isInSubtree(x, c)).isTrue();
+        assertThat(folderRepository.isInSubtree(a, c)).isFalse();
+        assertThat(jdbcTemplate.queryForObject("SELECT path FROM documents WHERE id = ?", String.class, document))
+                .isEqualTo("x/b/c");
+    }
+
+    @Test
+    void moveToTheRootKeepsOnlyTheSubtreeLinks() {
+        jdbcTemplate.update("UPDATE folders SET parent_id = NULL WHERE id = ?", b);
+        folderRepository.moveSubtree(b, null);
+
+        assertThat(ancestors(c)).containsExactlyInAnyOrderEntriesOf(Map.of(c, 0, b, 1));
+        assertThat(ancestors(b)).containsExactlyInAnyOrderEntriesOf(Map.of(b, 0));
+    }
+
+    @Test
+    void deleteRemovesTheSubtreeWithItsDocumentsAndChats() {
+        Long chatted = createDocument(c, "a/b/c");
+        Long other = createDocument(b, "a/b");
+        Long outside = createDocument(x, "x");
+        Long userId = jdbcTemplate.queryForObject("INSERT INTO users (full_name, username, email, password, company_id) " +
+                "VALUES ('User', 'user', 'user@test', 'secret', ?) RETURNING id", Long.class, companyId);
+        Long sessionId = jdbcTemplate.queryForObject("INSERT INTO chat_sessions " +
+                "(document_id, user_id, session_name, is_general_chat, created_at, last_active_at) " +
+                "VALUES (?, ?, 'Chat', false, now(), now()) RETURNING id", Long.class, chatted, userId);
+        jdbcTemplate.update("INSERT INTO chat_messages (chat_session_id, is_user_message, content, timestamp) " +
+                "VALUES (?, true, 'Hello', now())", sessionId);
+
+        FolderSubtreeDeletion deletion = folderRepository.deleteSubtree(b);
+
+        assertThat(deletion.getFolderIds()).containsExactlyInAnyOrder(b, c);
+        assertThat(deletion.getDocumentIds()).containsExactlyInAnyOrder(chatted, other);
+        assertThat(jdbcTemplate.queryForList("SELECT id FROM folders WHERE company_id = ?", Long.class, companyId))
+                .containsExactlyInAnyOrder(a, x);
+        assertThat(jdbcTemplate.queryForList("SELECT id FROM documents WHERE company_id = ?", Long.class, companyId))
+                .containsExactly(outside);
+        assertThat(jdbcTemplate.queryForObject("SELECT count(*) FROM folder_closure WHERE ancestor_id IN (?, ?) " +
+                "OR descendant_id IN (?, ?)", Long.class, b, c, b, c)).isZero();
+        assertThat(jdbcTemplate.queryForObject("SELECT count(*) FROM chat_sessions WHERE id = ?", Long.class, sessionId)).isZero();
+        assertThat(jdbcTemplate.queryForObject("SELECT count(*) FROM chat_messages WHERE chat_session_id = ?", Long.class, sessionId)).isZero();
+    }
+
+    private Long createFolder(String name, Long parentId) {
+        Long id = jdbcTemplate.queryForObject("INSERT INTO folders (name, parent_id, company_id) VALUES (?, ?, ?) RETURNING id",
+                Long.class, name, parentId, companyId);
+        folderRepository.insertClosure(id, parentId);
+        return id;
+    }
+
+    private Long createDocument(Long folderId, String path) {
+        return jdbcTemplate.queryForObject("INSERT INTO documents (name, type, path, size, folder_id, company_id, ai_processed, " +
+                        "created_at, last_modified_at, status_code) " +
+                        "VALUES ('name', 'application/pdf', ?, 1, ?, ?, false, now(), now(), 'ACTIVE') RETURNING id",
+                Long.class, path, folderId, companyId);
+    }
+
+    private Map<Long, Integer> ancestors(Long folderId) {
+        Map<Long, Integer> ancestors = new HashMap<>();
+        List<Map<String, Object>> rows = jdbcTemplate.queryForList(
+                "SELECT ancestor_id, depth FROM folder_closure WHERE descendant_id = ?", folderId);
+        rows.forEach(row -> ancestors.put(((Number) row.get("ancestor_id")).longValue(), ((Number) row.get("depth")).intValue()));
+        return ancestors;
+    }
+}
@@ -6,7 +6,9 @@ import ai.docbrain.domain.users.User;
 import ai.docbrain.service.AI.ChatService;
 import ai.docbrain.service.AI.DTO.ChatRequestDto;
 import ai.docbrain.service.AI.DTO.ChatResponseDto;
+import ai.docbrain.service.AI.DTO.ProcessingJobDto;
 import ai.docbrain.service.AI.DTO.SessionDto;
+import ai.docbrain.service.AI.ProcessingJobService;
 import jakarta.persistence.EntityNotFoundException;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
@@ -18,6 +20,7 @@ import org.springframework.web.server.ResponseStatusException;
 
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
 import java.util.stream.Collectors;
 
 @RequiredArgsConstructor
@@ -27,11 +30,20 @@ import java.util.stream.Collectors;
 public class ChatController {
 
     private final ChatService chatService;
+    private final ProcessingJobService processingJobService;
 
+    /**
+     * Answers the prompt about the document. A document that is not processed yet is queued and
+     * answered with 202 and the processing job, to wait on and send the prompt again once it is done.
+     */
     @PostMapping("/withDocument")
-    public ResponseEntity<ChatResponseDto> sendMessage(
+    public ResponseEntity<?> sendMessage(
             @ModelAttribute("caller") User caller,
             @RequestBody ChatRequestDto request) {
+        Optional<ProcessingJobDto> job = processingJobService.submitUnlessReady(caller, request.getDocumentId());
+        if (job.isPresent()) {
+            return ResponseEntity.accepted().body(job.get());
+        }
         try {
             log.info("Received chat message for document: {}", request.getDocumentId());
 
@@ -2,15 +2,21 @@ package ai.docbrain.Controller.AI;
 
 
 
+import ai.docbrain.domain.users.User;
+import ai.docbrain.service.AI.DTO.ProcessingJobDto;
 import ai.docbrain.service.AI.DTO.aiModel.ProcessedDocumentDTO;
 import ai.docbrain.service.AI.DocumentProcessingService;
+import ai.docbrain.service.AI.ProcessingJobService;
+import ai.docbrain.service.utils.exception.InvalidDataException;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import java.time.Duration;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 
 @Slf4j
 @RestController
@@ -18,17 +24,36 @@ import java.util.Map;
 @RequiredArgsConstructor
 public class DocumentProcessingController {
 
+    private static final int MAX_WAIT_SECONDS = 30;
+
     private final DocumentProcessingService documentProcessingService;
+    private final ProcessingJobService processingJobService;
 
+    /**
+     * Queues the document for processing, the returned job tells when it is done.
+     */
     @PostMapping("/process")
-    public ResponseEntity<?> processDocument(@RequestParam("documentId") Long documentId) {
-        try {
-            documentProcessingService.sendDocumentForProcessing(documentId);
-            return ResponseEntity.ok().body("Document sent for processing");
-        } catch (Exception e) {
-            log.error("Error sending document for processing", e);
-            return ResponseEntity.internalServerError().body("Error processing document: " + e.getMessage());
+    public ResponseEntity<ProcessingJobDto> processDocument(@ModelAttribute("caller") User caller,
+                                                            @RequestParam("documentId") Long documentId) {
+        return ResponseEntity.accepted().body(processingJobService.submit(caller, documentId));
+    }
+
+    /**
+     * The state of a processing job. With {@code waitSeconds} the response is held until the job
+     * finishes or the time is up, without holding a request thread.
+     */
+    @GetMapping("/process/jobs/{jobId}")
+    public CompletableFuture<ResponseEntity<ProcessingJobDto>> getProcessingJob(@ModelAttribute("caller") User caller,
+                                                                               @PathVariable Long jobId,
+                                                                               @RequestParam(defaultValue = "0") int waitSeconds) {
+        if (waitSeconds < 0 || waitSeconds > MAX_WAIT_SECONDS) {
+            throw new InvalidDataException("waitSeconds must be between 0 and " + MAX_WAIT_SECONDS);
+        }
+        if (waitSeconds == 0) {
+            return CompletableFuture.completedFuture(ResponseEntity.ok(processingJobService.getJob(caller, jobId)));
         }
+        return processingJobService.awaitJob(caller, jobId, Duration.ofSeconds(waitSeconds))
+                .thenApply(ResponseEntity::ok);
     }
 
     @PostMapping("/process/callback")
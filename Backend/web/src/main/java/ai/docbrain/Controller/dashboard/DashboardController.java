@@ -5,6 +5,7 @@ import ai.docbrain.service.dashboard.DTO.*;
 import ai.docbrain.service.dashboard.DashboardService;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.log4j.Log4j2;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
@@ -171,4 +172,34 @@ public class DashboardController {
         Map<String, Double> growthData = dashboardService.getStorageGrowthOverTime(caller, period);
         return ResponseEntity.ok(growthData);
     }
+
+    /**
+     * GET /api/dashboard/filename-cache : Get decrypted file name cache statistics
+     *
+     * @param caller the current authenticated user
+     * @return the FileNameCacheStatsDTO with HTTP status 200 (OK), or 403 (Forbidden) for non super admins
+     * Returns hits, misses, hit ratio and memory use of the file name cache
+     */
+    @GetMapping("/filename-cache")
+    public ResponseEntity<FileNameCacheStatsDTO> getFileNameCacheStats(@ModelAttribute("caller") User caller) {
+        log.info("REST request to get file name cache stats for user ID: {}", caller.getId());
+        return dashboardService.getFileNameCacheStats(caller)
+                .map(ResponseEntity::ok)
+                .orElseGet(() -> ResponseEntity.status(HttpStatus.FORBIDDEN).build());
+    }
+
+    /**
+     * GET /api/dashboard/chunk-retrieval : Get chat context retrieval statistics
+     *
+     * @param caller the current authenticated user
+     * @return the ChunkRetrievalStatsDTO with HTTP status 200 (OK), or 403 (Forbidden) for non super admins
+     * Returns the chunks and bytes sent to the chat model against sending every chunk, and the embedding cache size
+     */
+    @GetMapping("/chunk-retrieval")
+    public ResponseEntity<ChunkRetrievalStatsDTO> getChunkRetrievalStats(@ModelAttribute("caller") User caller) {
+        log.info("REST request to get chunk retrieval stats for user ID: {}", caller.getId());
+        return dashboardService.getChunkRetrievalStats(caller)
+                .map(ResponseEntity::ok)
+                .orElseGet(() -> ResponseEntity.status(HttpStatus.FORBIDDEN).build());
+    }
 }
@@ -2,9 +2,16 @@ package ai.docbrain.Controller.fileManagement;
 
 import ai.docbrain.domain.fileManagement.Folder;
 import ai.docbrain.domain.users.User;
+import ai.docbrain.service.fileManagement.BatchUploadService;
+import ai.docbrain.service.fileManagement.DTO.BatchUploadResponseDto;
 import ai.docbrain.service.fileManagement.DTO.CreateFileRequestDto;
 import ai.docbrain.service.fileManagement.DTO.CreateFileResponseDto;
+import ai.docbrain.service.fileManagement.DTO.DocumentDownload;
+import ai.docbrain.service.fileManagement.DTO.DocumentFacetsDto;
 import ai.docbrain.service.fileManagement.DTO.DocumentListResponse;
+import ai.docbrain.service.fileManagement.DTO.DocumentMetadataFilterRequest;
+import ai.docbrain.service.fileManagement.DTO.DocumentMetadataPageDto;
+import ai.docbrain.service.fileManagement.DTO.DocumentPreviewArtifact;
 import ai.docbrain.service.fileManagement.DTO.FileDataResponseDto;
 import ai.docbrain.service.fileManagement.DTO.FileMetadataResponseDto;
 import ai.docbrain.service.fileManagement.DTO.RenameFileRequestDto;
@@ -12,23 +19,40 @@ import ai.docbrain.service.fileManagement.DTO.RenameFileResponseDto;
 import ai.docbrain.service.fileManagement.DTO.UpdateFileContentRequestDto;
 import ai.docbrain.service.fileManagement.DTO.UpdateFileContentResponseDto;
 import ai.docbrain.service.fileManagement.DTO.UploadResponse;
+import ai.docbrain.service.fileManagement.DocumentExportService;
 import ai.docbrain.service.fileManagement.DocumentService;
+import ai.docbrain.service.fileManagement.DocumentTermService;
 import ai.docbrain.service.fileManagement.FolderService;
+import ai.docbrain.service.fileManagement.ListingVersionService;
+import ai.docbrain.service.fileManagement.preview.DocumentPreviewService;
 import ai.docbrain.service.user.UserService;
 import ai.docbrain.service.utils.ServerConstants;
 import ai.docbrain.service.utils.ServerUtils;
+import ai.docbrain.service.utils.exception.InvalidDataException;
 import ai.docbrain.service.utils.exception.ResourceNotFoundException;
 import lombok.AllArgsConstructor;
 import lombok.extern.log4j.Log4j2;
+import org.springframework.core.io.Resource;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.CacheControl;
+import org.springframework.http.ContentDisposition;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 import org.springframework.web.multipart.MultipartFile;
 
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.time.ZonedDateTime;
 import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
 
 @RestController
 @RequestMapping("/api")
@@ -39,6 +63,11 @@ public class DocumentController {
     private final DocumentService documentService;
     private final UserService userService;
     private final FolderService folderService;
+    private final DocumentExportService documentExportService;
+    private final BatchUploadService batchUploadService;
+    private final DocumentPreviewService documentPreviewService;
+    private final DocumentTermService documentTermService;
+    private final ListingVersionService listingVersionService;
 
     @PostMapping("/uploadfile")
     public ResponseEntity<?> uploadFile(
@@ -93,6 +122,26 @@ public class DocumentController {
         return ResponseEntity.ok(new UploadResponse(successMessages, Collections.emptyList()));
     }
 
+    /**
+     * Uploads many files in one request, e.g. a dropped folder. Every file gets its own result,
+     * a file that fails does not stop the others.
+     *
+     * @param caller The authenticated user
+     * @param files The files to upload
+     * @param folderId The folder to upload into, or null for the root
+     * @return ResponseEntity with a result per file, in the order they were sent
+     */
+    @PostMapping("/uploadfiles")
+    public ResponseEntity<BatchUploadResponseDto> uploadFiles(
+            @ModelAttribute("caller") User caller,
+            @RequestParam("files") List<MultipartFile> files,
+            @RequestParam(required = false) Long folderId
+    ) {
+        BatchUploadResponseDto response = batchUploadService.upload(caller, files, folderId);
+        HttpStatus status = response.getFailedCount() == 0 ? HttpStatus.OK : HttpStatus.PARTIAL_CONTENT;
+        return ResponseEntity.status(status).body(response);
+    }
+
 //    @PostMapping("/uploadfiletouser")
 //    public ResponseEntity<String> uploadFileToUser(
 //            @ModelAttribute("caller") User caller,
@@ -116,6 +165,54 @@ public class DocumentController {
 //        }
 //    }
 
+    /**
+     * Serves the downscaled thumbnail of an image document. With {@code v} set to the
+     * {@code previewVersion} of the listing the response is cached for good, a content change
+     * gives a new version and thereby a new URL.
+     *
+     * @param caller The authenticated user
+     * @param documentId The ID of the document
+     * @param version The preview version the client expects, optional
+     * @return ResponseEntity with the thumbnail, or 304 if the client's copy is current
+     */
+    @GetMapping("/files/{documentId}/thumbnail")
+    public ResponseEntity<byte[]> getThumbnail(
+            @ModelAttribute("caller") User caller,
+            @PathVariable Long documentId,
+            @RequestParam(name = "v", required = false) Long version,
+            WebRequest webRequest
+    ) throws IOException {
+        return previewResponse(documentPreviewService.getThumbnail(caller, documentId), version, webRequest);
+    }
+
+    /**
+     * Serves the first page of a PDF document as a PDF of its own, cached like the thumbnail.
+     */
+    @GetMapping("/files/{documentId}/first-page.pdf")
+    public ResponseEntity<byte[]> getFirstPage(
+            @ModelAttribute("caller") User caller,
+            @PathVariable Long documentId,
+            @RequestParam(name = "v", required = false) Long version,
+            WebRequest webRequest
+    ) throws IOException {
+        return previewResponse(documentPreviewService.getFirstPage(caller, documentId), version, webRequest);
+    }
+
+    private ResponseEntity<byte[]> previewResponse(DocumentPreviewArtifact artifact, Long version, WebRequest webRequest) {
+        if (webRequest.checkNotModified(artifact.getEtag())) {
+            return null;
+        }
+        // Only a versioned URL may be cached without revalidation
+        CacheControl cacheControl = artifact.getVersion().equals(version)
+                ? CacheControl.maxAge(365, TimeUnit.DAYS).cachePrivate().immutable()
+                : CacheControl.noCache().cachePrivate();
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType(artifact.getContentType()))
+                .cacheControl(cacheControl)
+                .eTag(artifact.getEtag())
+                .body(artifact.getData());
+    }
+
     @GetMapping("/downloadfile")
     public ResponseEntity<?> downloadFile(
             @ModelAttribute("caller") User caller,
@@ -152,6 +249,71 @@ public class DocumentController {
         }
     }
 
+    /**
+     * Streams a single document as it is stored, with support for Range requests and
+     * revalidation through If-None-Match / If-Modified-Since.
+     *
+     * @param caller The authenticated user
+     * @param documentId The ID of the document to download
+     * @param webRequest Used to answer conditional requests before the content is opened
+     * @return ResponseEntity with the document content, Spring serves byte ranges from it
+     */
+    @GetMapping("/files/{documentId}/download")
+    public ResponseEntity<Resource> streamFile(
+            @ModelAttribute("caller") User caller,
+            @PathVariable Long documentId,
+            WebRequest webRequest
+    ) {
+        DocumentDownload download = documentService.prepareDownload(caller, documentId);
+
+        long lastModified = download.getLastModifiedAt() != null ? download.getLastModifiedAt().toInstant().toEpochMilli() : -1;
+        if (webRequest.checkNotModified(download.getEtag(), lastModified)) {
+            // 304 has already been set on the response
+            return null;
+        }
+
+        MediaType mediaType = download.getContentType() != null
+                ? MediaType.parseMediaType(download.getContentType())
+                : ServerUtils.getMediaType(download.getFileName());
+        return ResponseEntity.ok()
+                .contentType(mediaType)
+                .header(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.inline()
+                        .filename(download.getFileName(), StandardCharsets.UTF_8)
+                        .build()
+                        .toString())
+                .cacheControl(CacheControl.noCache().cachePrivate())
+                .eTag(download.getEtag())
+                .lastModified(lastModified)
+                .body(download.getResource());
+    }
+
+    /**
+     * Exports the selected documents as a ZIP streamed straight to the response,
+     * each placed under its folder path.
+     *
+     * @param caller The authenticated user
+     * @param documentIds The IDs of the documents to export
+     * @return ResponseEntity writing the ZIP while the documents are decrypted
+     */
+    @PostMapping("/files/export.zip")
+    public ResponseEntity<StreamingResponseBody> exportFiles(
+            @ModelAttribute("caller") User caller,
+            @RequestBody List<Long> documentIds
+    ) {
+        if (documentIds == null || documentIds.isEmpty()) {
+            throw new ResourceNotFoundException(ServerConstants.FILE_NOT_FOUND);
+        }
+        List<DocumentExportService.ExportEntry> entries = documentExportService.resolveDocumentsExport(caller, documentIds);
+
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType("application/zip"))
+                .header(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.attachment()
+                        .filename("documents.zip")
+                        .build()
+                        .toString())
+                .body(out -> documentExportService.writeZip(entries, out));
+    }
+
     @DeleteMapping("/deletefile")
     public ResponseEntity<?> deleteFile(
             @ModelAttribute("caller") User caller,
@@ -202,44 +364,120 @@ public class DocumentController {
 //        }
 //    }
 
+    /**
+     * Get the document metadata of a folder. Answers 304 while the folder's listing version is
+     * the one in If-None-Match, without reading the documents.
+     */
     @GetMapping("/files/{folderId}/metadata")
     public ResponseEntity<List<FileMetadataResponseDto>> getDocumentMetadataByFolderId(
             @ModelAttribute("caller") User caller,
-            @PathVariable Long folderId
+            @PathVariable Long folderId,
+            WebRequest webRequest
     ) {
+        // Checks the caller's access to the folder first, a folder they may not see gets no 304
+        String etag = listingVersionService.getFolderEtag(caller, folderId);
+        if (webRequest.checkNotModified(etag)) {
+            return null;
+        }
         List<FileMetadataResponseDto> metadataList = documentService.getDocumentMetadataByFolderId(caller, folderId);
 
         if (metadataList.isEmpty()) {
             throw new ResourceNotFoundException(ServerConstants.FILE_NOT_FOUND);
         }
 
-        return ResponseEntity.ok(metadataList);
+        return ResponseEntity.ok()
+                .cacheControl(CacheControl.noCache().cachePrivate())
+                .eTag(etag)
+                .body(metadataList);
     }
 
     /**
-     * Get all document metadata for the company
+     * Get all document metadata for the company, answering 304 like the folder listing
      *
      * @param caller The authenticated user
      * @return ResponseEntity with the list of file metadata
      */
     @GetMapping("/files/all/metadata")
     public ResponseEntity<List<FileMetadataResponseDto>> getAllDocumentMetadata(
-            @ModelAttribute("caller") User caller
+            @ModelAttribute("caller") User caller,
+            WebRequest webRequest
     ) {
         try {
+            String etag = listingVersionService.getCompanyEtag(caller);
+            if (webRequest.checkNotModified(etag)) {
+                return null;
+            }
             List<FileMetadataResponseDto> metadataList = documentService.getAllDocumentMetadataByCompany(caller);
 
             if (metadataList.isEmpty()) {
                 return ResponseEntity.noContent().build();
             }
 
-            return ResponseEntity.ok(metadataList);
+            return ResponseEntity.ok()
+                    .cacheControl(CacheControl.noCache().cachePrivate())
+                    .eTag(etag)
+                    .body(metadataList);
         } catch (Exception e) {
             log.error("Error fetching all document metadata", e);
             throw new ResourceNotFoundException("Failed to fetch document metadata");
         }
     }
 
+    /**
+     * Get one page of document metadata, newest first, for the whole company or one folder
+     *
+     * @param caller The authenticated user
+     * @param include Optional columns to return, only "summary" for now
+     * @param cursor The nextCursor of the previous page
+     * @return ResponseEntity with the page and the cursor of the next one
+     */
+    @GetMapping("/v2/files/metadata")
+    public ResponseEntity<DocumentMetadataPageDto> getDocumentMetadataPage(
+            @ModelAttribute("caller") User caller,
+            @RequestParam(required = false) Long folderId,
+            @RequestParam(required = false) List<String> type,
+            @RequestParam(required = false) List<String> tag,
+            @RequestParam(required = false) List<String> keyword,
+            @RequestParam(required = false) Boolean aiProcessed,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) ZonedDateTime modifiedFrom,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) ZonedDateTime modifiedTo,
+            @RequestParam(required = false) Set<String> include,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer limit
+    ) {
+        if (include != null && !Set.of("summary").containsAll(include)) {
+            throw new InvalidDataException("Only summary can be included");
+        }
+
+        DocumentMetadataFilterRequest filter = DocumentMetadataFilterRequest.builder()
+                .folderId(folderId)
+                .types(type)
+                .tags(tag)
+                .keywords(keyword)
+                .aiProcessed(aiProcessed)
+                .modifiedFrom(modifiedFrom)
+                .modifiedTo(modifiedTo)
+                .includeSummary(include != null && include.contains("summary"))
+                .build();
+
+        return ResponseEntity.ok(documentService.getDocumentMetadataPage(caller, filter, cursor, limit));
+    }
+
+    /**
+     * Get the most used keywords and tags, with their document counts, among the caller's documents
+     *
+     * @param caller The authenticated user
+     * @param limit Maximum number of keywords and of tags
+     * @return ResponseEntity with the keyword and tag counts
+     */
+    @GetMapping("/files/facets")
+    public ResponseEntity<DocumentFacetsDto> getDocumentFacets(
+            @ModelAttribute("caller") User caller,
+            @RequestParam(defaultValue = "20") int limit
+    ) {
+        return ResponseEntity.ok(documentTermService.getFacets(caller, limit));
+    }
+
     @GetMapping("/files/{documentId}/file-data")
     public ResponseEntity<FileDataResponseDto> getDocumentFileData(
             @ModelAttribute("caller") User caller,
@@ -2,12 +2,20 @@ package ai.docbrain.Controller.fileManagement;
 
 import ai.docbrain.domain.fileManagement.Folder;
 import ai.docbrain.domain.users.User;
+import ai.docbrain.service.fileManagement.DTO.FolderStatsDto;
+import ai.docbrain.service.fileManagement.DocumentExportService;
 import ai.docbrain.service.fileManagement.FolderService;
+import ai.docbrain.service.fileManagement.FolderStatsService;
 import lombok.RequiredArgsConstructor;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.nio.charset.StandardCharsets;
 import java.util.List;
 import java.util.Set;
 
@@ -17,6 +25,8 @@ import java.util.Set;
 public class FolderController {
 
     private final FolderService folderService;
+    private final DocumentExportService documentExportService;
+    private final FolderStatsService folderStatsService;
 
     @GetMapping
     public ResponseEntity<List<Folder>> getAllFoldersForCompany(@ModelAttribute("caller") User caller) {
@@ -33,12 +43,25 @@ public class FolderController {
         return ResponseEntity.ok(folderService.updateFolder(caller, id, updatedFolder));
     }
 
+    /**
+     * Deletes the folder, with {@code recursive=true} also all folders and documents below it.
+     */
     @DeleteMapping("/{id}")
-    public ResponseEntity<Void> deleteFolder(@ModelAttribute("caller") User caller, @PathVariable Long id) {
-        folderService.deleteFolder(caller, id);
+    public ResponseEntity<Void> deleteFolder(@ModelAttribute("caller") User caller, @PathVariable Long id,
+                                             @RequestParam(defaultValue = "false") boolean recursive) {
+        folderService.deleteFolder(caller, id, recursive);
         return ResponseEntity.noContent().build();
     }
 
+    /**
+     * Moves the folder with everything below it under another parent, or to the root without one.
+     */
+    @PostMapping("/{id}/move")
+    public ResponseEntity<Folder> moveFolder(@ModelAttribute("caller") User caller, @PathVariable Long id,
+                                             @RequestParam(required = false) Long parentId) {
+        return ResponseEntity.ok(folderService.moveFolder(caller, id, parentId));
+    }
+
     @GetMapping("/{id}")
     public ResponseEntity<Folder> getFolderById(@ModelAttribute("caller") User caller, @PathVariable Long id) {
         return folderService.getFolderById(caller, id)
@@ -48,18 +71,51 @@ public class FolderController {
 
 
 
-//    @GetMapping("/{id}/hierarchy")
-//    public ResponseEntity<List<Folder>> getFolderHierarchy(@ModelAttribute("caller") User caller, @PathVariable Long id) {
-//        return ResponseEntity.ok(folderService.getFolderHierarchy(caller, id));
-//    }
+    /**
+     * Size and document counts of the folder, directly in it and including its subfolders.
+     */
+    @GetMapping("/{id}/stats")
+    public ResponseEntity<FolderStatsDto> getFolderStats(@ModelAttribute("caller") User caller, @PathVariable Long id) {
+        return ResponseEntity.ok(folderStatsService.getStats(caller, id));
+    }
+
+    @GetMapping("/{id}/hierarchy")
+    public ResponseEntity<List<Folder>> getFolderHierarchy(@ModelAttribute("caller") User caller, @PathVariable Long id) {
+        return ResponseEntity.ok(folderService.getFolderHierarchy(caller, id));
+    }
 
 //    @GetMapping("/{id}/children")
 //    public ResponseEntity<List<Folder>> getChildFolders(@ModelAttribute("caller") User caller, @PathVariable Long id) {
 //        return ResponseEntity.ok(folderService.getChildFolders(id));
 //    }
 
+    /**
+     * Exports the folder and its sub folders as a ZIP streamed straight to the response.
+     */
+    @GetMapping("/{id}/export.zip")
+    public ResponseEntity<StreamingResponseBody> exportFolder(@ModelAttribute("caller") User caller, @PathVariable Long id) {
+        List<DocumentExportService.ExportEntry> entries = documentExportService.resolveFolderExport(caller, id);
+        String fileName = folderService.getFolderById(caller, id).map(Folder::getName).orElse("folder-" + id) + ".zip";
+
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType("application/zip"))
+                .header(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.attachment()
+                        .filename(fileName, StandardCharsets.UTF_8)
+                        .build()
+                        .toString())
+                .body(out -> documentExportService.writeZip(entries, out));
+    }
+
     @PostMapping("/{id}/link-clients")
     public ResponseEntity<Folder> linkFolderToClients(@ModelAttribute("caller") User caller, @PathVariable Long id, @RequestBody Set<Long> clientIds) {
         return ResponseEntity.ok(folderService.linkFolderToClients(caller, id, clientIds));
     }
+
+    /**
+     * Blocks the folder for exactly the given employees, replacing the previous blocks.
+     */
+    @PostMapping("/{id}/block-users")
+    public ResponseEntity<Folder> blockFolderForUsers(@ModelAttribute("caller") User caller, @PathVariable Long id, @RequestBody Set<Long> userIds) {
+        return ResponseEntity.ok(folderService.blockFolderForUsers(caller, id, userIds));
+    }
 }
\ No newline at end of file
@@ -0,0 +1,77 @@
+package ai.docbrain.Controller.fileManagement;
+
+import ai.docbrain.domain.users.User;
+import ai.docbrain.service.fileManagement.DTO.CreateFileResponseDto;
+import ai.docbrain.service.fileManagement.DTO.CreateUploadSessionRequestDto;
+import ai.docbrain.service.fileManagement.DTO.UploadSessionStatusDto;
+import ai.docbrain.service.fileManagement.ResumableUploadService;
+import jakarta.servlet.http.HttpServletRequest;
+import lombok.AllArgsConstructor;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.UUID;
+
+/**
+ * Resumable uploads: create a session, PUT the chunks, then complete it.
+ */
+@RestController
+@RequestMapping("/api/uploads")
+@AllArgsConstructor
+@Log4j2
+public class UploadController {
+
+    private final ResumableUploadService resumableUploadService;
+
+    @PostMapping
+    public ResponseEntity<UploadSessionStatusDto> createSession(
+            @ModelAttribute("caller") User caller,
+            @RequestBody CreateUploadSessionRequestDto request
+    ) {
+        return ResponseEntity.status(HttpStatus.CREATED).body(resumableUploadService.createSession(caller, request));
+    }
+
+    /**
+     * Receives the raw bytes of one chunk, {@code offset} must be a multiple of the session's chunk size.
+     */
+    @PutMapping("/{uploadId}")
+    public ResponseEntity<UploadSessionStatusDto> uploadChunk(
+            @ModelAttribute("caller") User caller,
+            @PathVariable UUID uploadId,
+            @RequestParam long offset,
+            HttpServletRequest request
+    ) throws IOException {
+        try (InputStream body = request.getInputStream()) {
+            return ResponseEntity.ok(resumableUploadService.receiveChunk(caller, uploadId, offset, body));
+        }
+    }
+
+    @GetMapping("/{uploadId}")
+    public ResponseEntity<UploadSessionStatusDto> getStatus(
+            @ModelAttribute("caller") User caller,
+            @PathVariable UUID uploadId
+    ) throws IOException {
+        return ResponseEntity.ok(resumableUploadService.getStatus(caller, uploadId));
+    }
+
+    @PostMapping("/{uploadId}/complete")
+    public ResponseEntity<CreateFileResponseDto> complete(
+            @ModelAttribute("caller") User caller,
+            @PathVariable UUID uploadId
+    ) throws IOException {
+        return ResponseEntity.ok(resumableUploadService.complete(caller, uploadId));
+    }
+
+    @DeleteMapping("/{uploadId}")
+    public ResponseEntity<Void> abort(
+            @ModelAttribute("caller") User caller,
+            @PathVariable UUID uploadId
+    ) {
+        resumableUploadService.abort(caller, uploadId);
+        return ResponseEntity.noContent().build();
+    }
+}
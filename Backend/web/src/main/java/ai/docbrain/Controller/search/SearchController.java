@@ -0,0 +1,70 @@
+package ai.docbrain.Controller.search;
+
+import ai.docbrain.domain.users.User;
+import ai.docbrain.service.search.DTO.SearchResponseDto;
+import ai.docbrain.service.search.DTO.SemanticSearchResponseDto;
+import ai.docbrain.service.search.SearchService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.io.IOException;
+
+/**
+ * REST controller for searching the text of documents
+ */
+@RestController
+@RequiredArgsConstructor
+@RequestMapping("/api/search")
+@Log4j2
+public class SearchController {
+
+    private final SearchService searchService;
+
+    /**
+     * GET /api/search : Full text search over the documents the caller can see
+     *
+     * @param caller the current authenticated user
+     * @param q the query, terms are all required, "quoted text" is a phrase, -term excludes
+     * @param limit the maximum number of documents to return
+     * @return the SearchResponseDto with HTTP status 200 (OK)
+     * Returns matching documents, best first, with highlighted snippets
+     */
+    @GetMapping
+    public ResponseEntity<SearchResponseDto> search(
+            @ModelAttribute("caller") User caller,
+            @RequestParam String q,
+            @RequestParam(defaultValue = "10") int limit) throws IOException {
+        return ResponseEntity.ok(searchService.search(caller, q, limit));
+    }
+
+    /**
+     * GET /api/search/semantic : Search by meaning over the documents the caller can see
+     *
+     * @param caller the current authenticated user
+     * @param q the question or text to find similar passages to
+     * @param limit the maximum number of chunks to return
+     * @return the SemanticSearchResponseDto with HTTP status 200 (OK)
+     * Returns the nearest chunks, best first, with their document
+     */
+    @GetMapping("/semantic")
+    public ResponseEntity<SemanticSearchResponseDto> semanticSearch(
+            @ModelAttribute("caller") User caller,
+            @RequestParam String q,
+            @RequestParam(defaultValue = "10") int limit) throws IOException {
+        return ResponseEntity.ok(searchService.semanticSearch(caller, q, limit));
+    }
+
+    /**
+     * POST /api/search/rebuild : Rebuild the company's search index from the database
+     *
+     * @param caller the current authenticated user, an admin
+     * @return HTTP status 202 (Accepted), the rebuild runs in the background
+     */
+    @PostMapping("/rebuild")
+    public ResponseEntity<String> rebuildIndex(@ModelAttribute("caller") User caller) {
+        log.info("REST request to rebuild the search index for user ID: {}", caller.getId());
+        return searchService.rebuildIndex(caller);
+    }
+}
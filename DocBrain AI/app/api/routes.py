@@ -2,7 +2,7 @@ from fastapi import APIRouter, UploadFile, File, Form, HTTPException
 from app.services.pdf_service import PDFService
 from app.services.model_service import ModelService
 from app.config import logger, flow_logger
-from app.utils.Dto.ChatDto import ChatModelResponseDto, ChatRequestDto
+from app.utils.Dto.ChatDto import ChatModelResponseDto, ChatRequestDto, EmbeddingRequestDto, EmbeddingResponseDto
 
 router = APIRouter()
 pdf_service = PDFService()
@@ -106,3 +106,14 @@ async def chat_with_document(request: ChatRequestDto):
         logger.error(f"Error in chat endpoint: {str(e)}", exc_info=True)
         flow_logger.error(f"ERROR: Chat response generation failed - {str(e)}")
         raise HTTPException(status_code=500, detail=str(e))
+
+
+@router.post("/embed", response_model=EmbeddingResponseDto)
+async def embed_text(request: EmbeddingRequestDto):
+    try:
+        flow_logger.info(f"Received embedding request from Spring Boot - Length: {len(request.text)} characters")
+        return EmbeddingResponseDto(embedding=pdf_service.embed(request.text))
+    except Exception as e:
+        logger.error(f"Error in embed endpoint: {str(e)}", exc_info=True)
+        flow_logger.error(f"ERROR: Embedding generation failed - {str(e)}")
+        raise HTTPException(status_code=500, detail=str(e))
@@ -102,6 +102,14 @@ class PDFService:
             logger.error(f"Error generating embedding: {str(e)}")
             return None
 
+    def embed(self, text: str) -> list:
+        """
+        Embed a query text with the model the chunks were embedded with
+        """
+        if self.embedding_model is None:
+            raise RuntimeError("Embedding model is not loaded")
+        return self.embedding_model.encode(text).tolist()
+
     def prepare_chunks_with_embeddings(self, text: str) -> list:
         """
         Extract chunks from text and generate embeddings for each chunk
@@ -18,4 +18,10 @@ class ChatRequestDto(BaseModel):
     chunks: List[DocumentChunkDto] = []  # Spring will send chunks with the request
 
 class ChatModelResponseDto(BaseModel):
-    content: str
\ No newline at end of file
+    content: str
+
+class EmbeddingRequestDto(BaseModel):
+    text: str
+
+class EmbeddingResponseDto(BaseModel):
+    embedding: List[float]
\ No newline at end of file